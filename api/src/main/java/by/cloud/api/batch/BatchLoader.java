@@ -0,0 +1,76 @@
+package by.cloud.api.batch;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Загрузчик в стиле DataLoader: одиночные запросы по ключу, пришедшие
+ * в течение короткого окна, объединяются в один пакетный вызов.
+ * Пакет отправляется, когда истекло окно или набрано maxBatchSize ключей.
+ */
+@Slf4j
+public class BatchLoader<K, V> {
+
+    private final String name;
+    private final Function<List<K>, Mono<Map<K, V>>> batchFunction;
+    private final Sinks.Many<PendingLoad<K, V>> queue = Sinks.many().unicast().onBackpressureBuffer();
+
+    public BatchLoader(String name,
+                       Function<List<K>, Mono<Map<K, V>>> batchFunction,
+                       int maxBatchSize,
+                       Duration window) {
+        this.name = name;
+        this.batchFunction = batchFunction;
+        queue.asFlux()
+                .bufferTimeout(maxBatchSize, window)
+                .flatMap(this::dispatch)
+                .subscribe();
+    }
+
+    /**
+     * Возвращает значение по ключу или пустой Mono, если пакетный вызов его не вернул
+     */
+    public Mono<V> load(K key) {
+        return Mono.defer(() -> {
+            var pending = new PendingLoad<K, V>(key, Sinks.one());
+            // Эмиссия из разных потоков сериализуется повтором при конкурентном доступе
+            queue.emitNext(pending, Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(100)));
+            return pending.result().asMono();
+        });
+    }
+
+    private Mono<Void> dispatch(List<PendingLoad<K, V>> batch) {
+        var keys = List.copyOf(batch.stream()
+                .map(PendingLoad::key)
+                .collect(LinkedHashSet<K>::new, LinkedHashSet::add, LinkedHashSet::addAll));
+        log.debug("BatchLoader [{}]: dispatching [{}] keys for [{}] loads", name, keys.size(), batch.size());
+
+        return batchFunction.apply(keys)
+                .defaultIfEmpty(Map.of())
+                .doOnNext(values -> batch.forEach(pending -> {
+                    var value = values.get(pending.key());
+                    if (value != null) {
+                        pending.result().tryEmitValue(value);
+                    } else {
+                        pending.result().tryEmitEmpty();
+                    }
+                }))
+                .doOnError(error -> {
+                    log.error("BatchLoader [{}]: batch of [{}] keys failed", name, keys.size(), error);
+                    batch.forEach(pending -> pending.result().tryEmitError(error));
+                })
+                .onErrorResume(error -> Mono.empty())
+                .then();
+    }
+
+    private record PendingLoad<K, V>(K key, Sinks.One<V> result) {
+    }
+}
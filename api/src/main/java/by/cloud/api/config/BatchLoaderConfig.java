@@ -0,0 +1,55 @@
+package by.cloud.api.config;
+
+import by.cloud.api.batch.BatchLoader;
+import by.cloud.directory.api.DirectoryApiClient;
+import by.cloud.directory.dto.DirectoryBatchRequestDto;
+import by.cloud.directory.dto.DirectoryDto;
+import by.cloud.file.api.FileApiClient;
+import by.cloud.file.dto.FileBatchRequestDto;
+import by.cloud.file.dto.FileDto;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpEntity;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/*
+    Пакет собирает id из запросов разных пользователей, поэтому вызывается без токена пользователя
+    (Mono.fromCallable, а не FeignCalls): file-service выполняет пакетное чтение на шардах владельцев объектов
+ */
+@Configuration
+public class BatchLoaderConfig {
+
+    @Bean
+    public BatchLoader<UUID, FileDto> fileBatchLoader(FileApiClient fileApiClient, BatchLoaderProperties props) {
+        return new BatchLoader<>(
+                "files",
+                ids -> Mono.fromCallable(() -> fileApiClient.findFilesByIds(new FileBatchRequestDto(ids)))
+                        .mapNotNull(HttpEntity::getBody)
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .map(batch -> batch.getItems().stream()
+                                .collect(Collectors.toMap(FileDto::getId, Function.identity(), (a, b) -> a))),
+                props.maxBatchSize(),
+                props.window()
+        );
+    }
+
+    @Bean
+    public BatchLoader<UUID, DirectoryDto> directoryBatchLoader(DirectoryApiClient directoryApiClient,
+                                                                BatchLoaderProperties props) {
+        return new BatchLoader<>(
+                "directories",
+                ids -> Mono.fromCallable(() -> directoryApiClient.findDirectoriesByIds(new DirectoryBatchRequestDto(ids)))
+                        .mapNotNull(HttpEntity::getBody)
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .map(page -> page.getItems().stream()
+                                .collect(Collectors.toMap(DirectoryDto::getId, Function.identity(), (a, b) -> a))),
+                props.maxBatchSize(),
+                props.window()
+        );
+    }
+}
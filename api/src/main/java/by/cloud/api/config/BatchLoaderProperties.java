@@ -0,0 +1,11 @@
+package by.cloud.api.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties("application.batch-loader")
+public record BatchLoaderProperties(
+        Duration window,
+        int maxBatchSize
+) { }
@@ -13,7 +13,8 @@ public class FeignConfig implements RequestInterceptor {
 
     @Override
     public void apply(RequestTemplate template) {
-        // Получаем токен из SecurityContext (синхронный контекст для Feign)
+        // Получаем токен из SecurityContext (синхронный контекст для Feign).
+        // На потоке boundedElastic контекст запроса устанавливает FeignCalls
         SecurityContext context = SecurityContextHolder.getContext();
         Authentication authentication = context.getAuthentication();
         
@@ -61,7 +61,7 @@ public class SecurityConfig {
                         //USER
                         .pathMatchers("/v1/auth/me").hasAuthority("ROLE_individual.user")
                         .pathMatchers("/v1/auth/logout").hasAuthority("ROLE_individual.user")
-                        .pathMatchers("/v1/files/**", "/v1/directories/**").hasAuthority("ROLE_individual.user")
+                        .pathMatchers("/v1/files/**", "/v1/directories/**", "/v1/folders/**", "/v1/resolve", "/v1/usage/**").hasAuthority("ROLE_individual.user")
                         .anyExchange().authenticated()
                 )
                 .oauth2ResourceServer(oauth2 -> oauth2
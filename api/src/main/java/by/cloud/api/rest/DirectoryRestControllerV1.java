@@ -3,6 +3,9 @@ package by.cloud.api.rest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import by.cloud.api.service.DirectoryService;
+import by.cloud.directory.dto.DirectoryBatchRequestDto;
+import by.cloud.directory.dto.DirectoryCopyDto;
+import by.cloud.directory.dto.DirectoryCopyRequestDto;
 import by.cloud.directory.dto.DirectoryDto;
 import by.cloud.directory.dto.DirectoryPageDto;
 import by.cloud.directory.dto.DirectoryWriteDto;
@@ -79,6 +82,13 @@ public class DirectoryRestControllerV1 {
                 });
     }
 
+    @PostMapping("/batch")
+    public Mono<ResponseEntity<DirectoryPageDto>> findDirectoriesByIds(
+            @Valid @RequestBody Mono<DirectoryBatchRequestDto> body) {
+        return body.flatMap(directoryService::findDirectoriesByIds)
+                .map(ResponseEntity::ok);
+    }
+
     @GetMapping("/{id}")
     public Mono<ResponseEntity<DirectoryDto>> findDirectoryById(@PathVariable UUID id) {
         return directoryService.findDirectoryById(id)
@@ -98,5 +108,19 @@ public class DirectoryRestControllerV1 {
         return directoryService.deleteDirectory(id)
                 .then(Mono.just(ResponseEntity.ok().build()));
     }
+
+    @PostMapping("/{id}/copy")
+    public Mono<ResponseEntity<DirectoryCopyDto>> copyDirectory(
+            @PathVariable UUID id,
+            @Valid @RequestBody Mono<DirectoryCopyRequestDto> body) {
+        return body.flatMap(request -> directoryService.copyDirectory(id, request))
+                .map(copy -> ResponseEntity.status(HttpStatus.ACCEPTED).body(copy));
+    }
+
+    @GetMapping("/copies/{taskId}")
+    public Mono<ResponseEntity<DirectoryCopyDto>> findDirectoryCopy(@PathVariable UUID taskId) {
+        return directoryService.findDirectoryCopy(taskId)
+                .map(ResponseEntity::ok);
+    }
 }
 
@@ -1,15 +1,28 @@
 package by.cloud.api.rest;
 
 import by.cloud.api.service.FileService;
+import by.cloud.api.service.UsageService;
+import by.cloud.file.dto.FileBatchDto;
+import by.cloud.file.dto.FileBatchRequestDto;
+import by.cloud.file.dto.FileBulkRequestDto;
+import by.cloud.file.dto.FileBulkResultDto;
+import by.cloud.file.dto.FileCopyRequestDto;
 import by.cloud.file.dto.FileDeleteResponseDto;
 import by.cloud.file.dto.FileDto;
 import by.cloud.file.dto.FilePageDto;
+import by.cloud.file.dto.FileSearchPageDto;
 import by.cloud.file.dto.FileUploadResponseDto;
+import by.cloud.file.dto.FileVersionListDto;
+import feign.FeignException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.codec.multipart.FilePart;
 import org.springframework.http.codec.multipart.Part;
@@ -19,9 +32,12 @@ import org.springframework.web.multipart.MultipartFile;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import javax.validation.Valid;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.time.OffsetDateTime;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @RestController
@@ -32,15 +48,17 @@ import java.util.UUID;
 public class FileRestControllerV1 {
 
     private final FileService fileService;
+    private final UsageService usageService;
 
     @PostMapping(consumes = "multipart/form-data")
     public Mono<ResponseEntity<FileUploadResponseDto>> uploadFiles(
             @RequestPart("files") Flux<Part> parts,
             @RequestParam("userId") UUID userId,
-            @RequestParam(value = "directoryId", required = false) UUID directoryId) {
+            @RequestParam(value = "directoryId", required = false) UUID directoryId,
+            @RequestHeader(value = HttpHeaders.CONTENT_LENGTH, required = false) Long contentLength) {
         log.info("Received uploadFiles request for userId=[{}], directoryId=[{}]", userId, directoryId);
-        
-        return parts
+
+        var upload = parts
                 .filter(part -> part instanceof FilePart)
                 .cast(FilePart.class)
                 .flatMap(this::convertFilePartToMultipartFile)
@@ -49,10 +67,24 @@ public class FileRestControllerV1 {
                     log.info("Converted [{}] files for upload", files.size());
                     return fileService.uploadFiles(files, userId, directoryId);
                 })
-                .map(response -> ResponseEntity.status(HttpStatus.CREATED).body(response))
+                .map(response -> ResponseEntity.status(HttpStatus.CREATED).body(response));
+
+        // Тело запроса читается только после проверки квоты
+        return usageService.hasSpaceFor(userId, contentLength)
+                .flatMap(hasSpace -> {
+                    if (!hasSpace) {
+                        log.warn("Upload of [{}] bytes rejected for userId=[{}]: quota exceeded", contentLength, userId);
+                        return Mono.just(ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).<FileUploadResponseDto>build());
+                    }
+                    return upload;
+                })
                 .onErrorResume(error -> {
                     log.error("Error in uploadFiles endpoint for userId=[{}], directoryId=[{}]",
                             userId, directoryId, error);
+                    if (error instanceof FeignException feignException
+                            && feignException.status() == HttpStatus.PAYLOAD_TOO_LARGE.value()) {
+                        return Mono.just(ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build());
+                    }
                     if (error instanceof org.springframework.web.reactive.function.client.WebClientRequestException ||
                         error.getCause() instanceof java.net.ConnectException) {
                         log.error("File-service is not available. Please ensure file-service is running on port 8093");
@@ -118,10 +150,11 @@ public class FileRestControllerV1 {
             @RequestParam("userId") UUID userId,
             @RequestParam(value = "directoryId", required = false) UUID directoryId,
             @RequestParam(value = "limit", required = false) Integer limit,
-            @RequestParam(value = "offset", required = false) Integer offset) {
-        log.info("Received findAllByUserId request for userId=[{}], directoryId=[{}], limit=[{}], offset=[{}]",
-                userId, directoryId, limit, offset);
-        return fileService.findAllByUserId(userId, directoryId, limit, offset)
+            @RequestParam(value = "offset", required = false) Integer offset,
+            @RequestParam(value = "afterId", required = false) UUID afterId) {
+        log.info("Received findAllByUserId request for userId=[{}], directoryId=[{}], limit=[{}], offset=[{}], afterId=[{}]",
+                userId, directoryId, limit, offset, afterId);
+        return fileService.findAllByUserId(userId, directoryId, limit, offset, afterId)
                 .map(ResponseEntity::ok)
                 .onErrorResume(error -> {
                     log.error("Error in findAllByUserId endpoint for userId=[{}], directoryId=[{}]", 
@@ -136,6 +169,41 @@ public class FileRestControllerV1 {
                 });
     }
 
+    @GetMapping("/search")
+    public Mono<ResponseEntity<FileSearchPageDto>> search(
+            @RequestParam("userId") UUID userId,
+            @RequestParam(value = "query", required = false) String query,
+            @RequestParam(value = "prefix", required = false) Boolean prefix,
+            @RequestParam(value = "mimeType", required = false) String mimeType,
+            @RequestParam(value = "minSize", required = false) Long minSize,
+            @RequestParam(value = "maxSize", required = false) Long maxSize,
+            @RequestParam(value = "updatedFrom", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime updatedFrom,
+            @RequestParam(value = "updatedTo", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime updatedTo,
+            @RequestParam(value = "directoryId", required = false) UUID directoryId,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestParam(value = "cursor", required = false) String cursor) {
+        log.info("Received search request for userId=[{}], query=[{}], directoryId=[{}]", userId, query, directoryId);
+        return fileService.search(userId, query, prefix, mimeType, minSize, maxSize,
+                        updatedFrom, updatedTo, directoryId, limit, cursor)
+                .map(ResponseEntity::ok);
+    }
+
+    @PostMapping("/batch")
+    public Mono<ResponseEntity<FileBatchDto>> findByIds(@Valid @RequestBody Mono<FileBatchRequestDto> body) {
+        return body.flatMap(fileService::findByIds)
+                .map(ResponseEntity::ok);
+    }
+
+    @PostMapping("/bulk")
+    public Mono<ResponseEntity<FileBulkResultDto>> applyBulkOperations(
+            @RequestParam("userId") UUID userId,
+            @Valid @RequestBody Mono<FileBulkRequestDto> body) {
+        return body.flatMap(request -> fileService.applyBulkOperations(userId, request))
+                .map(ResponseEntity::ok);
+    }
+
     @GetMapping("/{id}")
     public Mono<ResponseEntity<FileDto>> findById(@PathVariable UUID id) {
         return fileService.findById(id)
@@ -157,5 +225,65 @@ public class FileRestControllerV1 {
                                 .header("Content-Type", fileDto.getMimeType())
                                 .body(resource)));
     }
-}
 
+    @PostMapping("/{id}/copy")
+    public Mono<ResponseEntity<FileDto>> copyFile(
+            @PathVariable UUID id,
+            @Valid @RequestBody Mono<FileCopyRequestDto> body) {
+        return body.flatMap(request -> fileService.copyFile(id, request))
+                .map(fileDto -> ResponseEntity.status(HttpStatus.CREATED).body(fileDto))
+                .onErrorResume(error -> error instanceof FeignException feignException
+                                && feignException.status() == HttpStatus.PAYLOAD_TOO_LARGE.value(),
+                        error -> Mono.just(ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build()));
+    }
+
+    @PutMapping(value = "/{id}/content", consumes = "multipart/form-data")
+    public Mono<ResponseEntity<FileDto>> uploadContent(
+            @PathVariable UUID id,
+            @RequestPart("file") Mono<FilePart> filePart) {
+        return filePart
+                .flatMap(this::convertFilePartToMultipartFile)
+                .flatMap(file -> fileService.uploadContent(id, file))
+                .map(ResponseEntity::ok)
+                // Квота проверяется file-service до записи объекта
+                .onErrorResume(error -> error instanceof FeignException feignException
+                                && feignException.status() == HttpStatus.PAYLOAD_TOO_LARGE.value(),
+                        error -> Mono.just(ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build()));
+    }
+
+    @GetMapping("/{id}/versions")
+    public Mono<ResponseEntity<FileVersionListDto>> findVersions(@PathVariable UUID id) {
+        return fileService.findVersions(id)
+                .map(ResponseEntity::ok);
+    }
+
+    @GetMapping("/{id}/versions/{version}/download")
+    public Mono<ResponseEntity<Resource>> downloadVersion(@PathVariable UUID id, @PathVariable Integer version) {
+        return fileService.findById(id)
+                .flatMap(fileDto -> fileService.downloadVersion(id, version)
+                        .map(resource -> ResponseEntity.ok()
+                                .header("Content-Disposition", "attachment; filename=\"" + fileDto.getFileName() + "\"")
+                                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                                .body(resource)));
+    }
+
+    /*
+        v - версия содержимого файла: адрес с версией кешируется браузером как неизменный,
+        после замены содержимого у превью новый адрес
+     */
+    @GetMapping("/{id}/preview")
+    public Mono<ResponseEntity<Resource>> downloadPreview(
+            @PathVariable UUID id,
+            @RequestParam(defaultValue = "256") Integer size,
+            @RequestParam(required = false) Integer v) {
+        return fileService.downloadPreview(id, size, v)
+                .map(resource -> ResponseEntity.ok()
+                        .contentType(MediaType.IMAGE_JPEG)
+                        .cacheControl(v != null
+                                ? CacheControl.maxAge(365, TimeUnit.DAYS).cachePrivate().immutable()
+                                : CacheControl.noCache().cachePrivate())
+                        .body(resource))
+                // Превью еще не создано или не поддерживается для типа файла
+                .onErrorResume(FeignException.NotFound.class, error -> Mono.just(ResponseEntity.notFound().build()));
+    }
+}
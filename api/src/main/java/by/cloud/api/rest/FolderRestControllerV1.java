@@ -0,0 +1,42 @@
+package by.cloud.api.rest;
+
+import by.cloud.api.service.FolderService;
+import by.cloud.file.dto.FolderViewDto;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+
+@Slf4j
+@RestController
+@RequiredArgsConstructor
+@Validated
+@RequestMapping("/v1/folders")
+@CrossOrigin
+public class FolderRestControllerV1 {
+
+    private final FolderService folderService;
+
+    @GetMapping("/{id}/view")
+    public Mono<ResponseEntity<FolderViewDto>> findFolderView(
+            @PathVariable UUID id,
+            @RequestParam(value = "limit", required = false) Integer limit) {
+        log.info("Received findFolderView request for id=[{}], limit=[{}]", id, limit);
+        return folderService.findFolderView(id, limit)
+                .map(ResponseEntity::ok)
+                .onErrorResume(error -> {
+                    log.error("Error in findFolderView endpoint for id=[{}]", id, error);
+                    if (error instanceof org.springframework.web.reactive.function.client.WebClientRequestException ||
+                        error.getCause() instanceof java.net.ConnectException) {
+                        log.error("File-service is not available. Please ensure file-service is running on port 8093");
+                        return Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build());
+                    }
+                    return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build());
+                });
+    }
+}
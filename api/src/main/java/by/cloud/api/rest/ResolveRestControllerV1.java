@@ -0,0 +1,32 @@
+package by.cloud.api.rest;
+
+import by.cloud.api.service.DirectoryService;
+import by.cloud.directory.dto.ResolvedPathDto;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+
+@Slf4j
+@RestController
+@RequiredArgsConstructor
+@Validated
+@RequestMapping("/v1/resolve")
+@CrossOrigin
+public class ResolveRestControllerV1 {
+
+    private final DirectoryService directoryService;
+
+    @GetMapping
+    public Mono<ResponseEntity<ResolvedPathDto>> resolvePath(
+            @RequestParam("userId") UUID userId,
+            @RequestParam("path") String path) {
+        log.info("Received resolvePath request for userId=[{}], path=[{}]", userId, path);
+        return directoryService.resolvePath(userId, path)
+                .map(ResponseEntity::ok);
+    }
+}
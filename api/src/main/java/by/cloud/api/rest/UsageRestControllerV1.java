@@ -0,0 +1,29 @@
+package by.cloud.api.rest;
+
+import by.cloud.api.service.UsageService;
+import by.cloud.file.dto.UsageDto;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+
+@Slf4j
+@RestController
+@RequiredArgsConstructor
+@Validated
+@RequestMapping("/v1/usage")
+@CrossOrigin
+public class UsageRestControllerV1 {
+
+    private final UsageService usageService;
+
+    @GetMapping("/{userId}")
+    public Mono<ResponseEntity<UsageDto>> findUsage(@PathVariable UUID userId) {
+        return usageService.findUsage(userId)
+                .map(ResponseEntity::ok);
+    }
+}
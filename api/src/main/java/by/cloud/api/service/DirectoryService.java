@@ -3,11 +3,18 @@ package by.cloud.api.service;
 import io.opentelemetry.instrumentation.annotations.WithSpan;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import by.cloud.api.batch.BatchLoader;
+import by.cloud.api.exception.ApiException;
+import by.cloud.api.util.FeignCalls;
 import by.cloud.directory.api.DirectoryApiClient;
+import by.cloud.directory.dto.DirectoryBatchRequestDto;
+import by.cloud.directory.dto.DirectoryCopyDto;
+import by.cloud.directory.dto.DirectoryCopyRequestDto;
 import by.cloud.directory.dto.DirectoryDto;
 import by.cloud.directory.dto.DirectoryPageDto;
 import by.cloud.directory.dto.DirectoryWriteDto;
 import by.cloud.directory.dto.DirectoryWriteResponseDto;
+import by.cloud.directory.dto.ResolvedPathDto;
 import org.springframework.http.HttpEntity;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
@@ -22,10 +29,11 @@ public class DirectoryService {
     // Класс "оборачивает" обращения к file-service через feign клиент - DirectoryApiClient
 
     private final DirectoryApiClient directoryApiClient;
+    private final BatchLoader<UUID, DirectoryDto> directoryBatchLoader;
 
     @WithSpan("directoryService.createDirectory")
     public Mono<DirectoryWriteResponseDto> createDirectory(DirectoryWriteDto request) {
-        return Mono.fromCallable(() -> directoryApiClient.createDirectory(request))
+        return FeignCalls.fromCallable(() -> directoryApiClient.createDirectory(request))
                 .mapNotNull(HttpEntity::getBody)
                 .subscribeOn(Schedulers.boundedElastic())
                 .doOnNext(response -> log.info("Directory created with id=[{}]", response.getId()));
@@ -33,7 +41,7 @@ public class DirectoryService {
 
     @WithSpan("directoryService.createBaseDirectory")
     public Mono<DirectoryWriteResponseDto> createBaseDirectory(UUID userId) {
-        return Mono.fromCallable(() -> directoryApiClient.createBaseDirectory(userId))
+        return FeignCalls.fromCallable(() -> directoryApiClient.createBaseDirectory(userId))
                 .mapNotNull(HttpEntity::getBody)
                 .subscribeOn(Schedulers.boundedElastic())
                 .doOnNext(response -> log.info("Base directory created for userId=[{}] with id=[{}]", 
@@ -42,7 +50,7 @@ public class DirectoryService {
 
     @WithSpan("directoryService.findAllDirectories")
     public Mono<DirectoryPageDto> findAllDirectories(UUID userId, UUID parentId) {
-        return Mono.fromCallable(() -> {
+        return FeignCalls.fromCallable(() -> {
                     try {
                         log.info("Calling file-service findAllDirectories with userId=[{}], parentId=[{}]", 
                                 userId, parentId);
@@ -61,15 +69,24 @@ public class DirectoryService {
 
     @WithSpan("directoryService.findDirectoryById")
     public Mono<DirectoryDto> findDirectoryById(UUID id) {
-        return Mono.fromCallable(() -> directoryApiClient.findDirectoryById(id))
+        // Одиночные запросы объединяются с конкурентными в один вызов /v1/directories/batch
+        return directoryBatchLoader.load(id)
+                .switchIfEmpty(Mono.error(() -> new ApiException("Directory not found by id=[%s]", id)))
+                .doOnNext(directory -> log.info("Directory found with id=[{}]", id));
+    }
+
+    @WithSpan("directoryService.findDirectoriesByIds")
+    public Mono<DirectoryPageDto> findDirectoriesByIds(DirectoryBatchRequestDto request) {
+        return FeignCalls.fromCallable(() -> directoryApiClient.findDirectoriesByIds(request))
                 .mapNotNull(HttpEntity::getBody)
                 .subscribeOn(Schedulers.boundedElastic())
-                .doOnNext(directory -> log.info("Directory found with id=[{}]", id));
+                .doOnNext(page -> log.info("Found [{}] of [{}] requested directories",
+                        page.getItems().size(), request.getIds().size()));
     }
 
     @WithSpan("directoryService.updateDirectory")
     public Mono<DirectoryWriteResponseDto> updateDirectory(UUID id, DirectoryWriteDto request) {
-        return Mono.fromCallable(() -> directoryApiClient.updateDirectory(id, request))
+        return FeignCalls.fromCallable(() -> directoryApiClient.updateDirectory(id, request))
                 .mapNotNull(HttpEntity::getBody)
                 .subscribeOn(Schedulers.boundedElastic())
                 .doOnNext(response -> log.info("Directory updated with id=[{}]", id));
@@ -82,5 +99,29 @@ public class DirectoryService {
                 .then()
                 .doOnSuccess(v -> log.info("Directory deleted with id=[{}]", id));
     }
-}
 
+    @WithSpan("directoryService.copyDirectory")
+    public Mono<DirectoryCopyDto> copyDirectory(UUID id, DirectoryCopyRequestDto request) {
+        return FeignCalls.fromCallable(() -> directoryApiClient.copyDirectory(id, request))
+                .mapNotNull(HttpEntity::getBody)
+                .subscribeOn(Schedulers.boundedElastic())
+                .doOnNext(copy -> log.info("Directory [{}] copy started as [{}], task id=[{}]",
+                        id, copy.getDirectoryId(), copy.getId()));
+    }
+
+    @WithSpan("directoryService.findDirectoryCopy")
+    public Mono<DirectoryCopyDto> findDirectoryCopy(UUID taskId) {
+        return FeignCalls.fromCallable(() -> directoryApiClient.findDirectoryCopy(taskId))
+                .mapNotNull(HttpEntity::getBody)
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @WithSpan("directoryService.resolvePath")
+    public Mono<ResolvedPathDto> resolvePath(UUID userId, String path) {
+        return FeignCalls.fromCallable(() -> directoryApiClient.resolvePath(userId, path))
+                .mapNotNull(HttpEntity::getBody)
+                .subscribeOn(Schedulers.boundedElastic())
+                .doOnNext(resolved -> log.info("Path [{}] resolved to {} with id=[{}]",
+                        path, resolved.getType(), resolved.getId()));
+    }
+}
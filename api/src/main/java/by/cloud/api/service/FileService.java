@@ -3,11 +3,21 @@ package by.cloud.api.service;
 import io.opentelemetry.instrumentation.annotations.WithSpan;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import by.cloud.api.batch.BatchLoader;
+import by.cloud.api.exception.ApiException;
+import by.cloud.api.util.FeignCalls;
 import by.cloud.file.api.FileApiClient;
+import by.cloud.file.dto.FileBatchDto;
+import by.cloud.file.dto.FileBatchRequestDto;
+import by.cloud.file.dto.FileBulkRequestDto;
+import by.cloud.file.dto.FileBulkResultDto;
+import by.cloud.file.dto.FileCopyRequestDto;
 import by.cloud.file.dto.FileDeleteResponseDto;
 import by.cloud.file.dto.FileDto;
 import by.cloud.file.dto.FilePageDto;
+import by.cloud.file.dto.FileSearchPageDto;
 import by.cloud.file.dto.FileUploadResponseDto;
+import by.cloud.file.dto.FileVersionListDto;
 import org.springframework.core.io.Resource;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.ResponseEntity;
@@ -16,6 +26,7 @@ import org.springframework.web.multipart.MultipartFile;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 
+import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.UUID;
 
@@ -26,10 +37,11 @@ public class FileService {
     // Класс "оборачивает" обращения к file-service через feign клиент - FileApiClient
 
     private final FileApiClient fileApiClient;
+    private final BatchLoader<UUID, FileDto> fileBatchLoader;
 
     @WithSpan("fileService.uploadFiles")
     public Mono<FileUploadResponseDto> uploadFiles(List<MultipartFile> files, UUID userId, UUID directoryId) {
-        return Mono.fromCallable(() -> {
+        return FeignCalls.fromCallable(() -> {
                     try {
                         log.info("Calling file-service uploadFiles with userId=[{}], directoryId=[{}], files count=[{}]", 
                                 userId, directoryId, files != null ? files.size() : 0);
@@ -48,12 +60,12 @@ public class FileService {
     }
 
     @WithSpan("fileService.findAllByUserId")
-    public Mono<FilePageDto> findAllByUserId(UUID userId, UUID directoryId, Integer limit, Integer offset) {
-        return Mono.fromCallable(() -> {
+    public Mono<FilePageDto> findAllByUserId(UUID userId, UUID directoryId, Integer limit, Integer offset, UUID afterId) {
+        return FeignCalls.fromCallable(() -> {
                     try {
-                        log.info("Calling file-service findAllByUserId with userId=[{}], directoryId=[{}], limit=[{}], offset=[{}]", 
-                                userId, directoryId, limit, offset);
-                        return fileApiClient.findAllByUserId(userId, directoryId, limit, offset);
+                        log.info("Calling file-service findAllByUserId with userId=[{}], directoryId=[{}], limit=[{}], offset=[{}], afterId=[{}]", 
+                                userId, directoryId, limit, offset, afterId);
+                        return fileApiClient.findAllByUserId(userId, directoryId, limit, offset, afterId);
                     } catch (Exception e) {
                         log.error("Error calling file-service findAllByUserId", e);
                         throw e;
@@ -66,17 +78,48 @@ public class FileService {
                 .doOnError(error -> log.error("Error in findAllByUserId for userId=[{}]", userId, error));
     }
 
+    @WithSpan("fileService.search")
+    public Mono<FileSearchPageDto> search(UUID userId, String query, Boolean prefix, String mimeType,
+                                          Long minSize, Long maxSize, OffsetDateTime updatedFrom,
+                                          OffsetDateTime updatedTo, UUID directoryId, Integer limit, String cursor) {
+        return FeignCalls.fromCallable(() -> fileApiClient.searchFiles(userId, query, prefix, mimeType, minSize, maxSize,
+                        updatedFrom, updatedTo, directoryId, limit, cursor))
+                .mapNotNull(HttpEntity::getBody)
+                .subscribeOn(Schedulers.boundedElastic())
+                .doOnNext(page -> log.info("Found [{}] files for userId=[{}], query=[{}]",
+                        page.getItems().size(), userId, query))
+                .doOnError(error -> log.error("Error in search for userId=[{}]", userId, error));
+    }
+
     @WithSpan("fileService.findById")
     public Mono<FileDto> findById(UUID id) {
-        return Mono.fromCallable(() -> fileApiClient.findById(id))
+        // Одиночные запросы объединяются с конкурентными в один вызов /v1/files/batch
+        return fileBatchLoader.load(id)
+                .switchIfEmpty(Mono.error(() -> new ApiException("File not found by id=[%s]", id)))
+                .doOnNext(file -> log.info("File found with id=[{}]", id));
+    }
+
+    @WithSpan("fileService.findByIds")
+    public Mono<FileBatchDto> findByIds(FileBatchRequestDto request) {
+        return FeignCalls.fromCallable(() -> fileApiClient.findFilesByIds(request))
                 .mapNotNull(HttpEntity::getBody)
                 .subscribeOn(Schedulers.boundedElastic())
-                .doOnNext(file -> log.info("File found with id=[{}]", id));
+                .doOnNext(batch -> log.info("Found [{}] of [{}] requested files",
+                        batch.getItems().size(), request.getIds().size()));
+    }
+
+    @WithSpan("fileService.applyBulkOperations")
+    public Mono<FileBulkResultDto> applyBulkOperations(UUID userId, FileBulkRequestDto request) {
+        return FeignCalls.fromCallable(() -> fileApiClient.applyBulkOperations(userId, request))
+                .mapNotNull(HttpEntity::getBody)
+                .subscribeOn(Schedulers.boundedElastic())
+                .doOnNext(result -> log.info("Applied [{}] bulk operations to files of userId=[{}]",
+                        result.getItems().size(), userId));
     }
 
     @WithSpan("fileService.delete")
     public Mono<FileDeleteResponseDto> delete(UUID id) {
-        return Mono.fromCallable(() -> fileApiClient.delete(id))
+        return FeignCalls.fromCallable(() -> fileApiClient.delete(id))
                 .mapNotNull(HttpEntity::getBody)
                 .subscribeOn(Schedulers.boundedElastic())
                 .doOnNext(response -> log.info("File deleted with id=[{}]", id));
@@ -84,9 +127,49 @@ public class FileService {
 
     @WithSpan("fileService.downloadFile")
     public Mono<Resource> downloadFile(UUID id) {
-        return Mono.fromCallable(() -> fileApiClient.downloadFile(id))
+        return FeignCalls.fromCallable(() -> fileApiClient.downloadFile(id))
                 .mapNotNull(HttpEntity::getBody)
                 .subscribeOn(Schedulers.boundedElastic())
                 .doOnNext(resource -> log.info("File downloaded with id=[{}]", id));
     }
+
+    @WithSpan("fileService.copyFile")
+    public Mono<FileDto> copyFile(UUID id, FileCopyRequestDto request) {
+        return FeignCalls.fromCallable(() -> fileApiClient.copyFile(id, request))
+                .mapNotNull(HttpEntity::getBody)
+                .subscribeOn(Schedulers.boundedElastic())
+                .doOnNext(fileDto -> log.info("File with id=[{}] copied to id=[{}]", id, fileDto.getId()));
+    }
+
+    @WithSpan("fileService.uploadContent")
+    public Mono<FileDto> uploadContent(UUID id, MultipartFile file) {
+        return FeignCalls.fromCallable(() -> fileApiClient.uploadFileContent(id, file))
+                .mapNotNull(HttpEntity::getBody)
+                .subscribeOn(Schedulers.boundedElastic())
+                .doOnNext(fileDto -> log.info("Content of file with id=[{}] updated to version [{}]", id, fileDto.getVersion()));
+    }
+
+    @WithSpan("fileService.findVersions")
+    public Mono<FileVersionListDto> findVersions(UUID id) {
+        return FeignCalls.fromCallable(() -> fileApiClient.findFileVersions(id))
+                .mapNotNull(HttpEntity::getBody)
+                .subscribeOn(Schedulers.boundedElastic())
+                .doOnNext(versions -> log.info("Found [{}] versions of file with id=[{}]", versions.getItems().size(), id));
+    }
+
+    @WithSpan("fileService.downloadVersion")
+    public Mono<Resource> downloadVersion(UUID id, Integer version) {
+        return FeignCalls.fromCallable(() -> fileApiClient.downloadFileVersion(id, version))
+                .mapNotNull(HttpEntity::getBody)
+                .subscribeOn(Schedulers.boundedElastic())
+                .doOnNext(resource -> log.info("Version [{}] of file with id=[{}] downloaded", version, id));
+    }
+
+    @WithSpan("fileService.downloadPreview")
+    public Mono<Resource> downloadPreview(UUID id, Integer size, Integer version) {
+        return FeignCalls.fromCallable(() -> fileApiClient.downloadPreview(id, size, version))
+                .mapNotNull(HttpEntity::getBody)
+                .subscribeOn(Schedulers.boundedElastic())
+                .doOnNext(resource -> log.info("Preview [{}] of file with id=[{}] downloaded", size, id));
+    }
 }
@@ -0,0 +1,32 @@
+package by.cloud.api.service;
+
+import by.cloud.api.util.FeignCalls;
+import by.cloud.file.api.FolderApiClient;
+import by.cloud.file.dto.FolderViewDto;
+import io.opentelemetry.instrumentation.annotations.WithSpan;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpEntity;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.UUID;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FolderService {
+    // Класс "оборачивает" обращения к file-service через feign клиент - FolderApiClient
+
+    private final FolderApiClient folderApiClient;
+
+    @WithSpan("folderService.findFolderView")
+    public Mono<FolderViewDto> findFolderView(UUID id, Integer limit) {
+        return FeignCalls.fromCallable(() -> folderApiClient.findFolderView(id, limit))
+                .mapNotNull(HttpEntity::getBody)
+                .subscribeOn(Schedulers.boundedElastic())
+                .doOnNext(view -> log.info("Folder view found for id=[{}]: [{}] directories, [{}] files",
+                        id, view.getDirectories().size(), view.getFiles().size()));
+    }
+}
@@ -4,6 +4,7 @@ import io.opentelemetry.instrumentation.annotations.WithSpan;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import by.cloud.api.mapper.PersonMapper;
+import by.cloud.api.util.FeignCalls;
 import by.cloud.individual.dto.IndividualWriteDto;
 import by.cloud.individual.dto.IndividualWriteResponseDto;
 import by.cloud.person.api.PersonApiClient;
@@ -25,7 +26,7 @@ public class PersonService {
 
     @WithSpan("personService.register") // Аннотация нужна для трассировки. Указывает span в данной цепочке вызовов
     public Mono<IndividualWriteResponseDto> register(IndividualWriteDto request) {
-        return Mono.fromCallable(() -> personApiClient.registration(personMapper.from(request)))
+        return FeignCalls.fromCallable(() -> personApiClient.registration(personMapper.from(request)))
                 .mapNotNull(HttpEntity::getBody)
                 .map(personMapper::from)
                 .subscribeOn(Schedulers.boundedElastic())
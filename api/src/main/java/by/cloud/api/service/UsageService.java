@@ -0,0 +1,44 @@
+package by.cloud.api.service;
+
+import by.cloud.api.util.FeignCalls;
+import by.cloud.file.api.UsageApiClient;
+import by.cloud.file.dto.UsageDto;
+import io.opentelemetry.instrumentation.annotations.WithSpan;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpEntity;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.UUID;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UsageService {
+    // Класс "оборачивает" обращения к file-service через feign клиент - UsageApiClient
+
+    private final UsageApiClient usageApiClient;
+
+    @WithSpan("usageService.findUsage")
+    public Mono<UsageDto> findUsage(UUID userId) {
+        return FeignCalls.fromCallable(() -> usageApiClient.findUsage(userId))
+                .mapNotNull(HttpEntity::getBody)
+                .subscribeOn(Schedulers.boundedElastic())
+                .doOnNext(usage -> log.info("Usage found for userId=[{}]: [{}] of [{}] bytes",
+                        userId, usage.getUsedBytes(), usage.getQuotaBytes()));
+    }
+
+    /*
+        Предварительная проверка квоты по размеру запроса, до чтения его тела.
+        Размер multipart-запроса немного больше суммы файлов; точная проверка выполняется в file-service
+     */
+    public Mono<Boolean> hasSpaceFor(UUID userId, Long bytes) {
+        if (bytes == null || bytes < 0) {
+            return Mono.just(true);
+        }
+        return findUsage(userId)
+                .map(usage -> usage.getUsedBytes() + bytes <= usage.getQuotaBytes());
+    }
+}
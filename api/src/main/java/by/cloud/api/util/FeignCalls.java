@@ -0,0 +1,39 @@
+package by.cloud.api.util;
+
+import lombok.experimental.UtilityClass;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import reactor.core.publisher.Mono;
+
+import java.util.Optional;
+import java.util.concurrent.Callable;
+
+/*
+    Блокирующий вызов Feign клиента с контекстом безопасности запроса.
+    FeignConfig берет токен из SecurityContextHolder (ThreadLocal), а на потоке boundedElastic он пуст:
+    в WebFlux контекст хранится в контексте Reactor (ReactiveSecurityContextHolder).
+    Поэтому контекст запроса устанавливается в SecurityContextHolder на время вызова и затем снимается
+ */
+@UtilityClass
+public class FeignCalls {
+
+    public static <T> Mono<T> fromCallable(Callable<T> callable) {
+        return ReactiveSecurityContextHolder.getContext()
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(context -> Mono.fromCallable(() -> call(context.orElse(null), callable)));
+    }
+
+    private static <T> T call(SecurityContext context, Callable<T> callable) throws Exception {
+        if (context == null) {
+            return callable.call();
+        }
+        SecurityContextHolder.setContext(context);
+        try {
+            return callable.call();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+import { useEffect, useState } from 'react';
+import { fileApi } from '../services/api';
+
+interface FileThumbnailProps {
+  fileId: string;
+  version?: number;
+  fallback: string;
+  size?: number;
+}
+
+// Превью файла для плиточного режима. Пока превью нет, показывается иконка типа
+export default function FileThumbnail({ fileId, version, fallback, size = 256 }: FileThumbnailProps) {
+  const [url, setUrl] = useState<string | null>(null);
+
+  useEffect(() => {
+    let cancelled = false;
+    let objectUrl: string | null = null;
+    fileApi.getPreview(fileId, size, version)
+      .then((blob) => {
+        if (blob && !cancelled) {
+          objectUrl = URL.createObjectURL(blob);
+          setUrl(objectUrl);
+        }
+      })
+      .catch(() => setUrl(null));
+    return () => {
+      cancelled = true;
+      if (objectUrl) {
+        URL.revokeObjectURL(objectUrl);
+      }
+    };
+  }, [fileId, version, size]);
+
+  if (!url) {
+    return <div style={{ fontSize: '3em', marginBottom: '8px' }}>{fallback}</div>;
+  }
+  return (
+    <img
+      src={url}
+      alt=""
+      loading="lazy"
+      style={{ maxWidth: '100%', maxHeight: '128px', objectFit: 'contain', marginBottom: '8px', borderRadius: '4px' }}
+    />
+  );
+}
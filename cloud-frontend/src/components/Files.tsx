@@ -2,6 +2,7 @@ import { useState, useEffect, useCallback, useRef } from 'react';
 import { useNavigate, useSearchParams } from 'react-router-dom';
 import { fileApi, folderApi, authApi, type FileResponse, type FolderResponse } from '../services/api';
 import { getUserId, setUserId } from '../services/auth';
+import FileThumbnail from './FileThumbnail';
 
 export default function Files() {
   const [files, setFiles] = useState<FileResponse[]>([]);
@@ -89,10 +90,22 @@ export default function Files() {
         return;
       }
 
-      const [filesResponse, foldersResponse] = await Promise.all([
-        fileApi.getFiles(currentFolderId),
-        folderApi.getFolders(currentFolderId),
-      ]);
+      let filesItems: any[] = [];
+      let foldersItems: any[] = [];
+      if (currentFolderId) {
+        // Для открытого каталога достаточно одного запроса
+        const viewResponse = await folderApi.getFolderView(currentFolderId);
+        filesItems = viewResponse?.data?.files || [];
+        foldersItems = viewResponse?.data?.directories || [];
+      } else {
+        const [filesResponse, foldersResponse] = await Promise.all([
+          fileApi.getFiles(currentFolderId),
+          folderApi.getFolders(currentFolderId),
+        ]);
+        // handleResponse оборачивает ответ в {data: {...}}, так что данные в filesResponse.data
+        filesItems = filesResponse?.data?.items || [];
+        foldersItems = foldersResponse?.data?.items || [];
+      }
       
       // Проверяем, не был ли запрос отменен
       if (abortController.signal.aborted) {
@@ -102,9 +115,6 @@ export default function Files() {
       }
       
       // Убираем дубликаты по ID
-      // handleResponse оборачивает ответ в {data: {...}}, так что данные в filesResponse.data
-      const filesItems = filesResponse?.data?.items || [];
-      const foldersItems = foldersResponse?.data?.items || [];
       
       const filesMap = new Map();
       if (Array.isArray(filesItems)) {
@@ -314,6 +324,9 @@ export default function Files() {
     return '📄';
   };
 
+  const hasPreview = (mimeType: string) =>
+    mimeType?.startsWith('image/') || mimeType === 'application/pdf';
+
   const getFileType = (mimeType: string) => {
     if (!mimeType) return 'Файл';
     const parts = mimeType.split('/');
@@ -756,7 +769,7 @@ export default function Files() {
                   Папка с файлами
                 </div>
                 <div style={{ padding: '4px 8px', color: '#666', fontSize: '0.9em' }}>
-                  —
+                  {folder.stats ? formatFileSize(folder.stats.recursiveTotalBytes) : '—'}
                 </div>
               </div>
             ))}
@@ -897,7 +910,11 @@ export default function Files() {
                   }
                 }}
               >
-                <div style={{ fontSize: '3em', marginBottom: '8px' }}>{getFileIcon(file.mimeType)}</div>
+                {hasPreview(file.mimeType) ? (
+                  <FileThumbnail fileId={file.id} version={file.version} fallback={getFileIcon(file.mimeType)} />
+                ) : (
+                  <div style={{ fontSize: '3em', marginBottom: '8px' }}>{getFileIcon(file.mimeType)}</div>
+                )}
                 <div style={{ fontWeight: 500, wordBreak: 'break-word', marginBottom: '4px' }}>{file.fileName}</div>
                 <div style={{ fontSize: '0.85em', color: '#666' }}>{formatFileSize(file.fileSize)}</div>
               </div>
@@ -33,6 +33,7 @@ interface FileDto {
   fileSize: number;
   mimeType: string;
   downloadUrl?: string;
+  version?: number;
 }
 
 interface FilePageDto {
@@ -50,18 +51,47 @@ interface FileDeleteResponseDto {
   id: string;
 }
 
+interface DirectoryStatsDto {
+  fileCount: number;
+  totalBytes: number;
+  lastModified?: string;
+  recursiveFileCount: number;
+  recursiveTotalBytes: number;
+  recursiveLastModified?: string;
+}
+
 interface DirectoryDto {
   id: string;
   userId: string;
   parentId?: string;
   name: string;
   path?: string;
+  stats?: DirectoryStatsDto;
 }
 
 interface DirectoryPageDto {
   items: DirectoryDto[];
 }
 
+interface FolderEntryDto {
+  id: string;
+  userId: string;
+  parentId?: string;
+  name: string;
+  path?: string;
+  itemCount: number;
+  hasChildren: boolean;
+  stats?: DirectoryStatsDto;
+}
+
+interface FolderViewDto {
+  folder: FolderEntryDto;
+  directories: FolderEntryDto[];
+  files: FileDto[];
+  totalFiles: number;
+  limit?: number;
+}
+
 interface DirectoryWriteDto {
   userId: string;
   parentId?: string;
@@ -276,6 +306,22 @@ export const fileApi = {
     }
     return response.blob();
   },
+
+  // Превью с версией содержимого кешируется браузером (Cache-Control: immutable), без версии - проверяется заново.
+  // null - превью еще нет, тип не поддерживается или содержимое файла уже заменено
+  async getPreview(id: string, size = 256, version?: number): Promise<Blob | null> {
+    const versionParam = version !== undefined ? `&v=${version}` : '';
+    const response = await fetch(`${API_URL}/v1/files/${id}/preview?size=${size}${versionParam}`, {
+      headers: getAuthHeadersMultipart(),
+    });
+    if (response.status === 404) {
+      return null;
+    }
+    if (!response.ok) {
+      throw new Error('Ошибка загрузки превью');
+    }
+    return response.blob();
+  },
 };
 
 export const folderApi = {
@@ -294,6 +340,15 @@ export const folderApi = {
     return handleResponse<DirectoryPageDto>(response);
   },
 
+  // Подкаталоги и первая страница файлов за один запрос
+  async getFolderView(id: string, limit = 20): Promise<ApiResponse<FolderViewDto>> {
+    const params = new URLSearchParams({ limit: limit.toString() });
+    const response = await fetch(`${API_URL}/v1/folders/${id}/view?${params}`, {
+      headers: getAuthHeaders(),
+    });
+    return handleResponse<FolderViewDto>(response);
+  },
+
   async createFolder(data: { name: string; parentId?: string }): Promise<ApiResponse<DirectoryWriteResponseDto>> {
     const userId = getUserId();
     if (!userId) {
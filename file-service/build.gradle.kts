@@ -15,7 +15,8 @@ val versions = mapOf(
 	"hibernateEnversVersion" to "6.4.4.Final",
 	"testContainersVersion" to "1.19.3",
 	"junitJupiterVersion" to "5.10.0",
-	"feignMicrometerVersion" to "13.6"
+	"feignMicrometerVersion" to "13.6",
+	"pdfboxVersion" to "3.0.3"
 )
 
 plugins {
@@ -77,13 +78,18 @@ dependencies {
 
 	// PERSISTENCE
 	implementation("org.hibernate.orm:hibernate-envers:${versions["hibernateEnversVersion"]}")
+	implementation("org.hibernate.orm:hibernate-micrometer")
 	implementation("org.postgresql:postgresql")
 	implementation("org.flywaydb:flyway-database-postgresql")
 
 	// STORAGE
 	implementation("io.minio:minio:8.5.7")
 
+	// PREVIEW
+	implementation("org.apache.pdfbox:pdfbox:${versions["pdfboxVersion"]}")
+
 	// HELPERS
+	implementation("com.github.ben-manes.caffeine:caffeine")
 	compileOnly("org.projectlombok:lombok")
 	compileOnly("org.mapstruct:mapstruct:${versions["mapstructVersion"]}")
 	compileOnly("com.google.code.findbugs:jsr305:${versions["comGoogleCodeFindbugs"]}")
@@ -0,0 +1,90 @@
+package by.cloud.file_service.audit;
+
+import by.cloud.file_service.config.AuditProperties;
+import by.cloud.file_service.datasource.MetadataShards;
+import by.cloud.file_service.entity.BaseEnversUtilEntity;
+import by.cloud.file_service.exception.FileException;
+import by.cloud.file_service.metric.AuditMetric;
+import by.cloud.file_service.repository.AuditOutboxRepository;
+import by.cloud.file_service.repository.RevisionRepository;
+import by.cloud.file_service.repository.projection.AuditOutboxView;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/*
+    Перенос изменений из file_history.audit_outbox в таблицы истории.
+    Для каждой строки очереди создается ревизия revinfo (вставки объединяются в пакеты),
+    затем строки каждой таблицы истории всей пачки вставляются одним запросом.
+    Очередь разбирается и в режиме SYNC, чтобы при смене режима не оставалось необработанных строк
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AuditOutboxWriter {
+    private final AuditOutboxRepository auditOutboxRepository;
+    private final RevisionRepository revisionRepository;
+    private final AuditedEntities auditedEntities;
+    private final AuditProperties properties;
+    private final AuditMetric metric;
+    private final MetadataShards metadataShards;
+    private final TransactionTemplate transactionTemplate;
+
+    @Scheduled(fixedDelayString = "${application.audit.interval}")
+    public void write() {
+        metadataShards.forEach(this::writeShard);
+        metric.setBacklog(metadataShards.sum(auditOutboxRepository::count));
+    }
+
+    private void writeShard() {
+        int total = 0;
+        for (int i = 0; i < properties.maxBatchesPerRun(); i++) {
+            var written = transactionTemplate.execute(status -> writeBatch());
+            if (written == null || written == 0) {
+                break;
+            }
+            total += written;
+            if (written < properties.batchSize()) {
+                break;
+            }
+        }
+
+        if (total > 0) {
+            log.debug("IN - write: [{}] audit revisions written on metadata shard [{}]", total, metadataShards.current());
+        }
+    }
+
+    private int writeBatch() {
+        var batch = auditOutboxRepository.lockBatch(properties.batchSize());
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        // Номера ревизий выдаются в порядке строк очереди, время ревизии - время фиксации изменения
+        var revisions = batch.stream()
+                .map(item -> {
+                    var revision = new BaseEnversUtilEntity();
+                    revision.setRevtmstmp(item.getTimestamp());
+                    return revision;
+                })
+                .toList();
+        revisionRepository.saveAll(revisions);
+        revisionRepository.flush();
+
+        var ids = batch.stream().map(AuditOutboxView::getId).toArray(Long[]::new);
+        var revisionIds = revisions.stream().map(BaseEnversUtilEntity::getRev).toArray(Long[]::new);
+        long rows = 0;
+        for (var table : auditOutboxRepository.findTables(ids)) {
+            if (!auditedEntities.isHistoryTable(table)) {
+                throw new FileException("Unknown audit table [%s] in outbox", table);
+            }
+            rows += auditOutboxRepository.insertHistory(table, ids, revisionIds);
+        }
+        auditOutboxRepository.deleteByIds(ids);
+
+        metric.recordWritten(batch.size(), rows);
+        return batch.size();
+    }
+}
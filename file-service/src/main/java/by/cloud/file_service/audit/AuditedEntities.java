@@ -0,0 +1,111 @@
+package by.cloud.file_service.audit;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.envers.Audited;
+import org.hibernate.envers.NotAudited;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.type.Type;
+import org.springframework.boot.autoconfigure.orm.jpa.JpaProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/*
+    Аудируемые сущности и соответствующие им таблицы истории Envers.
+    Состав столбцов повторяет Envers: все простые свойства и ссылки (*_id) сущности с @Audited,
+    кроме помеченных @NotAudited. Имя таблицы - <default_schema>.<таблица><audit_table_suffix>
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AuditedEntities {
+    private static final String SCHEMA_PROPERTY = "org.hibernate.envers.default_schema";
+    private static final String SUFFIX_PROPERTY = "org.hibernate.envers.audit_table_suffix";
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final JpaProperties jpaProperties;
+
+    private final Map<String, AuditedEntity> entities = new HashMap<>();
+
+    /*
+        properties - индексы свойств в состоянии сущности (EntityPersister.getPropertyNames),
+        columns и types - столбцы таблицы истории и типы этих свойств
+     */
+    public record AuditedEntity(String table, String idColumn, int[] properties, String[] columns, Type[] types) { }
+
+    @PostConstruct
+    public void init() {
+        var schema = jpaProperties.getProperties().get(SCHEMA_PROPERTY);
+        var suffix = jpaProperties.getProperties().getOrDefault(SUFFIX_PROPERTY, "_aud");
+        entityManagerFactory.unwrap(SessionFactoryImplementor.class).getMappingMetamodel()
+                .forEachEntityDescriptor(persister -> describe(persister, schema, suffix)
+                        .ifPresent(entity -> entities.put(persister.getEntityName(), entity)));
+        log.info("IN - init: audited tables {}", entities.values().stream().map(AuditedEntity::table).toList());
+    }
+
+    public Optional<AuditedEntity> find(EntityPersister persister) {
+        return Optional.ofNullable(entities.get(persister.getEntityName()));
+    }
+
+    public List<String> getTables() {
+        return entities.values().stream().map(AuditedEntity::table).sorted().toList();
+    }
+
+    public boolean isHistoryTable(String table) {
+        return entities.values().stream().anyMatch(entity -> entity.table().equals(table));
+    }
+
+    private Optional<AuditedEntity> describe(EntityPersister persister, String schema, String suffix) {
+        var type = persister.getMappedClass();
+        if (type == null || !type.isAnnotationPresent(Audited.class)
+                || !(persister instanceof AbstractEntityPersister entityPersister)) {
+            return Optional.empty();
+        }
+
+        var names = persister.getPropertyNames();
+        var types = persister.getPropertyTypes();
+        List<Integer> properties = new ArrayList<>();
+        List<String> columns = new ArrayList<>();
+        for (int i = 0; i < names.length; i++) {
+            // Коллекции и встроенные объекты в строку истории сущности не попадают
+            if (types[i].isCollectionType() || types[i].isComponentType() || isNotAudited(type, names[i])) {
+                continue;
+            }
+            var propertyColumns = entityPersister.getPropertyColumnNames(i);
+            if (propertyColumns.length != 1) {
+                continue;
+            }
+            properties.add(i);
+            columns.add(propertyColumns[0]);
+        }
+
+        var tableName = entityPersister.getTableName();
+        var table = tableName.substring(tableName.lastIndexOf('.') + 1) + suffix;
+        return Optional.of(new AuditedEntity(
+                schema != null ? schema + "." + table : table,
+                entityPersister.getIdentifierColumnNames()[0],
+                properties.stream().mapToInt(Integer::intValue).toArray(),
+                columns.toArray(String[]::new),
+                properties.stream().map(i -> types[i]).toArray(Type[]::new)));
+    }
+
+    private static boolean isNotAudited(Class<?> type, String property) {
+        for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+            try {
+                return current.getDeclaredField(property).isAnnotationPresent(NotAudited.class);
+            } catch (NoSuchFieldException e) {
+                // Свойство объявлено в родительском классе
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,143 @@
+package by.cloud.file_service.audit;
+
+import by.cloud.file_service.config.HistoryPartitionProperties;
+import by.cloud.file_service.datasource.MetadataShards;
+import by.cloud.file_service.repository.RevisionRepository;
+import by.cloud.file_service.repository.projection.HistoryPartitionView;
+import by.cloud.file_service.util.DateTimeUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/*
+    Месячные секции истории (revinfo и *_history), см. V18__partition_history_tables.sql.
+    Ревизии месяца YYYYMM выдаются из диапазона [YYYYMM * 10^10, следующий месяц * 10^10):
+    при обслуживании создаются секции текущего и premake следующих месяцев, затем последовательность
+    ревизий переводится в диапазон текущего месяца. Ревизии, выданные экземплярами из уже полученного
+    блока (pooled-оптимизатор) или до обслуживания, остаются в секции прошлого месяца.
+
+    Устаревшая история удаляется целыми секциями - без DELETE и последующей очистки таблиц.
+    Секция удаляется, когда ее верхняя граница (начало следующего месяца) старше retention
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class HistoryPartitionService {
+    private static final long REVISIONS_PER_MONTH = 10_000_000_000L;
+
+    private static final String REVISION_TABLE = "file_history.revinfo";
+    private static final DateTimeFormatter SUFFIX_FORMAT = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final long LOCK_TIMEOUT_MILLIS = 5_000;
+
+    private final RevisionRepository revisionRepository;
+    private final AuditedEntities auditedEntities;
+    private final HistoryPartitionProperties properties;
+    private final MetadataShards metadataShards;
+    private final TransactionTemplate transactionTemplate;
+    private final DateTimeUtil dateTimeUtil;
+
+    @Scheduled(fixedDelayString = "${application.history.interval}")
+    public void maintain() {
+        if (!properties.enabled()) {
+            return;
+        }
+        var now = dateTimeUtil.now();
+        metadataShards.forEach(() -> maintainShard(now));
+    }
+
+    private void maintainShard(Instant now) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (!revisionRepository.tryLockPartitions()) {
+                    log.debug("IN - maintain: partitions are maintained by another instance");
+                    return;
+                }
+                // DDL секций блокирует родительскую таблицу: долгое ожидание остановило бы запись истории
+                revisionRepository.setLockTimeout(LOCK_TIMEOUT_MILLIS);
+                createPartitions(now);
+                dropExpiredPartitions(now);
+            });
+        } catch (Exception e) {
+            // Секции созданы заранее на premake месяцев, поэтому следующий запуск успевает повторить работу
+            log.error("Failed to maintain history partitions on metadata shard [{}]", metadataShards.current(), e);
+        }
+    }
+
+    private void createPartitions(Instant now) {
+        var current = YearMonth.from(now.atOffset(ZoneOffset.UTC));
+        var months = Stream.iterate(current, month -> month.plusMonths(1))
+                .limit(properties.premake() + 1L)
+                .toList();
+
+        List<String> created = new ArrayList<>();
+        for (var table : tables()) {
+            var existing = revisionRepository.findPartitions(table).stream()
+                    .map(HistoryPartitionView::getName)
+                    .collect(Collectors.toSet());
+            for (var month : months) {
+                var partition = table + "_p" + month.format(SUFFIX_FORMAT);
+                if (!existing.contains(partition)) {
+                    revisionRepository.createPartition(table, partition, firstRevision(month), firstRevision(month.plusMonths(1)));
+                    created.add(partition);
+                }
+            }
+        }
+        if (!created.isEmpty()) {
+            log.info("IN - createPartitions: partitions {} created", created);
+        }
+
+        if (!revisionRepository.advanceRevisions(firstRevision(current)).isEmpty()) {
+            log.info("IN - createPartitions: revisions advanced to month [{}]", current);
+        }
+    }
+
+    private void dropExpiredPartitions(Instant now) {
+        if (properties.retention() == null) {
+            return;
+        }
+        var cutoff = now.minus(properties.retention());
+
+        List<String> dropped = new ArrayList<>();
+        for (var table : tables()) {
+            for (var partition : revisionRepository.findPartitions(table)) {
+                if (partition.getUpperBound() != null && monthStart(partition.getUpperBound()).isBefore(cutoff)) {
+                    revisionRepository.dropPartition(partition.getName());
+                    dropped.add(partition.getName());
+                }
+            }
+        }
+        if (!dropped.isEmpty()) {
+            log.info("IN - dropExpiredPartitions: partitions {} older than [{}] dropped", dropped, cutoff);
+        }
+    }
+
+    /*
+        Таблицы истории обрабатываются раньше revinfo, чтобы строки истории не пережили свои ревизии
+     */
+    private List<String> tables() {
+        return Stream.concat(auditedEntities.getTables().stream(), Stream.of(REVISION_TABLE)).toList();
+    }
+
+    /*
+        Граница диапазона - первая ревизия месяца (YYYYMM * 10^10), начало этого месяца в UTC
+     */
+    private static Instant monthStart(long revision) {
+        var month = YearMonth.parse(Long.toString(revision / REVISIONS_PER_MONTH), SUFFIX_FORMAT);
+        return month.atDay(1).atStartOfDay().toInstant(ZoneOffset.UTC);
+    }
+
+    private static long firstRevision(YearMonth month) {
+        return Long.parseLong(month.format(SUFFIX_FORMAT)) * REVISIONS_PER_MONTH;
+    }
+}
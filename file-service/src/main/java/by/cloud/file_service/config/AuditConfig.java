@@ -0,0 +1,20 @@
+package by.cloud.file_service.config;
+
+import org.hibernate.envers.boot.internal.EnversIntegrator;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class AuditConfig {
+
+    /*
+        В режиме ASYNC слушатели Envers не регистрируются: изменения собирает AuditEventListener.
+        Метаданные Envers остаются, поэтому чтение истории через AuditReader работает в обоих режимах
+     */
+    @Bean
+    public HibernatePropertiesCustomizer auditPropertiesCustomizer(AuditProperties properties) {
+        return hibernateProperties -> hibernateProperties.put(EnversIntegrator.AUTO_REGISTER,
+                properties.mode() != AuditProperties.Mode.ASYNC);
+    }
+}
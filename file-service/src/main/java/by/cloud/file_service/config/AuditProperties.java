@@ -0,0 +1,22 @@
+package by.cloud.file_service.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/*
+    Режим записи истории изменений сущностей (file_history).
+    SYNC - Envers пишет ревизию и строки *_history в транзакции изменения,
+    ASYNC - изменения транзакции сохраняются при фиксации одной строкой file_history.audit_outbox
+    и переносятся в *_history пачками в фоне (AuditOutboxWriter).
+    batchSize и maxBatchesPerRun ограничивают работу одного запуска переноса
+ */
+@ConfigurationProperties("application.audit")
+public record AuditProperties(
+        Mode mode,
+        int batchSize,
+        int maxBatchesPerRun
+) {
+    public enum Mode {
+        SYNC,
+        ASYNC
+    }
+}
@@ -0,0 +1,15 @@
+package by.cloud.file_service.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/*
+    Настройки копирования каталогов.
+    batchSize - сколько файлов копируется в одной транзакции,
+    batchesPerJob - сколько пачек обрабатывает одна задача очереди, после чего ставится задача-продолжение
+    (обработка не должна превышать срок аренды задачи)
+ */
+@ConfigurationProperties("application.copy")
+public record CopyProperties(
+        int batchSize,
+        int batchesPerJob
+) { }
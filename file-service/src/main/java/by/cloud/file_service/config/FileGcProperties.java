@@ -0,0 +1,21 @@
+package by.cloud.file_service.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/*
+    Настройки сборщика удаленных файлов.
+    retention - сколько удаленный файл хранится до физического удаления,
+    batchSize - сколько файлов обрабатывается в одной транзакции,
+    maxBatchesPerRun - ограничение числа пачек за один запуск,
+    retryDelay - через сколько повторяется удаление файла, объекты которого не удалось удалить
+ */
+@ConfigurationProperties("application.gc")
+public record FileGcProperties(
+        boolean enabled,
+        Duration retention,
+        int batchSize,
+        int maxBatchesPerRun,
+        Duration retryDelay
+) { }
@@ -0,0 +1,20 @@
+package by.cloud.file_service.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/*
+    Настройки хранения предыдущих версий файлов.
+    maxVersions - сколько предыдущих версий хранится для файла (0 - без ограничения),
+    retention - сколько хранится предыдущая версия (не задан - бессрочно).
+    Срок хранения вычисляется при создании версии, изменение настройки не затрагивает существующие версии.
+    batchSize и maxBatchesPerRun ограничивают работу одного запуска очистки
+ */
+@ConfigurationProperties("application.versions")
+public record FileVersionProperties(
+        int maxVersions,
+        Duration retention,
+        int batchSize,
+        int maxBatchesPerRun
+) { }
@@ -0,0 +1,18 @@
+package by.cloud.file_service.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/*
+    Настройки секций истории (revinfo и *_history), см. HistoryPartitionService.
+    premake - на сколько месяцев вперед создаются секции,
+    retention - сколько хранится история (не задан - бессрочно); секция удаляется целиком,
+    когда весь ее месяц старше retention
+ */
+@ConfigurationProperties("application.history")
+public record HistoryPartitionProperties(
+        boolean enabled,
+        int premake,
+        Duration retention
+) { }
@@ -0,0 +1,43 @@
+package by.cloud.file_service.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.Map;
+
+/*
+    Настройки очереди фоновых задач.
+    lease - на сколько задача закрепляется за воркером; по истечении задача считается брошенной,
+    heartbeatInterval - как часто продлевается lease выполняемых задач (меньше lease),
+    shutdownTimeout - сколько при остановке сервиса ожидаются все воркеры вместе,
+    backoff - задержка перед повтором, удваивается с каждой попыткой до maxBackoff,
+    types - настройки отдельных типов задач, переопределяющие значения по умолчанию
+ */
+@ConfigurationProperties("application.jobs")
+public record JobProperties(
+        boolean enabled,
+        Duration pollInterval,
+        Duration lease,
+        Duration heartbeatInterval,
+        Duration shutdownTimeout,
+        int maxAttempts,
+        Duration backoff,
+        Duration maxBackoff,
+        int concurrency,
+        Map<String, Type> types
+) {
+    public record Type(
+            Integer concurrency,
+            Integer maxAttempts
+    ) { }
+
+    public int concurrency(String type) {
+        var settings = types == null ? null : types.get(type);
+        return settings != null && settings.concurrency() != null ? settings.concurrency() : concurrency;
+    }
+
+    public int maxAttempts(String type) {
+        var settings = types == null ? null : types.get(type);
+        return settings != null && settings.maxAttempts() != null ? settings.maxAttempts() : maxAttempts;
+    }
+}
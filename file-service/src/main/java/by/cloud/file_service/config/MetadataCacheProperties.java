@@ -0,0 +1,20 @@
+package by.cloud.file_service.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/*
+    Настройки кеша метаданных файлов (FileMetadataCache).
+    maximumSize - наибольшее число файлов в кеше,
+    ttl - срок хранения записи: наибольшая задержка, с которой экземпляр видит изменение другого экземпляра,
+    если оповещение выключено или сообщение потеряно,
+    broadcast - оповещать другие экземпляры об изменениях (MetadataCacheBroadcast)
+ */
+@ConfigurationProperties("application.metadata-cache")
+public record MetadataCacheProperties(
+        boolean enabled,
+        long maximumSize,
+        Duration ttl,
+        boolean broadcast
+) { }
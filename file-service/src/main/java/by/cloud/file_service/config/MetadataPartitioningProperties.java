@@ -0,0 +1,14 @@
+package by.cloud.file_service.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/*
+    Настройки переноса file.files и file.directories в секционированные таблицы, см. MetadataPartitioningService.
+    batchSize - сколько строк копируется одной транзакцией, maxBatchesPerRun ограничивает работу одного запуска
+ */
+@ConfigurationProperties("application.metadata-partitioning")
+public record MetadataPartitioningProperties(
+        boolean enabled,
+        int batchSize,
+        int maxBatchesPerRun
+) { }
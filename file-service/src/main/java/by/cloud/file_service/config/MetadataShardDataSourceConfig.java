@@ -0,0 +1,99 @@
+package by.cloud.file_service.config;
+
+import by.cloud.file_service.datasource.MetadataShardRoutingDataSource;
+import by.cloud.file_service.datasource.MetadataShardTenantResolver;
+import by.cloud.file_service.datasource.MetadataShards;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.Flyway;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+    Шардирование метаданных (application.metadata-sharding.enabled). Основной пул настраивается как обычно
+    (spring.datasource) и обслуживает шард default, пулы дополнительных шардов повторяют его размер
+    и свойства драйвера. Миграции Flyway выполняются на каждом шарде при старте.
+
+    Определяет собственный DataSource приложения, поэтому не совместимо с чтением с реплик
+    (application.replica.enabled): при включении обоих старт завершается ошибкой регистрации bean dataSource
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(prefix = "application.metadata-sharding", name = "enabled", havingValue = "true")
+public class MetadataShardDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+        return dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @Primary
+    public MetadataShardRoutingDataSource dataSource(HikariDataSource primaryDataSource,
+                                                     DataSourceProperties dataSourceProperties,
+                                                     MetadataShardProperties properties,
+                                                     MetadataShards metadataShards,
+                                                     MeterRegistry meterRegistry) {
+        Map<String, HikariDataSource> dataSources = new LinkedHashMap<>();
+        dataSources.put(MetadataShards.DEFAULT_SHARD, primaryDataSource);
+        for (var shard : properties.shards()) {
+            var dataSource = new HikariDataSource();
+            dataSource.setPoolName("metadata-" + shard.name());
+            dataSource.setJdbcUrl(shard.url());
+            dataSource.setUsername(shard.username() != null ? shard.username() : dataSourceProperties.determineUsername());
+            dataSource.setPassword(shard.password() != null ? shard.password() : dataSourceProperties.determinePassword());
+            dataSource.setDriverClassName(dataSourceProperties.determineDriverClassName());
+            dataSource.setMaximumPoolSize(primaryDataSource.getMaximumPoolSize());
+            dataSource.setDataSourceProperties(primaryDataSource.getDataSourceProperties());
+            // Пул не является bean, метрики hikaricp_* (в том числе ожидание соединения) подключаются вручную
+            dataSource.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            dataSources.put(shard.name(), dataSource);
+        }
+        return new MetadataShardRoutingDataSource(metadataShards, dataSources);
+    }
+
+    /*
+        Flyway приложения работает с шардом default, остальные шарды мигрируют с теми же настройками
+     */
+    @Bean
+    public FlywayMigrationStrategy metadataShardMigrationStrategy(MetadataShardRoutingDataSource dataSource) {
+        return flyway -> {
+            flyway.migrate();
+            dataSource.getShardDataSources().forEach((name, shardDataSource) -> {
+                if (MetadataShards.DEFAULT_SHARD.equals(name)) {
+                    return;
+                }
+                var result = Flyway.configure()
+                        .configuration(flyway.getConfiguration())
+                        .dataSource(shardDataSource)
+                        .load()
+                        .migrate();
+                log.info("Metadata shard [{}] migrated to version [{}]", name, result.targetSchemaVersion);
+            });
+        };
+    }
+
+    /*
+        Номера ревизий выдаются последовательностью шарда блоками (pooled-оптимизатор, BaseEnversUtilEntity).
+        Оптимизатор хранит блок отдельно для каждого арендатора сессии, поэтому шард передается Hibernate
+        как арендатор: номер из блока одного шарда не используется при записи на другой
+     */
+    @Bean
+    public HibernatePropertiesCustomizer metadataShardPropertiesCustomizer(MetadataShards metadataShards) {
+        return hibernateProperties -> hibernateProperties.put(AvailableSettings.MULTI_TENANT_IDENTIFIER_RESOLVER,
+                new MetadataShardTenantResolver(metadataShards));
+    }
+}
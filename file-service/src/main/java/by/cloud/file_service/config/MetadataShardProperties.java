@@ -0,0 +1,51 @@
+package by.cloud.file_service.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.List;
+
+/*
+    Размещение метаданных пользователей по нескольким базам (шардам), см. MetadataShards.
+    База spring.datasource всегда подключена как шард default с весом defaultWeight, shards - дополнительные шарды
+    (пользователь и пароль, не заданные у шарда, берутся из spring.datasource).
+
+    assignment - способ выбора шарда пользователя:
+    DIRECTORY - по таблице file.user_shards базы default, новый пользователь размещается по кольцу
+    и закрепляется за шардом; пользователя можно перенести на другой шард (UserShardMoveService),
+    HASH - только по кольцу согласованного хеширования; набор шардов и веса менять нельзя.
+
+    cacheTtl - сколько экземпляр сервиса хранит шард пользователя без обращения к таблице,
+    moveSettle - пауза между шагами переноса пользователя, должна превышать cacheTtl,
+    время самого долгого запроса и интервалы сброса накопленных изменений,
+    ownerCacheSize - сколько владельцев файлов и каталогов по id хранится для запросов без userId (ObjectOwnerService)
+ */
+@ConfigurationProperties("application.metadata-sharding")
+public record MetadataShardProperties(
+        boolean enabled,
+        Assignment assignment,
+        int virtualNodes,
+        int defaultWeight,
+        Duration cacheTtl,
+        Duration moveSettle,
+        int maxMovesPerRun,
+        long ownerCacheSize,
+        List<Shard> shards
+) {
+    public enum Assignment {
+        DIRECTORY,
+        HASH
+    }
+
+    public record Shard(
+            String name,
+            String url,
+            String username,
+            String password,
+            int weight
+    ) { }
+
+    public List<Shard> shards() {
+        return shards != null ? shards : List.of();
+    }
+}
@@ -1,5 +1,7 @@
 package by.cloud.file_service.config;
 
+import by.cloud.file_service.service.StorageShard;
+import by.cloud.file_service.service.StorageShardRegistry;
 import io.minio.BucketExistsArgs;
 import io.minio.MakeBucketArgs;
 import io.minio.MinioClient;
@@ -11,6 +13,8 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 @Slf4j
 @Configuration
@@ -29,20 +33,44 @@ public class MinioConfig {
     @Value("${minio.bucket}")
     private String bucket;
 
+    // Бакет редко читаемых объектов (StorageTieringService), может иметь другой класс хранения.
+    // Хранилище minio.* - шард default, остальные шарды задаются в application.storage.shards
+    @Value("${minio.cold-bucket}")
+    private String coldBucket;
+
+    @Value("${minio.cold-storage-class:}")
+    private String coldStorageClass;
+
     @Bean
-    public MinioClient minioClient() {
+    public StorageShardRegistry storageShardRegistry(StorageShardProperties properties) {
+        List<StorageShard> shards = new ArrayList<>();
+        shards.add(createShard(StorageShardRegistry.DEFAULT_SHARD, endpoint, accessKey, secretKey, bucket, coldBucket,
+                properties.defaultWeight()));
+        for (var shard : properties.shards()) {
+            shards.add(createShard(shard.name(), shard.endpoint(), shard.accessKey(), shard.secretKey(),
+                    shard.bucket() != null ? shard.bucket() : bucket,
+                    shard.coldBucket() != null ? shard.coldBucket() : coldBucket,
+                    shard.weight()));
+        }
+        return new StorageShardRegistry(shards, properties.virtualNodes());
+    }
+
+    private StorageShard createShard(String name, String endpoint, String accessKey, String secretKey,
+                                     String bucket, String coldBucket, int weight) {
         MinioClient client = MinioClient.builder()
                 .endpoint(endpoint)
                 .credentials(accessKey, secretKey)
                 .build();
-        
+
         // Инициализируем bucket при старте приложения
-        initializeBucket(client);
-        
-        return client;
+        initializeBucket(client, bucket);
+        initializeBucket(client, coldBucket);
+        log.info("Storage shard [{}] at [{}] with weight [{}] initialized", name, endpoint, weight);
+
+        return new StorageShard(name, client, bucket, coldBucket, coldStorageClass, weight);
     }
 
-    private void initializeBucket(MinioClient client) {
+    private void initializeBucket(MinioClient client, String bucket) {
         try {
             // Проверяем, существует ли bucket
             boolean found = client.bucketExists(BucketExistsArgs.builder()
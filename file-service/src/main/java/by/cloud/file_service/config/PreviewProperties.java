@@ -0,0 +1,20 @@
+package by.cloud.file_service.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.List;
+
+/*
+    Настройки превью.
+    sizes - размеры большей стороны превью в пикселях,
+    maxSourcePixels - изображения большего размера не обрабатываются (защита от распаковки огромных картинок),
+    maxSourceBytes - файлы большего размера не читаются, PDF предварительно записывается во временный файл
+ */
+@ConfigurationProperties("application.preview")
+public record PreviewProperties(
+        boolean enabled,
+        List<Integer> sizes,
+        long maxSourcePixels,
+        long maxSourceBytes,
+        float quality
+) { }
@@ -0,0 +1,18 @@
+package by.cloud.file_service.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/*
+    Настройки квот.
+    defaultBytes - квота пользователя, для которого не задана собственная,
+    flushInterval - как часто накопленные в памяти изменения записываются в file.user_usage,
+    quietPeriod - пересчет не затрагивает пользователей, чьи файлы менялись за этот период
+ */
+@ConfigurationProperties("application.quota")
+public record QuotaProperties(
+        long defaultBytes,
+        Duration flushInterval,
+        Duration quietPeriod
+) { }
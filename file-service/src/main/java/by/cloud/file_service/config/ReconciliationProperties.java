@@ -0,0 +1,20 @@
+package by.cloud.file_service.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/*
+    Настройки сверки MinIO с метаданными.
+    pageSize - число ключей listObjects, сверяемых за одну транзакцию,
+    grace - объекты и строки моложе этого срока не проверяются (загрузка может быть еще не завершена),
+    repair - удалять объекты-сироты и помечать удаленными строки без объекта; иначе только отчет
+ */
+@ConfigurationProperties("application.reconciliation")
+public record ReconciliationProperties(
+        boolean enabled,
+        int pageSize,
+        int maxPagesPerRun,
+        Duration grace,
+        boolean repair
+) { }
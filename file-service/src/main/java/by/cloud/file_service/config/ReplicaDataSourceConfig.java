@@ -0,0 +1,72 @@
+package by.cloud.file_service.config;
+
+import by.cloud.file_service.datasource.ReadYourWritesTracker;
+import by.cloud.file_service.datasource.ReplicaRoutingDataSource;
+import by.cloud.file_service.metric.ReplicaMetric;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+    Чтение с реплик (application.replica.enabled). Основной пул настраивается как обычно (spring.datasource),
+    пулы реплик повторяют его размер и свойства драйвера и открывают соединения только для чтения.
+    Flyway, запись и транзакции без readOnly всегда используют основную базу
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "application.replica", name = "enabled", havingValue = "true")
+public class ReplicaDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+        return dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(HikariDataSource primaryDataSource,
+                                                             DataSourceProperties dataSourceProperties,
+                                                             ReplicaProperties properties,
+                                                             ReadYourWritesTracker tracker,
+                                                             ReplicaMetric metric,
+                                                             MeterRegistry meterRegistry) {
+        List<ReplicaRoutingDataSource.Replica> replicas = new ArrayList<>();
+        var urls = properties.urls() != null ? properties.urls() : List.<String>of();
+        for (int i = 0; i < urls.size(); i++) {
+            var name = "replica-" + i;
+            var dataSource = new HikariDataSource();
+            dataSource.setPoolName(name);
+            dataSource.setJdbcUrl(urls.get(i));
+            dataSource.setUsername(dataSourceProperties.determineUsername());
+            dataSource.setPassword(dataSourceProperties.determinePassword());
+            dataSource.setDriverClassName(dataSourceProperties.determineDriverClassName());
+            dataSource.setMaximumPoolSize(primaryDataSource.getMaximumPoolSize());
+            dataSource.setDataSourceProperties(primaryDataSource.getDataSourceProperties());
+            // Пул не является bean, метрики hikaricp_* (в том числе ожидание соединения) подключаются вручную
+            dataSource.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            dataSource.setReadOnly(true);
+            // Недоступная при старте реплика не мешает запуску сервиса
+            dataSource.setInitializationFailTimeout(-1);
+            replicas.add(new ReplicaRoutingDataSource.Replica(name, dataSource));
+        }
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas, properties.maxLag(), tracker, metric);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaRoutingDataSource replicaRoutingDataSource) {
+        var dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+        dataSource.setReadOnlyDataSource(replicaRoutingDataSource);
+        return dataSource;
+    }
+}
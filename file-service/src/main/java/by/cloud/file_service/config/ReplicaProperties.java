@@ -0,0 +1,20 @@
+package by.cloud.file_service.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.List;
+
+/*
+    Настройки чтения с реплик, см. ReplicaRoutingDataSource.
+    urls - JDBC URL реплик (пользователь и пароль те же, что у основной базы),
+    maxLag - отставание, после которого реплика не используется,
+    readYourWritesWindow - сколько после изменения чтения пользователя выполняются на основной базе
+ */
+@ConfigurationProperties("application.replica")
+public record ReplicaProperties(
+        boolean enabled,
+        List<String> urls,
+        Duration maxLag,
+        Duration readYourWritesWindow
+) { }
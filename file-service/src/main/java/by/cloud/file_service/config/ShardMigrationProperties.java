@@ -0,0 +1,16 @@
+package by.cloud.file_service.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/*
+    Настройки переноса объектов между шардами после изменения состава кольца.
+    pageSize - сколько строк просматривается за одну пачку, maxBatchesPerRun и maxBytesPerRun
+    ограничивают работу одного запуска, чтобы перенос не занимал всю пропускную способность хранилищ
+ */
+@ConfigurationProperties("application.shard-migration")
+public record ShardMigrationProperties(
+        boolean enabled,
+        int pageSize,
+        int maxBatchesPerRun,
+        long maxBytesPerRun
+) { }
@@ -0,0 +1,33 @@
+package by.cloud.file_service.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.List;
+
+/*
+    Размещение объектов по нескольким хранилищам.
+    Хранилище minio.* всегда подключено как шард default с весом defaultWeight,
+    shards - дополнительные шарды (бакеты, не заданные у шарда, берутся из minio.bucket и minio.cold-bucket).
+    virtualNodes - число точек кольца на единицу веса: чем больше, тем равномернее распределение.
+    Вес 0 выводит шард из кольца: новые объекты на него не попадают, существующие переносит ShardMigrationService
+ */
+@ConfigurationProperties("application.storage")
+public record StorageShardProperties(
+        int virtualNodes,
+        int defaultWeight,
+        List<Shard> shards
+) {
+    public record Shard(
+            String name,
+            String endpoint,
+            String accessKey,
+            String secretKey,
+            String bucket,
+            String coldBucket,
+            int weight
+    ) { }
+
+    public List<Shard> shards() {
+        return shards != null ? shards : List.of();
+    }
+}
@@ -0,0 +1,25 @@
+package by.cloud.file_service.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/*
+    Настройки переноса объектов между уровнями хранения.
+    coldAfter - через сколько времени без скачиваний объект переносится в холодный бакет,
+    minSize - объекты меньше этого размера (байт) не переносятся: для них экономия не окупает перенос.
+    sampleRate - доля скачиваний (0..1), для которых записывается время обращения.
+    При выборке время обращения запаздывает, поэтому coldAfter должен быть много больше интервала между скачиваниями
+    часто читаемого файла. batchSize и maxBatchesPerRun ограничивают работу одного запуска переноса.
+    retryDelay - через сколько повторяется перенос файла, объект которого не удалось скопировать
+ */
+@ConfigurationProperties("application.tiering")
+public record TieringProperties(
+        boolean enabled,
+        Duration coldAfter,
+        long minSize,
+        double sampleRate,
+        int batchSize,
+        int maxBatchesPerRun,
+        Duration retryDelay
+) { }
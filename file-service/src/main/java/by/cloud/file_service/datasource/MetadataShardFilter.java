@@ -0,0 +1,74 @@
+package by.cloud.file_service.datasource;
+
+import by.cloud.file_service.config.MetadataShardProperties;
+import by.cloud.file_service.service.UserShardService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.UUID;
+
+/*
+    Привязывает к запросу шард метаданных его пользователя (RequestUserResolver, UserShardService).
+    Запрос к объекту по id выполняется на шарде владельца объекта, запрос без пользователя - на шарде default.
+    Пакетное чтение по id (/v1/files/batch, /v1/directories/batch) обходит все шарды (UserShardService.findOwned).
+    Пока пользователь переносится на другой шард, изменения отклоняются с 503 и Retry-After, чтение продолжается
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "application.metadata-sharding", name = "enabled", havingValue = "true")
+public class MetadataShardFilter extends OncePerRequestFilter {
+    private static final Set<String> SAFE_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+
+    private final RequestUserResolver userResolver;
+    private final UserShardService userShardService;
+    private final MetadataShards metadataShards;
+    private final MetadataShardProperties properties;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        var userId = parseUserId(userResolver.resolve(request));
+        if (userId == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        var assignment = userShardService.find(userId);
+        if (assignment.moving() && !SAFE_METHODS.contains(request.getMethod())) {
+            log.debug("IN - doFilterInternal: user [{}] is moving between metadata shards, change rejected", userId);
+            response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(properties.moveSettle().toSeconds()));
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "User data is being moved, retry later");
+            return;
+        }
+
+        var previous = metadataShards.bind(assignment.shard());
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            metadataShards.restore(previous);
+        }
+    }
+
+    private static UUID parseUserId(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return UUID.fromString(value);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
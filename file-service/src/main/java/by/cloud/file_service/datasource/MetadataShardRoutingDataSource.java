@@ -0,0 +1,56 @@
+package by.cloud.file_service.datasource;
+
+import by.cloud.file_service.exception.FileException;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.Getter;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+    Источник соединений приложения при шардировании метаданных: соединение выдается пулом шарда,
+    привязанного к потоку (MetadataShards), без привязки - пулом шарда default.
+    Пул шарда default - основной пул spring.datasource, он закрывается как отдельный bean
+ */
+public class MetadataShardRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+    private final MetadataShards metadataShards;
+    @Getter
+    private final Map<String, HikariDataSource> shardDataSources;
+
+    public MetadataShardRoutingDataSource(MetadataShards metadataShards, Map<String, HikariDataSource> shardDataSources) {
+        this.metadataShards = metadataShards;
+        this.shardDataSources = shardDataSources;
+        setTargetDataSources(new HashMap<>(shardDataSources));
+        setDefaultTargetDataSource(shardDataSources.get(MetadataShards.DEFAULT_SHARD));
+        // Неизвестный шард - ошибка, а не чтение базы default
+        setLenientFallback(false);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return metadataShards.current();
+    }
+
+    /*
+        Новое соединение пула шарда независимо от привязки потока и текущей транзакции
+     */
+    public Connection getShardConnection(String shard) throws SQLException {
+        var dataSource = shardDataSources.get(shard);
+        if (dataSource == null) {
+            throw new FileException("Metadata shard [%s] is not configured", shard);
+        }
+        return dataSource.getConnection();
+    }
+
+    @Override
+    public void close() {
+        shardDataSources.forEach((name, dataSource) -> {
+            if (!MetadataShards.DEFAULT_SHARD.equals(name)) {
+                dataSource.close();
+            }
+        });
+    }
+}
@@ -0,0 +1,23 @@
+package by.cloud.file_service.datasource;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.context.spi.CurrentTenantIdentifierResolver;
+
+/*
+    Шард метаданных как арендатор сессии Hibernate. Сессия открывается при начале транзакции,
+    когда шард уже привязан к потоку
+ */
+@RequiredArgsConstructor
+public class MetadataShardTenantResolver implements CurrentTenantIdentifierResolver<String> {
+    private final MetadataShards metadataShards;
+
+    @Override
+    public String resolveCurrentTenantIdentifier() {
+        return metadataShards.current();
+    }
+
+    @Override
+    public boolean validateExistingCurrentSessions() {
+        return false;
+    }
+}
@@ -0,0 +1,162 @@
+package by.cloud.file_service.datasource;
+
+import by.cloud.file_service.config.MetadataShardProperties;
+import by.cloud.file_service.exception.FileException;
+import by.cloud.file_service.util.ConsistentHashRing;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/*
+    Шарды метаданных и шард текущего потока.
+    Шард привязывается к потоку на время запроса (MetadataShardFilter) или фоновой работы (runOn, forEach),
+    MetadataShardRoutingDataSource выдает соединение базы привязанного шарда, без привязки - базы default.
+    Соединение транзакции JPA получается при ее начале, поэтому шард нельзя сменить внутри транзакции:
+    для запроса к другому шарду из транзакции используется callInNewTransactionOn.
+
+    При выключенном шардировании есть один шард default, и все методы выполняют работу в текущем потоке как есть
+ */
+@Slf4j
+@Component
+public class MetadataShards {
+    public static final String DEFAULT_SHARD = "default";
+
+    private final List<String> names;
+    private final ConsistentHashRing ring;
+    private final ObjectProvider<PlatformTransactionManager> transactionManager;
+    private final ThreadLocal<String> current = new ThreadLocal<>();
+
+    public MetadataShards(MetadataShardProperties properties, ObjectProvider<PlatformTransactionManager> transactionManager) {
+        this.transactionManager = transactionManager;
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        weights.put(DEFAULT_SHARD, properties.enabled() ? properties.defaultWeight() : 1);
+        if (properties.enabled()) {
+            properties.shards().forEach(shard -> {
+                if (weights.putIfAbsent(shard.name(), shard.weight()) != null) {
+                    throw new IllegalStateException("Duplicate metadata shard [%s]".formatted(shard.name()));
+                }
+            });
+        }
+        names = List.copyOf(weights.keySet());
+        ring = new ConsistentHashRing(weights, properties.enabled() ? properties.virtualNodes() : 1);
+    }
+
+    public boolean isSharded() {
+        return names.size() > 1;
+    }
+
+    public List<String> names() {
+        return names;
+    }
+
+    public String current() {
+        var shard = current.get();
+        return shard != null ? shard : DEFAULT_SHARD;
+    }
+
+    /*
+        Шард нового пользователя по текущему кольцу
+     */
+    public String locate(UUID userId) {
+        return ring.locate(userId.toString());
+    }
+
+    /*
+        Привязывает шард к потоку и возвращает предыдущую привязку для restore
+     */
+    public String bind(String shard) {
+        if (!names.contains(shard)) {
+            throw new FileException("Metadata shard [%s] is not configured", shard);
+        }
+        if (!shard.equals(current()) && TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Metadata shard cannot be changed inside a transaction");
+        }
+        var previous = current.get();
+        current.set(shard);
+        return previous;
+    }
+
+    public void restore(String previous) {
+        if (previous != null) {
+            current.set(previous);
+        } else {
+            current.remove();
+        }
+    }
+
+    public <T> T callOn(String shard, Supplier<T> action) {
+        var previous = bind(shard);
+        try {
+            return action.get();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    public void runOn(String shard, Runnable action) {
+        callOn(shard, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /*
+        Выполняет фоновую работу на каждом шарде. Ошибка одного шарда не останавливает работу на остальных
+     */
+    public void forEach(Runnable action) {
+        for (var shard : names) {
+            try {
+                runOn(shard, action);
+            } catch (Exception e) {
+                log.error("Failed to run task on metadata shard [{}]", shard, e);
+            }
+        }
+    }
+
+    public long sum(LongSupplier action) {
+        return names.stream()
+                .mapToLong(shard -> callOn(shard, action::getAsLong))
+                .sum();
+    }
+
+    public <T> List<T> collect(Supplier<? extends Collection<T>> action) {
+        List<T> result = new ArrayList<>();
+        names.forEach(shard -> result.addAll(callOn(shard, action)));
+        return result;
+    }
+
+    /*
+        Выполняет работу на шарде в отдельной транзакции, приостанавливая текущую.
+        На текущем шарде работа выполняется в текущей транзакции
+     */
+    public <T> T callInNewTransactionOn(String shard, Supplier<T> action) {
+        if (shard.equals(current())) {
+            return action.get();
+        }
+        if (!names.contains(shard)) {
+            throw new FileException("Metadata shard [%s] is not configured", shard);
+        }
+        var transactionTemplate = new TransactionTemplate(transactionManager.getObject());
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        var previous = current.get();
+        current.set(shard);
+        try {
+            return transactionTemplate.execute(status -> action.get());
+        } finally {
+            restore(previous);
+        }
+    }
+}
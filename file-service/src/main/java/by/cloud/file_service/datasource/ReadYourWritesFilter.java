@@ -0,0 +1,49 @@
+package by.cloud.file_service.datasource;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Set;
+
+/*
+    Определяет пользователя запроса (RequestUserResolver) для ReadYourWritesTracker и отмечает изменение
+    при любом запросе, кроме GET/HEAD/OPTIONS.
+    Изменение отмечается до выполнения запроса: транзакция фиксируется раньше, чем запрос завершается,
+    и параллельное чтение того же пользователя после фиксации уже направляется на основную базу.
+    После запроса отметка повторяется, чтобы окно отсчитывалось от фиксации
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "application.replica", name = "enabled", havingValue = "true")
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+    private static final Set<String> SAFE_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+
+    private final ReadYourWritesTracker tracker;
+    private final RequestUserResolver userResolver;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        var user = userResolver.resolve(request);
+        var write = !SAFE_METHODS.contains(request.getMethod());
+        if (write) {
+            tracker.recordWrite(user);
+        }
+        tracker.bind(user);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            tracker.unbind();
+            if (write) {
+                tracker.recordWrite(user);
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package by.cloud.file_service.datasource;
+
+import by.cloud.file_service.config.ReplicaProperties;
+import by.cloud.file_service.util.DateTimeUtil;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+    Время последнего изменения по пользователям для чтения своих записей (read-your-writes).
+    Пользователь текущего запроса задается ReadYourWritesFilter. Изменение, автор которого неизвестен,
+    направляет на основную базу чтения всех пользователей на то же окно.
+    Время хранится в памяти экземпляра: чтение на другом экземпляре сервиса окно не учитывает
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "application.replica", name = "enabled", havingValue = "true")
+public class ReadYourWritesTracker {
+    private static final ThreadLocal<String> CURRENT_USER = new ThreadLocal<>();
+
+    private final ReplicaProperties properties;
+    private final DateTimeUtil dateTimeUtil;
+
+    private final Map<String, Instant> lastWrites = new ConcurrentHashMap<>();
+    private final AtomicReference<Instant> lastAnonymousWrite = new AtomicReference<>(Instant.MIN);
+
+    public void bind(String user) {
+        CURRENT_USER.set(user);
+    }
+
+    public void unbind() {
+        CURRENT_USER.remove();
+    }
+
+    public void recordWrite(String user) {
+        var now = dateTimeUtil.now();
+        if (user == null) {
+            lastAnonymousWrite.set(now);
+        } else {
+            lastWrites.put(user, now);
+        }
+    }
+
+    /*
+        true - текущий пользователь (или неизвестный автор) изменял данные в пределах окна
+     */
+    public boolean isRecentWriter() {
+        var cutoff = dateTimeUtil.now().minus(properties.readYourWritesWindow());
+        if (lastAnonymousWrite.get().isAfter(cutoff)) {
+            return true;
+        }
+        var user = CURRENT_USER.get();
+        if (user == null) {
+            return false;
+        }
+        var lastWrite = lastWrites.get(user);
+        return lastWrite != null && lastWrite.isAfter(cutoff);
+    }
+
+    public void evictExpired() {
+        var cutoff = dateTimeUtil.now().minus(properties.readYourWritesWindow());
+        lastWrites.values().removeIf(lastWrite -> !lastWrite.isAfter(cutoff));
+    }
+}
@@ -0,0 +1,105 @@
+package by.cloud.file_service.datasource;
+
+import by.cloud.file_service.metric.ReplicaMetric;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+    Источник соединений для транзакций только для чтения (@Transactional(readOnly = true)).
+    Подключается к LazyConnectionDataSourceProxy как readOnlyDataSource: прокси откладывает получение
+    соединения до первого запроса, когда признак readOnly транзакции уже известен.
+
+    Реплики выбираются по кругу среди тех, чье отставание (ReplicaLagMonitor) не больше maxLag.
+    Чтение выполняется на основной базе, если подходящих реплик нет, реплика не выдала соединение
+    или пользователь недавно изменял данные (ReadYourWritesTracker)
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+    public static final String PRIMARY = "primary";
+
+    @Getter
+    private final DataSource primary;
+    @Getter
+    private final List<Replica> replicas;
+    private final Duration maxLag;
+    private final ReadYourWritesTracker tracker;
+    private final ReplicaMetric metric;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReplicaRoutingDataSource(DataSource primary, List<Replica> replicas, Duration maxLag,
+                                    ReadYourWritesTracker tracker, ReplicaMetric metric) {
+        this.primary = primary;
+        this.replicas = replicas;
+        this.maxLag = maxLag;
+        this.tracker = tracker;
+        this.metric = metric;
+    }
+
+    /*
+        lag - отставание по последней проверке, null - реплика недоступна или еще не проверена
+     */
+    public static final class Replica {
+        @Getter
+        private final String name;
+        @Getter
+        private final HikariDataSource dataSource;
+        @Getter
+        private volatile Duration lag;
+
+        public Replica(String name, HikariDataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        public void setLag(Duration lag) {
+            this.lag = lag;
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (tracker.isRecentWriter()) {
+            metric.incrementRouted(PRIMARY, ReplicaMetric.REASON_RECENT_WRITE);
+            return primary.getConnection();
+        }
+
+        var available = replicas.stream()
+                .filter(replica -> replica.getLag() != null && replica.getLag().compareTo(maxLag) <= 0)
+                .toList();
+        if (!available.isEmpty()) {
+            var replica = available.get(Math.floorMod(next.getAndIncrement(), available.size()));
+            try {
+                var connection = replica.getDataSource().getConnection();
+                metric.incrementRouted(replica.getName(), ReplicaMetric.REASON_REPLICA);
+                return connection;
+            } catch (SQLException e) {
+                // Реплика исключается до следующей проверки отставания
+                replica.setLag(null);
+                log.warn("IN - getConnection: replica [{}] unavailable, reading from primary: {}",
+                        replica.getName(), e.getMessage());
+            }
+        }
+        metric.incrementRouted(PRIMARY, ReplicaMetric.REASON_NO_REPLICA);
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Replica routing uses the configured credentials");
+    }
+
+    @Override
+    public void close() {
+        replicas.forEach(replica -> replica.getDataSource().close());
+    }
+}
@@ -0,0 +1,106 @@
+package by.cloud.file_service.datasource;
+
+import by.cloud.file_service.service.ObjectOwnerService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+
+import java.io.IOException;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+
+/*
+    Пользователь запроса для выбора базы (ReadYourWritesFilter, MetadataShardFilter):
+    параметр userId, переменная userId пути, владелец объекта из пути (ObjectOwnerService),
+    иначе sub токена из Authorization. Владелец объекта важнее токена: запрос к объекту выполняется
+    на шарде его владельца, даже если шлюз не передал токен.
+    Токен здесь не проверяется: он нужен только для выбора базы
+ */
+@Component
+@RequiredArgsConstructor
+public class RequestUserResolver {
+    private static final String USER_ID_PARAMETER = "userId";
+    private static final String BEARER_PREFIX = "Bearer ";
+    private static final List<String> USER_ID_PATHS = List.of(
+            "/v1/usage/{userId}",
+            "/v1/directories/initialize/{userId}"
+    );
+    // /v1/files/{id} совпадает и с /v1/files/batch, /bulk, /search: такой id не разбирается как UUID и пропускается
+    private static final List<OwnerPath> OWNER_PATHS = List.of(
+            new OwnerPath("/v1/files/download/{id}", ObjectOwnerService.Kind.FILE),
+            new OwnerPath("/v1/files/{id}", ObjectOwnerService.Kind.FILE),
+            new OwnerPath("/v1/files/{id}/**", ObjectOwnerService.Kind.FILE),
+            new OwnerPath("/v1/directories/copies/{id}", ObjectOwnerService.Kind.COPY_TASK),
+            new OwnerPath("/v1/directories/{id}", ObjectOwnerService.Kind.DIRECTORY),
+            new OwnerPath("/v1/directories/{id}/copy", ObjectOwnerService.Kind.DIRECTORY),
+            new OwnerPath("/v1/folders/{id}/view", ObjectOwnerService.Kind.DIRECTORY)
+    );
+
+    private record OwnerPath(String pattern, ObjectOwnerService.Kind kind) { }
+
+    private final ObjectMapper objectMapper;
+    private final ObjectOwnerService objectOwnerService;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    public String resolve(HttpServletRequest request) {
+        var userId = request.getParameter(USER_ID_PARAMETER);
+        if (userId != null && !userId.isBlank()) {
+            return userId;
+        }
+        var path = request.getRequestURI().substring(request.getContextPath().length());
+        for (var pattern : USER_ID_PATHS) {
+            if (pathMatcher.match(pattern, path)) {
+                return pathMatcher.extractUriTemplateVariables(pattern, path).get(USER_ID_PARAMETER);
+            }
+        }
+        var owner = resolveOwner(path);
+        if (owner != null) {
+            return owner;
+        }
+        return resolveSubject(request);
+    }
+
+    private String resolveOwner(String path) {
+        for (var ownerPath : OWNER_PATHS) {
+            if (!pathMatcher.match(ownerPath.pattern(), path)) {
+                continue;
+            }
+            var id = parseId(pathMatcher.extractUriTemplateVariables(ownerPath.pattern(), path).get("id"));
+            if (id != null) {
+                return objectOwnerService.findOwner(ownerPath.kind(), id)
+                        .map(UUID::toString)
+                        .orElse(null);
+            }
+        }
+        return null;
+    }
+
+    private static UUID parseId(String value) {
+        try {
+            return value != null ? UUID.fromString(value) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private String resolveSubject(HttpServletRequest request) {
+        var authorization = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (authorization == null || !authorization.startsWith(BEARER_PREFIX)) {
+            return null;
+        }
+        var parts = authorization.substring(BEARER_PREFIX.length()).split("\\.");
+        if (parts.length < 2) {
+            return null;
+        }
+        try {
+            var subject = objectMapper.readTree(Base64.getUrlDecoder().decode(parts[1])).path("sub");
+            return subject.isTextual() ? subject.asText() : null;
+        } catch (IllegalArgumentException | IOException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package by.cloud.file_service.datasource;
+
+import by.cloud.file_service.exception.FileException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/*
+    Копирование и удаление строк одного пользователя на шардах метаданных (UserShardMoveService).
+    Работает с соединениями шардов напрямую, вне транзакций JPA: строки читаются одним снимком
+    (REPEATABLE READ) с шарда-источника и вставляются в шард-приемник одной транзакцией,
+    поэтому на приемнике пользователь появляется целиком или не появляется вовсе.
+    Строки копируются всеми столбцами, схема шардов одинакова (общие миграции).
+    История изменений (file_history) не переносится и остается на шарде-источнике
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserMetadataTransfer {
+    private static final int BATCH_SIZE = 500;
+    private static final int FETCH_SIZE = 1000;
+
+    // Задачи очереди не хранят пользователя: задача относится к пользователю по каталогу, файлу или задаче копирования
+    private static final String USER_JOBS = """
+            FROM file.jobs j
+            WHERE (CAST(j.payload ->> 'directoryId' AS uuid) IN (SELECT d.id FROM file.directories d WHERE d.user_id = ?)
+                OR CAST(j.payload ->> 'fileId' AS uuid) IN (SELECT f.id FROM file.files f WHERE f.user_id = ?)
+                OR CAST(j.payload ->> 'taskId' AS uuid) IN (SELECT t.id FROM file.copy_tasks t WHERE t.user_id = ?))
+            """;
+
+    /*
+        Таблицы в порядке вставки (родительские строки раньше ссылающихся), удаляются в обратном порядке.
+        Каталоги выбираются от корня вглубь: внешний ключ на родителя проверяется при вставке каждой строки
+     */
+    private static final List<UserTable> TABLES = List.of(
+            new UserTable("file.directories", """
+                    WITH RECURSIVE tree AS (
+                        SELECT d.id, 0 AS depth
+                        FROM file.directories d
+                        WHERE d.user_id = ? AND d.parent_id IS NULL
+                        UNION ALL
+                        SELECT c.id, t.depth + 1
+                        FROM file.directories c
+                        JOIN tree t ON c.parent_id = t.id
+                        WHERE c.user_id = ?
+                    )
+                    SELECT d.*
+                    FROM file.directories d
+                    JOIN tree t ON t.id = d.id
+                    ORDER BY t.depth
+                    """,
+                    "DELETE FROM file.directories d WHERE d.user_id = ?"),
+            new UserTable("file.files",
+                    "SELECT f.* FROM file.files f WHERE f.user_id = ?",
+                    "DELETE FROM file.files f WHERE f.user_id = ?"),
+            new UserTable("file.file_versions",
+                    "SELECT v.* FROM file.file_versions v WHERE v.file_id IN (SELECT f.id FROM file.files f WHERE f.user_id = ?)",
+                    "DELETE FROM file.file_versions v WHERE v.file_id IN (SELECT f.id FROM file.files f WHERE f.user_id = ?)"),
+            new UserTable("file.user_usage",
+                    "SELECT u.* FROM file.user_usage u WHERE u.user_id = ?",
+                    "DELETE FROM file.user_usage u WHERE u.user_id = ?"),
+            new UserTable("file.copy_tasks",
+                    "SELECT t.* FROM file.copy_tasks t WHERE t.user_id = ?",
+                    "DELETE FROM file.copy_tasks t WHERE t.user_id = ?"),
+            new UserTable("file.copy_task_directories", """
+                    SELECT c.* FROM file.copy_task_directories c
+                    WHERE c.task_id IN (SELECT t.id FROM file.copy_tasks t WHERE t.user_id = ?)
+                    """, """
+                    DELETE FROM file.copy_task_directories c
+                    WHERE c.task_id IN (SELECT t.id FROM file.copy_tasks t WHERE t.user_id = ?)
+                    """),
+            new UserTable("file.jobs", "SELECT j.* " + USER_JOBS, "DELETE " + USER_JOBS)
+    );
+
+    private final DataSource dataSource;
+
+    private record UserTable(String name, String select, String delete) { }
+
+    /*
+        Задачи пользователя, которые еще будут выполняться (PENDING, RUNNING)
+     */
+    public long countActiveJobs(UUID userId, String shard) throws SQLException {
+        try (var connection = connect(shard);
+             var statement = connection.prepareStatement(
+                     "SELECT count(*) " + USER_JOBS + " AND j.status IN ('PENDING', 'RUNNING')")) {
+            bindUser(statement, userId);
+            try (var resultSet = statement.executeQuery()) {
+                resultSet.next();
+                return resultSet.getLong(1);
+            }
+        }
+    }
+
+    /*
+        Копирует строки пользователя. Строки пользователя, оставшиеся на приемнике от прерванного
+        или отмененного переноса, удаляются в той же транзакции. Возвращает число скопированных строк
+     */
+    public long copy(UUID userId, String source, String target) throws SQLException {
+        try (var from = connect(source); var to = connect(target)) {
+            from.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            from.setReadOnly(true);
+            from.setAutoCommit(false);
+            to.setAutoCommit(false);
+            try {
+                delete(to, userId);
+                long copied = 0;
+                for (var table : TABLES) {
+                    copied += copyTable(from, to, table, userId);
+                }
+                to.commit();
+                from.commit();
+                return copied;
+            } catch (SQLException | RuntimeException e) {
+                to.rollback();
+                from.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /*
+        Удаляет строки пользователя с шарда одной транзакцией. Возвращает число удаленных строк
+     */
+    public long delete(UUID userId, String shard) throws SQLException {
+        try (var connection = connect(shard)) {
+            connection.setAutoCommit(false);
+            try {
+                var deleted = delete(connection, userId);
+                connection.commit();
+                return deleted;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
+
+    private long delete(Connection connection, UUID userId) throws SQLException {
+        long deleted = 0;
+        for (var table : TABLES.reversed()) {
+            try (var statement = connection.prepareStatement(table.delete())) {
+                bindUser(statement, userId);
+                deleted += statement.executeUpdate();
+            }
+        }
+        return deleted;
+    }
+
+    private long copyTable(Connection from, Connection to, UserTable table, UUID userId) throws SQLException {
+        try (var select = from.prepareStatement(table.select())) {
+            bindUser(select, userId);
+            select.setFetchSize(FETCH_SIZE);
+            try (var resultSet = select.executeQuery()) {
+                var metaData = resultSet.getMetaData();
+                var columns = metaData.getColumnCount();
+                List<String> names = new ArrayList<>(columns);
+                for (int i = 1; i <= columns; i++) {
+                    names.add(metaData.getColumnName(i));
+                }
+                var insertSql = "INSERT INTO %s (%s) VALUES (%s)".formatted(table.name(), String.join(", ", names),
+                        IntStream.range(0, columns).mapToObj(i -> "?").collect(Collectors.joining(", ")));
+
+                long copied = 0;
+                try (var insert = to.prepareStatement(insertSql)) {
+                    while (resultSet.next()) {
+                        for (int i = 1; i <= columns; i++) {
+                            insert.setObject(i, resultSet.getObject(i));
+                        }
+                        insert.addBatch();
+                        if (++copied % BATCH_SIZE == 0) {
+                            insert.executeBatch();
+                        }
+                    }
+                    if (copied % BATCH_SIZE != 0) {
+                        insert.executeBatch();
+                    }
+                }
+                log.debug("IN - copyTable: [{}] rows of [{}] copied for user [{}]", copied, table.name(), userId);
+                return copied;
+            }
+        }
+    }
+
+    /*
+        Все параметры запросов - id пользователя
+     */
+    private static void bindUser(PreparedStatement statement, UUID userId) throws SQLException {
+        var count = statement.getParameterMetaData().getParameterCount();
+        for (int i = 1; i <= count; i++) {
+            statement.setObject(i, userId);
+        }
+    }
+
+    /*
+        Соединение берется из пула шарда, а не из транзакции вызывающего кода
+     */
+    private Connection connect(String shard) throws SQLException {
+        if (dataSource instanceof MetadataShardRoutingDataSource routingDataSource) {
+            return routingDataSource.getShardConnection(shard);
+        }
+        if (!MetadataShards.DEFAULT_SHARD.equals(shard)) {
+            throw new FileException("Metadata shard [%s] is not configured", shard);
+        }
+        return dataSource.getConnection();
+    }
+}
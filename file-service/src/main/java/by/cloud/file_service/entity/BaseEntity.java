@@ -13,11 +13,14 @@ import java.util.UUID;
 @Setter
 @MappedSuperclass
 public class BaseEntity {
+    // Время создания в старших битах: новые строки попадают в правую страницу индекса первичного ключа
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @GeneratedUuidV7
     @Column(name = "id", nullable = false)
     private UUID id;
 
+    // Сущности-наследники помечены @SQLRestriction("active = true"): удаленные записи не видны
+    // ни в одном JPQL/Criteria запросе. Нативные запросы должны фильтровать active явно
     @NotNull
     @ColumnDefault("true")
     @Column(name = "active", nullable = false)
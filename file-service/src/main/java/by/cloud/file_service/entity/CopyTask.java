@@ -0,0 +1,77 @@
+package by.cloud.file_service.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/*
+    Фоновое копирование каталога и его прогресс
+ */
+@Setter
+@Getter
+@Entity
+@Table(name = "copy_tasks", schema = "file")
+public class CopyTask {
+
+    // Задается при создании: используется в запросе копирования поддерева до сохранения строки
+    @Id
+    @Column(name = "id", nullable = false)
+    private UUID id;
+
+    @NotNull
+    @Column(name = "user_id", nullable = false)
+    private UUID userId;
+
+    @NotNull
+    @Column(name = "source_directory_id", nullable = false)
+    private UUID sourceDirectoryId;
+
+    @NotNull
+    @Column(name = "target_directory_id", nullable = false)
+    private UUID targetDirectoryId;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 16)
+    private CopyTaskStatus status;
+
+    @NotNull
+    @Column(name = "total_files", nullable = false)
+    private Long totalFiles;
+
+    @NotNull
+    @Column(name = "total_bytes", nullable = false)
+    private Long totalBytes;
+
+    @NotNull
+    @Column(name = "copied_files", nullable = false)
+    private Long copiedFiles;
+
+    @NotNull
+    @Column(name = "copied_bytes", nullable = false)
+    private Long copiedBytes;
+
+    @NotNull
+    @Column(name = "cursor", nullable = false)
+    private UUID cursor;
+
+    @Column(name = "error")
+    private String error;
+
+    @NotNull
+    @Column(name = "created", nullable = false)
+    private Instant created;
+
+    @NotNull
+    @Column(name = "updated", nullable = false)
+    private Instant updated;
+}
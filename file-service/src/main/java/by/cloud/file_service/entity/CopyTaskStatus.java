@@ -0,0 +1,7 @@
+package by.cloud.file_service.entity;
+
+public enum CopyTaskStatus {
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
@@ -1,13 +1,16 @@
 package by.cloud.file_service.entity;
 
 import jakarta.persistence.Column;
+import jakarta.persistence.Embedded;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Table;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.SQLRestriction;
 import org.hibernate.envers.Audited;
+import org.hibernate.envers.NotAudited;
 import org.hibernate.envers.RelationTargetAuditMode;
 
 import java.util.UUID;
@@ -16,6 +19,7 @@ import java.util.UUID;
 @Setter
 @Getter
 @Entity
+@SQLRestriction("active = true")
 @Table(name = "directories", schema = "file")
 public class Directory extends BaseEntity {
 
@@ -34,4 +38,8 @@ public class Directory extends BaseEntity {
     @Size(max = 2048)
     @Column(name = "path", nullable = true)
     private String path;
+
+    @NotAudited
+    @Embedded
+    private DirectoryStats stats;
 }
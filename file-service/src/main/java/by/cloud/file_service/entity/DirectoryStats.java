@@ -0,0 +1,36 @@
+package by.cloud.file_service.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/*
+    Агрегаты каталога. Только для чтения: колонки изменяет DirectoryStatsService пакетными запросами,
+    поэтому сохранение каталога не перезаписывает их устаревшими значениями
+ */
+@Setter
+@Getter
+@Embeddable
+public class DirectoryStats {
+
+    @Column(name = "file_count", insertable = false, updatable = false)
+    private Long fileCount;
+
+    @Column(name = "total_bytes", insertable = false, updatable = false)
+    private Long totalBytes;
+
+    @Column(name = "last_modified", insertable = false, updatable = false)
+    private Instant lastModified;
+
+    @Column(name = "recursive_file_count", insertable = false, updatable = false)
+    private Long recursiveFileCount;
+
+    @Column(name = "recursive_total_bytes", insertable = false, updatable = false)
+    private Long recursiveTotalBytes;
+
+    @Column(name = "recursive_last_modified", insertable = false, updatable = false)
+    private Instant recursiveLastModified;
+}
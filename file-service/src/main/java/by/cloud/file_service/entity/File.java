@@ -2,6 +2,9 @@ package by.cloud.file_service.entity;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
@@ -9,7 +12,10 @@ import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.SQLRestriction;
 import org.hibernate.envers.Audited;
+import org.hibernate.envers.NotAudited;
 import org.hibernate.envers.RelationTargetAuditMode;
 
 import java.util.UUID;
@@ -18,6 +24,7 @@ import java.util.UUID;
 @Setter
 @Getter
 @Entity
+@SQLRestriction("active = true")
 @Table(name = "files", schema = "file")
 public class File extends BaseEntity {
 
@@ -26,7 +33,7 @@ public class File extends BaseEntity {
     private UUID userId;
 
     @NotNull
-    @ManyToOne(optional = false)
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
     @JoinColumn(name = "directory_id", nullable = false)
     private Directory directory;
 
@@ -48,4 +55,26 @@ public class File extends BaseEntity {
     @Size(max = 128)
     @Column(name = "mime_type", nullable = false, length = 128)
     private String mimeType;
+
+    // Предыдущие версии содержимого хранятся в file.file_versions
+    @NotNull
+    @ColumnDefault("1")
+    @Column(name = "current_version", nullable = false)
+    private Integer currentVersion;
+
+    // Задается только при создании строки: переносы между уровнями выполняет StorageTieringService
+    // запросами к таблице, поэтому сохранение устаревшей сущности не возвращает прежний уровень
+    @NotAudited
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @ColumnDefault("'HOT'")
+    @Column(name = "storage_tier", nullable = false, updatable = false, length = 16)
+    private StorageTier tier;
+
+    // Шард хранилища с объектом файла (StorageShardRegistry). Как и уровень, меняется только запросами к таблице
+    @NotAudited
+    @NotNull
+    @Size(max = 64)
+    @Column(name = "storage_shard", nullable = false, updatable = false, length = 64)
+    private String shard;
 }
@@ -0,0 +1,72 @@
+package by.cloud.file_service.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/*
+    Предыдущая версия содержимого файла. Текущая версия хранится в строке file.files,
+    expires = null означает бессрочное хранение
+ */
+@Setter
+@Getter
+@Entity
+@Table(name = "file_versions", schema = "file")
+public class FileVersion {
+
+    @Id
+    @GeneratedUuidV7
+    @Column(name = "id", nullable = false)
+    private UUID id;
+
+    @NotNull
+    @Column(name = "file_id", nullable = false)
+    private UUID fileId;
+
+    @NotNull
+    @Column(name = "version", nullable = false)
+    private Integer version;
+
+    @NotNull
+    @Size(max = 64)
+    @Column(name = "object_name", nullable = false)
+    private String objectName;
+
+    @NotNull
+    @Column(name = "file_size", nullable = false)
+    private Integer fileSize;
+
+    @NotNull
+    @Size(max = 128)
+    @Column(name = "mime_type", nullable = false, length = 128)
+    private String mimeType;
+
+    @NotNull
+    @Column(name = "created", nullable = false)
+    private Instant created;
+
+    @Column(name = "expires")
+    private Instant expires;
+
+    // Уровень хранения объекта версии не меняется: версия остается там, где был объект файла
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(name = "storage_tier", nullable = false, updatable = false, length = 16)
+    private StorageTier tier;
+
+    // Шард объекта версии меняет только перенос между шардами (ShardMigrationService)
+    @NotNull
+    @Size(max = 64)
+    @Column(name = "storage_shard", nullable = false, updatable = false, length = 64)
+    private String shard;
+}
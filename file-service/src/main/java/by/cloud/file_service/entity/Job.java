@@ -0,0 +1,73 @@
+package by.cloud.file_service.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/*
+    Фоновая задача в очереди file.jobs
+ */
+@Setter
+@Getter
+@Entity
+@Table(name = "jobs", schema = "file")
+public class Job {
+
+    @Id
+    @GeneratedUuidV7
+    @Column(name = "id", nullable = false)
+    private UUID id;
+
+    @NotNull
+    @Size(max = 64)
+    @Column(name = "type", nullable = false, length = 64)
+    private String type;
+
+    @NotNull
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "payload", nullable = false)
+    private String payload;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 16)
+    private JobStatus status;
+
+    @NotNull
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts;
+
+    @NotNull
+    @Column(name = "max_attempts", nullable = false)
+    private Integer maxAttempts;
+
+    @NotNull
+    @Column(name = "run_at", nullable = false)
+    private Instant runAt;
+
+    @Column(name = "locked_until")
+    private Instant lockedUntil;
+
+    @Column(name = "last_error")
+    private String lastError;
+
+    @NotNull
+    @Column(name = "created", nullable = false)
+    private Instant created;
+
+    @NotNull
+    @Column(name = "updated", nullable = false)
+    private Instant updated;
+}
@@ -0,0 +1,7 @@
+package by.cloud.file_service.entity;
+
+public enum JobStatus {
+    PENDING,
+    RUNNING,
+    DEAD
+}
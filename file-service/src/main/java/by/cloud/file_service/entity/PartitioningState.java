@@ -0,0 +1,44 @@
+package by.cloud.file_service.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/*
+    Позиция копирования строк таблицы в ее секционированную копию, см. MetadataPartitioningService.
+    cursor - последний скопированный id, copied - сколько строк вставлено копированием
+ */
+@Setter
+@Getter
+@Entity
+@Table(name = "partitioning_state", schema = "file")
+public class PartitioningState {
+
+    @Id
+    @Size(max = 64)
+    @Column(name = "name", nullable = false, length = 64)
+    private String name;
+
+    @Column(name = "cursor")
+    private UUID cursor;
+
+    @NotNull
+    @Column(name = "copied", nullable = false)
+    private Long copied;
+
+    @NotNull
+    @Column(name = "completed", nullable = false)
+    private Boolean completed;
+
+    @NotNull
+    @Column(name = "updated", nullable = false)
+    private Instant updated;
+}
@@ -0,0 +1,46 @@
+package by.cloud.file_service.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/*
+    Позиция сверки хранилища с метаданными и счетчики текущего прохода
+ */
+@Setter
+@Getter
+@Entity
+@Table(name = "reconciliation_state", schema = "file")
+public class ReconciliationState {
+
+    @Id
+    @Size(max = 64)
+    @Column(name = "name", nullable = false, length = 64)
+    private String name;
+
+    @Size(max = 1024)
+    @Column(name = "cursor", length = 1024)
+    private String cursor;
+
+    @Column(name = "pass_started")
+    private Instant passStarted;
+
+    @NotNull
+    @Column(name = "orphan_objects", nullable = false)
+    private Long orphanObjects;
+
+    @NotNull
+    @Column(name = "dangling_rows", nullable = false)
+    private Long danglingRows;
+
+    @NotNull
+    @Column(name = "updated", nullable = false)
+    private Instant updated;
+}
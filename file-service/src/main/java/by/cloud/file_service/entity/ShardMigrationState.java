@@ -0,0 +1,59 @@
+package by.cloud.file_service.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/*
+    Позиция переноса объектов между шардами и счетчики текущего прохода.
+    ring - отпечаток кольца размещения, для которого выполняется проход
+ */
+@Setter
+@Getter
+@Entity
+@Table(name = "shard_migration_state", schema = "file")
+public class ShardMigrationState {
+
+    @Id
+    @Size(max = 64)
+    @Column(name = "name", nullable = false, length = 64)
+    private String name;
+
+    @Size(max = 64)
+    @Column(name = "ring", length = 64)
+    private String ring;
+
+    @Size(max = 64)
+    @Column(name = "cursor", length = 64)
+    private String cursor;
+
+    @NotNull
+    @Column(name = "skipped", nullable = false)
+    private Long skipped;
+
+    @NotNull
+    @Column(name = "moved_objects", nullable = false)
+    private Long movedObjects;
+
+    @NotNull
+    @Column(name = "moved_bytes", nullable = false)
+    private Long movedBytes;
+
+    @Column(name = "pass_started")
+    private Instant passStarted;
+
+    @NotNull
+    @Column(name = "completed", nullable = false)
+    private Boolean completed;
+
+    @NotNull
+    @Column(name = "updated", nullable = false)
+    private Instant updated;
+}
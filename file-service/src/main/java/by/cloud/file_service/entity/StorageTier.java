@@ -0,0 +1,9 @@
+package by.cloud.file_service.entity;
+
+/*
+    Уровень хранения объекта: HOT - основной бакет, COLD - бакет для редко читаемых объектов
+ */
+public enum StorageTier {
+    HOT,
+    COLD
+}
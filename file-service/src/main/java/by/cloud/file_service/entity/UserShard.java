@@ -0,0 +1,44 @@
+package by.cloud.file_service.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/*
+    Шард метаданных пользователя, см. UserShardService
+ */
+@Setter
+@Getter
+@Entity
+@Table(name = "user_shards", schema = "file")
+public class UserShard {
+
+    @Id
+    @Column(name = "user_id", nullable = false)
+    private UUID userId;
+
+    @NotNull
+    @Size(max = 64)
+    @Column(name = "shard", nullable = false, length = 64)
+    private String shard;
+
+    @NotNull
+    @Column(name = "moving", nullable = false)
+    private Boolean moving;
+
+    @NotNull
+    @Column(name = "created", nullable = false)
+    private Instant created;
+
+    @NotNull
+    @Column(name = "updated", nullable = false)
+    private Instant updated;
+}
@@ -0,0 +1,56 @@
+package by.cloud.file_service.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/*
+    Перенос метаданных пользователя между шардами, см. UserShardMoveService.
+    updated - время перехода на текущий шаг, error - последняя ошибка шага
+ */
+@Setter
+@Getter
+@Entity
+@Table(name = "user_shard_moves", schema = "file")
+public class UserShardMove {
+
+    @Id
+    @Column(name = "user_id", nullable = false)
+    private UUID userId;
+
+    @NotNull
+    @Size(max = 64)
+    @Column(name = "source_shard", nullable = false, length = 64)
+    private String sourceShard;
+
+    @NotNull
+    @Size(max = 64)
+    @Column(name = "target_shard", nullable = false, length = 64)
+    private String targetShard;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(name = "step", nullable = false, length = 16)
+    private UserShardMoveStep step;
+
+    @Column(name = "error")
+    private String error;
+
+    @NotNull
+    @Column(name = "created", nullable = false)
+    private Instant created;
+
+    @NotNull
+    @Column(name = "updated", nullable = false)
+    private Instant updated;
+}
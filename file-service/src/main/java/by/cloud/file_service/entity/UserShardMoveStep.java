@@ -0,0 +1,9 @@
+package by.cloud.file_service.entity;
+
+public enum UserShardMoveStep {
+    REQUESTED,
+    FROZEN,
+    SWITCHED,
+    COMPLETED,
+    CANCELLED
+}
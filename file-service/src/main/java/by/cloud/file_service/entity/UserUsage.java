@@ -0,0 +1,41 @@
+package by.cloud.file_service.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/*
+    Объем и количество активных файлов пользователя
+ */
+@Setter
+@Getter
+@Entity
+@Table(name = "user_usage", schema = "file")
+public class UserUsage {
+
+    @Id
+    @Column(name = "user_id", nullable = false)
+    private UUID userId;
+
+    @NotNull
+    @Column(name = "used_bytes", nullable = false)
+    private Long usedBytes;
+
+    @NotNull
+    @Column(name = "file_count", nullable = false)
+    private Long fileCount;
+
+    @Column(name = "quota_bytes")
+    private Long quotaBytes;
+
+    @NotNull
+    @Column(name = "updated", nullable = false)
+    private Instant updated;
+}
@@ -0,0 +1,64 @@
+package by.cloud.file_service.job;
+
+import by.cloud.file_service.entity.Job;
+import by.cloud.file_service.repository.DirectoryRepository;
+import by.cloud.file_service.repository.FileRepository;
+import by.cloud.file_service.repository.projection.RemovedFilesView;
+import by.cloud.file_service.service.FileMetadataCache;
+import by.cloud.file_service.service.UsageService;
+import by.cloud.file_service.util.DateTimeUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.UUID;
+
+/*
+    Помечает удаленными вложенные каталоги и файлы удаленного каталога.
+    Поддерево блокируется первым запросом, затем файлы и каталоги помечаются запросами с записью истории.
+    Объекты файлов затем удаляет FileGcService
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DirectoryContentDeleteJobHandler implements JobHandler {
+    public static final String TYPE = "directory-content-delete";
+
+    private final DirectoryRepository directoryRepository;
+    private final FileRepository fileRepository;
+    private final JobQueueService jobQueueService;
+    private final UsageService usageService;
+    private final FileMetadataCache fileMetadataCache;
+    private final DateTimeUtil dateTimeUtil;
+
+    public record Payload(UUID directoryId) { }
+
+    @Override
+    public String type() {
+        return TYPE;
+    }
+
+    @Override
+    @Transactional
+    public void handle(Job job) {
+        var directoryId = jobQueueService.readPayload(job, Payload.class).directoryId();
+        // Запросы ниже фильтруют по владельцу каталога, чтобы читать одну секцию таблиц
+        var userId = directoryRepository.findUserIdById(directoryId).orElse(null);
+        if (userId == null) {
+            log.warn("IN - handle: directory [{}] not found, nothing to delete", directoryId);
+            return;
+        }
+        var now = dateTimeUtil.now();
+        var subtree = directoryRepository.lockSubtree(directoryId, userId).toArray(UUID[]::new);
+        var removed = fileRepository.lockActiveInDirectories(userId, subtree);
+        fileRepository.deactivateInDirectories(userId, subtree, now);
+        var directories = directoryRepository.deactivateByIds(userId, subtree, now);
+        usageService.recordRemoved(removed);
+        fileMetadataCache.evictDirectories(removed.stream().map(RemovedFilesView::getDirectoryId).toList());
+        var files = removed.stream().mapToLong(RemovedFilesView::getFiles).sum();
+
+        log.info("IN - handle: deleted [{}] directories and [{}] files under directory [{}]",
+                directories, files, directoryId);
+    }
+}
@@ -0,0 +1,56 @@
+package by.cloud.file_service.job;
+
+import by.cloud.file_service.config.CopyProperties;
+import by.cloud.file_service.entity.Job;
+import by.cloud.file_service.service.DirectoryCopyService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.UUID;
+
+/*
+    Копирует файлы каталога пачками, каждая пачка - отдельная транзакция.
+    Одна задача обрабатывает не больше batchesPerJob пачек и ставит задачу-продолжение,
+    поэтому копирование большого каталога не упирается в срок аренды задачи
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DirectoryCopyJobHandler implements JobHandler {
+    public static final String TYPE = "directory-copy";
+
+    private final DirectoryCopyService directoryCopyService;
+    private final JobQueueService jobQueueService;
+    private final CopyProperties properties;
+    private final TransactionTemplate transactionTemplate;
+
+    public record Payload(UUID taskId) { }
+
+    @Override
+    public String type() {
+        return TYPE;
+    }
+
+    @Override
+    public void handle(Job job) {
+        var taskId = jobQueueService.readPayload(job, Payload.class).taskId();
+        try {
+            for (int i = 0; i < properties.batchesPerJob(); i++) {
+                var hasMore = transactionTemplate.execute(status -> directoryCopyService.copyBatch(taskId));
+                if (!Boolean.TRUE.equals(hasMore)) {
+                    return;
+                }
+            }
+            jobQueueService.enqueue(TYPE, new Payload(taskId));
+            log.debug("IN - handle: copy task [{}] continues in the next job", taskId);
+        } catch (RuntimeException e) {
+            // Последняя попытка: задача копирования завершается с ошибкой, иначе прогресс навсегда останется RUNNING
+            if (job.getAttempts() >= job.getMaxAttempts()) {
+                directoryCopyService.markFailed(taskId, String.valueOf(e.getMessage()));
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package by.cloud.file_service.job;
+
+import by.cloud.file_service.entity.Job;
+import by.cloud.file_service.repository.FileRepository;
+import by.cloud.file_service.service.PreviewService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/*
+    Создает превью загруженного файла.
+    Число одновременно выполняемых задач ограничено настройкой application.jobs.types.file-preview.concurrency,
+    поэтому обработка изображений не конкурирует с обработкой запросов
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FilePreviewJobHandler implements JobHandler {
+    public static final String TYPE = "file-preview";
+
+    private final FileRepository fileRepository;
+    private final PreviewService previewService;
+    private final JobQueueService jobQueueService;
+
+    public record Payload(UUID fileId) { }
+
+    @Override
+    public String type() {
+        return TYPE;
+    }
+
+    @Override
+    public void handle(Job job) {
+        var fileId = jobQueueService.readPayload(job, Payload.class).fileId();
+        var file = fileRepository.findById(fileId).orElse(null);
+        if (file == null) {
+            log.info("IN - handle: file [{}] was deleted, preview skipped", fileId);
+            return;
+        }
+        previewService.generate(file);
+    }
+}
@@ -0,0 +1,14 @@
+package by.cloud.file_service.job;
+
+import by.cloud.file_service.entity.Job;
+
+/*
+    Обработчик фоновых задач одного типа.
+    Задача может быть выполнена повторно (после сбоя воркера), поэтому обработка должна быть идемпотентной.
+    Исключение приводит к повтору с задержкой, после исчерпания попыток задача получает статус DEAD
+ */
+public interface JobHandler {
+    String type();
+
+    void handle(Job job) throws Exception;
+}
@@ -0,0 +1,142 @@
+package by.cloud.file_service.job;
+
+import by.cloud.file_service.config.JobProperties;
+import by.cloud.file_service.entity.Job;
+import by.cloud.file_service.entity.JobStatus;
+import by.cloud.file_service.exception.FileException;
+import by.cloud.file_service.repository.JobRepository;
+import by.cloud.file_service.util.DateTimeUtil;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class JobQueueService {
+    private static final int MAX_ERROR_LENGTH = 4000;
+
+    private final JobRepository jobRepository;
+    private final JobProperties properties;
+    private final ObjectMapper objectMapper;
+    private final DateTimeUtil dateTimeUtil;
+
+    /*
+        Ставит задачу в очередь. Вызванный внутри транзакции метод присоединяется к ней:
+        задача появится в очереди только вместе с фиксацией изменения, которое ее породило
+     */
+    @Transactional
+    public Job enqueue(String type, Object payload) {
+        var now = dateTimeUtil.now();
+        var job = new Job();
+        job.setType(type);
+        job.setPayload(writePayload(payload));
+        job.setStatus(JobStatus.PENDING);
+        job.setAttempts(0);
+        job.setMaxAttempts(properties.maxAttempts(type));
+        job.setRunAt(now);
+        job.setCreated(now);
+        job.setUpdated(now);
+        jobRepository.save(job);
+
+        log.info("IN - enqueue: job [{}] of type [{}] enqueued", job.getId(), type);
+        return job;
+    }
+
+    public <T> T readPayload(Job job, Class<T> payloadType) {
+        try {
+            return objectMapper.readValue(job.getPayload(), payloadType);
+        } catch (JsonProcessingException e) {
+            throw new FileException("Failed to read payload of job [%s]: %s", job.getId(), e.getMessage());
+        }
+    }
+
+    /*
+        Захватывает готовые задачи до истечения аренды (lease). Изменения сущностей записываются при фиксации.
+        Задача с истекшим lease, исчерпавшая попытки, не вернула управление воркеру (например, процесс
+        завершился из-за нехватки памяти) и переводится в DEAD: иначе она роняла бы воркер при каждом захвате
+     */
+    @Transactional
+    public List<Job> claim(String type, int limit) {
+        var now = dateTimeUtil.now();
+        var jobs = jobRepository.lockReady(type, now, limit);
+        List<Job> claimed = new ArrayList<>(jobs.size());
+        for (var job : jobs) {
+            job.setUpdated(now);
+            if (job.getStatus() == JobStatus.RUNNING && job.getAttempts() >= job.getMaxAttempts()) {
+                job.setStatus(JobStatus.DEAD);
+                job.setLockedUntil(null);
+                job.setLastError("Lease expired on attempt %d".formatted(job.getAttempts()));
+                log.error("IN - claim: job [{}] of type [{}] moved to dead letter, lease expired after [{}] attempts",
+                        job.getId(), job.getType(), job.getAttempts());
+                continue;
+            }
+            job.setStatus(JobStatus.RUNNING);
+            job.setAttempts(job.getAttempts() + 1);
+            job.setLockedUntil(now.plus(properties.lease()));
+            claimed.add(job);
+        }
+        return claimed;
+    }
+
+    @Transactional
+    public void renew(Collection<UUID> ids) {
+        jobRepository.renew(ids.toArray(UUID[]::new), dateTimeUtil.now().plus(properties.lease()));
+    }
+
+    @Transactional
+    public void complete(Job job) {
+        jobRepository.deleteById(job.getId());
+    }
+
+    /*
+        Повтор с экспоненциальной задержкой и случайным разбросом,
+        после исчерпания попыток задача переводится в DEAD и больше не выбирается
+     */
+    @Transactional
+    public void fail(Job job, Exception error) {
+        var now = dateTimeUtil.now();
+        var message = String.valueOf(error.getMessage());
+        if (message.length() > MAX_ERROR_LENGTH) {
+            message = message.substring(0, MAX_ERROR_LENGTH);
+        }
+
+        if (job.getAttempts() >= job.getMaxAttempts()) {
+            jobRepository.reschedule(job.getId(), JobStatus.DEAD.name(), job.getRunAt(), message, now);
+            log.error("IN - fail: job [{}] of type [{}] moved to dead letter after [{}] attempts",
+                    job.getId(), job.getType(), job.getAttempts(), error);
+            return;
+        }
+
+        var delay = backoff(job.getAttempts());
+        jobRepository.reschedule(job.getId(), JobStatus.PENDING.name(), now.plus(delay), message, now);
+        log.warn("IN - fail: job [{}] of type [{}] failed on attempt [{}], retry in [{}]: {}",
+                job.getId(), job.getType(), job.getAttempts(), delay, message);
+    }
+
+    private Duration backoff(int attempts) {
+        var base = properties.backoff().toMillis();
+        var max = properties.maxBackoff().toMillis();
+        var delay = Math.min(max, base << Math.min(attempts - 1, 20));
+        var jitter = ThreadLocalRandom.current().nextLong(delay / 4 + 1);
+        return Duration.ofMillis(delay + jitter);
+    }
+
+    private String writePayload(Object payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new FileException("Failed to write job payload: %s", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package by.cloud.file_service.job;
+
+import by.cloud.file_service.config.JobProperties;
+import by.cloud.file_service.datasource.MetadataShards;
+import by.cloud.file_service.metric.JobMetric;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/*
+    Воркеры очереди задач: для каждого типа задач запускается заданное число виртуальных потоков.
+    Воркер захватывает одну задачу, выполняет ее вне транзакции захвата и удаляет или переносит на повтор.
+    Очередь хранится на каждом шарде метаданных: воркер обходит шарды по кругу, задача выполняется
+    на шарде, с которого захвачена, и ожидает pollInterval после обхода всех шардов без задач.
+    Пока задача выполняется, ее lease продлевается каждые heartbeatInterval, поэтому долгая задача
+    не захватывается повторно другим воркером. Остановка ожидает воркеры не дольше shutdownTimeout в сумме:
+    прерванные задачи остаются RUNNING и захватываются повторно по истечении lease
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class JobWorkerPool implements SmartLifecycle {
+    private final List<JobHandler> handlers;
+    private final JobQueueService jobQueueService;
+    private final JobProperties properties;
+    private final JobMetric metric;
+    private final MetadataShards metadataShards;
+
+    private final List<Thread> workers = new ArrayList<>();
+    // Выполняемые задачи и шарды, с которых они захвачены
+    private final Map<UUID, String> activeJobs = new ConcurrentHashMap<>();
+    private volatile boolean running;
+
+    @Override
+    public void start() {
+        if (!properties.enabled()) {
+            log.info("Job workers are disabled");
+            return;
+        }
+        running = true;
+        for (var handler : handlers) {
+            var concurrency = properties.concurrency(handler.type());
+            metric.registerType(handler.type());
+            for (int i = 0; i < concurrency; i++) {
+                workers.add(Thread.ofVirtual()
+                        .name("job-" + handler.type() + "-" + i)
+                        .start(() -> work(handler)));
+            }
+            log.info("Started [{}] workers for job type [{}]", concurrency, handler.type());
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        workers.forEach(Thread::interrupt);
+        var deadline = System.nanoTime() + properties.shutdownTimeout().toNanos();
+        for (var worker : workers) {
+            try {
+                var remaining = deadline - System.nanoTime();
+                if (remaining <= 0 || !worker.join(Duration.ofNanos(remaining))) {
+                    break;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        var alive = workers.stream().filter(Thread::isAlive).count();
+        if (alive > 0) {
+            log.warn("[{}] job workers did not stop within [{}], their jobs will be reclaimed after lease",
+                    alive, properties.shutdownTimeout());
+        }
+        workers.clear();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Scheduled(fixedDelayString = "${application.jobs.stats-interval}")
+    public void refreshQueueStats() {
+        if (running) {
+            metric.refresh();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${application.jobs.heartbeat-interval}")
+    public void renewLeases() {
+        if (activeJobs.isEmpty()) {
+            return;
+        }
+        activeJobs.entrySet().stream()
+                .collect(Collectors.groupingBy(Map.Entry::getValue,
+                        Collectors.mapping(Map.Entry::getKey, Collectors.toList())))
+                .forEach((shard, ids) -> {
+                    try {
+                        metadataShards.runOn(shard, () -> jobQueueService.renew(ids));
+                    } catch (Exception e) {
+                        log.error("Failed to renew lease of [{}] jobs on metadata shard [{}]", ids.size(), shard, e);
+                    }
+                });
+    }
+
+    private void work(JobHandler handler) {
+        var shards = metadataShards.names();
+        int next = 0;
+        int idle = 0;
+        while (running) {
+            var previous = metadataShards.bind(shards.get(next));
+            next = (next + 1) % shards.size();
+            try {
+                var jobs = jobQueueService.claim(handler.type(), 1);
+                if (jobs.isEmpty()) {
+                    if (++idle >= shards.size()) {
+                        idle = 0;
+                        Thread.sleep(properties.pollInterval());
+                    }
+                    continue;
+                }
+                idle = 0;
+                var job = jobs.getFirst();
+                var start = System.nanoTime();
+                activeJobs.put(job.getId(), metadataShards.current());
+                try {
+                    handler.handle(job);
+                    jobQueueService.complete(job);
+                    metric.recordExecution(handler.type(), true, System.nanoTime() - start);
+                } catch (InterruptedException e) {
+                    // Задача останется RUNNING и будет захвачена повторно по истечении lease
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (Exception e) {
+                    jobQueueService.fail(job, e);
+                    metric.recordExecution(handler.type(), false, System.nanoTime() - start);
+                } finally {
+                    activeJobs.remove(job.getId());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Job worker for type [{}] failed", handler.type(), e);
+                try {
+                    Thread.sleep(properties.pollInterval());
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            } finally {
+                metadataShards.restore(previous);
+            }
+        }
+    }
+}
@@ -1,14 +1,22 @@
 package by.cloud.file_service.mapper;
 
+import by.cloud.directory.dto.DirectoryCopyDto;
 import by.cloud.directory.dto.DirectoryDto;
+import by.cloud.directory.dto.DirectoryStatsDto;
 import by.cloud.directory.dto.DirectoryWriteDto;
+import by.cloud.file.dto.FolderEntryDto;
+import by.cloud.file_service.entity.CopyTask;
 import by.cloud.file_service.entity.Directory;
+import by.cloud.file_service.entity.DirectoryStats;
+import by.cloud.file_service.repository.projection.FolderEntryView;
 import by.cloud.file_service.util.DateTimeUtil;
 import lombok.Setter;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.time.Instant;
+import java.time.OffsetDateTime;
 import java.util.UUID;
 
 import static org.mapstruct.InjectionStrategy.CONSTRUCTOR;
@@ -27,6 +35,7 @@ public abstract class DirectoryMapper {
     @Mapping(target = "active", constant = "true")
     @Mapping(target = "created", expression = "java(dateTimeUtil.now())")
     @Mapping(target = "updated", expression = "java(dateTimeUtil.now())")
+    @Mapping(target = "stats", ignore = true)
     public abstract Directory to(DirectoryWriteDto dto);
 
     @Mapping(target = "id", ignore = true)
@@ -36,13 +45,31 @@ public abstract class DirectoryMapper {
     @Mapping(target = "name", constant = "/")
     @Mapping(target = "path", constant = "/")
     @Mapping(target = "parentId", ignore = true)
+    @Mapping(target = "stats", ignore = true)
     public abstract Directory toBaseDirectory(UUID userId);
 
     public abstract DirectoryDto from(Directory directory);
 
+    public abstract DirectoryStatsDto from(DirectoryStats stats);
+
+    @Mapping(target = "directoryId", source = "targetDirectoryId")
+    public abstract DirectoryCopyDto from(CopyTask task);
+
+    @Mapping(target = "itemCount", expression = "java(view.getDirectoryCount() + view.getFileCount())")
+    @Mapping(target = "hasChildren", expression = "java(view.getDirectoryCount() > 0)")
+    @Mapping(target = "stats", source = "view")
+    public abstract FolderEntryDto toFolderEntry(FolderEntryView view);
+
+    public abstract by.cloud.file.dto.DirectoryStatsDto toFolderStats(FolderEntryView view);
+
+    protected OffsetDateTime toOffsetDateTime(Instant instant) {
+        return dateTimeUtil.toOffsetDateTime(instant);
+    }
+
     @Mapping(target = "id", ignore = true)
     @Mapping(target = "active", ignore = true)
     @Mapping(target = "created", ignore = true)
     @Mapping(target = "updated", expression = "java(dateTimeUtil.now())")
+    @Mapping(target = "stats", ignore = true)
     public abstract void update(@org.mapstruct.MappingTarget Directory directory, DirectoryWriteDto dto);
 }
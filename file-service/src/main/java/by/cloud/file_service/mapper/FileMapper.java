@@ -1,13 +1,22 @@
 package by.cloud.file_service.mapper;
 
 import by.cloud.file.dto.FileDto;
+import by.cloud.file.dto.FileVersionDto;
+import by.cloud.file.dto.UserShardMoveDto;
 import by.cloud.file_service.entity.File;
+import by.cloud.file_service.entity.FileVersion;
+import by.cloud.file_service.entity.UserShardMove;
+import by.cloud.file_service.repository.projection.FileListItemView;
+import by.cloud.file_service.service.FileMetadataCache.FileMetadata;
 import by.cloud.file_service.util.DateTimeUtil;
 import lombok.Setter;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.time.Instant;
+import java.time.OffsetDateTime;
+
 import static org.mapstruct.InjectionStrategy.CONSTRUCTOR;
 import static org.mapstruct.MappingConstants.ComponentModel.SPRING;
 
@@ -22,5 +31,29 @@ public abstract class FileMapper {
 
     @Mapping(target = "directoryId", source = "directory.id")
     @Mapping(target = "downloadUrl", ignore = true)
+    @Mapping(target = "version", source = "currentVersion")
     public abstract FileDto toDto(File file);
+
+    @Mapping(target = "downloadUrl", ignore = true)
+    @Mapping(target = "version", ignore = true)
+    public abstract FileDto toDto(FileListItemView item);
+
+    @Mapping(target = "downloadUrl", ignore = true)
+    @Mapping(target = "version", source = "currentVersion")
+    public abstract FileDto toDto(FileMetadata metadata);
+
+    @Mapping(target = "current", constant = "false")
+    public abstract FileVersionDto toVersionDto(FileVersion version);
+
+    @Mapping(target = "version", source = "currentVersion")
+    @Mapping(target = "created", source = "updated")
+    @Mapping(target = "expires", ignore = true)
+    @Mapping(target = "current", constant = "true")
+    public abstract FileVersionDto toCurrentVersionDto(File file);
+
+    public abstract UserShardMoveDto toMoveDto(UserShardMove move);
+
+    protected OffsetDateTime toOffsetDateTime(Instant instant) {
+        return dateTimeUtil.toOffsetDateTime(instant);
+    }
 }
@@ -0,0 +1,34 @@
+package by.cloud.file_service.metric;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+public class AuditMetric {
+    public static final String AUDIT_REVISIONS_WRITTEN_TOTAL_METRIC = "audit_revisions_written_total";
+    public static final String AUDIT_HISTORY_ROWS_WRITTEN_TOTAL_METRIC = "audit_history_rows_written_total";
+    public static final String AUDIT_OUTBOX_BACKLOG_METRIC = "audit_outbox_backlog";
+
+    private final Counter writtenRevisions;
+    private final Counter writtenRows;
+    private final AtomicLong backlog = new AtomicLong();
+
+    public AuditMetric(MeterRegistry registry) {
+        writtenRevisions = Counter.builder(AUDIT_REVISIONS_WRITTEN_TOTAL_METRIC).register(registry);
+        writtenRows = Counter.builder(AUDIT_HISTORY_ROWS_WRITTEN_TOTAL_METRIC).register(registry);
+        Gauge.builder(AUDIT_OUTBOX_BACKLOG_METRIC, backlog, AtomicLong::get).register(registry);
+    }
+
+    public void recordWritten(int revisions, long rows) {
+        writtenRevisions.increment(revisions);
+        writtenRows.increment(rows);
+    }
+
+    public void setBacklog(long value) {
+        backlog.set(value);
+    }
+}
@@ -0,0 +1,31 @@
+package by.cloud.file_service.metric;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+@Component
+public class FileCopyMetric {
+    public static final String FILE_COPY_FILES_TOTAL_METRIC = "file_copy_files_total";
+    public static final String FILE_COPY_BYTES_TOTAL_METRIC = "file_copy_bytes_total";
+    public static final String FILE_COPY_DIRECTORIES_TOTAL_METRIC = "file_copy_directories_total";
+
+    private final Counter copiedFiles;
+    private final Counter copiedBytes;
+    private final Counter copiedDirectories;
+
+    public FileCopyMetric(MeterRegistry registry) {
+        copiedFiles = Counter.builder(FILE_COPY_FILES_TOTAL_METRIC).register(registry);
+        copiedBytes = Counter.builder(FILE_COPY_BYTES_TOTAL_METRIC).baseUnit("bytes").register(registry);
+        copiedDirectories = Counter.builder(FILE_COPY_DIRECTORIES_TOTAL_METRIC).register(registry);
+    }
+
+    public void recordFiles(long files, long bytes) {
+        copiedFiles.increment(files);
+        copiedBytes.increment(bytes);
+    }
+
+    public void recordDirectories(int directories) {
+        copiedDirectories.increment(directories);
+    }
+}
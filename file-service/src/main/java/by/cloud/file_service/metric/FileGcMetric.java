@@ -0,0 +1,44 @@
+package by.cloud.file_service.metric;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+public class FileGcMetric {
+    public static final String FILE_GC_DELETED_FILES_TOTAL_METRIC = "file_gc_deleted_files_total";
+    public static final String FILE_GC_RECLAIMED_BYTES_TOTAL_METRIC = "file_gc_reclaimed_bytes_total";
+    public static final String FILE_GC_FAILED_OBJECTS_TOTAL_METRIC = "file_gc_failed_objects_total";
+    public static final String FILE_GC_BACKLOG_FILES_METRIC = "file_gc_backlog_files";
+    public static final String FILE_GC_BATCH_DURATION_METRIC = "file_gc_batch_duration";
+
+    private final Counter deletedFiles;
+    private final Counter reclaimedBytes;
+    private final Counter failedObjects;
+    private final Timer batchDuration;
+    private final AtomicLong backlog = new AtomicLong();
+
+    public FileGcMetric(MeterRegistry registry) {
+        deletedFiles = Counter.builder(FILE_GC_DELETED_FILES_TOTAL_METRIC).register(registry);
+        reclaimedBytes = Counter.builder(FILE_GC_RECLAIMED_BYTES_TOTAL_METRIC).baseUnit("bytes").register(registry);
+        failedObjects = Counter.builder(FILE_GC_FAILED_OBJECTS_TOTAL_METRIC).register(registry);
+        batchDuration = Timer.builder(FILE_GC_BATCH_DURATION_METRIC).register(registry);
+        Gauge.builder(FILE_GC_BACKLOG_FILES_METRIC, backlog, AtomicLong::get).register(registry);
+    }
+
+    public void recordBatch(int files, long bytes, int failed, Duration duration) {
+        deletedFiles.increment(files);
+        reclaimedBytes.increment(bytes);
+        failedObjects.increment(failed);
+        batchDuration.record(duration);
+    }
+
+    public void setBacklog(long value) {
+        backlog.set(value);
+    }
+}
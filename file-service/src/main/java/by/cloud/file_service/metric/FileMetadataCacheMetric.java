@@ -0,0 +1,33 @@
+package by.cloud.file_service.metric;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+
+/*
+    Метрики кеша метаданных файлов: попадания и промахи (cache_gets_total), загрузки и их суммарное время
+    (cache_load_total, cache_load_duration_seconds), вытеснения и размер с тегом cache="file_metadata"
+ */
+@Component
+public class FileMetadataCacheMetric {
+    public static final String CACHE_NAME = "file_metadata";
+    public static final String REMOTE_INVALIDATIONS_METRIC = "file_metadata_cache_remote_invalidations_total";
+
+    private final MeterRegistry registry;
+    private final Counter remoteInvalidations;
+
+    public FileMetadataCacheMetric(MeterRegistry registry) {
+        this.registry = registry;
+        this.remoteInvalidations = Counter.builder(REMOTE_INVALIDATIONS_METRIC).register(registry);
+    }
+
+    public void monitor(Cache<?, ?> cache) {
+        CaffeineCacheMetrics.monitor(registry, cache, CACHE_NAME);
+    }
+
+    public void incrementRemoteInvalidations() {
+        remoteInvalidations.increment();
+    }
+}
@@ -0,0 +1,45 @@
+package by.cloud.file_service.metric;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+public class FileVersionMetric {
+    public static final String FILE_VERSIONS_CREATED_TOTAL_METRIC = "file_versions_created_total";
+    public static final String FILE_VERSIONS_PRUNED_TOTAL_METRIC = "file_versions_pruned_total";
+    public static final String FILE_VERSIONS_RECLAIMED_BYTES_TOTAL_METRIC = "file_versions_reclaimed_bytes_total";
+    public static final String FILE_VERSIONS_FAILED_OBJECTS_TOTAL_METRIC = "file_versions_failed_objects_total";
+    public static final String FILE_VERSIONS_BACKLOG_METRIC = "file_versions_backlog";
+
+    private final Counter createdVersions;
+    private final Counter prunedVersions;
+    private final Counter reclaimedBytes;
+    private final Counter failedObjects;
+    private final AtomicLong backlog = new AtomicLong();
+
+    public FileVersionMetric(MeterRegistry registry) {
+        createdVersions = Counter.builder(FILE_VERSIONS_CREATED_TOTAL_METRIC).register(registry);
+        prunedVersions = Counter.builder(FILE_VERSIONS_PRUNED_TOTAL_METRIC).register(registry);
+        reclaimedBytes = Counter.builder(FILE_VERSIONS_RECLAIMED_BYTES_TOTAL_METRIC).baseUnit("bytes").register(registry);
+        failedObjects = Counter.builder(FILE_VERSIONS_FAILED_OBJECTS_TOTAL_METRIC).register(registry);
+        Gauge.builder(FILE_VERSIONS_BACKLOG_METRIC, backlog, AtomicLong::get).register(registry);
+    }
+
+    public void incrementCreated() {
+        createdVersions.increment();
+    }
+
+    public void recordPruned(int versions, long bytes, int failed) {
+        prunedVersions.increment(versions);
+        reclaimedBytes.increment(bytes);
+        failedObjects.increment(failed);
+    }
+
+    public void setBacklog(long value) {
+        backlog.set(value);
+    }
+}
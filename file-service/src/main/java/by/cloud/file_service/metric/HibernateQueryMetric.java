@@ -0,0 +1,134 @@
+package by.cloud.file_service.metric;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.QueryStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/*
+    Метрики запросов по статистике Hibernate (hibernate.generate_statistics): db_query_seconds,
+    db_query_rows_total, db_query_max_seconds. Тег query - не текст запроса, а его имя "<операция> <таблица>"
+    (queryName), поэтому число рядов ограничено числом таблиц. Запросы с одним именем суммируются.
+    Hibernate узнает о запросе при первом выполнении, поэтому метрики новых запросов регистрируются периодически.
+    Число запросов ограничено hibernate.statistics.query_max_size: вытесненный запрос при следующем выполнении
+    получает новый объект статистики, поэтому объекты сверяются при каждом обновлении, а значения вытесненного
+    переносятся в сумму группы, чтобы счетчики не уменьшались
+    Общие метрики сессий, сущностей и кэшей (hibernate_entities_*, hibernate_*_cache_requests) регистрирует
+    Spring Boot, распределение времени по методам репозиториев - spring_data_repository_invocations
+ */
+@Component
+@ConditionalOnProperty(prefix = "application.sql", name = "query-metrics", havingValue = "true")
+public class HibernateQueryMetric {
+    public static final String DB_QUERY_METRIC = "db_query";
+    public static final String DB_QUERY_ROWS_METRIC = "db_query_rows";
+    public static final String DB_QUERY_MAX_METRIC = "db_query_max_seconds";
+    private static final Set<String> OPERATIONS = Set.of("select", "insert", "update", "delete", "with");
+    private static final Pattern TABLE = Pattern.compile("\\b(?:from|into|update|join)\\s+([\\w.\"]+)",
+            Pattern.CASE_INSENSITIVE);
+
+    private final MeterRegistry registry;
+    private final Statistics statistics;
+    private final Map<String, QueryGroup> groups = new ConcurrentHashMap<>();
+
+    public HibernateQueryMetric(MeterRegistry registry, EntityManagerFactory entityManagerFactory) {
+        this.registry = registry;
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Scheduled(fixedDelayString = "${application.sql.query-metrics-interval}")
+    public void refresh() {
+        if (!statistics.isStatisticsEnabled()) {
+            return;
+        }
+        for (var query : statistics.getQueries()) {
+            groups.computeIfAbsent(queryName(query), this::register)
+                    .update(query, statistics.getQueryStatistics(query));
+        }
+    }
+
+    /*
+        Имя запроса: операция (select для HQL без SELECT) и первая таблица или сущность после FROM/INTO/UPDATE/JOIN
+     */
+    static String queryName(String query) {
+        var text = query.strip();
+        var operation = text.split("\\s+", 2)[0].toLowerCase(Locale.ROOT);
+        if (operation.equals("from")) {
+            operation = "select";
+        } else if (!OPERATIONS.contains(operation)) {
+            operation = "other";
+        }
+        var matcher = TABLE.matcher(text);
+        var table = matcher.find() ? matcher.group(1).replace("\"", "").toLowerCase(Locale.ROOT) : "unknown";
+        return operation + " " + table;
+    }
+
+    private QueryGroup register(String name) {
+        var group = new QueryGroup();
+        FunctionTimer.builder(DB_QUERY_METRIC, group, QueryGroup::executions, QueryGroup::totalTime,
+                        TimeUnit.MILLISECONDS)
+                .tag("query", name)
+                .register(registry);
+        FunctionCounter.builder(DB_QUERY_ROWS_METRIC, group, QueryGroup::rows)
+                .tag("query", name)
+                .register(registry);
+        Gauge.builder(DB_QUERY_MAX_METRIC, group, stats -> stats.maxTime() / 1000.0)
+                .tag("query", name)
+                .baseUnit("seconds")
+                .register(registry);
+        return group;
+    }
+
+    /*
+        Статистика запросов с одним именем: текущие объекты Hibernate по тексту запроса
+        и накопленные значения объектов, которые Hibernate вытеснил
+     */
+    private static final class QueryGroup {
+        private final Map<String, QueryStatistics> current = new HashMap<>();
+        private long retiredExecutions;
+        private long retiredTotalTime;
+        private long retiredRows;
+        private long retiredMaxTime;
+
+        synchronized void update(String query, QueryStatistics queryStatistics) {
+            var previous = current.put(query, queryStatistics);
+            if (previous != null && previous != queryStatistics) {
+                retiredExecutions += previous.getExecutionCount();
+                retiredTotalTime += previous.getExecutionTotalTime();
+                retiredRows += previous.getExecutionRowCount();
+                retiredMaxTime = Math.max(retiredMaxTime, previous.getExecutionMaxTime());
+            }
+        }
+
+        synchronized long executions() {
+            return retiredExecutions + current.values().stream().mapToLong(QueryStatistics::getExecutionCount).sum();
+        }
+
+        synchronized double totalTime() {
+            return retiredTotalTime + current.values().stream().mapToLong(QueryStatistics::getExecutionTotalTime).sum();
+        }
+
+        synchronized long rows() {
+            return retiredRows + current.values().stream().mapToLong(QueryStatistics::getExecutionRowCount).sum();
+        }
+
+        synchronized long maxTime() {
+            return Math.max(retiredMaxTime,
+                    current.values().stream().mapToLong(QueryStatistics::getExecutionMaxTime).max().orElse(0));
+        }
+    }
+}
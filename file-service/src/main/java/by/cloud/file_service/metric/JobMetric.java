@@ -0,0 +1,82 @@
+package by.cloud.file_service.metric;
+
+import by.cloud.file_service.datasource.MetadataShards;
+import by.cloud.file_service.repository.JobRepository;
+import by.cloud.file_service.util.DateTimeUtil;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+public class JobMetric {
+    public static final String JOB_QUEUE_DEPTH_METRIC = "file_job_queue_depth";
+    public static final String JOB_QUEUE_DEAD_METRIC = "file_job_queue_dead";
+    public static final String JOB_QUEUE_LAG_SECONDS_METRIC = "file_job_queue_lag_seconds";
+    public static final String JOB_EXECUTION_METRIC = "file_job_execution";
+
+    private final MeterRegistry registry;
+    private final JobRepository jobRepository;
+    private final MetadataShards metadataShards;
+    private final DateTimeUtil dateTimeUtil;
+    private final Map<String, TypeGauges> gauges = new ConcurrentHashMap<>();
+
+    private record TypeGauges(AtomicLong depth, AtomicLong dead, AtomicLong lagSeconds) { }
+
+    public JobMetric(MeterRegistry registry, JobRepository jobRepository, MetadataShards metadataShards,
+                     DateTimeUtil dateTimeUtil) {
+        this.registry = registry;
+        this.jobRepository = jobRepository;
+        this.metadataShards = metadataShards;
+        this.dateTimeUtil = dateTimeUtil;
+    }
+
+    public void registerType(String type) {
+        gauges.computeIfAbsent(type, key -> {
+            var typeGauges = new TypeGauges(new AtomicLong(), new AtomicLong(), new AtomicLong());
+            Gauge.builder(JOB_QUEUE_DEPTH_METRIC, typeGauges.depth(), AtomicLong::get).tag("type", key).register(registry);
+            Gauge.builder(JOB_QUEUE_DEAD_METRIC, typeGauges.dead(), AtomicLong::get).tag("type", key).register(registry);
+            Gauge.builder(JOB_QUEUE_LAG_SECONDS_METRIC, typeGauges.lagSeconds(), AtomicLong::get).tag("type", key).register(registry);
+            return typeGauges;
+        });
+    }
+
+    public void recordExecution(String type, boolean success, long nanos) {
+        Timer.builder(JOB_EXECUTION_METRIC)
+                .tag("type", type)
+                .tag("outcome", success ? "success" : "failure")
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /*
+        Глубина очереди и задержка (возраст самой старой готовой задачи) по типам.
+        Глубина суммируется по шардам метаданных, задержка - наибольшая из задержек шардов
+     */
+    public void refresh() {
+        var now = dateTimeUtil.now();
+        gauges.values().forEach(typeGauges -> {
+            typeGauges.depth().set(0);
+            typeGauges.dead().set(0);
+            typeGauges.lagSeconds().set(0);
+        });
+        for (var stat : metadataShards.collect(() -> jobRepository.findQueueStats(now))) {
+            var typeGauges = gauges.get(stat.getType());
+            if (typeGauges == null) {
+                continue;
+            }
+            typeGauges.depth().addAndGet(stat.getDepth());
+            typeGauges.dead().addAndGet(stat.getDead());
+            if (stat.getOldestReadyRunAt() != null) {
+                typeGauges.lagSeconds().accumulateAndGet(Duration.between(stat.getOldestReadyRunAt(), now).toSeconds(),
+                        Math::max);
+            }
+        }
+    }
+}
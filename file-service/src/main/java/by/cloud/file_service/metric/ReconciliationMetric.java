@@ -0,0 +1,35 @@
+package by.cloud.file_service.metric;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+@Component
+public class ReconciliationMetric {
+    public static final String RECONCILIATION_SCANNED_OBJECTS_TOTAL_METRIC = "file_reconciliation_scanned_objects_total";
+    public static final String RECONCILIATION_ORPHAN_OBJECTS_TOTAL_METRIC = "file_reconciliation_orphan_objects_total";
+    public static final String RECONCILIATION_DANGLING_ROWS_TOTAL_METRIC = "file_reconciliation_dangling_rows_total";
+    public static final String RECONCILIATION_PASSES_TOTAL_METRIC = "file_reconciliation_passes_total";
+
+    private final Counter scannedObjects;
+    private final Counter orphanObjects;
+    private final Counter danglingRows;
+    private final Counter passes;
+
+    public ReconciliationMetric(MeterRegistry registry) {
+        scannedObjects = Counter.builder(RECONCILIATION_SCANNED_OBJECTS_TOTAL_METRIC).register(registry);
+        orphanObjects = Counter.builder(RECONCILIATION_ORPHAN_OBJECTS_TOTAL_METRIC).register(registry);
+        danglingRows = Counter.builder(RECONCILIATION_DANGLING_ROWS_TOTAL_METRIC).register(registry);
+        passes = Counter.builder(RECONCILIATION_PASSES_TOTAL_METRIC).register(registry);
+    }
+
+    public void recordPage(int scanned, int orphans, int dangling) {
+        scannedObjects.increment(scanned);
+        orphanObjects.increment(orphans);
+        danglingRows.increment(dangling);
+    }
+
+    public void incrementPasses() {
+        passes.increment();
+    }
+}
@@ -0,0 +1,51 @@
+package by.cloud.file_service.metric;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+public class ReplicaMetric {
+    public static final String DB_REPLICA_LAG_METRIC = "db_replica_lag_seconds";
+    public static final String DB_READS_ROUTED_TOTAL_METRIC = "db_reads_routed_total";
+
+    public static final String REASON_REPLICA = "replica";
+    public static final String REASON_RECENT_WRITE = "recent_write";
+    public static final String REASON_NO_REPLICA = "no_replica";
+
+    private final MeterRegistry registry;
+    private final Map<String, AtomicLong> lags = new ConcurrentHashMap<>();
+
+    public ReplicaMetric(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /*
+        Отставание в миллисекундах; -1 - реплика недоступна
+     */
+    public void setLag(String replica, Duration lag) {
+        lags.computeIfAbsent(replica, key -> {
+                    var value = new AtomicLong();
+                    Gauge.builder(DB_REPLICA_LAG_METRIC, value, current -> current.get() < 0 ? -1 : current.get() / 1000.0)
+                            .tag("replica", key)
+                            .baseUnit("seconds")
+                            .register(registry);
+                    return value;
+                })
+                .set(lag != null ? lag.toMillis() : -1);
+    }
+
+    public void incrementRouted(String target, String reason) {
+        Counter.builder(DB_READS_ROUTED_TOTAL_METRIC)
+                .tag("target", target)
+                .tag("reason", reason)
+                .register(registry)
+                .increment();
+    }
+}
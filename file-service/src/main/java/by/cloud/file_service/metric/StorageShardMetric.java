@@ -0,0 +1,70 @@
+package by.cloud.file_service.metric;
+
+import by.cloud.file_service.service.StorageShardRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+public class StorageShardMetric {
+    public static final String STORAGE_SHARD_FILES_METRIC = "storage_shard_files";
+    public static final String STORAGE_SHARD_BYTES_METRIC = "storage_shard_bytes";
+    public static final String STORAGE_SHARD_MIGRATED_TOTAL_METRIC = "storage_shard_migrated_objects_total";
+    public static final String STORAGE_SHARD_MIGRATED_BYTES_TOTAL_METRIC = "storage_shard_migrated_bytes_total";
+    public static final String STORAGE_SHARD_MIGRATION_FAILED_TOTAL_METRIC = "storage_shard_migration_failed_objects_total";
+    public static final String STORAGE_SHARD_MIGRATION_PASSES_TOTAL_METRIC = "storage_shard_migration_passes_total";
+
+    private final Map<String, AtomicLong> files = new HashMap<>();
+    private final Map<String, AtomicLong> bytes = new HashMap<>();
+    private final Counter migratedObjects;
+    private final Counter migratedBytes;
+    private final Counter failedObjects;
+    private final Counter passes;
+
+    public StorageShardMetric(MeterRegistry registry, StorageShardRegistry shardRegistry) {
+        for (var shard : shardRegistry.getAll()) {
+            var shardFiles = new AtomicLong();
+            var shardBytes = new AtomicLong();
+            files.put(shard.name(), shardFiles);
+            bytes.put(shard.name(), shardBytes);
+            Gauge.builder(STORAGE_SHARD_FILES_METRIC, shardFiles, AtomicLong::get).tag("shard", shard.name()).register(registry);
+            Gauge.builder(STORAGE_SHARD_BYTES_METRIC, shardBytes, AtomicLong::get).tag("shard", shard.name())
+                    .baseUnit("bytes").register(registry);
+        }
+        migratedObjects = Counter.builder(STORAGE_SHARD_MIGRATED_TOTAL_METRIC).register(registry);
+        migratedBytes = Counter.builder(STORAGE_SHARD_MIGRATED_BYTES_TOTAL_METRIC).baseUnit("bytes").register(registry);
+        failedObjects = Counter.builder(STORAGE_SHARD_MIGRATION_FAILED_TOTAL_METRIC).register(registry);
+        passes = Counter.builder(STORAGE_SHARD_MIGRATION_PASSES_TOTAL_METRIC).register(registry);
+    }
+
+    public void recordMigrated(int objects, long size, int failed) {
+        migratedObjects.increment(objects);
+        migratedBytes.increment(size);
+        failedObjects.increment(failed);
+    }
+
+    public void incrementPasses() {
+        passes.increment();
+    }
+
+    /*
+        Шарды, которых нет в конфигурации, не отображаются: их строки переносятся только после подключения шарда
+     */
+    public void setDistribution(String shard, long fileCount, long byteCount) {
+        var shardFiles = files.get(shard);
+        if (shardFiles != null) {
+            shardFiles.set(fileCount);
+            bytes.get(shard).set(byteCount);
+        }
+    }
+
+    public void resetDistribution() {
+        files.values().forEach(value -> value.set(0));
+        bytes.values().forEach(value -> value.set(0));
+    }
+}
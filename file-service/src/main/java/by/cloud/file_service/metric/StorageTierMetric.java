@@ -0,0 +1,74 @@
+package by.cloud.file_service.metric;
+
+import by.cloud.file_service.entity.StorageTier;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+public class StorageTierMetric {
+    public static final String STORAGE_TIER_FILES_METRIC = "storage_tier_files";
+    public static final String STORAGE_TIER_BYTES_METRIC = "storage_tier_bytes";
+    public static final String STORAGE_TIER_DEMOTED_TOTAL_METRIC = "storage_tier_demoted_total";
+    public static final String STORAGE_TIER_DEMOTED_BYTES_TOTAL_METRIC = "storage_tier_demoted_bytes_total";
+    public static final String STORAGE_TIER_FAILED_OBJECTS_TOTAL_METRIC = "storage_tier_failed_objects_total";
+    public static final String STORAGE_TIER_SAMPLED_ACCESSES_TOTAL_METRIC = "storage_tier_sampled_accesses_total";
+    public static final String STORAGE_TIER_PROMOTION_METRIC = "storage_tier_promotion";
+
+    private final MeterRegistry registry;
+    private final Map<StorageTier, AtomicLong> files = new EnumMap<>(StorageTier.class);
+    private final Map<StorageTier, AtomicLong> bytes = new EnumMap<>(StorageTier.class);
+    private final Counter demotedFiles;
+    private final Counter demotedBytes;
+    private final Counter failedObjects;
+    private final Counter sampledAccesses;
+
+    public StorageTierMetric(MeterRegistry registry) {
+        this.registry = registry;
+        for (var tier : StorageTier.values()) {
+            var tierFiles = new AtomicLong();
+            var tierBytes = new AtomicLong();
+            files.put(tier, tierFiles);
+            bytes.put(tier, tierBytes);
+            Gauge.builder(STORAGE_TIER_FILES_METRIC, tierFiles, AtomicLong::get).tag("tier", tier.name()).register(registry);
+            Gauge.builder(STORAGE_TIER_BYTES_METRIC, tierBytes, AtomicLong::get).tag("tier", tier.name())
+                    .baseUnit("bytes").register(registry);
+        }
+        demotedFiles = Counter.builder(STORAGE_TIER_DEMOTED_TOTAL_METRIC).register(registry);
+        demotedBytes = Counter.builder(STORAGE_TIER_DEMOTED_BYTES_TOTAL_METRIC).baseUnit("bytes").register(registry);
+        failedObjects = Counter.builder(STORAGE_TIER_FAILED_OBJECTS_TOTAL_METRIC).register(registry);
+        sampledAccesses = Counter.builder(STORAGE_TIER_SAMPLED_ACCESSES_TOTAL_METRIC).register(registry);
+    }
+
+    public void recordDemoted(int count, long size, int failed) {
+        demotedFiles.increment(count);
+        demotedBytes.increment(size);
+        failedObjects.increment(failed);
+    }
+
+    /*
+        Время переноса объекта в основной бакет при скачивании, по исходу
+     */
+    public void recordPromotion(boolean success, long nanos) {
+        Timer.builder(STORAGE_TIER_PROMOTION_METRIC)
+                .tag("outcome", success ? "success" : "failure")
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void incrementSampledAccesses() {
+        sampledAccesses.increment();
+    }
+
+    public void setDistribution(StorageTier tier, long fileCount, long byteCount) {
+        files.get(tier).set(fileCount);
+        bytes.get(tier).set(byteCount);
+    }
+}
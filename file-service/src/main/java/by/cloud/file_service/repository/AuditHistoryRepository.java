@@ -0,0 +1,8 @@
+package by.cloud.file_service.repository;
+
+public interface AuditHistoryRepository {
+    /*
+        Переносит строки таблицы истории table из пачки очереди, возвращает количество вставленных строк
+     */
+    int insertHistory(String table, Long[] outboxIds, Long[] revisions);
+}
@@ -0,0 +1,112 @@
+package by.cloud.file_service.repository;
+
+import by.cloud.file_service.entity.CopyTask;
+import by.cloud.file_service.repository.projection.CopySourceView;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface CopyTaskRepository extends JpaRepository<CopyTask, UUID> {
+    /*
+        Пустой результат означает, что задачу сейчас обрабатывает другой воркер
+     */
+    @Query(nativeQuery = true, value = "SELECT t.* FROM file.copy_tasks t WHERE t.id = :id FOR UPDATE SKIP LOCKED")
+    Optional<CopyTask> lockById(@Param("id") UUID id);
+
+    @Query(nativeQuery = true, value = "SELECT t.user_id FROM file.copy_tasks t WHERE t.id = :id")
+    Optional<UUID> findUserIdById(@Param("id") UUID id);
+
+    /*
+        Копирует активное поддерево каталога :sourceId одним запросом и запоминает соответствие
+        исходных каталогов копиям. Корень копии получает id :targetId, родителя :parentId и имя :name.
+        Ограничения внешних ключей проверяются в конце запроса, поэтому порядок вставки каталогов не важен.
+        Строки истории созданных каталогов записываются тем же запросом в file_history.audit_outbox
+        (слушатели Envers и AuditEventListener вставку запросом не видят), ревизию создает AuditOutboxWriter
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            WITH RECURSIVE subtree AS (
+                SELECT d.id, d.parent_id, d.name
+                FROM file.directories d
+                WHERE d.id = :sourceId AND d.active = true
+                UNION ALL
+                SELECT d.id, d.parent_id, d.name
+                FROM file.directories d
+                JOIN subtree s ON d.parent_id = s.id
+                WHERE d.active = true
+            ),
+            mapping AS (
+                INSERT INTO file.copy_task_directories (task_id, source_id, target_id)
+                SELECT :taskId, s.id, CASE WHEN s.id = :sourceId THEN CAST(:targetId AS uuid) ELSE file.uuid_generate_v7() END
+                FROM subtree s
+                RETURNING source_id, target_id
+            ),
+            copies AS (
+                SELECT m.target_id AS id,
+                       CAST(:userId AS uuid) AS user_id,
+                       CASE WHEN s.id = :sourceId THEN CAST(:parentId AS uuid) ELSE pm.target_id END AS parent_id,
+                       CASE WHEN s.id = :sourceId THEN CAST(:name AS varchar) ELSE s.name END AS name,
+                       CAST(NULL AS varchar) AS path,
+                       true AS active,
+                       CAST(:now AS timestamp) AS created,
+                       CAST(:now AS timestamp) AS updated
+                FROM subtree s
+                JOIN mapping m ON m.source_id = s.id
+                LEFT JOIN mapping pm ON pm.source_id = s.parent_id
+            ),
+            history AS (
+                INSERT INTO file_history.audit_outbox (revtmstmp, changes)
+                SELECT CAST(extract(EPOCH FROM now()) * 1000 AS bigint),
+                       jsonb_agg(jsonb_build_object('table', 'file_history.directories_history',
+                                                    'row', to_jsonb(c) || jsonb_build_object('revision_type', 0)))
+                FROM copies c
+                HAVING count(*) > 0
+            )
+            INSERT INTO file.directories (id, user_id, parent_id, name, path, active, created, updated)
+            SELECT c.id, c.user_id, c.parent_id, c.name, c.path, c.active, c.created, c.updated
+            FROM copies c
+            """)
+    int copySubtreeDirectories(@Param("taskId") UUID taskId, @Param("sourceId") UUID sourceId,
+                               @Param("targetId") UUID targetId, @Param("parentId") UUID parentId,
+                               @Param("name") String name, @Param("userId") UUID userId, @Param("now") Instant now);
+
+    @Modifying(clearAutomatically = true)
+    @Query(nativeQuery = true, value = """
+            UPDATE file.copy_tasks t
+            SET total_files = s.files, total_bytes = s.bytes
+            FROM (SELECT count(*) AS files, coalesce(sum(f.file_size), 0) AS bytes
+                  FROM file.copy_task_directories m
+                  JOIN file.files f ON f.directory_id = m.source_id AND f.active = true
+                  WHERE m.task_id = :taskId) s
+            WHERE t.id = :taskId
+            """)
+    int countTotals(@Param("taskId") UUID taskId);
+
+    /*
+        Следующая пачка исходных файлов после cursor вместе с каталогом-копией.
+        Файлы, созданные после начала копирования, и файлы, каталог-копия которых уже удален, не копируются
+     */
+    @Query(nativeQuery = true, value = """
+            SELECT f.id AS "id", f.user_id AS "userId", m.target_id AS "targetDirectoryId", f.file_name AS "fileName",
+                   f.file_size AS "fileSize", f.mime_type AS "mimeType",
+                   f.object_name AS "objectName", f.storage_shard AS "shard", f.storage_tier AS "tier"
+            FROM file.copy_task_directories m
+            JOIN file.directories target ON target.id = m.target_id AND target.active = true
+            JOIN file.files f ON f.directory_id = m.source_id AND f.active = true
+            WHERE m.task_id = :taskId AND f.id > :cursor AND f.created <= :createdBefore
+            ORDER BY f.id
+            LIMIT :limit
+            """)
+    List<CopySourceView> findNextSources(@Param("taskId") UUID taskId, @Param("cursor") UUID cursor,
+                                         @Param("createdBefore") Instant createdBefore, @Param("limit") int limit);
+
+    @Modifying
+    @Query(nativeQuery = true, value = "DELETE FROM file.copy_task_directories m WHERE m.task_id = :taskId")
+    int deleteDirectoryMapping(@Param("taskId") UUID taskId);
+}
@@ -1,17 +1,21 @@
 package by.cloud.file_service.repository;
 
 import by.cloud.file_service.entity.Directory;
+import by.cloud.file_service.repository.projection.FolderEntryView;
+import by.cloud.file_service.repository.projection.PathSegmentView;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
 import java.util.Optional;
 import java.util.UUID;
 
 import java.util.List;
 
 public interface DirectoryRepository extends JpaRepository<Directory, UUID> {
-    @Query("FROM Directory d WHERE d.parentId IS NULL AND d.userId = :userId AND d.active = true ORDER BY d.created ASC")
+    @Query("FROM Directory d WHERE d.parentId IS NULL AND d.userId = :userId ORDER BY d.created ASC")
     List<Directory> findBaseDirectories(@Param("userId") UUID userId);
     
     default Optional<Directory> findBaseDirectory(UUID userId) {
@@ -29,6 +33,202 @@ public interface DirectoryRepository extends JpaRepository<Directory, UUID> {
         return Optional.of(directories.get(0));
     }
 
-    @Query("FROM Directory d WHERE d.active = true AND d.userId = :userId AND d.parentId IS NOT NULL AND (:parentId IS NULL OR d.parentId = :parentId)")
+    @Query("FROM Directory d WHERE d.userId = :userId AND d.parentId IS NOT NULL AND (:parentId IS NULL OR d.parentId = :parentId)")
     List<Directory> findByUserIdAndParentId(@Param("userId") UUID userId, @Param("parentId") UUID parentId);
+
+    /*
+        Пакетное чтение по id без владельца (POST /v1/directories/batch, UserShardService.findOwned):
+        id могут принадлежать разным пользователям, поэтому секции не отсекаются и запрос проверяет
+        первичный ключ (id, user_id) каждой секции по ведущей колонке id, без последовательного чтения.
+        Когда владелец известен, используется findAllActiveByUserIdAndIds
+     */
+    @Query(nativeQuery = true, value = "SELECT d.* FROM file.directories d WHERE d.id = ANY(:ids) AND d.active = true")
+    List<Directory> findAllActiveByIds(@Param("ids") UUID[] ids);
+
+    @Query(nativeQuery = true, value = """
+            SELECT d.* FROM file.directories d WHERE d.user_id = :userId AND d.id = ANY(:ids) AND d.active = true
+            """)
+    List<Directory> findAllActiveByUserIdAndIds(@Param("userId") UUID userId, @Param("ids") UUID[] ids);
+
+    @Query(nativeQuery = true, value = "SELECT d.user_id FROM file.directories d WHERE d.id = :id")
+    Optional<UUID> findUserIdById(@Param("id") UUID id);
+
+    boolean existsByParentIdAndName(UUID parentId, String name);
+
+    boolean existsByUserId(UUID userId);
+
+    /*
+        Разрешает путь одним запросом: рекурсивно спускается от корневой директории
+        по сегментам пути (индекс ux_directories_parent_id_name) и, если последний
+        сегмент не является каталогом, ищет файл с таким именем.
+        Возвращает всю найденную цепочку, упорядоченную по глубине.
+        path передается без ведущего и завершающего '/', сегменты разделены '/'.
+        Условие на user_id в каждом соединении оставляет в плане одну секцию таблиц
+     */
+    @Query(nativeQuery = true, value = """
+            WITH RECURSIVE segments AS (
+                SELECT s.name, s.depth::int AS depth
+                FROM unnest(string_to_array(:path, '/')) WITH ORDINALITY AS s(name, depth)
+            ),
+            chain AS (
+                SELECT root.id, root.parent_id, root.name, 0 AS depth
+                FROM (SELECT d.id, d.parent_id, d.name
+                      FROM file.directories d
+                      WHERE d.user_id = :userId AND d.parent_id IS NULL AND d.active = true
+                      ORDER BY d.created
+                      LIMIT 1) root
+                UNION ALL
+                SELECT d.id, d.parent_id, d.name, c.depth + 1
+                FROM chain c
+                JOIN segments s ON s.depth = c.depth + 1
+                JOIN file.directories d ON d.user_id = :userId AND d.parent_id = c.id AND d.name = s.name AND d.active = true
+            )
+            SELECT 'DIRECTORY' AS "type", c.id AS "id", c.parent_id AS "parentId", c.name AS "name", c.depth AS "depth"
+            FROM chain c
+            UNION ALL
+            SELECT * FROM (
+                SELECT 'FILE', f.id, f.directory_id, f.file_name, c.depth + 1
+                FROM chain c
+                JOIN segments s ON s.depth = c.depth + 1
+                JOIN file.files f ON f.user_id = :userId AND f.directory_id = c.id AND f.file_name = s.name AND f.active = true
+                WHERE c.depth + 1 = (SELECT count(*) FROM segments)
+                ORDER BY f.created
+                LIMIT 1
+            ) file_row
+            ORDER BY "depth"
+            """)
+    List<PathSegmentView> resolvePath(@Param("userId") UUID userId, @Param("path") String path);
+
+    /*
+        Каталог и его активные подкаталоги одним запросом.
+        Для каждого из них считается количество непосредственных подкаталогов, количество файлов и агрегаты
+        по размеру и времени изменения читаются из колонок каталога (DirectoryStatsService, отстают
+        не больше чем на интервал сброса).
+        Владелец каталога определяется первым: по его user_id запросы читают одну секцию таблиц
+     */
+    @Query(nativeQuery = true, value = """
+            WITH owner AS (SELECT o.user_id FROM file.directories o WHERE o.id = :id)
+            SELECT d.id AS "id", d.user_id AS "userId", d.parent_id AS "parentId", d.name AS "name", d.path AS "path",
+                   (SELECT count(*) FROM file.directories c
+                    WHERE c.user_id = d.user_id AND c.parent_id = d.id AND c.active = true) AS "directoryCount",
+                   d.file_count AS "fileCount",
+                   d.total_bytes AS "totalBytes", d.last_modified AS "lastModified",
+                   d.recursive_file_count AS "recursiveFileCount", d.recursive_total_bytes AS "recursiveTotalBytes",
+                   d.recursive_last_modified AS "recursiveLastModified"
+            FROM file.directories d
+            WHERE d.user_id = (SELECT user_id FROM owner) AND d.active = true AND (d.id = :id OR d.parent_id = :id)
+            ORDER BY d.name
+            """)
+    List<FolderEntryView> findFolderWithChildren(@Param("id") UUID id);
+
+    /*
+        Каталог :id владельца :userId и его активные подкаталоги на любой глубине, заблокированные до конца транзакции.
+        Блокировка не дает создать файл в каталоге поддерева или перенести его туда (проверка внешнего ключа
+        directory_id ждет ее снятия), поэтому удаление содержимого (DirectoryContentDeleteJobHandler) видит
+        все файлы поддерева. Условие на user_id оставляет в плане одну секцию таблицы
+     */
+    @Query(nativeQuery = true, value = """
+            WITH RECURSIVE subtree AS (
+                SELECT CAST(:id AS uuid) AS id
+                UNION ALL
+                SELECT d.id
+                FROM file.directories d
+                JOIN subtree s ON d.parent_id = s.id
+                WHERE d.user_id = :userId AND d.active = true
+            )
+            SELECT d.id
+            FROM file.directories d
+            WHERE d.user_id = :userId AND d.id IN (SELECT s.id FROM subtree s)
+            ORDER BY d.id
+            FOR UPDATE
+            """)
+    List<UUID> lockSubtree(@Param("id") UUID id, @Param("userId") UUID userId);
+
+    /*
+        Помечает удаленными каталоги владельца :userId. Строки истории записываются тем же запросом
+        в file_history.audit_outbox (изменение запросом не видят слушатели Envers и AuditEventListener),
+        ревизию создает AuditOutboxWriter
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            WITH target AS (
+                SELECT d.*
+                FROM file.directories d
+                WHERE d.user_id = :userId AND d.id = ANY(:ids) AND d.active = true
+            ),
+            history AS (
+                INSERT INTO file_history.audit_outbox (revtmstmp, changes)
+                SELECT CAST(extract(EPOCH FROM now()) * 1000 AS bigint),
+                       jsonb_agg(jsonb_build_object('table', 'file_history.directories_history',
+                                                    'row', to_jsonb(t) || jsonb_build_object('active', false,
+                                                            'updated', CAST(:now AS timestamp), 'revision_type', 1)))
+                FROM target t
+                HAVING count(*) > 0
+            )
+            UPDATE file.directories d
+            SET active = false, updated = :now
+            WHERE d.user_id = :userId AND d.id IN (SELECT t.id FROM target t) AND d.active = true
+            """)
+    int deactivateByIds(@Param("userId") UUID userId, @Param("ids") UUID[] ids, @Param("now") Instant now);
+
+    /*
+        Применяет накопленные изменения агрегатов одним запросом.
+        direct* меняют агрегаты самого каталога, subtree* - рекурсивные агрегаты каталога и всех его предков.
+        Подъем по предкам останавливается на удаленном каталоге: его поддерево уже вычтено из родителя.
+        userIds - владельцы каталогов ids: предки принадлежат тому же владельцу, поэтому каждое соединение
+        с file.directories читает одну секцию таблицы (отсечение секций при выполнении).
+        Строки блокируются в порядке id, поэтому параллельные сбросы не приводят к взаимоблокировкам
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            WITH RECURSIVE delta AS (
+                SELECT *
+                FROM unnest(CAST(:ids AS uuid[]), CAST(:userIds AS uuid[]), CAST(:directFiles AS bigint[]),
+                            CAST(:directBytes AS bigint[]), CAST(:subtreeFiles AS bigint[]),
+                            CAST(:subtreeBytes AS bigint[]), CAST(:modified AS timestamp[]))
+                    AS d(directory_id, user_id, direct_files, direct_bytes, subtree_files, subtree_bytes, modified)
+            ),
+            chain AS (
+                SELECT d.directory_id AS origin_id, d.directory_id AS id, d.user_id, 0 AS depth
+                FROM delta d
+                UNION ALL
+                SELECT c.origin_id, x.parent_id, c.user_id, c.depth + 1
+                FROM chain c
+                JOIN file.directories x ON x.user_id = c.user_id AND x.id = c.id AND x.active = true
+                                       AND x.parent_id IS NOT NULL
+            ),
+            totals AS (
+                SELECT c.id, c.user_id,
+                       coalesce(sum(d.direct_files) FILTER (WHERE c.depth = 0), 0) AS direct_files,
+                       coalesce(sum(d.direct_bytes) FILTER (WHERE c.depth = 0), 0) AS direct_bytes,
+                       max(d.modified) FILTER (WHERE c.depth = 0 AND (d.direct_files <> 0 OR d.direct_bytes <> 0)) AS direct_modified,
+                       sum(d.subtree_files) AS subtree_files,
+                       sum(d.subtree_bytes) AS subtree_bytes,
+                       max(d.modified) AS subtree_modified
+                FROM chain c
+                JOIN delta d ON d.directory_id = c.origin_id
+                GROUP BY c.id, c.user_id
+            ),
+            locked AS (
+                SELECT x.id
+                FROM file.directories x
+                JOIN totals t ON x.user_id = t.user_id AND x.id = t.id
+                ORDER BY x.id
+                FOR UPDATE OF x
+            )
+            UPDATE file.directories dir
+            SET file_count              = dir.file_count + t.direct_files,
+                total_bytes             = dir.total_bytes + t.direct_bytes,
+                last_modified           = greatest(dir.last_modified, t.direct_modified),
+                recursive_file_count    = dir.recursive_file_count + t.subtree_files,
+                recursive_total_bytes   = dir.recursive_total_bytes + t.subtree_bytes,
+                recursive_last_modified = greatest(dir.recursive_last_modified, t.subtree_modified)
+            FROM totals t
+            WHERE dir.user_id = t.user_id AND dir.id = t.id
+              AND dir.id IN (SELECT l.id FROM locked l)
+            """)
+    int applyStatsDeltas(@Param("ids") UUID[] ids, @Param("userIds") UUID[] userIds,
+                         @Param("directFiles") Long[] directFiles, @Param("directBytes") Long[] directBytes,
+                         @Param("subtreeFiles") Long[] subtreeFiles, @Param("subtreeBytes") Long[] subtreeBytes,
+                         @Param("modified") Instant[] modified);
 }
@@ -1,14 +1,376 @@
 package by.cloud.file_service.repository;
 
 import by.cloud.file_service.entity.File;
+import by.cloud.file_service.repository.projection.DeletedFileView;
+import by.cloud.file_service.repository.projection.FileListItemView;
+import by.cloud.file_service.repository.projection.ObjectPlacementView;
+import by.cloud.file_service.repository.projection.ObjectRefView;
+import by.cloud.file_service.repository.projection.RemovedFilesView;
+import by.cloud.file_service.repository.projection.ShardStatView;
+import by.cloud.file_service.repository.projection.TierCandidateView;
+import by.cloud.file_service.repository.projection.TierStatView;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
-public interface FileRepository extends JpaRepository<File, UUID> {
-    @Query("FROM File f WHERE f.active = true AND f.userId = :userId AND f.directory.id = :folderId")
+public interface FileRepository extends JpaRepository<File, UUID>, FileSearchRepository {
+    /*
+        Чтение по первичному ключу с владельцем: по user_id выбирается одна секция таблицы.
+        Владельца по id находит ObjectOwnerService
+     */
+    @Query("FROM File f WHERE f.id = :id AND f.userId = :userId")
+    Optional<File> findByIdAndUserId(@Param("id") UUID id, @Param("userId") UUID userId);
+
+    /*
+        Блокировка строки сериализует параллельную замену содержимого одного файла
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("FROM File f WHERE f.id = :id AND f.userId = :userId")
+    Optional<File> findByIdForUpdate(@Param("id") UUID id, @Param("userId") UUID userId);
+
+    @Query("FROM File f WHERE f.userId = :userId AND f.directory.id = :folderId ORDER BY f.id")
     List<File> findByUserIdAndFolderId(@Param("userId") UUID userId, @Param("folderId") UUID folderId);
+
+    /*
+        Страница файлов каталога после afterId по индексу idx_files_directory_id_id.
+        Ключи версии 7 идут в порядке создания, ключи версии 4 - в случайном, но постоянном порядке
+     */
+    @Query("""
+            FROM File f
+            WHERE f.userId = :userId AND f.directory.id = :folderId AND f.id > :afterId
+            ORDER BY f.id
+            """)
+    List<File> findPageAfter(@Param("userId") UUID userId, @Param("folderId") UUID folderId,
+                             @Param("afterId") UUID afterId, Limit limit);
+
+    @Query("SELECT count(f) FROM File f WHERE f.userId = :userId AND f.directory.id = :folderId")
+    long countByUserIdAndFolderId(@Param("userId") UUID userId, @Param("folderId") UUID folderId);
+
+    /*
+        Выбираются только колонки индекса idx_files_directory_listing,
+        поэтому страница читается index-only сканированием. userId - владелец каталога, по нему
+        выбирается одна секция таблицы
+     */
+    @Query("""
+            SELECT f.id AS id, f.userId AS userId, f.directory.id AS directoryId, f.fileName AS fileName,
+                   f.fileSize AS fileSize, f.mimeType AS mimeType
+            FROM File f
+            WHERE f.userId = :userId AND f.directory.id = :folderId
+            ORDER BY f.fileName, f.id
+            """)
+    List<FileListItemView> findFirstPageByFolderId(@Param("userId") UUID userId, @Param("folderId") UUID folderId,
+                                                   Limit limit);
+
+    /*
+        Пакетное чтение по id без владельца (POST /v1/files/batch, UserShardService.findOwned):
+        id могут принадлежать разным пользователям, поэтому секции не отсекаются и запрос проверяет
+        первичный ключ (id, user_id) каждой секции по ведущей колонке id, без последовательного чтения.
+        Когда владелец известен, используется findAllActiveByUserIdAndIds
+     */
+    @Query(nativeQuery = true, value = "SELECT f.* FROM file.files f WHERE f.id = ANY(:ids) AND f.active = true")
+    List<File> findAllActiveByIds(@Param("ids") UUID[] ids);
+
+    @Query(nativeQuery = true, value = """
+            SELECT f.* FROM file.files f WHERE f.user_id = :userId AND f.id = ANY(:ids) AND f.active = true
+            """)
+    List<File> findAllActiveByUserIdAndIds(@Param("userId") UUID userId, @Param("ids") UUID[] ids);
+
+    /*
+        Владелец файла, в том числе удаленного (ObjectOwnerService)
+     */
+    @Query(nativeQuery = true, value = "SELECT f.user_id FROM file.files f WHERE f.id = :id")
+    Optional<UUID> findUserIdById(@Param("id") UUID id);
+
+    /*
+        Блокирует пачку удаленных файлов старше threshold.
+        SKIP LOCKED позволяет нескольким экземплярам сервиса разбирать очередь параллельно,
+        не ожидая друг друга и не обрабатывая одни и те же строки
+     */
+    @Query(nativeQuery = true, value = """
+            SELECT f.id AS "id", f.object_name AS "objectName", f.storage_shard AS "shard", f.file_size AS "fileSize"
+            FROM file.files f
+            WHERE f.active = false AND f.updated < :threshold
+            ORDER BY f.updated
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """)
+    List<DeletedFileView> lockDeletedBatch(@Param("threshold") Instant threshold, @Param("limit") int limit);
+
+    @Query(nativeQuery = true, value = "SELECT count(*) FROM file.files f WHERE f.active = false AND f.updated < :threshold")
+    long countDeletedBefore(@Param("threshold") Instant threshold);
+
+    @Modifying
+    @Query(nativeQuery = true, value = "DELETE FROM file.files f WHERE f.id = ANY(:ids) AND f.active = false")
+    int hardDeleteByIds(@Param("ids") UUID[] ids);
+
+    /*
+        Откладывает удаление файлов, объекты которых не удалось удалить: строки уходят в конец очереди
+        lockDeletedBatch и не занимают начало следующих пачек
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = "UPDATE file.files f SET updated = :retryAt WHERE f.id = ANY(:ids) AND f.active = false")
+    int postponeDeletion(@Param("ids") UUID[] ids, @Param("retryAt") Instant retryAt);
+
+    /*
+        Строки с объектами шарда shard в диапазоне (after, upper] в порядке ключей MinIO.
+        Учитываются и удаленные строки: их объекты удаляет FileGcService.
+        Объекты предыдущих версий возвращаются с active = false: их строки не исправляются сверкой.
+        Сверяется основной бакет: строки файлов холодного уровня возвращаются с active = false,
+        они нужны только для сопоставления превью, которые хранятся в основном бакете
+     */
+    @Query(nativeQuery = true, value = """
+            SELECT r.id AS "id", r.user_id AS "userId", r.object_name AS "objectName", r.active AS "active",
+                   r.created AS "created"
+            FROM (SELECT f.id, f.user_id, f.object_name, f.active AND f.storage_tier = 'HOT', f.created
+                  FROM file.files f
+                  WHERE f.object_name COLLATE "C" > :after AND f.object_name COLLATE "C" <= :upper
+                    AND f.storage_shard = :shard
+                  UNION ALL
+                  SELECT v.id, CAST(NULL AS uuid), v.object_name, false, v.created
+                  FROM file.file_versions v
+                  WHERE v.object_name COLLATE "C" > :after AND v.object_name COLLATE "C" <= :upper
+                    AND v.storage_shard = :shard) r
+            ORDER BY r.object_name COLLATE "C"
+            LIMIT :limit
+            """)
+    List<ObjectRefView> findObjectRefsInRange(@Param("shard") String shard, @Param("after") String after,
+                                              @Param("upper") String upper, @Param("limit") int limit);
+
+    @Query(nativeQuery = true, value = """
+            SELECT r.id AS "id", r.user_id AS "userId", r.object_name AS "objectName", r.active AS "active",
+                   r.created AS "created"
+            FROM (SELECT f.id, f.user_id, f.object_name, f.active AND f.storage_tier = 'HOT', f.created
+                  FROM file.files f
+                  WHERE f.object_name COLLATE "C" > :after AND f.storage_shard = :shard
+                  UNION ALL
+                  SELECT v.id, CAST(NULL AS uuid), v.object_name, false, v.created
+                  FROM file.file_versions v
+                  WHERE v.object_name COLLATE "C" > :after AND v.storage_shard = :shard) r
+            ORDER BY r.object_name COLLATE "C"
+            LIMIT :limit
+            """)
+    List<ObjectRefView> findObjectRefsAfter(@Param("shard") String shard, @Param("after") String after,
+                                            @Param("limit") int limit);
+
+    /*
+        Блокирует активные файлы ids владельцев userIds и возвращает их количество и размер по каталогам.
+        Условие на user_id оставляет в плане только секции владельцев.
+        Вызывается перед deactivateByIds в той же транзакции
+     */
+    @Query(nativeQuery = true, value = """
+            SELECT f.user_id AS "userId", f.directory_id AS "directoryId", count(*) AS "files", sum(f.file_size) AS "bytes"
+            FROM (SELECT l.user_id, l.directory_id, l.file_size
+                  FROM file.files l
+                  WHERE l.user_id = ANY(:userIds) AND l.id = ANY(:ids) AND l.active = true
+                  FOR UPDATE) f
+            GROUP BY f.user_id, f.directory_id
+            """)
+    List<RemovedFilesView> lockActiveByIds(@Param("userIds") UUID[] userIds, @Param("ids") UUID[] ids);
+
+    /*
+        Помечает удаленными активные файлы ids. Строки истории записываются тем же запросом
+        в file_history.audit_outbox, ревизию создает AuditOutboxWriter
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            WITH target AS (
+                SELECT f.*
+                FROM file.files f
+                WHERE f.user_id = ANY(:userIds) AND f.id = ANY(:ids) AND f.active = true
+            ),
+            history AS (
+                INSERT INTO file_history.audit_outbox (revtmstmp, changes)
+                SELECT CAST(extract(EPOCH FROM now()) * 1000 AS bigint),
+                       jsonb_agg(jsonb_build_object('table', 'file_history.files_history',
+                                                    'row', to_jsonb(t) || jsonb_build_object('active', false,
+                                                            'updated', CAST(:now AS timestamp), 'revision_type', 1)))
+                FROM target t
+                HAVING count(*) > 0
+            )
+            UPDATE file.files f
+            SET active = false, updated = :now
+            WHERE f.user_id = ANY(:userIds) AND f.id IN (SELECT t.id FROM target t) AND f.active = true
+            """)
+    int deactivateByIds(@Param("userIds") UUID[] userIds, @Param("ids") UUID[] ids, @Param("now") Instant now);
+
+    /*
+        Блокирует активные файлы каталогов directoryIds владельца :userId и возвращает их количество и размер
+        по каталогам. Вызывается перед deactivateInDirectories в той же транзакции
+     */
+    @Query(nativeQuery = true, value = """
+            SELECT f.user_id AS "userId", f.directory_id AS "directoryId", count(*) AS "files", sum(f.file_size) AS "bytes"
+            FROM (SELECT l.user_id, l.directory_id, l.file_size
+                  FROM file.files l
+                  WHERE l.user_id = :userId AND l.directory_id = ANY(:directoryIds) AND l.active = true
+                  FOR UPDATE) f
+            GROUP BY f.user_id, f.directory_id
+            """)
+    List<RemovedFilesView> lockActiveInDirectories(@Param("userId") UUID userId,
+                                                   @Param("directoryIds") UUID[] directoryIds);
+
+    /*
+        Помечает удаленными активные файлы каталогов directoryIds. Строки истории записываются тем же запросом
+        в file_history.audit_outbox, ревизию создает AuditOutboxWriter
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            WITH target AS (
+                SELECT f.*
+                FROM file.files f
+                WHERE f.user_id = :userId AND f.directory_id = ANY(:directoryIds) AND f.active = true
+            ),
+            history AS (
+                INSERT INTO file_history.audit_outbox (revtmstmp, changes)
+                SELECT CAST(extract(EPOCH FROM now()) * 1000 AS bigint),
+                       jsonb_agg(jsonb_build_object('table', 'file_history.files_history',
+                                                    'row', to_jsonb(t) || jsonb_build_object('active', false,
+                                                            'updated', CAST(:now AS timestamp), 'revision_type', 1)))
+                FROM target t
+                HAVING count(*) > 0
+            )
+            UPDATE file.files f
+            SET active = false, updated = :now
+            WHERE f.user_id = :userId AND f.id IN (SELECT t.id FROM target t) AND f.active = true
+            """)
+    int deactivateInDirectories(@Param("userId") UUID userId, @Param("directoryIds") UUID[] directoryIds,
+                                @Param("now") Instant now);
+
+    /*
+        Записывает накопленные времена обращений (AccessTrackingService).
+        Строки блокируются в порядке id, поэтому параллельные сбросы не приводят к взаимоблокировкам
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            WITH access AS (
+                SELECT *
+                FROM unnest(CAST(:ids AS uuid[]), CAST(:accessed AS timestamp[])) AS a(file_id, accessed)
+            ),
+            locked AS (
+                SELECT f.id
+                FROM file.files f
+                WHERE f.id IN (SELECT a.file_id FROM access a) AND f.active = true
+                ORDER BY f.id
+                FOR UPDATE
+            )
+            UPDATE file.files f
+            SET last_accessed = greatest(f.last_accessed, a.accessed)
+            FROM access a
+            WHERE f.id = a.file_id
+              AND f.id IN (SELECT l.id FROM locked l)
+            """)
+    int applyAccessTimes(@Param("ids") UUID[] ids, @Param("accessed") Instant[] accessed);
+
+    /*
+        Блокирует пачку файлов основного бакета, к которым не обращались с threshold (idx_files_hot_last_accessed).
+        Строки, заблокированные заменой содержимого или другим экземпляром сервиса, пропускаются
+     */
+    @Query(nativeQuery = true, value = """
+            SELECT f.id AS "id", f.object_name AS "objectName", f.storage_shard AS "shard", f.file_size AS "fileSize"
+            FROM file.files f
+            WHERE f.active = true AND f.storage_tier = 'HOT' AND f.last_accessed < :threshold AND f.file_size >= :minSize
+            ORDER BY f.last_accessed
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """)
+    List<TierCandidateView> lockColdCandidates(@Param("threshold") Instant threshold, @Param("minSize") long minSize,
+                                               @Param("limit") int limit);
+
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            UPDATE file.files f
+            SET storage_tier = 'COLD'
+            WHERE f.id = ANY(:ids) AND f.storage_tier = 'HOT'
+            """)
+    int markCold(@Param("ids") UUID[] ids);
+
+    /*
+        Откладывает перенос файлов, объекты которых не удалось скопировать: строки уходят в конец очереди
+        lockColdCandidates и не занимают начало следующих пачек. Строки уже заблокированы вызывающим
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            UPDATE file.files f
+            SET last_accessed = greatest(f.last_accessed, :retryAt)
+            WHERE f.id = ANY(:ids) AND f.storage_tier = 'HOT'
+            """)
+    int postponeDemotion(@Param("ids") UUID[] ids, @Param("retryAt") Instant retryAt);
+
+    /*
+        Блокирует строку файла на время переноса объекта в основной бакет и возвращает текущее размещение объекта
+     */
+    @Query(nativeQuery = true, value = """
+            SELECT f.id AS "id", f.object_name AS "objectName", f.storage_shard AS "shard", f.storage_tier AS "tier",
+                   f.file_size AS "fileSize"
+            FROM file.files f
+            WHERE f.user_id = :userId AND f.id = :id AND f.active = true
+            FOR UPDATE
+            """)
+    Optional<ObjectPlacementView> lockPlacement(@Param("id") UUID id, @Param("userId") UUID userId);
+
+    /*
+        Размещение нового объекта файла (замена содержимого). Строка уже заблокирована вызывающим
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            UPDATE file.files f
+            SET storage_shard = :shard, storage_tier = :tier
+            WHERE f.user_id = :userId AND f.id = :id
+            """)
+    int updatePlacement(@Param("id") UUID id, @Param("userId") UUID userId, @Param("shard") String shard,
+                        @Param("tier") String tier);
+
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            UPDATE file.files f
+            SET storage_tier = 'HOT', last_accessed = greatest(f.last_accessed, :now)
+            WHERE f.user_id = :userId AND f.id = :id AND f.storage_tier = 'COLD'
+            """)
+    int markHot(@Param("id") UUID id, @Param("userId") UUID userId, @Param("now") Instant now);
+
+    @Query(nativeQuery = true, value = """
+            SELECT f.storage_tier AS "tier", count(*) AS "files", coalesce(sum(f.file_size), 0) AS "bytes"
+            FROM file.files f
+            WHERE f.active = true
+            GROUP BY f.storage_tier
+            """)
+    List<TierStatView> findTierStats();
+
+    /*
+        Блокирует строки файлов для переноса объектов между шардами, см. ShardMigrationService.
+        userIds - владельцы файлов страницы: условие на user_id оставляет в плане только их секции
+     */
+    @Query(nativeQuery = true, value = """
+            SELECT f.id AS "id", f.object_name AS "objectName", f.storage_shard AS "shard", f.storage_tier AS "tier",
+                   f.file_size AS "fileSize"
+            FROM file.files f
+            WHERE f.user_id = ANY(:userIds) AND f.id = ANY(:ids) AND f.active = true
+            FOR UPDATE SKIP LOCKED
+            """)
+    List<ObjectPlacementView> lockPlacements(@Param("userIds") UUID[] userIds, @Param("ids") UUID[] ids);
+
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            UPDATE file.files f
+            SET storage_shard = c.storage_shard
+            FROM unnest(CAST(:ids AS uuid[]), CAST(:shards AS varchar[])) AS c(id, storage_shard)
+            WHERE f.user_id = ANY(:userIds) AND f.id = c.id
+            """)
+    int updateShards(@Param("userIds") UUID[] userIds, @Param("ids") UUID[] ids, @Param("shards") String[] shards);
+
+    @Query(nativeQuery = true, value = """
+            SELECT f.storage_shard AS "shard", count(*) AS "files", coalesce(sum(f.file_size), 0) AS "bytes"
+            FROM file.files f
+            WHERE f.active = true
+            GROUP BY f.storage_shard
+            """)
+    List<ShardStatView> findShardStats();
 }
@@ -0,0 +1,10 @@
+package by.cloud.file_service.repository;
+
+import by.cloud.file_service.entity.File;
+import by.cloud.file_service.repository.filter.FileSearchFilter;
+
+import java.util.List;
+
+public interface FileSearchRepository {
+    List<File> search(FileSearchFilter filter);
+}
@@ -0,0 +1,98 @@
+package by.cloud.file_service.repository;
+
+import by.cloud.file_service.entity.File;
+import by.cloud.file_service.repository.filter.FileSearchFilter;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+
+/*
+    Запрос собирается только из заданных фильтров, чтобы планировщик
+    мог использовать частичные индексы idx_files_file_name_trgm и
+    idx_files_user_id_file_name_id без условий вида (:param IS NULL OR ...)
+ */
+public class FileSearchRepositoryImpl implements FileSearchRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<File> search(FileSearchFilter filter) {
+        var sql = new StringBuilder();
+        var params = new HashMap<String, Object>();
+
+        if (filter.directoryId() != null) {
+            sql.append("""
+                    WITH RECURSIVE scope AS (
+                        SELECT d.id FROM file.directories d
+                        WHERE d.id = :directoryId AND d.user_id = :userId AND d.active = true
+                        UNION ALL
+                        SELECT c.id FROM file.directories c
+                        JOIN scope s ON c.parent_id = s.id
+                        WHERE c.active = true
+                    )
+                    """);
+            params.put("directoryId", filter.directoryId());
+        }
+
+        sql.append("SELECT f.* FROM file.files f WHERE f.user_id = :userId AND f.active = true");
+        params.put("userId", filter.userId());
+
+        if (filter.directoryId() != null) {
+            sql.append(" AND f.directory_id IN (SELECT id FROM scope)");
+        }
+        if (filter.query() != null && !filter.query().isBlank()) {
+            var escaped = escapeLike(filter.query().toLowerCase(Locale.ROOT));
+            sql.append(" AND lower(f.file_name) LIKE :pattern ESCAPE '\\'");
+            params.put("pattern", filter.prefix() ? escaped + "%" : "%" + escaped + "%");
+        }
+        if (filter.mimeType() != null && !filter.mimeType().isBlank()) {
+            if (filter.mimeType().endsWith("/*")) {
+                var type = filter.mimeType().substring(0, filter.mimeType().length() - 1);
+                sql.append(" AND f.mime_type LIKE :mimeType ESCAPE '\\'");
+                params.put("mimeType", escapeLike(type) + "%");
+            } else {
+                sql.append(" AND f.mime_type = :mimeType");
+                params.put("mimeType", filter.mimeType());
+            }
+        }
+        if (filter.minSize() != null) {
+            sql.append(" AND f.file_size >= :minSize");
+            params.put("minSize", filter.minSize());
+        }
+        if (filter.maxSize() != null) {
+            sql.append(" AND f.file_size <= :maxSize");
+            params.put("maxSize", filter.maxSize());
+        }
+        if (filter.updatedFrom() != null) {
+            sql.append(" AND f.updated >= :updatedFrom");
+            params.put("updatedFrom", filter.updatedFrom());
+        }
+        if (filter.updatedTo() != null) {
+            sql.append(" AND f.updated < :updatedTo");
+            params.put("updatedTo", filter.updatedTo());
+        }
+        if (filter.afterFileName() != null && filter.afterId() != null) {
+            sql.append(" AND (f.file_name, f.id) > (:afterFileName, :afterId)");
+            params.put("afterFileName", filter.afterFileName());
+            params.put("afterId", filter.afterId());
+        }
+        sql.append(" ORDER BY f.file_name, f.id LIMIT :limit");
+        params.put("limit", filter.limit());
+
+        var query = entityManager.createNativeQuery(sql.toString(), File.class);
+        params.forEach(query::setParameter);
+        return query.getResultList();
+    }
+
+    private static String escapeLike(String value) {
+        return value
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+    }
+}
@@ -0,0 +1,103 @@
+package by.cloud.file_service.repository;
+
+import by.cloud.file_service.entity.FileVersion;
+import by.cloud.file_service.repository.projection.ObjectPlacementView;
+import by.cloud.file_service.repository.projection.VersionObjectView;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface FileVersionRepository extends JpaRepository<FileVersion, UUID> {
+    /*
+        Версии с истекшим сроком хранения не возвращаются, даже если еще не удалены очисткой.
+        Оба запроса используют индекс ux_file_versions_file_id_version
+     */
+    @Query("""
+            FROM FileVersion v
+            WHERE v.fileId = :fileId AND (v.expires IS NULL OR v.expires > :now)
+            ORDER BY v.version DESC
+            """)
+    List<FileVersion> findAvailable(@Param("fileId") UUID fileId, @Param("now") Instant now);
+
+    @Query("""
+            FROM FileVersion v
+            WHERE v.fileId = :fileId AND v.version = :version AND (v.expires IS NULL OR v.expires > :now)
+            """)
+    Optional<FileVersion> findAvailable(@Param("fileId") UUID fileId, @Param("version") Integer version,
+                                        @Param("now") Instant now);
+
+    /*
+        Версии старше minVersion превышают лимит количества и помечаются истекшими
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            UPDATE file.file_versions v
+            SET expires = :now
+            WHERE v.file_id = :fileId AND v.version < :minVersion AND (v.expires IS NULL OR v.expires > :now)
+            """)
+    int expireBefore(@Param("fileId") UUID fileId, @Param("minVersion") int minVersion, @Param("now") Instant now);
+
+    /*
+        Блокирует пачку версий с истекшим сроком хранения, см. FileRepository.lockDeletedBatch
+     */
+    @Query(nativeQuery = true, value = """
+            SELECT v.id AS "id", v.file_id AS "fileId", v.object_name AS "objectName", v.storage_shard AS "shard",
+                   v.file_size AS "fileSize"
+            FROM file.file_versions v
+            WHERE v.expires <= :now
+            ORDER BY v.expires
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """)
+    List<VersionObjectView> lockExpiredBatch(@Param("now") Instant now, @Param("limit") int limit);
+
+    @Query(nativeQuery = true, value = "SELECT count(*) FROM file.file_versions v WHERE v.expires <= :now")
+    long countExpired(@Param("now") Instant now);
+
+    @Query(nativeQuery = true, value = """
+            SELECT v.id AS "id", v.file_id AS "fileId", v.object_name AS "objectName", v.storage_shard AS "shard",
+                   v.file_size AS "fileSize"
+            FROM file.file_versions v
+            WHERE v.file_id = ANY(:fileIds)
+            """)
+    List<VersionObjectView> findObjectsByFileIds(@Param("fileIds") UUID[] fileIds);
+
+    @Modifying
+    @Query(nativeQuery = true, value = "DELETE FROM file.file_versions v WHERE v.id = ANY(:ids)")
+    int deleteByIds(@Param("ids") UUID[] ids);
+
+    /*
+        Версии удаляются вместе с файлами явно: после секционирования file.files
+        внешнего ключа с каскадным удалением нет (V19__partition_metadata_by_user.sql)
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = "DELETE FROM file.file_versions v WHERE v.file_id = ANY(:fileIds)")
+    int deleteByFileIds(@Param("fileIds") UUID[] fileIds);
+
+    /*
+        Блокирует строки версий для переноса объектов между шардами, см. ShardMigrationService
+     */
+    @Query(nativeQuery = true, value = """
+            SELECT v.id AS "id", v.object_name AS "objectName", v.storage_shard AS "shard", v.storage_tier AS "tier",
+                   v.file_size AS "fileSize"
+            FROM file.file_versions v
+            WHERE v.id = ANY(:ids)
+            FOR UPDATE SKIP LOCKED
+            """)
+    List<ObjectPlacementView> lockPlacements(@Param("ids") UUID[] ids);
+
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            UPDATE file.file_versions v
+            SET storage_shard = c.storage_shard
+            FROM unnest(CAST(:ids AS uuid[]), CAST(:shards AS varchar[])) AS c(id, storage_shard)
+            WHERE v.id = c.id
+            """)
+    int updateShards(@Param("ids") UUID[] ids, @Param("shards") String[] shards);
+}
@@ -0,0 +1,60 @@
+package by.cloud.file_service.repository;
+
+import by.cloud.file_service.entity.Job;
+import by.cloud.file_service.repository.projection.JobQueueStatView;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+public interface JobRepository extends JpaRepository<Job, UUID> {
+    /*
+        Блокирует готовые задачи типа type. Задачи RUNNING с истекшим locked_until принадлежали упавшему
+        воркеру и захватываются повторно или переводятся в DEAD, если попытки исчерпаны.
+        SKIP LOCKED позволяет воркерам всех экземпляров сервиса не мешать друг другу. Захват отмечается изменением сущностей в той же транзакции (JobQueueService.claim)
+     */
+    @Query(nativeQuery = true, value = """
+            SELECT j.*
+            FROM file.jobs j
+            WHERE j.type = :type
+              AND ((j.status = 'PENDING' AND j.run_at <= :now) OR (j.status = 'RUNNING' AND j.locked_until < :now))
+            ORDER BY j.run_at
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """)
+    List<Job> lockReady(@Param("type") String type, @Param("now") Instant now, @Param("limit") int limit);
+
+    /*
+        Продлевает lease выполняемых задач (JobWorkerPool.renewLeases)
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            UPDATE file.jobs j
+            SET locked_until = :lockedUntil
+            WHERE j.id = ANY(:ids) AND j.status = 'RUNNING'
+            """)
+    int renew(@Param("ids") UUID[] ids, @Param("lockedUntil") Instant lockedUntil);
+
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            UPDATE file.jobs j
+            SET status = :status, run_at = :runAt, locked_until = NULL, last_error = :error, updated = :now
+            WHERE j.id = :id
+            """)
+    int reschedule(@Param("id") UUID id, @Param("status") String status, @Param("runAt") Instant runAt,
+                   @Param("error") String error, @Param("now") Instant now);
+
+    @Query(nativeQuery = true, value = """
+            SELECT j.type AS "type",
+                   count(*) FILTER (WHERE j.status <> 'DEAD') AS "depth",
+                   count(*) FILTER (WHERE j.status = 'DEAD') AS "dead",
+                   min(j.run_at) FILTER (WHERE j.status = 'PENDING' AND j.run_at <= :now) AS "oldestReadyRunAt"
+            FROM file.jobs j
+            GROUP BY j.type
+            """)
+    List<JobQueueStatView> findQueueStats(@Param("now") Instant now);
+}
@@ -0,0 +1,69 @@
+package by.cloud.file_service.repository;
+
+import by.cloud.file_service.entity.PartitioningState;
+import by.cloud.file_service.repository.projection.CopiedRowsView;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+import java.util.UUID;
+
+/*
+    Перенос file.directories и file.files в секционированные таблицы, см. V19__partition_metadata_by_user.sql.
+    Копируемые строки блокируются FOR SHARE: их изменение триггером ждет фиксации копии,
+    а строки, уже перенесенные триггером, пропускаются через ON CONFLICT DO NOTHING
+ */
+public interface PartitioningStateRepository extends JpaRepository<PartitioningState, String> {
+    /*
+        Пустой результат означает, что перенос сейчас выполняет другой экземпляр сервиса
+     */
+    @Query(nativeQuery = true, value = "SELECT s.* FROM file.partitioning_state s WHERE s.name = :name FOR UPDATE SKIP LOCKED")
+    Optional<PartitioningState> lockByName(@Param("name") String name);
+
+    @Query(nativeQuery = true, value = "SELECT to_regclass('file.files_partitioned') IS NOT NULL")
+    boolean isSwapPending();
+
+    @Query(nativeQuery = true, value = """
+            WITH batch AS (SELECT d.*
+                           FROM file.directories d
+                           WHERE d.id > :after
+                           ORDER BY d.id
+                           LIMIT :limit
+                           FOR SHARE),
+                 copied AS (INSERT INTO file.directories_partitioned
+                     SELECT * FROM batch
+                     ON CONFLICT DO NOTHING
+                     RETURNING 1)
+            SELECT (SELECT b.id FROM batch b ORDER BY b.id DESC LIMIT 1) AS "lastId",
+                   (SELECT count(*) FROM batch) AS "rows",
+                   (SELECT count(*) FROM copied) AS "copied"
+            """)
+    CopiedRowsView copyDirectories(@Param("after") UUID after, @Param("limit") int limit);
+
+    @Query(nativeQuery = true, value = """
+            WITH batch AS (SELECT f.*
+                           FROM file.files f
+                           WHERE f.id > :after
+                           ORDER BY f.id
+                           LIMIT :limit
+                           FOR SHARE),
+                 copied AS (INSERT INTO file.files_partitioned
+                     SELECT * FROM batch
+                     ON CONFLICT DO NOTHING
+                     RETURNING 1)
+            SELECT (SELECT b.id FROM batch b ORDER BY b.id DESC LIMIT 1) AS "lastId",
+                   (SELECT count(*) FROM batch) AS "rows",
+                   (SELECT count(*) FROM copied) AS "copied"
+            """)
+    CopiedRowsView copyFiles(@Param("after") UUID after, @Param("limit") int limit);
+
+    @Modifying
+    @Query(nativeQuery = true, value = "CALL file.swap_partitioned_metadata()")
+    void swap();
+
+    @Modifying
+    @Query(nativeQuery = true, value = "CALL file.validate_partitioned_metadata()")
+    void validate();
+}
@@ -0,0 +1,21 @@
+package by.cloud.file_service.repository;
+
+import by.cloud.file_service.entity.ReconciliationState;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+public interface ReconciliationStateRepository extends JpaRepository<ReconciliationState, String> {
+    /*
+        Пустой результат означает, что сверку сейчас выполняет другой экземпляр сервиса
+     */
+    @Query(nativeQuery = true, value = "SELECT s.* FROM file.reconciliation_state s WHERE s.name = :name FOR UPDATE SKIP LOCKED")
+    Optional<ReconciliationState> lockByName(@Param("name") String name);
+
+    @Modifying
+    @Query(nativeQuery = true, value = "INSERT INTO file.reconciliation_state (name) VALUES (:name) ON CONFLICT DO NOTHING")
+    int createIfAbsent(@Param("name") String name);
+}
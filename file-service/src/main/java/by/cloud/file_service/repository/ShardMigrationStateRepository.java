@@ -0,0 +1,37 @@
+package by.cloud.file_service.repository;
+
+import by.cloud.file_service.entity.ShardMigrationState;
+import by.cloud.file_service.repository.projection.ObjectShardView;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface ShardMigrationStateRepository extends JpaRepository<ShardMigrationState, String> {
+    /*
+        Пустой результат означает, что перенос сейчас выполняет другой экземпляр сервиса
+     */
+    @Query(nativeQuery = true, value = "SELECT s.* FROM file.shard_migration_state s WHERE s.name = :name FOR UPDATE SKIP LOCKED")
+    Optional<ShardMigrationState> lockByName(@Param("name") String name);
+
+    /*
+        Объекты текущих файлов и предыдущих версий после after в порядке имен (индексы сверки с MinIO).
+        Объекты удаленных файлов не переносятся: их удаляет FileGcService с шарда, записанного в строке
+     */
+    @Query(nativeQuery = true, value = """
+            SELECT r.id AS "id", r.user_id AS "userId", r.kind AS "kind", r.object_name AS "objectName",
+                   r.storage_shard AS "shard"
+            FROM (SELECT f.id, f.user_id, 'FILE' AS kind, f.object_name, f.storage_shard
+                  FROM file.files f
+                  WHERE f.object_name COLLATE "C" > :after AND f.active = true
+                  UNION ALL
+                  SELECT v.id, CAST(NULL AS uuid), 'VERSION', v.object_name, v.storage_shard
+                  FROM file.file_versions v
+                  WHERE v.object_name COLLATE "C" > :after) r
+            ORDER BY r.object_name COLLATE "C"
+            LIMIT :limit
+            """)
+    List<ObjectShardView> findObjectShardsAfter(@Param("after") String after, @Param("limit") int limit);
+}
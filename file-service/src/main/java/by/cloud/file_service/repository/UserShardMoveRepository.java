@@ -0,0 +1,42 @@
+package by.cloud.file_service.repository;
+
+import by.cloud.file_service.entity.UserShardMove;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+/*
+    Переносы пользователей между шардами, находятся в базе шарда default
+ */
+public interface UserShardMoveRepository extends JpaRepository<UserShardMove, UUID> {
+    /*
+        Следующий перенос, готовый к очередному шагу: новый или выдержавший паузу после предыдущего шага.
+        Переносы, заблокированные другими экземплярами, и уже обработанные в этом запуске пропускаются
+     */
+    @Query(nativeQuery = true, value = """
+            SELECT m.*
+            FROM file.user_shard_moves m
+            WHERE m.step IN ('REQUESTED', 'FROZEN', 'SWITCHED')
+              AND (m.step = 'REQUESTED' OR m.updated <= :ready)
+              AND NOT m.user_id = ANY(:processed)
+            ORDER BY m.updated
+            LIMIT 1
+            FOR UPDATE SKIP LOCKED
+            """)
+    Optional<UserShardMove> lockNextReady(@Param("ready") Instant ready, @Param("processed") UUID[] processed);
+
+    /*
+        Пустой результат означает, что перенос сейчас обрабатывает другой экземпляр сервиса
+     */
+    @Query(nativeQuery = true, value = "SELECT m.* FROM file.user_shard_moves m WHERE m.user_id = :userId FOR UPDATE SKIP LOCKED")
+    Optional<UserShardMove> lockByUserId(@Param("userId") UUID userId);
+
+    @Query(nativeQuery = true, value = """
+            SELECT EXISTS (SELECT 1 FROM file.user_shard_moves m WHERE m.step IN ('REQUESTED', 'FROZEN', 'SWITCHED'))
+            """)
+    boolean existsInProgress();
+}
@@ -0,0 +1,36 @@
+package by.cloud.file_service.repository;
+
+import by.cloud.file_service.entity.UserShard;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/*
+    Таблица шардов пользователей, находится в базе шарда default
+ */
+public interface UserShardRepository extends JpaRepository<UserShard, UUID> {
+    /*
+        Экземпляры, одновременно встретившие нового пользователя, выбирают шард по одному кольцу,
+        поэтому закрепляется один и тот же шард
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            INSERT INTO file.user_shards (user_id, shard, moving, created, updated)
+            VALUES (:userId, :shard, false, :now, :now)
+            ON CONFLICT DO NOTHING
+            """)
+    int createIfAbsent(@Param("userId") UUID userId, @Param("shard") String shard, @Param("now") Instant now);
+
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            UPDATE file.user_shards
+            SET shard = :shard, moving = :moving, updated = :now
+            WHERE user_id = :userId
+            """)
+    int assign(@Param("userId") UUID userId, @Param("shard") String shard, @Param("moving") boolean moving,
+               @Param("now") Instant now);
+}
@@ -0,0 +1,55 @@
+package by.cloud.file_service.repository;
+
+import by.cloud.file_service.entity.UserUsage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.UUID;
+
+public interface UserUsageRepository extends JpaRepository<UserUsage, UUID> {
+    /*
+        Применяет накопленные изменения одним запросом.
+        Пользователи передаются отсортированными, поэтому параллельные сбросы с разных экземпляров
+        блокируют строки в одном порядке и не приводят к взаимоблокировкам
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            INSERT INTO file.user_usage AS u (user_id, used_bytes, file_count, updated)
+            SELECT d.user_id, d.bytes, d.files, :now
+            FROM unnest(CAST(:userIds AS uuid[]), CAST(:bytes AS bigint[]), CAST(:files AS bigint[])) AS d(user_id, bytes, files)
+            ON CONFLICT (user_id) DO UPDATE SET used_bytes = u.used_bytes + EXCLUDED.used_bytes,
+                                                file_count = u.file_count + EXCLUDED.file_count,
+                                                updated = EXCLUDED.updated
+            """)
+    int applyDeltas(@Param("userIds") UUID[] userIds, @Param("bytes") Long[] bytes, @Param("files") Long[] files,
+                    @Param("now") Instant now);
+
+    /*
+        Пересчет по таблице файлов: исправляет расхождение, если накопленные изменения были потеряны
+        (например, при аварийной остановке экземпляра до сброса).
+        Пользователи, у которых есть строки файлов с updated после quietBefore, пропускаются: загрузка,
+        удаление и перемещение отмечают updated в той же транзакции, а изменение счетчиков сбрасывается
+        только после нее, поэтому file.files уже учитывает эти файлы, а file.user_usage еще нет.
+        Время из file.user_usage для этого не подходит - оно меняется только при сбросе.
+        Удаленные строки остаются в таблице до сборки мусора и тоже учитываются в проверке
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            UPDATE file.user_usage u
+            SET used_bytes = coalesce(s.bytes, 0), file_count = coalesce(s.files, 0), updated = :now
+            FROM file.user_usage x
+            LEFT JOIN (SELECT f.user_id,
+                              sum(f.file_size) FILTER (WHERE f.active = true) AS bytes,
+                              count(*) FILTER (WHERE f.active = true) AS files,
+                              max(f.updated) AS last_updated
+                       FROM file.files f
+                       GROUP BY f.user_id) s ON s.user_id = x.user_id
+            WHERE u.user_id = x.user_id
+              AND (s.last_updated IS NULL OR s.last_updated < :quietBefore)
+              AND (u.used_bytes <> coalesce(s.bytes, 0) OR u.file_count <> coalesce(s.files, 0))
+            """)
+    int recount(@Param("quietBefore") Instant quietBefore, @Param("now") Instant now);
+}
@@ -0,0 +1,24 @@
+package by.cloud.file_service.repository.filter;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/*
+    Параметры поиска файлов. Незаполненные (null) фильтры не применяются.
+    afterFileName/afterId - позиция последнего элемента предыдущей страницы
+ */
+public record FileSearchFilter(
+        UUID userId,
+        String query,
+        boolean prefix,
+        String mimeType,
+        Long minSize,
+        Long maxSize,
+        Instant updatedFrom,
+        Instant updatedTo,
+        UUID directoryId,
+        String afterFileName,
+        UUID afterId,
+        int limit
+) {
+}
@@ -0,0 +1,15 @@
+package by.cloud.file_service.repository.projection;
+
+import java.util.UUID;
+
+/*
+    Результат копирования пачки строк: последний просмотренный id, сколько строк просмотрено
+    и сколько вставлено (строки, уже перенесенные триггером, не вставляются повторно)
+ */
+public interface CopiedRowsView {
+    UUID getLastId();
+
+    Long getRows();
+
+    Long getCopied();
+}
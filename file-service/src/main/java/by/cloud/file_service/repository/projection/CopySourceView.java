@@ -0,0 +1,28 @@
+package by.cloud.file_service.repository.projection;
+
+import by.cloud.file_service.entity.StorageTier;
+
+import java.util.UUID;
+
+/*
+    Исходный файл пачки копирования каталога и каталог-копия, в которой создается его копия
+ */
+public interface CopySourceView {
+    UUID getId();
+
+    UUID getUserId();
+
+    UUID getTargetDirectoryId();
+
+    String getFileName();
+
+    Integer getFileSize();
+
+    String getMimeType();
+
+    String getObjectName();
+
+    String getShard();
+
+    StorageTier getTier();
+}
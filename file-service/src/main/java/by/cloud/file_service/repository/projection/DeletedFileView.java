@@ -0,0 +1,16 @@
+package by.cloud.file_service.repository.projection;
+
+import java.util.UUID;
+
+/*
+    Удаленный файл, ожидающий физического удаления
+ */
+public interface DeletedFileView {
+    UUID getId();
+
+    String getObjectName();
+
+    String getShard();
+
+    Integer getFileSize();
+}
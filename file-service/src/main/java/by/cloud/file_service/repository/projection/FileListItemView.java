@@ -0,0 +1,20 @@
+package by.cloud.file_service.repository.projection;
+
+import java.util.UUID;
+
+/*
+    Поля файла, необходимые для списка в каталоге
+ */
+public interface FileListItemView {
+    UUID getId();
+
+    UUID getUserId();
+
+    UUID getDirectoryId();
+
+    String getFileName();
+
+    Integer getFileSize();
+
+    String getMimeType();
+}
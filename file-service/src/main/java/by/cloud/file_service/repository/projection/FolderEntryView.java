@@ -0,0 +1,33 @@
+package by.cloud.file_service.repository.projection;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/*
+    Каталог вместе с количеством его непосредственных потомков и агрегатами
+ */
+public interface FolderEntryView {
+    UUID getId();
+
+    UUID getUserId();
+
+    UUID getParentId();
+
+    String getName();
+
+    String getPath();
+
+    Long getDirectoryCount();
+
+    Long getFileCount();
+
+    Long getTotalBytes();
+
+    Instant getLastModified();
+
+    Long getRecursiveFileCount();
+
+    Long getRecursiveTotalBytes();
+
+    Instant getRecursiveLastModified();
+}
@@ -0,0 +1,7 @@
+package by.cloud.file_service.repository.projection;
+
+public interface HistoryPartitionView {
+    String getName();
+
+    Long getUpperBound();
+}
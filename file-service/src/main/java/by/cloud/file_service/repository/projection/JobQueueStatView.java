@@ -0,0 +1,16 @@
+package by.cloud.file_service.repository.projection;
+
+import java.time.Instant;
+
+/*
+    Состояние очереди задач одного типа
+ */
+public interface JobQueueStatView {
+    String getType();
+
+    Long getDepth();
+
+    Long getDead();
+
+    Instant getOldestReadyRunAt();
+}
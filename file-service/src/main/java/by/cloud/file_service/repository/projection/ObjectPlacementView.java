@@ -0,0 +1,20 @@
+package by.cloud.file_service.repository.projection;
+
+import by.cloud.file_service.entity.StorageTier;
+
+import java.util.UUID;
+
+/*
+    Размещение объекта файла или версии: шард и уровень хранения
+ */
+public interface ObjectPlacementView {
+    UUID getId();
+
+    String getObjectName();
+
+    String getShard();
+
+    StorageTier getTier();
+
+    Integer getFileSize();
+}
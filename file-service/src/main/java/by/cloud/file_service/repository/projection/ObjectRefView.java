@@ -0,0 +1,19 @@
+package by.cloud.file_service.repository.projection;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/*
+    Ссылка строки file.files на объект в MinIO. userId - владелец файла, у объектов предыдущих версий null
+ */
+public interface ObjectRefView {
+    UUID getId();
+
+    UUID getUserId();
+
+    String getObjectName();
+
+    Boolean getActive();
+
+    Instant getCreated();
+}
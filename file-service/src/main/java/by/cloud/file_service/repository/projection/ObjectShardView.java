@@ -0,0 +1,19 @@
+package by.cloud.file_service.repository.projection;
+
+import java.util.UUID;
+
+/*
+    Объект файла (kind = FILE) или предыдущей версии (kind = VERSION) и его шард.
+    userId - владелец файла, у предыдущих версий null
+ */
+public interface ObjectShardView {
+    UUID getId();
+
+    UUID getUserId();
+
+    String getKind();
+
+    String getObjectName();
+
+    String getShard();
+}
@@ -0,0 +1,19 @@
+package by.cloud.file_service.repository.projection;
+
+import java.util.UUID;
+
+/*
+    Элемент цепочки, полученной при разрешении пути.
+    depth = 0 соответствует корневой директории пользователя
+ */
+public interface PathSegmentView {
+    String getType();
+
+    UUID getId();
+
+    UUID getParentId();
+
+    String getName();
+
+    Integer getDepth();
+}
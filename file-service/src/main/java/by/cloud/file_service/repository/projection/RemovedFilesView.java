@@ -0,0 +1,16 @@
+package by.cloud.file_service.repository.projection;
+
+import java.util.UUID;
+
+/*
+    Файлы, помеченные удаленными массовой операцией, сгруппированные по пользователю и каталогу
+ */
+public interface RemovedFilesView {
+    UUID getUserId();
+
+    UUID getDirectoryId();
+
+    Long getFiles();
+
+    Long getBytes();
+}
@@ -0,0 +1,12 @@
+package by.cloud.file_service.repository.projection;
+
+/*
+    Количество и размер файлов на одном шарде
+ */
+public interface ShardStatView {
+    String getShard();
+
+    Long getFiles();
+
+    Long getBytes();
+}
@@ -0,0 +1,16 @@
+package by.cloud.file_service.repository.projection;
+
+import java.util.UUID;
+
+/*
+    Файл, объект которого переносится в холодный бакет
+ */
+public interface TierCandidateView {
+    UUID getId();
+
+    String getObjectName();
+
+    String getShard();
+
+    Integer getFileSize();
+}
@@ -0,0 +1,12 @@
+package by.cloud.file_service.repository.projection;
+
+/*
+    Количество и размер файлов на одном уровне хранения
+ */
+public interface TierStatView {
+    String getTier();
+
+    Long getFiles();
+
+    Long getBytes();
+}
@@ -0,0 +1,18 @@
+package by.cloud.file_service.repository.projection;
+
+import java.util.UUID;
+
+/*
+    Объект предыдущей версии файла, подлежащий удалению из MinIO
+ */
+public interface VersionObjectView {
+    UUID getId();
+
+    UUID getFileId();
+
+    String getObjectName();
+
+    String getShard();
+
+    Integer getFileSize();
+}
@@ -1,24 +1,43 @@
 package by.cloud.file_service.rest;
 
 import by.cloud.file.api.FileApi;
+import by.cloud.file.dto.FileBatchDto;
+import by.cloud.file.dto.FileBatchRequestDto;
+import by.cloud.file.dto.FileBulkRequestDto;
+import by.cloud.file.dto.FileBulkResultDto;
+import by.cloud.file.dto.FileCopyRequestDto;
 import by.cloud.file.dto.FileDeleteResponseDto;
 import by.cloud.file.dto.FileDto;
 import by.cloud.file.dto.FilePageDto;
+import by.cloud.file.dto.FileSearchPageDto;
 import by.cloud.file.dto.FileUploadResponseDto;
+import by.cloud.file.dto.FileVersionListDto;
+import by.cloud.file_service.service.FileBulkService;
 import by.cloud.file_service.service.FileService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequiredArgsConstructor
 public class FileRestControllerV1 implements FileApi {
     private final FileService fileService;
+    private final FileBulkService fileBulkService;
+
+    @Override
+    public ResponseEntity<FileDto> copyFile(UUID id, FileCopyRequestDto fileCopyRequestDto) {
+        var fileDto = fileService.copyFile(id, fileCopyRequestDto);
+        return ResponseEntity.status(201).body(fileDto);
+    }
 
     @Override
     public ResponseEntity<FileDeleteResponseDto> delete(UUID id) {
@@ -37,17 +56,88 @@ public class FileRestControllerV1 implements FileApi {
     }
 
     @Override
-    public ResponseEntity<FilePageDto> findAllByUserId(UUID userId, UUID directoryId, Integer limit, Integer offset) {
-        var pageDto = fileService.findAllByUserId(userId, directoryId, limit, offset);
+    public ResponseEntity<Resource> downloadFileVersion(UUID id, Integer version) {
+        var fileDto = fileService.findById(id);
+        var versionDto = fileService.findVersion(id, version);
+        var resource = fileService.downloadVersion(id, version);
+        return ResponseEntity.ok()
+                .header("Content-Disposition", "attachment; filename=\"" + fileDto.getFileName() + "\"")
+                .header("Content-Type", versionDto.getMimeType())
+                .body(resource);
+    }
+
+    /*
+        Замена содержимого меняет превью, но не id файла. Адрес с версией содержимого (v) указывает
+        на одно превью, поэтому кешируется браузером без повторной проверки. Без версии превью проверяется
+        при каждом обращении
+     */
+    @Override
+    public ResponseEntity<Resource> downloadPreview(UUID id, Integer size, Integer v) {
+        return fileService.downloadPreview(id, size, v)
+                .map(resource -> ResponseEntity.ok()
+                        .contentType(MediaType.IMAGE_JPEG)
+                        .cacheControl(v != null
+                                ? CacheControl.maxAge(365, TimeUnit.DAYS).cachePrivate().immutable()
+                                : CacheControl.noCache().cachePrivate())
+                        .body(resource))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @Override
+    public ResponseEntity<FilePageDto> findAllByUserId(UUID userId, UUID directoryId, Integer limit, Integer offset,
+                                                       UUID afterId) {
+        var pageDto = fileService.findAllByUserId(userId, directoryId, limit, offset, afterId);
         return ResponseEntity.ok(pageDto);
     }
 
+    @Override
+    public ResponseEntity<FileBatchDto> findFilesByIds(FileBatchRequestDto fileBatchRequestDto) {
+        var batchDto = fileService.findAllByIds(fileBatchRequestDto.getIds());
+        return ResponseEntity.ok(batchDto);
+    }
+
+    @Override
+    public ResponseEntity<FileBulkResultDto> applyBulkOperations(UUID userId, FileBulkRequestDto fileBulkRequestDto) {
+        var resultDto = fileBulkService.apply(userId, fileBulkRequestDto.getOperations());
+        return ResponseEntity.ok(resultDto);
+    }
+
+    @Override
+    public ResponseEntity<FileVersionListDto> findFileVersions(UUID id) {
+        var listDto = fileService.findVersions(id);
+        return ResponseEntity.ok(listDto);
+    }
+
     @Override
     public ResponseEntity<FileDto> findById(UUID id) {
         var fileDto = fileService.findById(id);
         return ResponseEntity.ok(fileDto);
     }
 
+    @Override
+    public ResponseEntity<FileSearchPageDto> searchFiles(
+            UUID userId,
+            String query,
+            Boolean prefix,
+            String mimeType,
+            Long minSize,
+            Long maxSize,
+            OffsetDateTime updatedFrom,
+            OffsetDateTime updatedTo,
+            UUID directoryId,
+            Integer limit,
+            String cursor) {
+        var pageDto = fileService.search(userId, query, prefix, mimeType, minSize, maxSize,
+                updatedFrom, updatedTo, directoryId, limit, cursor);
+        return ResponseEntity.ok(pageDto);
+    }
+
+    @Override
+    public ResponseEntity<FileDto> uploadFileContent(UUID id, MultipartFile file) {
+        var fileDto = fileService.uploadContent(id, file);
+        return ResponseEntity.ok(fileDto);
+    }
+
     @Override
     public ResponseEntity<FileUploadResponseDto> uploadFiles(
             UUID userId,
@@ -2,7 +2,11 @@ package by.cloud.file_service.rest;
 
 import by.cloud.directory.api.DirectoryApi;
 import by.cloud.directory.dto.*;
+import by.cloud.file.api.FolderApi;
+import by.cloud.file.dto.FolderViewDto;
+import by.cloud.file_service.service.DirectoryCopyService;
 import by.cloud.file_service.service.DirectoryService;
+import by.cloud.file_service.service.FileService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RestController;
@@ -11,8 +15,22 @@ import java.util.UUID;
 
 @RestController
 @RequiredArgsConstructor
-public class FolderRestControllerV1 implements DirectoryApi {
+public class FolderRestControllerV1 implements DirectoryApi, FolderApi {
     private final DirectoryService directoryService;
+    private final DirectoryCopyService directoryCopyService;
+    private final FileService fileService;
+
+    @Override
+    public ResponseEntity<DirectoryCopyDto> copyDirectory(UUID id, DirectoryCopyRequestDto directoryCopyRequestDto) {
+        var copyDto = directoryCopyService.startCopy(id, directoryCopyRequestDto);
+        return ResponseEntity.accepted().body(copyDto);
+    }
+
+    @Override
+    public ResponseEntity<DirectoryCopyDto> findDirectoryCopy(UUID taskId) {
+        var copyDto = directoryCopyService.findCopy(taskId);
+        return ResponseEntity.ok(copyDto);
+    }
 
     @Override
     public ResponseEntity<DirectoryWriteResponseDto> createBaseDirectory(UUID userId) {
@@ -38,12 +56,30 @@ public class FolderRestControllerV1 implements DirectoryApi {
         return ResponseEntity.ok(pageDto);
     }
 
+    @Override
+    public ResponseEntity<DirectoryPageDto> findDirectoriesByIds(DirectoryBatchRequestDto directoryBatchRequestDto) {
+        var pageDto = directoryService.findAllByIds(directoryBatchRequestDto.getIds());
+        return ResponseEntity.ok(pageDto);
+    }
+
+    @Override
+    public ResponseEntity<FolderViewDto> findFolderView(UUID id, Integer limit) {
+        var folderViewDto = fileService.findFolderView(id, limit);
+        return ResponseEntity.ok(folderViewDto);
+    }
+
     @Override
     public ResponseEntity<DirectoryDto> findDirectoryById(UUID id) {
         var directoryDto = directoryService.findById(id);
         return ResponseEntity.ok(directoryDto);
     }
 
+    @Override
+    public ResponseEntity<ResolvedPathDto> resolvePath(UUID userId, String path) {
+        var resolvedPathDto = directoryService.resolvePath(userId, path);
+        return ResponseEntity.ok(resolvedPathDto);
+    }
+
     @Override
     public ResponseEntity<DirectoryWriteResponseDto> updateDirectory(UUID id, DirectoryWriteDto directoryWriteDto) {
         var response = directoryService.updateDirectory(id, directoryWriteDto);
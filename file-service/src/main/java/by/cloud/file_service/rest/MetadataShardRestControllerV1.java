@@ -0,0 +1,35 @@
+package by.cloud.file_service.rest;
+
+import by.cloud.file.api.MetadataShardApi;
+import by.cloud.file.dto.UserShardMoveDto;
+import by.cloud.file.dto.UserShardMoveRequestDto;
+import by.cloud.file_service.service.UserShardMoveService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.UUID;
+
+@RestController
+@RequiredArgsConstructor
+public class MetadataShardRestControllerV1 implements MetadataShardApi {
+    private final UserShardMoveService userShardMoveService;
+
+    @Override
+    public ResponseEntity<UserShardMoveDto> requestUserShardMove(UserShardMoveRequestDto userShardMoveRequestDto) {
+        var moveDto = userShardMoveService.requestMove(userShardMoveRequestDto);
+        return ResponseEntity.status(202).body(moveDto);
+    }
+
+    @Override
+    public ResponseEntity<UserShardMoveDto> findUserShardMove(UUID userId) {
+        var moveDto = userShardMoveService.findMove(userId);
+        return ResponseEntity.ok(moveDto);
+    }
+
+    @Override
+    public ResponseEntity<UserShardMoveDto> cancelUserShardMove(UUID userId) {
+        var moveDto = userShardMoveService.cancelMove(userId);
+        return ResponseEntity.ok(moveDto);
+    }
+}
@@ -0,0 +1,22 @@
+package by.cloud.file_service.rest;
+
+import by.cloud.file.api.UsageApi;
+import by.cloud.file.dto.UsageDto;
+import by.cloud.file_service.service.UsageService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.UUID;
+
+@RestController
+@RequiredArgsConstructor
+public class UsageRestControllerV1 implements UsageApi {
+    private final UsageService usageService;
+
+    @Override
+    public ResponseEntity<UsageDto> findUsage(UUID userId) {
+        var usageDto = usageService.getUsage(userId);
+        return ResponseEntity.ok(usageDto);
+    }
+}
@@ -0,0 +1,56 @@
+package by.cloud.file_service.service;
+
+import by.cloud.file_service.config.TieringProperties;
+import by.cloud.file_service.datasource.MetadataShards;
+import by.cloud.file_service.metric.StorageTierMetric;
+import by.cloud.file_service.repository.FileRepository;
+import by.cloud.file_service.util.DateTimeUtil;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/*
+    Время последнего обращения к файлам для переноса между уровнями хранения.
+    Записывается только выборка скачиваний (sampleRate), последние времена накапливаются в памяти
+    по файлам (PendingDeltas) и периодически записываются одним запросом (FileRepository.applyAccessTimes),
+    поэтому скачивание не обновляет строку файла
+ */
+@Service
+@RequiredArgsConstructor
+public class AccessTrackingService {
+    private final FileRepository fileRepository;
+    private final TieringProperties properties;
+    private final StorageTierMetric metric;
+    private final MetadataShards metadataShards;
+    private final TransactionTemplate transactionTemplate;
+    private final DateTimeUtil dateTimeUtil;
+
+    private final PendingDeltas<UUID, Instant> pending = new PendingDeltas<>("file access times",
+            (current, value) -> value.isAfter(current) ? value : current, this::write);
+
+    public void recordAccess(UUID fileId) {
+        if (ThreadLocalRandom.current().nextDouble() >= properties.sampleRate()) {
+            return;
+        }
+        pending.record(metadataShards.current(), fileId, dateTimeUtil.now());
+        metric.incrementSampledAccesses();
+    }
+
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${application.tiering.flush-interval}")
+    public void flush() {
+        pending.flush(metadataShards);
+    }
+
+    private void write(List<UUID> ids, List<Instant> accessed) {
+        transactionTemplate.executeWithoutResult(status -> fileRepository.applyAccessTimes(
+                ids.toArray(UUID[]::new), accessed.toArray(Instant[]::new)));
+    }
+}
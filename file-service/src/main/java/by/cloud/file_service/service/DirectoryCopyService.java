@@ -0,0 +1,195 @@
+package by.cloud.file_service.service;
+
+import by.cloud.directory.dto.DirectoryCopyDto;
+import by.cloud.directory.dto.DirectoryCopyRequestDto;
+import by.cloud.file_service.config.CopyProperties;
+import by.cloud.file_service.entity.CopyTask;
+import by.cloud.file_service.entity.CopyTaskStatus;
+import by.cloud.file_service.entity.File;
+import by.cloud.file_service.entity.StorageTier;
+import by.cloud.file_service.exception.DirectoryConflictException;
+import by.cloud.file_service.exception.FileException;
+import by.cloud.file_service.job.DirectoryCopyJobHandler;
+import by.cloud.file_service.job.JobQueueService;
+import by.cloud.file_service.mapper.DirectoryMapper;
+import by.cloud.file_service.metric.FileCopyMetric;
+import by.cloud.file_service.repository.CopyTaskRepository;
+import by.cloud.file_service.repository.DirectoryRepository;
+import by.cloud.file_service.repository.FileRepository;
+import by.cloud.file_service.repository.projection.CopySourceView;
+import by.cloud.file_service.util.DateTimeUtil;
+import by.cloud.file_service.util.UuidV7;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/*
+    Копирование каталога без передачи содержимого файлов через сервис.
+    Поддерево каталогов копируется сразу одним запросом, файлы - в фоне (DirectoryCopyJobHandler) пачками:
+    объекты копируются внутри MinIO (copyObject), строки файлов пачки сохраняются сущностями: вставки уходят
+    пакетами JDBC (hibernate.jdbc.batch_size), а история копий пишется Envers (AuditEventListener) как при загрузке.
+    Прогресс и позиция хранятся в строке file.copy_tasks, поэтому повтор задачи продолжает с места остановки
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DirectoryCopyService {
+    private static final UUID START_CURSOR = new UUID(0, 0);
+
+    private final CopyTaskRepository copyTaskRepository;
+    private final DirectoryRepository directoryRepository;
+    private final FileRepository fileRepository;
+    private final ObjectStorageService objectStorageService;
+    private final StorageShardRegistry shardRegistry;
+    private final PreviewService previewService;
+    private final JobQueueService jobQueueService;
+    private final UsageService usageService;
+    private final DirectoryStatsService directoryStatsService;
+    private final DirectoryMapper directoryMapper;
+    private final CopyProperties properties;
+    private final FileCopyMetric metric;
+    private final DateTimeUtil dateTimeUtil;
+
+    @Transactional
+    public DirectoryCopyDto startCopy(UUID id, DirectoryCopyRequestDto dto) {
+        var source = directoryRepository.findById(id)
+                .orElseThrow(() -> new FileException("Directory not found by id=[%s]", id));
+        var parent = directoryRepository.findById(dto.getParentId())
+                .orElseThrow(() -> new FileException("Directory not found by id=[%s]", dto.getParentId()));
+        if (!parent.getUserId().equals(source.getUserId())) {
+            throw new FileException("Directory does not belong to user %s", source.getUserId());
+        }
+        var name = dto.getName() != null && !dto.getName().isBlank() ? dto.getName() : source.getName();
+        if (directoryRepository.existsByParentIdAndName(parent.getId(), name)) {
+            throw new DirectoryConflictException("Directory [%s] already exists in parent [%s]", name, parent.getId());
+        }
+        // Агрегаты могут отставать на интервал сброса, для проверки квоты этого достаточно
+        usageService.checkQuota(source.getUserId(), source.getStats().getRecursiveTotalBytes());
+
+        var now = dateTimeUtil.now();
+        var task = new CopyTask();
+        task.setId(UuidV7.generate());
+        task.setUserId(source.getUserId());
+        task.setSourceDirectoryId(source.getId());
+        task.setTargetDirectoryId(UuidV7.generate());
+        task.setStatus(CopyTaskStatus.RUNNING);
+        task.setTotalFiles(0L);
+        task.setTotalBytes(0L);
+        task.setCopiedFiles(0L);
+        task.setCopiedBytes(0L);
+        task.setCursor(START_CURSOR);
+        task.setCreated(now);
+        task.setUpdated(now);
+        copyTaskRepository.saveAndFlush(task);
+
+        var directories = copyTaskRepository.copySubtreeDirectories(task.getId(), source.getId(),
+                task.getTargetDirectoryId(), parent.getId(), name, source.getUserId(), now);
+        copyTaskRepository.countTotals(task.getId());
+        metric.recordDirectories(directories);
+        // Задача появится в очереди только вместе с фиксацией скопированного поддерева
+        jobQueueService.enqueue(DirectoryCopyJobHandler.TYPE, new DirectoryCopyJobHandler.Payload(task.getId()));
+
+        log.info("IN - startCopy: directory [{}] copied to [{}] with [{}] directories, task [{}] started",
+                id, task.getTargetDirectoryId(), directories, task.getId());
+        return findCopy(task.getId());
+    }
+
+    public DirectoryCopyDto findCopy(UUID taskId) {
+        var task = copyTaskRepository.findById(taskId)
+                .orElseThrow(() -> new FileException("Copy task not found by id=[%s]", taskId));
+        return directoryMapper.from(task);
+    }
+
+    /*
+        Копирует следующую пачку файлов. Возвращает true, если файлы еще остались.
+        Вызывается в транзакции; объекты, скопированные до сбоя транзакции, удаляет сверка с MinIO
+     */
+    public boolean copyBatch(UUID taskId) {
+        var task = copyTaskRepository.lockById(taskId).orElse(null);
+        if (task == null) {
+            log.debug("IN - copyBatch: task [{}] is processed by another worker", taskId);
+            return false;
+        }
+        if (task.getStatus() != CopyTaskStatus.RUNNING) {
+            return false;
+        }
+
+        var sources = copyTaskRepository.findNextSources(taskId, task.getCursor(), task.getCreated(), properties.batchSize());
+        var now = dateTimeUtil.now();
+        List<File> copies = new ArrayList<>(sources.size());
+        for (var source : sources) {
+            var objectName = UUID.randomUUID().toString();
+            var shard = shardRegistry.locate(objectName);
+            // Копия создается в основном бакете независимо от уровня исходного объекта
+            if (!objectStorageService.copyObject(source.getShard(), source.getTier(), source.getObjectName(),
+                    shard, StorageTier.HOT, objectName)) {
+                log.warn("IN - copyBatch: object of file [{}] not found, file skipped", source.getId());
+                continue;
+            }
+            previewService.copyPreviews(source.getShard(), source.getObjectName(), shard, objectName);
+            copies.add(copyOf(source, objectName, shard, now));
+        }
+        fileRepository.saveAll(copies);
+
+        long files = copies.size();
+        long bytes = 0;
+        for (var copy : copies) {
+            bytes += copy.getFileSize();
+            directoryStatsService.recordFileAdded(copy.getUserId(), copy.getDirectory().getId(), copy.getFileSize());
+        }
+        if (files > 0) {
+            usageService.recordDelta(task.getUserId(), bytes, files);
+        }
+        metric.recordFiles(files, bytes);
+        task.setCopiedFiles(task.getCopiedFiles() + files);
+        task.setCopiedBytes(task.getCopiedBytes() + bytes);
+        if (!sources.isEmpty()) {
+            task.setCursor(sources.getLast().getId());
+        }
+        if (sources.size() < properties.batchSize()) {
+            task.setStatus(CopyTaskStatus.COMPLETED);
+            copyTaskRepository.deleteDirectoryMapping(taskId);
+            log.info("IN - copyBatch: task [{}] completed, copied [{}] of [{}] files",
+                    taskId, task.getCopiedFiles(), task.getTotalFiles());
+        }
+        task.setUpdated(now);
+        copyTaskRepository.save(task);
+        return task.getStatus() == CopyTaskStatus.RUNNING;
+    }
+
+    private File copyOf(CopySourceView source, String objectName, String shard, Instant now) {
+        var file = new File();
+        file.setUserId(source.getUserId());
+        // Каталог-копия не загружается: нужна только ссылка для directory_id
+        file.setDirectory(directoryRepository.getReferenceById(source.getTargetDirectoryId()));
+        file.setFileName(source.getFileName());
+        file.setObjectName(objectName);
+        file.setFileSize(source.getFileSize());
+        file.setMimeType(source.getMimeType());
+        file.setCurrentVersion(1);
+        file.setTier(StorageTier.HOT);
+        file.setShard(shard);
+        file.setActive(true);
+        file.setCreated(now);
+        file.setUpdated(now);
+        return file;
+    }
+
+    @Transactional
+    public void markFailed(UUID taskId, String error) {
+        copyTaskRepository.findById(taskId).ifPresent(task -> {
+            task.setStatus(CopyTaskStatus.FAILED);
+            task.setError(error);
+            task.setUpdated(dateTimeUtil.now());
+            copyTaskRepository.save(task);
+            copyTaskRepository.deleteDirectoryMapping(taskId);
+        });
+        log.error("IN - markFailed: copy task [{}] failed: {}", taskId, error);
+    }
+}
@@ -4,18 +4,27 @@ import by.cloud.directory.dto.DirectoryDto;
 import by.cloud.directory.dto.DirectoryPageDto;
 import by.cloud.directory.dto.DirectoryWriteDto;
 import by.cloud.directory.dto.DirectoryWriteResponseDto;
+import by.cloud.directory.dto.PathSegmentDto;
+import by.cloud.directory.dto.ResolvedPathDto;
 import by.cloud.file_service.entity.Directory;
 import by.cloud.file_service.exception.DirectoryConflictException;
 import by.cloud.file_service.exception.FileException;
+import by.cloud.file_service.job.DirectoryContentDeleteJobHandler;
+import by.cloud.file_service.job.JobQueueService;
 import by.cloud.file_service.mapper.DirectoryMapper;
 import by.cloud.file_service.repository.DirectoryRepository;
-import jakarta.transaction.Transactional;
+import by.cloud.file_service.repository.projection.PathSegmentView;
+import by.cloud.file_service.util.DateTimeUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
 import java.util.UUID;
 
 @Slf4j
@@ -25,6 +34,10 @@ import java.util.UUID;
 public class DirectoryService {
     private final DirectoryMapper directoryMapper;
     private final DirectoryRepository directoryRepository;
+    private final JobQueueService jobQueueService;
+    private final DirectoryStatsService directoryStatsService;
+    private final DateTimeUtil dateTimeUtil;
+    private final UserShardService userShardService;
 
     @Transactional
     public DirectoryWriteResponseDto createBaseDirectory(UUID userId) {
@@ -56,6 +69,7 @@ public class DirectoryService {
             // Устанавливаем корневую директорию как родительскую
             dto.setParentId(baseDirectory.getId());
         }
+        checkNameIsFree(dto.getParentId(), dto.getName());
         
         var directory = directoryMapper.to(dto);
         directoryRepository.save(directory);
@@ -65,6 +79,7 @@ public class DirectoryService {
         return new DirectoryWriteResponseDto(directory.getId());
     }
 
+    @Transactional(readOnly = true)
     public DirectoryDto findById(UUID id) {
         var directory = directoryRepository.findById(id)
                 .orElseThrow(() -> new FileException("Directory not found by id=[%s]", id));
@@ -73,6 +88,21 @@ public class DirectoryService {
         return directoryDto;
     }
 
+    /*
+        Каталоги пакета могут принадлежать разным пользователям, поэтому запрос выполняется на каждом шарде
+     */
+    public DirectoryPageDto findAllByIds(List<UUID> ids) {
+        var idArray = ids.stream().distinct().toArray(UUID[]::new);
+        var directories = userShardService.findOwned(() -> directoryRepository.findAllActiveByIds(idArray).stream()
+                .map(directoryMapper::from)
+                .toList(), DirectoryDto::getUserId);
+        var pageDto = new DirectoryPageDto();
+        pageDto.setItems(directories);
+        log.info("IN - findAllByIds: found [{}] of [{}] requested directories", directories.size(), ids.size());
+        return pageDto;
+    }
+
+    @Transactional(readOnly = true)
     public DirectoryPageDto findAllDirectories(UUID userId, UUID parentId) {
         // Если parentId не указан, находим корневую директорию пользователя
         // и используем её ID для поиска дочерних директорий
@@ -107,8 +137,18 @@ public class DirectoryService {
     public DirectoryWriteResponseDto updateDirectory(UUID id, DirectoryWriteDto dto) {
         var directory = directoryRepository.findById(id)
                 .orElseThrow(() -> new FileException("Directory not found by id=[%s]", id));
+        if (!Objects.equals(directory.getParentId(), dto.getParentId())
+                || !Objects.equals(directory.getName(), dto.getName())) {
+            checkNameIsFree(dto.getParentId(), dto.getName());
+        }
+        var previousParentId = directory.getParentId();
         directoryMapper.update(directory, dto);
         directoryRepository.save(directory);
+        if (!Objects.equals(previousParentId, directory.getParentId())) {
+            // Агрегаты поддерева переносятся из старой цепочки предков в новую
+            directoryStatsService.recordSubtreeDetached(directory, previousParentId);
+            directoryStatsService.recordSubtreeAttached(directory, directory.getParentId());
+        }
         
         log.info("IN - updateDirectory: directory with id = [{}] successfully updated", id);
         return new DirectoryWriteResponseDto(directory.getId());
@@ -119,8 +159,71 @@ public class DirectoryService {
         var directory = directoryRepository.findById(id)
                 .orElseThrow(() -> new FileException("Directory not found by id=[%s]", id));
         directory.setActive(false);
+        directory.setUpdated(dateTimeUtil.now());
         directoryRepository.save(directory);
+        directoryStatsService.recordSubtreeDetached(directory, directory.getParentId());
+        // Содержимое каталога удаляется в фоне, задача фиксируется вместе с удалением каталога
+        jobQueueService.enqueue(DirectoryContentDeleteJobHandler.TYPE,
+                new DirectoryContentDeleteJobHandler.Payload(directory.getId()));
         
         log.info("IN - deleteDirectory: directory with id = [{}] successfully deleted", id);
     }
+
+    @Transactional(readOnly = true)
+    public ResolvedPathDto resolvePath(UUID userId, String path) {
+        var segments = splitPath(path);
+        var chain = directoryRepository.resolvePath(userId, String.join("/", segments));
+        if (chain.isEmpty()) {
+            throw new FileException("Base directory not found for user [%s]", userId);
+        }
+
+        var directories = chain.stream()
+                .filter(segment -> ResolvedPathDto.TypeEnum.DIRECTORY.getValue().equals(segment.getType()))
+                .toList();
+        var deepest = directories.getLast();
+
+        PathSegmentView target;
+        if (deepest.getDepth() == segments.length) {
+            target = deepest;
+        } else {
+            target = chain.stream()
+                    .filter(segment -> ResolvedPathDto.TypeEnum.FILE.getValue().equals(segment.getType()))
+                    .findFirst()
+                    .orElseThrow(() -> new FileException("Path [%s] not found for user [%s]", path, userId));
+        }
+
+        var ancestors = directories.stream()
+                .filter(segment -> segment.getDepth() < target.getDepth())
+                .map(segment -> new PathSegmentDto(segment.getId(), segment.getName()))
+                .toList();
+
+        var resolvedPathDto = new ResolvedPathDto();
+        resolvedPathDto.setType(ResolvedPathDto.TypeEnum.fromValue(target.getType()));
+        resolvedPathDto.setId(target.getId());
+        resolvedPathDto.setName(target.getName());
+        resolvedPathDto.setDirectoryId(target.getParentId());
+        resolvedPathDto.setAncestors(ancestors);
+
+        log.info("IN - resolvePath: path [{}] resolved to {} with id = [{}] for userId=[{}]",
+                path, target.getType(), target.getId(), userId);
+        return resolvedPathDto;
+    }
+
+    private void checkNameIsFree(UUID parentId, String name) {
+        if (parentId != null && directoryRepository.existsByParentIdAndName(parentId, name)) {
+            throw new DirectoryConflictException("Directory [%s] already exists in parent [%s]", name, parentId);
+        }
+    }
+
+    private static String[] splitPath(String path) {
+        var segments = Arrays.stream(path.split("/"))
+                .filter(segment -> !segment.isBlank())
+                .toArray(String[]::new);
+        for (var segment : segments) {
+            if (segment.equals(".") || segment.equals("..")) {
+                throw new FileException("Relative segments are not allowed in path [%s]", path);
+            }
+        }
+        return segments;
+    }
 }
@@ -0,0 +1,102 @@
+package by.cloud.file_service.service;
+
+import by.cloud.file_service.datasource.MetadataShards;
+import by.cloud.file_service.entity.Directory;
+import by.cloud.file_service.repository.DirectoryRepository;
+import by.cloud.file_service.repository.projection.RemovedFilesView;
+import by.cloud.file_service.util.DateTimeUtil;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/*
+    Инкрементальное обновление агрегатов каталогов (количество файлов, размер, время изменения).
+    Изменения накапливаются в памяти по каталогам (PendingDeltas) и периодически применяются одним запросом,
+    который поднимает их по цепочке предков (DirectoryRepository.applyStatsDeltas).
+    Поэтому частые загрузки в один каталог не блокируют строки его предков на каждой операции
+ */
+@Service
+@RequiredArgsConstructor
+public class DirectoryStatsService {
+    private final DirectoryRepository directoryRepository;
+    private final MetadataShards metadataShards;
+    private final TransactionTemplate transactionTemplate;
+    private final DateTimeUtil dateTimeUtil;
+
+    private final PendingDeltas<UUID, Delta> pending = new PendingDeltas<>("directory stats deltas", Delta::plus,
+            this::write);
+
+    private record Delta(UUID userId, long directFiles, long directBytes, long subtreeFiles, long subtreeBytes,
+                         Instant modified) {
+        private Delta plus(Delta other) {
+            return new Delta(other.userId, directFiles + other.directFiles, directBytes + other.directBytes,
+                    subtreeFiles + other.subtreeFiles, subtreeBytes + other.subtreeBytes,
+                    other.modified.isAfter(modified) ? other.modified : modified);
+        }
+    }
+
+    /*
+        userId - владелец каталога, по нему запрос сброса выбирает секцию таблицы каталогов
+     */
+    public void recordFileAdded(UUID userId, UUID directoryId, long bytes) {
+        record(userId, directoryId, 1, bytes, 1, bytes);
+    }
+
+    public void recordFileRemoved(UUID userId, UUID directoryId, long bytes) {
+        record(userId, directoryId, -1, -bytes, -1, -bytes);
+    }
+
+    public void recordRemoved(Collection<? extends RemovedFilesView> removed) {
+        removed.forEach(item -> record(item.getUserId(), item.getDirectoryId(), -item.getFiles(), -item.getBytes(),
+                -item.getFiles(), -item.getBytes()));
+    }
+
+    /*
+        Поддерево каталога directory перестало быть частью родителя parentId (перемещение или удаление)
+     */
+    public void recordSubtreeDetached(Directory directory, UUID parentId) {
+        var stats = directory.getStats();
+        if (parentId == null || stats == null) {
+            return;
+        }
+        record(directory.getUserId(), parentId, 0, 0, -stats.getRecursiveFileCount(), -stats.getRecursiveTotalBytes());
+    }
+
+    public void recordSubtreeAttached(Directory directory, UUID parentId) {
+        var stats = directory.getStats();
+        if (parentId == null || stats == null) {
+            return;
+        }
+        record(directory.getUserId(), parentId, 0, 0, stats.getRecursiveFileCount(), stats.getRecursiveTotalBytes());
+    }
+
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${application.directory-stats.flush-interval}")
+    public void flush() {
+        pending.flush(metadataShards);
+    }
+
+    private void write(List<UUID> ids, List<Delta> deltas) {
+        transactionTemplate.executeWithoutResult(status -> directoryRepository.applyStatsDeltas(
+                ids.toArray(UUID[]::new),
+                deltas.stream().map(Delta::userId).toArray(UUID[]::new),
+                deltas.stream().map(Delta::directFiles).toArray(Long[]::new),
+                deltas.stream().map(Delta::directBytes).toArray(Long[]::new),
+                deltas.stream().map(Delta::subtreeFiles).toArray(Long[]::new),
+                deltas.stream().map(Delta::subtreeBytes).toArray(Long[]::new),
+                deltas.stream().map(Delta::modified).toArray(Instant[]::new)));
+    }
+
+    private void record(UUID userId, UUID directoryId, long directFiles, long directBytes, long subtreeFiles,
+                        long subtreeBytes) {
+        pending.record(metadataShards.current(), directoryId,
+                new Delta(userId, directFiles, directBytes, subtreeFiles, subtreeBytes, dateTimeUtil.now()));
+    }
+}
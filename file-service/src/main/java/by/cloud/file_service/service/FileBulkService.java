@@ -0,0 +1,153 @@
+package by.cloud.file_service.service;
+
+import by.cloud.file.dto.FileBulkItemResultDto;
+import by.cloud.file.dto.FileBulkOperationDto;
+import by.cloud.file.dto.FileBulkResultDto;
+import by.cloud.file_service.entity.Directory;
+import by.cloud.file_service.entity.File;
+import by.cloud.file_service.repository.DirectoryRepository;
+import by.cloud.file_service.repository.FileRepository;
+import by.cloud.file_service.util.DateTimeUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/*
+    Массовые операции с файлами пользователя (удаление, перенос, переименование) одной транзакцией.
+    Файлы и каталоги назначения читаются из секции пользователя двумя запросами user_id = ? AND id = ANY(?),
+    изменения сущностей отправляются пакетами UPDATE (hibernate.jdbc.batch_size, order_updates), история пишется Envers одной ревизией.
+    Ошибка операции не отменяет остальные: результат возвращается для каждой операции.
+    Повторная операция с тем же файлом отклоняется, чтобы результат не зависел от порядка операций
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FileBulkService {
+    private final FileRepository fileRepository;
+    private final DirectoryRepository directoryRepository;
+    private final UsageService usageService;
+    private final DirectoryStatsService directoryStatsService;
+    private final FileMetadataCache fileMetadataCache;
+    private final DateTimeUtil dateTimeUtil;
+
+    @Transactional
+    public FileBulkResultDto apply(UUID userId, List<FileBulkOperationDto> operations) {
+        var files = fileRepository.findAllActiveByUserIdAndIds(userId, operations.stream()
+                        .map(FileBulkOperationDto::getId)
+                        .distinct()
+                        .toArray(UUID[]::new)).stream()
+                .collect(Collectors.toMap(File::getId, Function.identity()));
+        var directories = directoryRepository.findAllActiveByUserIdAndIds(userId, operations.stream()
+                        .filter(operation -> operation.getType() == FileBulkOperationDto.TypeEnum.MOVE)
+                        .map(FileBulkOperationDto::getDirectoryId)
+                        .filter(Objects::nonNull)
+                        .distinct()
+                        .toArray(UUID[]::new)).stream()
+                .collect(Collectors.toMap(Directory::getId, Function.identity()));
+
+        var now = dateTimeUtil.now();
+        Set<UUID> seen = new HashSet<>();
+        List<UUID> changed = new ArrayList<>();
+        List<FileBulkItemResultDto> items = new ArrayList<>(operations.size());
+        long removedBytes = 0;
+        long removedFiles = 0;
+        for (var operation : operations) {
+            if (!seen.add(operation.getId())) {
+                items.add(result(operation, FileBulkItemResultDto.StatusEnum.INVALID, "Duplicate operation for file"));
+                continue;
+            }
+            var file = files.get(operation.getId());
+            if (file == null) {
+                items.add(result(operation, FileBulkItemResultDto.StatusEnum.NOT_FOUND, "File not found"));
+                continue;
+            }
+            var error = switch (operation.getType()) {
+                case DELETE -> delete(file, now);
+                case MOVE -> move(file, directories, operation.getDirectoryId(), now);
+                case RENAME -> rename(file, operation.getFileName(), now);
+            };
+            if (error != null) {
+                items.add(result(operation, FileBulkItemResultDto.StatusEnum.INVALID, error));
+                continue;
+            }
+            if (operation.getType() == FileBulkOperationDto.TypeEnum.DELETE) {
+                removedBytes += file.getFileSize();
+                removedFiles++;
+            }
+            changed.add(file.getId());
+            items.add(result(operation, FileBulkItemResultDto.StatusEnum.OK, null));
+        }
+
+        if (removedFiles > 0) {
+            usageService.recordDelta(userId, -removedBytes, -removedFiles);
+        }
+        fileMetadataCache.evictAll(changed);
+
+        log.info("IN - apply: [{}] of [{}] bulk operations applied to files of user [{}]",
+                changed.size(), operations.size(), userId);
+        var resultDto = new FileBulkResultDto();
+        resultDto.setItems(items);
+        return resultDto;
+    }
+
+    private String delete(File file, Instant now) {
+        file.setActive(false);
+        // От момента удаления отсчитывается срок хранения до физического удаления (см. FileGcService)
+        file.setUpdated(now);
+        directoryStatsService.recordFileRemoved(file.getUserId(), file.getDirectory().getId(), file.getFileSize());
+        return null;
+    }
+
+    private String move(File file, Map<UUID, Directory> directories, UUID directoryId, Instant now) {
+        if (directoryId == null) {
+            return "Directory is required";
+        }
+        var directory = directories.get(directoryId);
+        if (directory == null) {
+            return "Directory not found";
+        }
+        var source = file.getDirectory().getId();
+        if (source.equals(directoryId)) {
+            return null;
+        }
+        file.setDirectory(directory);
+        file.setUpdated(now);
+        directoryStatsService.recordFileRemoved(file.getUserId(), source, file.getFileSize());
+        directoryStatsService.recordFileAdded(file.getUserId(), directoryId, file.getFileSize());
+        return null;
+    }
+
+    private String rename(File file, String fileName, Instant now) {
+        if (fileName == null || fileName.isBlank()) {
+            return "File name is required";
+        }
+        if (fileName.length() > 255) {
+            return "File name is too long";
+        }
+        file.setFileName(fileName);
+        file.setUpdated(now);
+        return null;
+    }
+
+    private static FileBulkItemResultDto result(FileBulkOperationDto operation, FileBulkItemResultDto.StatusEnum status,
+                                                String error) {
+        var item = new FileBulkItemResultDto();
+        item.setId(operation.getId());
+        item.setType(FileBulkItemResultDto.TypeEnum.valueOf(operation.getType().name()));
+        item.setStatus(status);
+        item.setError(error);
+        return item;
+    }
+}
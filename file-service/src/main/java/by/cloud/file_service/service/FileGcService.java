@@ -0,0 +1,138 @@
+package by.cloud.file_service.service;
+
+import by.cloud.file_service.config.FileGcProperties;
+import by.cloud.file_service.datasource.MetadataShards;
+import by.cloud.file_service.metric.FileGcMetric;
+import by.cloud.file_service.repository.FileRepository;
+import by.cloud.file_service.repository.FileVersionRepository;
+import by.cloud.file_service.repository.projection.DeletedFileView;
+import by.cloud.file_service.repository.projection.VersionObjectView;
+import by.cloud.file_service.util.DateTimeUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/*
+    Физически удаляет файлы, помеченные как удаленные (active = false), по истечении срока хранения.
+    Каждая пачка обрабатывается в своей транзакции: строки блокируются через SKIP LOCKED,
+    объекты удаляются из MinIO одним запросом removeObjects (ObjectStorageService), затем удаляются строки.
+    Вместе с файлом удаляются его предыдущие версии. История изменений файла остается в file_history.files_history.
+    Файл, объекты которого не удалось удалить, откладывается на retryDelay (FileRepository.postponeDeletion)
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FileGcService {
+    private final FileRepository fileRepository;
+    private final FileVersionRepository fileVersionRepository;
+    private final ObjectStorageService objectStorageService;
+    private final PreviewService previewService;
+    private final FileGcProperties properties;
+    private final FileGcMetric metric;
+    private final MetadataShards metadataShards;
+    private final TransactionTemplate transactionTemplate;
+    private final DateTimeUtil dateTimeUtil;
+
+    private record SweptBatch(int locked, int removed) { }
+
+    @Scheduled(fixedDelayString = "${application.gc.interval}", initialDelayString = "${application.gc.interval}")
+    public void sweep() {
+        if (!properties.enabled()) {
+            return;
+        }
+        var threshold = dateTimeUtil.now().minus(properties.retention());
+        metadataShards.forEach(() -> sweepShard(threshold));
+        metric.setBacklog(metadataShards.sum(() -> fileRepository.countDeletedBefore(threshold)));
+    }
+
+    private void sweepShard(Instant threshold) {
+        int totalFiles = 0;
+        for (int i = 0; i < properties.maxBatchesPerRun(); i++) {
+            var batch = transactionTemplate.execute(status -> sweepBatch(threshold));
+            if (batch == null) {
+                break;
+            }
+            totalFiles += batch.removed();
+            // Неполная пачка заблокированных строк: очередь исчерпана. Ошибки удаления объектов
+            // не останавливают проход: такие строки отложены и не попадут в следующие пачки
+            if (batch.locked() < properties.batchSize()) {
+                break;
+            }
+        }
+
+        if (totalFiles > 0) {
+            log.info("IN - sweep: [{}] deleted files removed permanently on metadata shard [{}]",
+                    totalFiles, metadataShards.current());
+        }
+    }
+
+    private SweptBatch sweepBatch(Instant threshold) {
+        var start = System.nanoTime();
+        var batch = fileRepository.lockDeletedBatch(threshold, properties.batchSize());
+        if (batch.isEmpty()) {
+            return new SweptBatch(0, 0);
+        }
+
+        // Вместе с файлом удаляются объекты его предыдущих версий и превью, затем строки версий
+        var versions = fileVersionRepository.findObjectsByFileIds(batch.stream()
+                        .map(DeletedFileView::getId)
+                        .toArray(UUID[]::new)).stream()
+                .collect(Collectors.groupingBy(VersionObjectView::getFileId));
+        var failedObjects = objectStorageService.removeObjectsFromAllTiers(batch.stream()
+                .flatMap(file -> objectPlacements(file, versions))
+                .collect(Collectors.groupingBy(Map.Entry::getKey,
+                        Collectors.flatMapping(placement -> Stream.concat(Stream.of(placement.getValue()),
+                                previewService.previewObjectNames(placement.getValue()).stream()), Collectors.toList()))));
+        var removed = batch.stream()
+                .filter(file -> objectNames(file, versions).noneMatch(failedObjects::contains))
+                .toList();
+        if (!removed.isEmpty()) {
+            var removedIds = removed.stream().map(DeletedFileView::getId).toArray(UUID[]::new);
+            fileVersionRepository.deleteByFileIds(removedIds);
+            fileRepository.hardDeleteByIds(removedIds);
+        }
+        var failedIds = batch.stream()
+                .filter(file -> objectNames(file, versions).anyMatch(failedObjects::contains))
+                .map(DeletedFileView::getId)
+                .toArray(UUID[]::new);
+        if (failedIds.length > 0) {
+            // Строка снова попадет в очередь через retryDelay, после строк, удаленных раньше
+            fileRepository.postponeDeletion(failedIds, threshold.plus(properties.retryDelay()));
+        }
+
+        long bytes = removed.stream()
+                .mapToLong(file -> file.getFileSize() + versions.getOrDefault(file.getId(), List.of()).stream()
+                        .mapToLong(VersionObjectView::getFileSize)
+                        .sum())
+                .sum();
+        metric.recordBatch(removed.size(), bytes, failedObjects.size(), Duration.ofNanos(System.nanoTime() - start));
+        log.debug("IN - sweepBatch: removed [{}] files, [{}] bytes, [{}] objects failed",
+                removed.size(), bytes, failedObjects.size());
+        return new SweptBatch(batch.size(), removed.size());
+    }
+
+    private Stream<String> objectNames(DeletedFileView file, Map<UUID, List<VersionObjectView>> versions) {
+        return Stream.concat(Stream.of(file.getObjectName()),
+                versions.getOrDefault(file.getId(), List.of()).stream().map(VersionObjectView::getObjectName));
+    }
+
+    /*
+        Пары (шард, имя объекта): версии файла могут находиться на других шардах
+     */
+    private Stream<Map.Entry<String, String>> objectPlacements(DeletedFileView file,
+                                                               Map<UUID, List<VersionObjectView>> versions) {
+        return Stream.concat(Stream.of(Map.entry(file.getShard(), file.getObjectName())),
+                versions.getOrDefault(file.getId(), List.of()).stream()
+                        .map(version -> Map.entry(version.getShard(), version.getObjectName())));
+    }
+}
@@ -0,0 +1,172 @@
+package by.cloud.file_service.service;
+
+import by.cloud.file_service.config.MetadataCacheProperties;
+import by.cloud.file_service.entity.File;
+import by.cloud.file_service.entity.StorageTier;
+import by.cloud.file_service.metric.FileMetadataCacheMetric;
+import by.cloud.file_service.repository.FileRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/*
+    Кеш метаданных активных файлов по id (application.metadata-cache): чтение файла и его скачивание
+    не обращаются к базе, пока запись не вытеснена. Размер ограничен maximumSize, запись хранится не дольше ttl.
+
+    Запись удаляется после фиксации транзакции, изменившей файл: новое содержимое, удаление, перенос
+    между уровнями и шардами хранилища, удаление каталога с файлом. Удаление записи по id дожидается
+    загрузки того же id, начатой до фиксации (Caffeine), поэтому устаревшая строка в кеше не остается.
+    Другие экземпляры удаляют запись по сообщению MetadataCacheBroadcast, без него - по истечении ttl.
+    id файлов уникальны на всех шардах метаданных, поэтому шард в ключ не входит
+ */
+@Slf4j
+@Service
+public class FileMetadataCache {
+    private static final String FILES_MESSAGE = "files:";
+    private static final String DIRECTORIES_MESSAGE = "directories:";
+    // Сообщение NOTIFY ограничено 8000 байтами
+    private static final int IDS_PER_MESSAGE = 100;
+
+    private final FileRepository fileRepository;
+    private final ObjectOwnerService objectOwnerService;
+    private final MetadataCacheProperties properties;
+    private final MetadataCacheBroadcast broadcast;
+    private final FileMetadataCacheMetric metric;
+    private final Cache<UUID, FileMetadata> cache;
+
+    /*
+        Поля файла, нужные для ответа и чтения объекта
+     */
+    public record FileMetadata(UUID id, UUID userId, UUID directoryId, String fileName, Integer fileSize,
+                               String mimeType, Integer currentVersion, String objectName, String shard,
+                               StorageTier tier) { }
+
+    public FileMetadataCache(FileRepository fileRepository, ObjectOwnerService objectOwnerService,
+                             MetadataCacheProperties properties, MetadataCacheBroadcast broadcast,
+                             FileMetadataCacheMetric metric) {
+        this.fileRepository = fileRepository;
+        this.objectOwnerService = objectOwnerService;
+        this.properties = properties;
+        this.broadcast = broadcast;
+        this.metric = metric;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.maximumSize())
+                .expireAfterWrite(properties.ttl())
+                .recordStats()
+                .build();
+        metric.monitor(cache);
+        broadcast.subscribe(this::receive);
+    }
+
+    public Optional<FileMetadata> find(UUID id) {
+        if (!properties.enabled()) {
+            return load(id);
+        }
+        // Отсутствующий файл не кешируется
+        return Optional.ofNullable(cache.get(id, key -> load(key).orElse(null)));
+    }
+
+    public void evict(UUID id) {
+        evictAll(Set.of(id));
+    }
+
+    public void evictAll(Collection<UUID> ids) {
+        if (!properties.enabled() || ids.isEmpty()) {
+            return;
+        }
+        var evicted = Set.copyOf(ids);
+        afterCommit(() -> {
+            cache.invalidateAll(evicted);
+            publish(FILES_MESSAGE, evicted);
+        });
+    }
+
+    /*
+        Файлы каталогов, удаленных массовой операцией: id файлов неизвестны, записи выбираются по каталогу
+     */
+    public void evictDirectories(Collection<UUID> directoryIds) {
+        if (!properties.enabled() || directoryIds.isEmpty()) {
+            return;
+        }
+        var evicted = Set.copyOf(directoryIds);
+        afterCommit(() -> {
+            evictDirectoriesLocally(evicted);
+            publish(DIRECTORIES_MESSAGE, evicted);
+        });
+    }
+
+    /*
+        Строка читается с условием на владельца (одна секция таблицы файлов)
+     */
+    private Optional<FileMetadata> load(UUID id) {
+        return objectOwnerService.findOwner(ObjectOwnerService.Kind.FILE, id)
+                .flatMap(userId -> fileRepository.findByIdAndUserId(id, userId))
+                .map(this::toMetadata);
+    }
+
+    private FileMetadata toMetadata(File file) {
+        return new FileMetadata(file.getId(), file.getUserId(), file.getDirectory().getId(), file.getFileName(),
+                file.getFileSize(), file.getMimeType(), file.getCurrentVersion(), file.getObjectName(),
+                file.getShard(), file.getTier());
+    }
+
+    private void evictDirectoriesLocally(Set<UUID> directoryIds) {
+        cache.asMap().values().removeIf(file -> directoryIds.contains(file.directoryId()));
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private void publish(String prefix, Set<UUID> ids) {
+        if (!broadcast.isEnabled()) {
+            return;
+        }
+        var list = ids.stream().map(UUID::toString).toList();
+        for (int i = 0; i < list.size(); i += IDS_PER_MESSAGE) {
+            broadcast.publish(prefix + String.join(",", list.subList(i, Math.min(i + IDS_PER_MESSAGE, list.size()))));
+        }
+    }
+
+    private void receive(String message) {
+        Set<UUID> ids;
+        if (message.startsWith(FILES_MESSAGE)) {
+            ids = parseIds(message.substring(FILES_MESSAGE.length()));
+            cache.invalidateAll(ids);
+        } else if (message.startsWith(DIRECTORIES_MESSAGE)) {
+            ids = parseIds(message.substring(DIRECTORIES_MESSAGE.length()));
+            evictDirectoriesLocally(ids);
+        } else {
+            log.warn("IN - receive: unknown metadata cache message [{}]", message);
+            return;
+        }
+        metric.incrementRemoteInvalidations();
+        log.debug("IN - receive: [{}] metadata cache entries invalidated by another instance", ids.size());
+    }
+
+    private static Set<UUID> parseIds(String ids) {
+        return ids.isEmpty()
+                ? Set.of()
+                : Arrays.stream(ids.split(",")).map(UUID::fromString).collect(Collectors.toCollection(HashSet::new));
+    }
+}
@@ -1,40 +1,49 @@
 package by.cloud.file_service.service;
 
+import by.cloud.file.dto.FileBatchDto;
+import by.cloud.file.dto.FileCopyRequestDto;
 import by.cloud.file.dto.FileDeleteResponseDto;
 import by.cloud.file.dto.FileDto;
 import by.cloud.file.dto.FilePageDto;
+import by.cloud.file.dto.FileSearchPageDto;
 import by.cloud.file.dto.FileUploadResponseDto;
-import by.cloud.file_service.config.MinioConfig;
+import by.cloud.file.dto.FileVersionDto;
+import by.cloud.file.dto.FileVersionListDto;
+import by.cloud.file.dto.FolderViewDto;
 import by.cloud.file_service.entity.Directory;
 import by.cloud.file_service.entity.File;
+import by.cloud.file_service.entity.StorageTier;
 import by.cloud.file_service.exception.DirectoryConflictException;
 import by.cloud.file_service.exception.FileException;
+import by.cloud.file_service.job.FilePreviewJobHandler;
+import by.cloud.file_service.job.JobQueueService;
+import by.cloud.file_service.mapper.DirectoryMapper;
 import by.cloud.file_service.mapper.FileMapper;
+import by.cloud.file_service.metric.FileCopyMetric;
 import by.cloud.file_service.repository.DirectoryRepository;
 import by.cloud.file_service.repository.FileRepository;
+import by.cloud.file_service.repository.filter.FileSearchFilter;
 import by.cloud.file_service.util.DateTimeUtil;
-import io.minio.BucketExistsArgs;
-import io.minio.GetObjectArgs;
-import io.minio.GetPresignedObjectUrlArgs;
-import io.minio.MakeBucketArgs;
-import io.minio.MinioClient;
-import io.minio.PutObjectArgs;
-import io.minio.errors.MinioException;
-import io.minio.http.Method;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.io.InputStreamResource;
 import org.springframework.core.io.Resource;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
@@ -43,10 +52,22 @@ public class FileService {
     private final FileRepository fileRepository;
     private final DirectoryRepository directoryRepository;
     private final DirectoryService directoryService;
-    private final MinioClient minioClient;
-    private final MinioConfig minioConfig;
     private final FileMapper fileMapper;
+    private final DirectoryMapper directoryMapper;
     private final DateTimeUtil dateTimeUtil;
+    private final PreviewService previewService;
+    private final JobQueueService jobQueueService;
+    private final UsageService usageService;
+    private final DirectoryStatsService directoryStatsService;
+    private final FileVersionService fileVersionService;
+    private final ObjectStorageService objectStorageService;
+    private final StorageShardRegistry shardRegistry;
+    private final FileCopyMetric fileCopyMetric;
+    private final AccessTrackingService accessTrackingService;
+    private final StorageTieringService storageTieringService;
+    private final FileMetadataCache fileMetadataCache;
+    private final UserShardService userShardService;
+    private final ObjectOwnerService objectOwnerService;
 
     @Transactional
     public FileUploadResponseDto upload(List<MultipartFile> files, UUID userId, UUID folderId) {
@@ -79,6 +100,9 @@ public class FileService {
         }
 
 
+        // Квота проверяется до записи объектов в MinIO
+        usageService.checkQuota(userId, files.stream().mapToLong(MultipartFile::getSize).sum());
+
         List<FileDto> uploadedFiles = new ArrayList<>();
 
         for (MultipartFile multipartFile : files) {
@@ -114,31 +138,13 @@ public class FileService {
             fileName = "unnamed_file";
         }
 
-        // Проверяем и создаем bucket, если его нет
-        ensureBucketExists();
-        
+        // Шард объекта определяется по кольцу размещения и записывается в строку файла
+        String shard = shardRegistry.locate(objectName);
+
         // Загружаем файл в MinIO
         try (InputStream inputStream = multipartFile.getInputStream()) {
-            minioClient.putObject(
-                    PutObjectArgs.builder()
-                            .bucket(minioConfig.getBucket())
-                            .object(objectName)
-                            .stream(inputStream, multipartFile.getSize(), -1)
-                            .contentType(multipartFile.getContentType())
-                            .build()
-            );
-            String presignedObjectUrl = minioClient.getPresignedObjectUrl(
-                    GetPresignedObjectUrlArgs.builder()
-                            .method(Method.GET)
-                            .bucket(minioConfig.getBucket())
-                            .object(objectName)
-                            .expiry(24 * 60 * 60)
-                            .build()
-            );
-            System.out.println(presignedObjectUrl);
-        } catch (MinioException e) {
-            log.error("MinIO error while uploading file: {}", fileName, e);
-            throw new FileException("Failed to upload file to MinIO: %s", e.getMessage());
+            objectStorageService.putObject(shard, objectName, inputStream, multipartFile.getSize(),
+                    multipartFile.getContentType());
         }
 
         // Сохраняем метаданные в БД
@@ -149,29 +155,187 @@ public class FileService {
         file.setObjectName(objectName);
         file.setFileSize((int) multipartFile.getSize());
         file.setMimeType(multipartFile.getContentType() != null ? multipartFile.getContentType() : "application/octet-stream");
+        file.setCurrentVersion(1);
+        file.setTier(StorageTier.HOT);
+        file.setShard(shard);
+        file.setActive(true);
+        file.setCreated(dateTimeUtil.now());
+        file.setUpdated(dateTimeUtil.now());
+        fileRepository.save(file);
+        usageService.recordDelta(userId, file.getFileSize(), 1);
+        directoryStatsService.recordFileAdded(file.getUserId(), directory.getId(), file.getFileSize());
+
+        if (previewService.isSupported(file.getMimeType())) {
+            jobQueueService.enqueue(FilePreviewJobHandler.TYPE, new FilePreviewJobHandler.Payload(file.getId()));
+        }
+        return file;
+    }
+
+    /*
+        Копия файла: объект копируется внутри MinIO, содержимое не передается через сервис.
+        Копируется только текущая версия содержимого
+     */
+    @Transactional
+    public FileDto copyFile(UUID id, FileCopyRequestDto dto) {
+        var source = findFile(id);
+        var directory = dto.getDirectoryId() == null
+                ? source.getDirectory()
+                : directoryRepository.findById(dto.getDirectoryId())
+                        .orElseThrow(() -> new FileException("Directory with id %s not found", dto.getDirectoryId()));
+        if (!directory.getUserId().equals(source.getUserId())) {
+            throw new FileException("Directory does not belong to user %s", source.getUserId());
+        }
+        usageService.checkQuota(source.getUserId(), source.getFileSize());
+
+        String objectName = UUID.randomUUID().toString();
+        String shard = shardRegistry.locate(objectName);
+        if (!objectStorageService.copyObject(source.getShard(), source.getTier(), source.getObjectName(),
+                shard, StorageTier.HOT, objectName)) {
+            throw new FileException("Object of file [%s] not found", id);
+        }
+        var previewsCopied = previewService.copyPreviews(source.getShard(), source.getObjectName(), shard, objectName);
+
+        File file = new File();
+        file.setUserId(source.getUserId());
+        file.setDirectory(directory);
+        file.setFileName(dto.getFileName() != null && !dto.getFileName().isBlank() ? dto.getFileName() : source.getFileName());
+        file.setObjectName(objectName);
+        file.setFileSize(source.getFileSize());
+        file.setMimeType(source.getMimeType());
+        file.setCurrentVersion(1);
+        file.setTier(StorageTier.HOT);
+        file.setShard(shard);
         file.setActive(true);
         file.setCreated(dateTimeUtil.now());
         file.setUpdated(dateTimeUtil.now());
+        fileRepository.save(file);
+        usageService.recordDelta(file.getUserId(), file.getFileSize(), 1);
+        directoryStatsService.recordFileAdded(file.getUserId(), directory.getId(), file.getFileSize());
+        fileCopyMetric.recordFiles(1, file.getFileSize());
+
+        // Превью исходного файла могло быть еще не создано
+        if (!previewsCopied && previewService.isSupported(file.getMimeType())) {
+            jobQueueService.enqueue(FilePreviewJobHandler.TYPE, new FilePreviewJobHandler.Payload(file.getId()));
+        }
+
+        log.info("IN - copyFile: file with id = [{}] copied to [{}] in directory [{}]", id, file.getId(), directory.getId());
+        var fileDto = fileMapper.toDto(file);
+        fileDto.setDownloadUrl(generateDownloadUrl(file.getId()));
+        return fileDto;
+    }
+
+    /*
+        Новая версия содержимого: объект загружается под новым именем, прежний объект
+        остается в MinIO и ссылается из file.file_versions
+     */
+    @Transactional
+    public FileDto uploadContent(UUID id, MultipartFile multipartFile) {
+        if (multipartFile.isEmpty()) {
+            throw new FileException("Content of file [%s] is empty", id);
+        }
+        var userId = objectOwnerService.findOwner(ObjectOwnerService.Kind.FILE, id)
+                .orElseThrow(() -> new FileException("File not found by id=[%s]", id));
+        var file = fileRepository.findByIdForUpdate(id, userId)
+                .orElseThrow(() -> new FileException("File not found by id=[%s]", id));
+
+        // В квоте учитывается только текущее содержимое, предыдущие версии ограничены политикой хранения
+        long bytesDelta = multipartFile.getSize() - file.getFileSize();
+        if (bytesDelta > 0) {
+            usageService.checkQuota(file.getUserId(), bytesDelta);
+        }
+
+        String objectName = UUID.randomUUID().toString();
+        String shard = shardRegistry.locate(objectName);
+        try (InputStream inputStream = multipartFile.getInputStream()) {
+            objectStorageService.putObject(shard, objectName, inputStream, multipartFile.getSize(),
+                    multipartFile.getContentType());
+        } catch (Exception e) {
+            log.error("Error uploading content of file: {}", id, e);
+            throw new FileException("Failed to upload content of file %s: %s", id, e.getMessage());
+        }
+
+        fileVersionService.archive(file);
+        // Новое содержимое записано в основной бакет шарда по кольцу, прежнее остается на своем месте
+        // как предыдущая версия
+        if (file.getTier() != StorageTier.HOT || !file.getShard().equals(shard)) {
+            fileRepository.updatePlacement(id, userId, shard, StorageTier.HOT.name());
+            file.setShard(shard);
+            file.setTier(StorageTier.HOT);
+        }
+        var previousSize = file.getFileSize();
+        file.setObjectName(objectName);
+        file.setFileSize((int) multipartFile.getSize());
+        file.setMimeType(multipartFile.getContentType() != null ? multipartFile.getContentType() : "application/octet-stream");
+        file.setCurrentVersion(file.getCurrentVersion() + 1);
+        file.setUpdated(dateTimeUtil.now());
+        fileRepository.save(file);
+        fileMetadataCache.evict(id);
+        usageService.recordDelta(file.getUserId(), bytesDelta, 0);
+        directoryStatsService.recordFileRemoved(file.getUserId(), file.getDirectory().getId(), previousSize);
+        directoryStatsService.recordFileAdded(file.getUserId(), file.getDirectory().getId(), file.getFileSize());
+
+        if (previewService.isSupported(file.getMimeType())) {
+            jobQueueService.enqueue(FilePreviewJobHandler.TYPE, new FilePreviewJobHandler.Payload(file.getId()));
+        }
+
+        log.info("IN - uploadContent: file with id = [{}] updated to version [{}]", id, file.getCurrentVersion());
+        var fileDto = fileMapper.toDto(file);
+        fileDto.setDownloadUrl(generateDownloadUrl(file.getId()));
+        return fileDto;
+    }
+
+    @Transactional(readOnly = true)
+    public FileVersionListDto findVersions(UUID id) {
+        var file = findFile(id);
+        var items = Stream.concat(
+                        Stream.of(fileMapper.toCurrentVersionDto(file)),
+                        fileVersionService.findVersions(id).stream().map(fileMapper::toVersionDto))
+                .toList();
 
-        return fileRepository.save(file);
+        var listDto = new FileVersionListDto();
+        listDto.setFileId(id);
+        listDto.setItems(items);
+        log.info("IN - findVersions: found [{}] versions of file [{}]", items.size(), id);
+        return listDto;
     }
 
-    private void ensureBucketExists() {
+    @Transactional(readOnly = true)
+    public FileVersionDto findVersion(UUID id, Integer version) {
+        var file = findFile(id);
+        if (file.getCurrentVersion().equals(version)) {
+            return fileMapper.toCurrentVersionDto(file);
+        }
+        return fileVersionService.findVersion(id, version)
+                .map(fileMapper::toVersionDto)
+                .orElseThrow(() -> new FileException("Version [%s] of file [%s] not found", version, id));
+    }
+
+    public Resource downloadVersion(UUID id, Integer version) {
+        var file = findFile(id);
+        String shard;
+        String objectName;
+        StorageTier tier;
+        if (file.getCurrentVersion().equals(version)) {
+            accessTrackingService.recordAccess(id);
+            shard = file.getShard();
+            objectName = file.getObjectName();
+            tier = storageTieringService.promote(id, file.getUserId(), file.getTier());
+        } else {
+            // Предыдущие версии читаются с того уровня, на котором сохранены
+            var fileVersion = fileVersionService.findVersion(id, version)
+                    .orElseThrow(() -> new FileException("Version [%s] of file [%s] not found", version, id));
+            shard = fileVersion.getShard();
+            objectName = fileVersion.getObjectName();
+            tier = fileVersion.getTier();
+        }
+
         try {
-            boolean found = minioClient.bucketExists(BucketExistsArgs.builder()
-                    .bucket(minioConfig.getBucket())
-                    .build());
-            
-            if (!found) {
-                log.warn("Bucket [{}] does not exist, creating it...", minioConfig.getBucket());
-                minioClient.makeBucket(MakeBucketArgs.builder()
-                        .bucket(minioConfig.getBucket())
-                        .build());
-                log.info("Bucket [{}] successfully created", minioConfig.getBucket());
-            }
+            InputStream inputStream = objectStorageService.getObject(shard, tier, objectName);
+            log.info("IN - downloadVersion: version [{}] of file [{}] successfully downloaded", version, id);
+            return new InputStreamResource(inputStream);
         } catch (Exception e) {
-            log.error("Error ensuring bucket [{}] exists: {}", minioConfig.getBucket(), e.getMessage());
-            throw new FileException("Failed to ensure MinIO bucket exists: %s", e.getMessage());
+            log.error("Error downloading version [{}] of file: {}", version, id, e);
+            throw new FileException("Failed to download file version: %s", e.getMessage());
         }
     }
 
@@ -182,18 +346,98 @@ public class FileService {
     }
 
     public FileDto findById(UUID id) {
-        var file = fileRepository.findById(id)
+        var file = fileMetadataCache.find(id)
                 .orElseThrow(() -> new FileException("File not found by id=[%s]", id));
-        if (!file.getActive()) {
-            throw new FileException("File not found by id=[%s]", id);
-        }
         log.info("IN - findById: file with id = [{}] successfully found", id);
         var fileDto = fileMapper.toDto(file);
-        fileDto.setDownloadUrl(generateDownloadUrl(file.getId()));
+        fileDto.setDownloadUrl(generateDownloadUrl(file.id()));
         return fileDto;
     }
 
-    public FilePageDto findAllByUserId(UUID userId, UUID folderId, Integer limit, Integer offset) {
+    /*
+        Файлы пакета могут принадлежать разным пользователям, поэтому запрос выполняется на каждом шарде
+     */
+    public FileBatchDto findAllByIds(List<UUID> ids) {
+        // Один запрос с id = ANY(?) вместо N обращений к findById
+        var idArray = ids.stream().distinct().toArray(UUID[]::new);
+        var items = userShardService.findOwned(() -> fileRepository.findAllActiveByIds(idArray).stream()
+                .map(file -> {
+                    var fileDto = fileMapper.toDto(file);
+                    fileDto.setDownloadUrl(generateDownloadUrl(file.getId()));
+                    return fileDto;
+                })
+                .toList(), FileDto::getUserId);
+
+        var batchDto = new FileBatchDto();
+        batchDto.setItems(items);
+        log.info("IN - findAllByIds: found [{}] of [{}] requested files", items.size(), ids.size());
+        return batchDto;
+    }
+
+    @Transactional(readOnly = true)
+    public FileSearchPageDto search(UUID userId, String query, Boolean prefix, String mimeType,
+                                    Long minSize, Long maxSize, OffsetDateTime updatedFrom, OffsetDateTime updatedTo,
+                                    UUID directoryId, Integer limit, String cursor) {
+        int actualLimit = (limit != null && limit > 0 && limit <= 100) ? limit : 50;
+
+        String afterFileName = null;
+        UUID afterId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            // Курсор - base64 от "<file_name>\n<id>" последнего элемента предыдущей страницы
+            try {
+                var decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                var separator = decoded.lastIndexOf('\n');
+                afterFileName = decoded.substring(0, separator);
+                afterId = UUID.fromString(decoded.substring(separator + 1));
+            } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+                throw new FileException("Invalid search cursor [%s]", cursor);
+            }
+        }
+
+        var filter = new FileSearchFilter(
+                userId,
+                query,
+                Boolean.TRUE.equals(prefix),
+                mimeType,
+                minSize,
+                maxSize,
+                updatedFrom != null ? updatedFrom.toInstant() : null,
+                updatedTo != null ? updatedTo.toInstant() : null,
+                directoryId,
+                afterFileName,
+                afterId,
+                actualLimit + 1
+        );
+        // Запрашиваем на один элемент больше, чтобы понять, есть ли следующая страница
+        var found = fileRepository.search(filter);
+        var hasMore = found.size() > actualLimit;
+        var page = hasMore ? found.subList(0, actualLimit) : found;
+
+        var items = page.stream()
+                .map(file -> {
+                    var fileDto = fileMapper.toDto(file);
+                    fileDto.setDownloadUrl(generateDownloadUrl(file.getId()));
+                    return fileDto;
+                })
+                .toList();
+
+        var pageDto = new FileSearchPageDto();
+        pageDto.setItems(items);
+        pageDto.setLimit(actualLimit);
+        if (hasMore) {
+            var last = page.getLast();
+            var rawCursor = last.getFileName() + "\n" + last.getId();
+            pageDto.setNextCursor(Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(rawCursor.getBytes(StandardCharsets.UTF_8)));
+        }
+
+        log.info("IN - search: found [{}] files for userId=[{}], query=[{}], directoryId=[{}], hasMore=[{}]",
+                items.size(), userId, query, directoryId, hasMore);
+        return pageDto;
+    }
+
+    @Transactional(readOnly = true)
+    public FilePageDto findAllByUserId(UUID userId, UUID folderId, Integer limit, Integer offset, UUID afterId) {
         int actualLimit = (limit != null && limit > 0 && limit <= 100) ? limit : 20;
         int actualOffset = (offset != null && offset >= 0) ? offset : 0;
 
@@ -214,6 +458,10 @@ public class FileService {
             actualFolderId = baseDirectory.getId();
         }
 
+        if (afterId != null) {
+            return findPageAfter(userId, actualFolderId, afterId, actualLimit);
+        }
+
         // Получаем файлы только из указанной директории (или корневой, если не указана)
         var allFiles = fileRepository.findByUserIdAndFolderId(userId, actualFolderId);
         
@@ -244,40 +492,102 @@ public class FileService {
         pageDto.setTotal(total);
         pageDto.setLimit(actualLimit);
         pageDto.setOffset(actualOffset);
+        // Файлы отсортированы по id, поэтому следующие страницы можно получать по курсору
+        if (!pagedFiles.isEmpty() && actualOffset + pagedFiles.size() < total) {
+            pageDto.setNextAfterId(pagedFiles.getLast().getId());
+        }
 
         log.info("IN - findAllByUserId: found [{}] files for userId=[{}], folderId=[{}]", 
                 pagedFiles.size(), userId, folderId);
         return pageDto;
     }
 
+    /*
+        Страница по курсору читает limit строк индекса вместо всех файлов каталога
+     */
+    private FilePageDto findPageAfter(UUID userId, UUID folderId, UUID afterId, int limit) {
+        var page = fileRepository.findPageAfter(userId, folderId, afterId, Limit.of(limit)).stream()
+                .map(file -> {
+                    var fileDto = fileMapper.toDto(file);
+                    fileDto.setDownloadUrl(generateDownloadUrl(file.getId()));
+                    return fileDto;
+                })
+                .toList();
+
+        var pageDto = new FilePageDto();
+        pageDto.setItems(page);
+        pageDto.setTotal(Math.toIntExact(fileRepository.countByUserIdAndFolderId(userId, folderId)));
+        pageDto.setLimit(limit);
+        if (page.size() == limit) {
+            pageDto.setNextAfterId(page.getLast().getId());
+        }
+
+        log.info("IN - findPageAfter: found [{}] files for userId=[{}], folderId=[{}] after [{}]",
+                page.size(), userId, folderId, afterId);
+        return pageDto;
+    }
+
+    @Transactional(readOnly = true)
+    public FolderViewDto findFolderView(UUID id, Integer limit) {
+        int actualLimit = (limit != null && limit > 0 && limit <= 100) ? limit : 20;
+
+        // Первый запрос: сам каталог, его подкаталоги и количество элементов в каждом из них
+        var entries = directoryRepository.findFolderWithChildren(id);
+        var folder = entries.stream()
+                .filter(entry -> entry.getId().equals(id))
+                .findFirst()
+                .orElseThrow(() -> new FileException("Directory not found by id=[%s]", id));
+        var directories = entries.stream()
+                .filter(entry -> !entry.getId().equals(id))
+                .map(directoryMapper::toFolderEntry)
+                .toList();
+
+        // Второй запрос: первая страница файлов, выполняется только если файлы есть
+        List<FileDto> files = folder.getFileCount() == 0
+                ? List.of()
+                : fileRepository.findFirstPageByFolderId(folder.getUserId(), id, Limit.of(actualLimit)).stream()
+                        .map(item -> {
+                            var fileDto = fileMapper.toDto(item);
+                            fileDto.setDownloadUrl(generateDownloadUrl(item.getId()));
+                            return fileDto;
+                        })
+                        .toList();
+
+        var folderViewDto = new FolderViewDto();
+        folderViewDto.setFolder(directoryMapper.toFolderEntry(folder));
+        folderViewDto.setDirectories(directories);
+        folderViewDto.setFiles(files);
+        folderViewDto.setTotalFiles(folder.getFileCount());
+        folderViewDto.setLimit(actualLimit);
+
+        log.info("IN - findFolderView: found [{}] directories and [{}] of [{}] files in folder [{}]",
+                directories.size(), files.size(), folder.getFileCount(), id);
+        return folderViewDto;
+    }
+
     @Transactional
     public FileDeleteResponseDto delete(UUID id) {
-        var file = fileRepository.findById(id)
-                .orElseThrow(() -> new FileException("File not found by id=[%s]", id));
-        if (!file.getActive()) {
-            throw new FileException("File not found by id=[%s]", id);
-        }
+        var file = findFile(id);
         file.setActive(false);
+        // От момента удаления отсчитывается срок хранения до физического удаления (см. FileGcService)
+        file.setUpdated(dateTimeUtil.now());
         fileRepository.save(file);
+        fileMetadataCache.evict(id);
+        usageService.recordDelta(file.getUserId(), -file.getFileSize(), -1);
+        directoryStatsService.recordFileRemoved(file.getUserId(), file.getDirectory().getId(), file.getFileSize());
         
         log.info("IN - delete: file with id = [{}] successfully deleted", id);
         return new FileDeleteResponseDto(file.getId());
     }
 
     public Resource downloadFile(UUID id) {
-        var file = fileRepository.findById(id)
+        var file = fileMetadataCache.find(id)
                 .orElseThrow(() -> new FileException("File not found by id=[%s]", id));
-        if (!file.getActive()) {
-            throw new FileException("File not found by id=[%s]", id);
-        }
+        accessTrackingService.recordAccess(id);
+        var tier = storageTieringService.promote(id, file.userId(), file.tier());
 
         try {
-            InputStream inputStream = minioClient.getObject(
-                    GetObjectArgs.builder()
-                            .bucket(minioConfig.getBucket())
-                            .object(file.getObjectName())
-                            .build()
-            );
+            InputStream inputStream = objectStorageService.getObject(file.shard(), tier, file.objectName());
             log.info("IN - downloadFile: file with id = [{}] successfully downloaded", id);
             return new InputStreamResource(inputStream);
         } catch (Exception e) {
@@ -285,4 +595,31 @@ public class FileService {
             throw new FileException("Failed to download file: %s", e.getMessage());
         }
     }
+
+    /*
+        version - версия содержимого из адреса превью. Превью другой версии не отдается:
+        ответ на адрес с версией кешируется как неизменный
+     */
+    public Optional<Resource> downloadPreview(UUID id, Integer size, Integer version) {
+        if (!previewService.isSupportedSize(size)) {
+            throw new FileException("Preview size [%s] is not supported", size);
+        }
+        var file = findFile(id);
+        if (version != null && !version.equals(file.getCurrentVersion())) {
+            log.debug("IN - downloadPreview: preview of version [{}] requested, file [{}] has version [{}]",
+                    version, id, file.getCurrentVersion());
+            return Optional.empty();
+        }
+        return previewService.findPreview(file, size);
+    }
+
+    /*
+        Файл по id с условием на владельца, чтобы запрос читал одну секцию таблицы файлов.
+        Владелец уже найден при выборе шарда запроса (RequestUserResolver) и берется из кеша ObjectOwnerService
+     */
+    private File findFile(UUID id) {
+        return objectOwnerService.findOwner(ObjectOwnerService.Kind.FILE, id)
+                .flatMap(userId -> fileRepository.findByIdAndUserId(id, userId))
+                .orElseThrow(() -> new FileException("File not found by id=[%s]", id));
+    }
 }
@@ -0,0 +1,130 @@
+package by.cloud.file_service.service;
+
+import by.cloud.file_service.config.FileVersionProperties;
+import by.cloud.file_service.datasource.MetadataShards;
+import by.cloud.file_service.entity.File;
+import by.cloud.file_service.entity.FileVersion;
+import by.cloud.file_service.metric.FileVersionMetric;
+import by.cloud.file_service.repository.FileVersionRepository;
+import by.cloud.file_service.repository.projection.VersionObjectView;
+import by.cloud.file_service.util.DateTimeUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/*
+    Предыдущие версии содержимого файлов.
+    При замене содержимого текущий объект не удаляется, а сохраняется строкой file.file_versions,
+    поэтому список и скачивание версий - выборка по индексу (file_id, version), без разбора ревизий Envers.
+
+    Срок хранения версии задается в момент ее создания (expires), версии сверх лимита количества
+    помечаются истекшими там же. Истекшие версии удаляются пачками по расписанию: строки блокируются
+    через SKIP LOCKED, объекты удаляются из MinIO, затем удаляются строки (как в FileGcService)
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FileVersionService {
+    private final FileVersionRepository fileVersionRepository;
+    private final ObjectStorageService objectStorageService;
+    private final PreviewService previewService;
+    private final FileVersionProperties properties;
+    private final FileVersionMetric metric;
+    private final MetadataShards metadataShards;
+    private final TransactionTemplate transactionTemplate;
+    private final DateTimeUtil dateTimeUtil;
+
+    /*
+        Сохраняет текущее содержимое файла как предыдущую версию.
+        Вызывается в транзакции замены содержимого до изменения строки файла
+     */
+    public void archive(File file) {
+        var now = dateTimeUtil.now();
+        var version = new FileVersion();
+        version.setFileId(file.getId());
+        version.setVersion(file.getCurrentVersion());
+        version.setObjectName(file.getObjectName());
+        version.setFileSize(file.getFileSize());
+        version.setMimeType(file.getMimeType());
+        version.setTier(file.getTier());
+        version.setShard(file.getShard());
+        version.setCreated(file.getUpdated());
+        version.setExpires(properties.retention() != null ? now.plus(properties.retention()) : null);
+        fileVersionRepository.save(version);
+
+        if (properties.maxVersions() > 0) {
+            // Хранятся maxVersions последних предыдущих версий: номера от current - maxVersions + 1 до current
+            fileVersionRepository.expireBefore(file.getId(), file.getCurrentVersion() - properties.maxVersions() + 1, now);
+        }
+        metric.incrementCreated();
+        log.debug("IN - archive: version [{}] of file [{}] saved", file.getCurrentVersion(), file.getId());
+    }
+
+    public List<FileVersion> findVersions(UUID fileId) {
+        return fileVersionRepository.findAvailable(fileId, dateTimeUtil.now());
+    }
+
+    public Optional<FileVersion> findVersion(UUID fileId, Integer version) {
+        return fileVersionRepository.findAvailable(fileId, version, dateTimeUtil.now());
+    }
+
+    @Scheduled(fixedDelayString = "${application.versions.interval}", initialDelayString = "${application.versions.interval}")
+    public void prune() {
+        var now = dateTimeUtil.now();
+        metadataShards.forEach(() -> pruneShard(now));
+        metric.setBacklog(metadataShards.sum(() -> fileVersionRepository.countExpired(now)));
+    }
+
+    private void pruneShard(Instant now) {
+        int total = 0;
+        for (int i = 0; i < properties.maxBatchesPerRun(); i++) {
+            var processed = transactionTemplate.execute(status -> pruneBatch(now));
+            if (processed == null || processed == 0) {
+                break;
+            }
+            total += processed;
+            if (processed < properties.batchSize()) {
+                break;
+            }
+        }
+
+        if (total > 0) {
+            log.info("IN - prune: [{}] expired file versions removed on metadata shard [{}]",
+                    total, metadataShards.current());
+        }
+    }
+
+    private int pruneBatch(Instant now) {
+        var batch = fileVersionRepository.lockExpiredBatch(now, properties.batchSize());
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        // Вместе с версией удаляются ее превью
+        var failedObjects = objectStorageService.removeObjectsFromAllTiers(batch.stream()
+                .collect(Collectors.groupingBy(VersionObjectView::getShard,
+                        Collectors.flatMapping(version -> Stream.concat(Stream.of(version.getObjectName()),
+                                previewService.previewObjectNames(version.getObjectName()).stream()), Collectors.toList()))));
+        var removed = batch.stream()
+                .filter(version -> !failedObjects.contains(version.getObjectName()))
+                .toList();
+        if (!removed.isEmpty()) {
+            fileVersionRepository.deleteByIds(removed.stream().map(VersionObjectView::getId).toArray(UUID[]::new));
+        }
+
+        long bytes = removed.stream().mapToLong(VersionObjectView::getFileSize).sum();
+        metric.recordPruned(removed.size(), bytes, failedObjects.size());
+        log.debug("IN - pruneBatch: removed [{}] versions, [{}] bytes, [{}] objects failed",
+                removed.size(), bytes, failedObjects.size());
+        return removed.size();
+    }
+}
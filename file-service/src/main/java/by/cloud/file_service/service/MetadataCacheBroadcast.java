@@ -0,0 +1,153 @@
+package by.cloud.file_service.service;
+
+import by.cloud.file_service.config.MetadataCacheProperties;
+import by.cloud.file_service.datasource.MetadataShardRoutingDataSource;
+import by.cloud.file_service.datasource.MetadataShards;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/*
+    Оповещение экземпляров сервиса об изменении метаданных файлов через LISTEN/NOTIFY базы default
+    (application.metadata-cache.broadcast). Канал слушает виртуальный поток на отдельном соединении пула,
+    сообщения отправляются pg_notify после фиксации изменения. Сообщения не хранятся: изменения,
+    пропущенные при разрыве соединения, становятся видны по истечении ttl кеша.
+    Сообщение - id экземпляра-отправителя и текст, собственные сообщения экземпляр пропускает
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MetadataCacheBroadcast implements SmartLifecycle {
+    public static final String CHANNEL = "file_metadata_cache";
+    private static final int POLL_TIMEOUT_MS = 1000;
+    private static final long RECONNECT_DELAY_MS = 5000;
+
+    private final DataSource dataSource;
+    private final MetadataCacheProperties properties;
+
+    private final String instanceId = UUID.randomUUID().toString();
+    private final List<Consumer<String>> subscribers = new CopyOnWriteArrayList<>();
+    private volatile boolean running;
+    private Thread listener;
+
+    public boolean isEnabled() {
+        return properties.enabled() && properties.broadcast();
+    }
+
+    public void subscribe(Consumer<String> subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    /*
+        Ошибка отправки не отменяет изменение: другие экземпляры увидят его по истечении ttl
+     */
+    public void publish(String message) {
+        if (!running) {
+            return;
+        }
+        try (var connection = connect();
+             var statement = connection.prepareStatement("SELECT pg_notify(?, ?)")) {
+            statement.setString(1, CHANNEL);
+            statement.setString(2, instanceId + ":" + message);
+            statement.execute();
+        } catch (SQLException e) {
+            log.warn("Failed to broadcast metadata cache invalidation: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!isEnabled()) {
+            return;
+        }
+        running = true;
+        listener = Thread.ofVirtual()
+                .name("metadata-cache-listener")
+                .start(this::listen);
+        log.info("Metadata cache broadcast started on channel [{}]", CHANNEL);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (listener != null) {
+            listener.interrupt();
+            try {
+                listener.join(POLL_TIMEOUT_MS * 2L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            listener = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void listen() {
+        while (running) {
+            try (var connection = connect()) {
+                try (var statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                var pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    var notifications = pgConnection.getNotifications(POLL_TIMEOUT_MS);
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (var notification : notifications) {
+                        receive(notification.getParameter());
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Metadata cache broadcast listener failed, reconnecting: {}", e.getMessage());
+                try {
+                    Thread.sleep(RECONNECT_DELAY_MS);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void receive(String payload) {
+        var separator = payload.indexOf(':');
+        if (separator < 0 || payload.substring(0, separator).equals(instanceId)) {
+            return;
+        }
+        var message = payload.substring(separator + 1);
+        for (var subscriber : subscribers) {
+            try {
+                subscriber.accept(message);
+            } catch (RuntimeException e) {
+                log.error("Failed to apply metadata cache message [{}]", message, e);
+            }
+        }
+    }
+
+    /*
+        Соединение базы default независимо от привязки потока к шарду и текущей транзакции
+     */
+    private Connection connect() throws SQLException {
+        if (dataSource instanceof MetadataShardRoutingDataSource routingDataSource) {
+            return routingDataSource.getShardConnection(MetadataShards.DEFAULT_SHARD);
+        }
+        return dataSource.getConnection();
+    }
+}
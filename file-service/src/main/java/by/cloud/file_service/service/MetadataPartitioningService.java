@@ -0,0 +1,139 @@
+package by.cloud.file_service.service;
+
+import by.cloud.file_service.config.MetadataPartitioningProperties;
+import by.cloud.file_service.datasource.MetadataShards;
+import by.cloud.file_service.repository.PartitioningStateRepository;
+import by.cloud.file_service.repository.projection.CopiedRowsView;
+import by.cloud.file_service.util.DateTimeUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.UUID;
+
+/*
+    Перенос file.directories и file.files в таблицы, секционированные по user_id, без остановки сервиса
+    (V19__partition_metadata_by_user.sql). Новые изменения повторяют в секционированных таблицах триггеры,
+    существующие строки копируются пачками в порядке id, позиция хранится в file.partitioning_state.
+
+    После копирования обеих таблиц они меняются местами с секционированными в короткой транзакции
+    (ожидание блокировки ограничено, при неудаче замена повторяется следующим запуском),
+    затем отдельной транзакцией проверяются внешние ключи между секциями
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MetadataPartitioningService {
+    private static final String DIRECTORIES = "directories";
+    private static final String FILES = "files";
+    private static final String SWAP = "swap";
+    // Каталоги копируются раньше файлов, как и создаются
+    private static final List<String> TABLES = List.of(DIRECTORIES, FILES);
+    private static final UUID MIN_ID = new UUID(0L, 0L);
+
+    private final PartitioningStateRepository stateRepository;
+    private final MetadataPartitioningProperties properties;
+    private final MetadataShards metadataShards;
+    private final TransactionTemplate transactionTemplate;
+    private final DateTimeUtil dateTimeUtil;
+
+    private enum Step { COPIED, BUSY, DONE }
+
+    @Scheduled(fixedDelayString = "${application.metadata-partitioning.interval}",
+            initialDelayString = "${application.metadata-partitioning.interval}")
+    public void partition() {
+        if (!properties.enabled()) {
+            return;
+        }
+        metadataShards.forEach(this::partitionShard);
+    }
+
+    private void partitionShard() {
+        try {
+            for (int i = 0; i < properties.maxBatchesPerRun(); i++) {
+                var step = transactionTemplate.execute(status -> copyBatch());
+                if (step == Step.BUSY) {
+                    return;
+                }
+                if (step == Step.DONE) {
+                    swap();
+                    return;
+                }
+            }
+        } catch (Exception e) {
+            // Копирование продолжается с сохраненной позиции следующим запуском
+            log.error("Failed to partition file metadata on metadata shard [{}]", metadataShards.current(), e);
+        }
+    }
+
+    /*
+        Копирует одну пачку первой незавершенной таблицы
+     */
+    private Step copyBatch() {
+        for (var table : TABLES) {
+            var state = stateRepository.lockByName(table).orElse(null);
+            if (state == null) {
+                log.debug("IN - copyBatch: partitioning is running on another instance");
+                return Step.BUSY;
+            }
+            if (state.getCompleted()) {
+                continue;
+            }
+            if (!stateRepository.isSwapPending()) {
+                // Таблицы уже заменены (например, вручную), копировать нечего
+                state.setCompleted(true);
+                state.setUpdated(dateTimeUtil.now());
+                stateRepository.save(state);
+                continue;
+            }
+
+            var after = state.getCursor() == null ? MIN_ID : state.getCursor();
+            CopiedRowsView batch = DIRECTORIES.equals(table)
+                    ? stateRepository.copyDirectories(after, properties.batchSize())
+                    : stateRepository.copyFiles(after, properties.batchSize());
+            if (batch.getLastId() != null) {
+                state.setCursor(batch.getLastId());
+            }
+            state.setCopied(state.getCopied() + batch.getCopied());
+            state.setCompleted(batch.getRows() < properties.batchSize());
+            state.setUpdated(dateTimeUtil.now());
+            stateRepository.save(state);
+            if (state.getCompleted()) {
+                log.info("IN - copyBatch: [{}] rows of file.{} copied to partitioned table", state.getCopied(), table);
+            }
+            return Step.COPIED;
+        }
+        return Step.DONE;
+    }
+
+    private void swap() {
+        var swapped = transactionTemplate.execute(status -> {
+            var state = stateRepository.lockByName(SWAP).orElse(null);
+            if (state == null || state.getCompleted()) {
+                return false;
+            }
+            if (stateRepository.isSwapPending()) {
+                stateRepository.swap();
+                log.info("IN - swap: file.directories and file.files replaced by partitioned tables");
+            }
+            return true;
+        });
+        if (!Boolean.TRUE.equals(swapped)) {
+            return;
+        }
+
+        // Проверка читает все строки, но не блокирует запись; прерванная проверка повторяется следующим запуском
+        transactionTemplate.executeWithoutResult(status -> stateRepository.lockByName(SWAP)
+                .filter(state -> !state.getCompleted())
+                .ifPresent(state -> {
+                    stateRepository.validate();
+                    state.setCompleted(true);
+                    state.setUpdated(dateTimeUtil.now());
+                    stateRepository.save(state);
+                    log.info("IN - swap: partition foreign keys validated, metadata partitioning completed");
+                }));
+    }
+}
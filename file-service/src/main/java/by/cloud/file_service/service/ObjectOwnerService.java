@@ -0,0 +1,83 @@
+package by.cloud.file_service.service;
+
+import by.cloud.file_service.config.MetadataShardProperties;
+import by.cloud.file_service.datasource.MetadataShards;
+import by.cloud.file_service.repository.CopyTaskRepository;
+import by.cloud.file_service.repository.DirectoryRepository;
+import by.cloud.file_service.repository.FileRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/*
+    Владелец файла, каталога или задачи копирования по id. Нужен для выбора базы запроса, в котором нет userId
+    (RequestUserResolver): GET /v1/files/{id}, DELETE /v1/directories/{id} и т.п.
+
+    Объект ищется по первичному ключу на каждом шарде по очереди. Внутри транзакции шард сменить нельзя,
+    поэтому объект ищется только на шарде транзакции: запрос уже направлен на шард владельца.
+    Поиск по одному id не может отсечь секции таблиц (владелец еще неизвестен) и проверяет первичный ключ
+    (id, user_id) каждой секции; поэтому результат кешируется, а запросы сервисов с известным владельцем
+    фильтруют по user_id.
+    Владелец объекта не меняется, поэтому найденный владелец хранится без срока (до ownerCacheSize записей).
+    Запоминается именно владелец, а не шард: шард владельца определяет UserShardService,
+    и перенос пользователя на другой шард не требует сброса записей
+ */
+@Slf4j
+@Service
+public class ObjectOwnerService {
+    private final FileRepository fileRepository;
+    private final DirectoryRepository directoryRepository;
+    private final CopyTaskRepository copyTaskRepository;
+    private final MetadataShards metadataShards;
+    private final Cache<UUID, UUID> owners;
+
+    public enum Kind {
+        FILE,
+        DIRECTORY,
+        COPY_TASK
+    }
+
+    public ObjectOwnerService(FileRepository fileRepository, DirectoryRepository directoryRepository,
+                              CopyTaskRepository copyTaskRepository, MetadataShards metadataShards,
+                              MetadataShardProperties properties) {
+        this.fileRepository = fileRepository;
+        this.directoryRepository = directoryRepository;
+        this.copyTaskRepository = copyTaskRepository;
+        this.metadataShards = metadataShards;
+        this.owners = Caffeine.newBuilder()
+                .maximumSize(properties.ownerCacheSize())
+                .build();
+    }
+
+    /*
+        id уникальны на всех шардах (UUID), поэтому ключ кеша не включает вид объекта.
+        Отсутствующий объект не кешируется: он может быть создан позже
+     */
+    public Optional<UUID> findOwner(Kind kind, UUID id) {
+        return Optional.ofNullable(owners.get(id, key -> load(kind, key).orElse(null)));
+    }
+
+    private Optional<UUID> load(Kind kind, UUID id) {
+        var shards = TransactionSynchronizationManager.isActualTransactionActive()
+                ? List.of(metadataShards.current())
+                : metadataShards.names();
+        for (var shard : shards) {
+            var owner = metadataShards.callOn(shard, () -> switch (kind) {
+                case FILE -> fileRepository.findUserIdById(id);
+                case DIRECTORY -> directoryRepository.findUserIdById(id);
+                case COPY_TASK -> copyTaskRepository.findUserIdById(id);
+            });
+            if (owner.isPresent()) {
+                log.debug("IN - load: owner of {} [{}] found on metadata shard [{}]", kind, id, shard);
+                return owner;
+            }
+        }
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,306 @@
+package by.cloud.file_service.service;
+
+import by.cloud.file_service.entity.StorageTier;
+import by.cloud.file_service.exception.FileException;
+import io.minio.CopyObjectArgs;
+import io.minio.CopySource;
+import io.minio.GetObjectArgs;
+import io.minio.ListObjectsArgs;
+import io.minio.PutObjectArgs;
+import io.minio.RemoveObjectsArgs;
+import io.minio.Result;
+import io.minio.StatObjectArgs;
+import io.minio.errors.ErrorResponseException;
+import io.minio.messages.DeleteError;
+import io.minio.messages.DeleteObject;
+import io.minio.messages.Item;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/*
+    Операции с объектами хранилищ. Объект хранится под одним именем в бакете своего уровня хранения
+    на шарде, записанном в строке файла или версии. Производные объекты (превью) хранятся на шарде
+    исходного объекта, всегда в основном бакете.
+
+    Чтение и копирование ищут объект и в других бакетах: строка могла быть прочитана до переноса объекта
+    между уровнями (StorageTieringService) или шардами (ShardMigrationService), а копия на прежнем месте
+    удаляется после фиксации переноса
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ObjectStorageService {
+    public static final String NO_SUCH_KEY = "NoSuchKey";
+    public static final String STORAGE_CLASS_HEADER = "x-amz-storage-class";
+    // Производные объекты (превью) хранятся рядом с исходным под ключом <objectName>.<suffix>
+    public static final String DERIVED_SEPARATOR = ".";
+
+    // Часть составной загрузки при копировании между шардами, размер объекта заранее не известен
+    private static final long STREAM_PART_SIZE = 10L * 1024 * 1024;
+
+    private final StorageShardRegistry shardRegistry;
+
+    public record ObjectEntry(String name, Instant lastModified) { }
+
+    public static String derivedObjectName(String objectName, String suffix) {
+        return objectName + DERIVED_SEPARATOR + suffix;
+    }
+
+    /*
+        Имя исходного объекта для производного ключа; для исходного объекта - сам ключ
+     */
+    public static String baseObjectName(String key) {
+        var index = key.indexOf(DERIVED_SEPARATOR);
+        return index < 0 ? key : key.substring(0, index);
+    }
+
+    public void putObject(String shardName, String objectName, InputStream inputStream, long size, String contentType) {
+        var shard = shardRegistry.get(shardName);
+        try {
+            shard.client().putObject(PutObjectArgs.builder()
+                    .bucket(shard.bucket(StorageTier.HOT))
+                    .object(objectName)
+                    .stream(inputStream, size, -1)
+                    .contentType(contentType)
+                    .build());
+        } catch (Exception e) {
+            throw new FileException("Failed to upload object [%s] to shard [%s]: %s", objectName, shardName, e.getMessage());
+        }
+    }
+
+    /*
+        Копирует объект. Внутри одного шарда копирование серверное и содержимое не передается через сервис,
+        между шардами содержимое передается потоком. Объекту холодного уровня назначается класс хранения
+        minio.cold-storage-class, если он задан. Возвращает false, если исходного объекта нет
+     */
+    public boolean copyObject(String sourceShard, StorageTier sourceTier, String sourceName,
+                              String targetShard, StorageTier targetTier, String targetName) {
+        var target = shardRegistry.get(targetShard);
+        for (var source : locations(sourceShard, sourceTier)) {
+            try {
+                if (source.shard() == target) {
+                    copyInShard(source, target, targetTier, sourceName, targetName);
+                } else {
+                    copyBetweenShards(source, target, targetTier, sourceName, targetName);
+                }
+                return true;
+            } catch (ErrorResponseException e) {
+                if (!NO_SUCH_KEY.equals(e.errorResponse().code())) {
+                    throw new FileException("Failed to copy object [%s]: %s", sourceName, e.getMessage());
+                }
+            } catch (Exception e) {
+                throw new FileException("Failed to copy object [%s]: %s", sourceName, e.getMessage());
+            }
+        }
+        return false;
+    }
+
+    /*
+        Открывает объект. Пустой результат, если объекта нет ни в одном бакете
+     */
+    public Optional<InputStream> findObject(String shardName, StorageTier tier, String objectName) {
+        for (var location : locations(shardName, tier)) {
+            try {
+                return Optional.of(location.shard().client().getObject(GetObjectArgs.builder()
+                        .bucket(location.bucket())
+                        .object(objectName)
+                        .build()));
+            } catch (ErrorResponseException e) {
+                if (!NO_SUCH_KEY.equals(e.errorResponse().code())) {
+                    throw new FileException("Failed to download object [%s]: %s", objectName, e.getMessage());
+                }
+            } catch (Exception e) {
+                throw new FileException("Failed to download object [%s]: %s", objectName, e.getMessage());
+            }
+        }
+        return Optional.empty();
+    }
+
+    public boolean exists(String shardName, StorageTier tier, String objectName) {
+        for (var location : locations(shardName, tier)) {
+            try {
+                location.shard().client().statObject(StatObjectArgs.builder()
+                        .bucket(location.bucket())
+                        .object(objectName)
+                        .build());
+                return true;
+            } catch (ErrorResponseException e) {
+                if (!NO_SUCH_KEY.equals(e.errorResponse().code())) {
+                    throw new FileException("Failed to check object [%s]: %s", objectName, e.getMessage());
+                }
+            } catch (Exception e) {
+                throw new FileException("Failed to check object [%s]: %s", objectName, e.getMessage());
+            }
+        }
+        return false;
+    }
+
+    public InputStream getObject(String shardName, StorageTier tier, String objectName) {
+        return findObject(shardName, tier, objectName)
+                .orElseThrow(() -> new FileException("Object [%s] not found", objectName));
+    }
+
+    /*
+        Удаляет объекты, сгруппированные по шардам, из бакетов всех уровней
+     */
+    public Set<String> removeObjectsFromAllTiers(Map<String, ? extends Collection<String>> objectNamesByShard) {
+        Set<String> failed = new HashSet<>();
+        objectNamesByShard.forEach((shardName, objectNames) ->
+                failed.addAll(removeObjectsFromAllTiers(shardName, objectNames)));
+        return failed;
+    }
+
+    /*
+        Удаляет объекты из бакетов всех уровней шарда: используется, когда уровень объекта не важен или неизвестен
+     */
+    public Set<String> removeObjectsFromAllTiers(String shardName, Collection<String> objectNames) {
+        Set<String> failed = new HashSet<>();
+        for (var tier : StorageTier.values()) {
+            failed.addAll(removeObjects(shardName, tier, objectNames));
+        }
+        return failed;
+    }
+
+    /*
+        Удаляет объекты запросом removeObjects и возвращает имена объектов, которые не удалось удалить.
+        Отсутствующий объект считается удаленным
+     */
+    public Set<String> removeObjects(String shardName, StorageTier tier, Collection<String> objectNames) {
+        if (objectNames.isEmpty()) {
+            return Set.of();
+        }
+        var shard = shardRegistry.get(shardName);
+        var objects = objectNames.stream()
+                .map(DeleteObject::new)
+                .toList();
+
+        Set<String> failed = new HashSet<>();
+        try {
+            // Результат ленивый: запрос к MinIO выполняется при обходе
+            for (var result : shard.client().removeObjects(RemoveObjectsArgs.builder()
+                    .bucket(shard.bucket(tier))
+                    .objects(objects)
+                    .build())) {
+                DeleteError error = result.get();
+                if (!NO_SUCH_KEY.equals(error.code())) {
+                    log.warn("Failed to remove object [{}]: {}", error.objectName(), error.message());
+                    failed.add(error.objectName());
+                }
+            }
+        } catch (Exception e) {
+            log.error("Error removing objects from bucket [{}] of shard [{}]", shard.bucket(tier), shardName, e);
+            failed.addAll(objectNames);
+        }
+        return failed;
+    }
+
+    /*
+        Одна страница ключей основного бакета шарда после after в порядке возрастания (порядок MinIO - по байтам UTF-8)
+     */
+    public List<ObjectEntry> listObjects(String shardName, String after, int limit) {
+        var shard = shardRegistry.get(shardName);
+        var args = ListObjectsArgs.builder()
+                .bucket(shard.bucket(StorageTier.HOT))
+                .recursive(true)
+                .maxKeys(limit);
+        if (after != null && !after.isEmpty()) {
+            args.startAfter(after);
+        }
+
+        List<ObjectEntry> page = new ArrayList<>(limit);
+        try {
+            for (Result<Item> result : shard.client().listObjects(args.build())) {
+                var item = result.get();
+                page.add(new ObjectEntry(item.objectName(), item.lastModified().toInstant()));
+                if (page.size() == limit) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            log.error("Error listing objects of shard [{}] after [{}]", shardName, after, e);
+            throw new FileException("Failed to list objects: %s", e.getMessage());
+        }
+        return page;
+    }
+
+    private record Location(StorageShard shard, StorageTier tier) {
+        String bucket() {
+            return shard.bucket(tier);
+        }
+    }
+
+    /*
+        Бакеты, в которых ищется объект: сначала записанные шард и уровень, затем другой уровень того же шарда,
+        затем остальные шарды
+     */
+    private List<Location> locations(String shardName, StorageTier tier) {
+        var shard = shardRegistry.get(shardName);
+        var other = tier == StorageTier.COLD ? StorageTier.HOT : StorageTier.COLD;
+        List<Location> locations = new ArrayList<>();
+        locations.add(new Location(shard, tier));
+        locations.add(new Location(shard, other));
+        for (var candidate : shardRegistry.getAll()) {
+            if (candidate != shard) {
+                locations.add(new Location(candidate, tier));
+                locations.add(new Location(candidate, other));
+            }
+        }
+        return locations;
+    }
+
+    private void copyInShard(Location source, StorageShard target, StorageTier targetTier,
+                             String sourceName, String targetName) throws Exception {
+        var args = CopyObjectArgs.builder()
+                .bucket(target.bucket(targetTier))
+                .object(targetName)
+                .source(CopySource.builder()
+                        .bucket(source.bucket())
+                        .object(sourceName)
+                        .build());
+        var headers = storageClassHeaders(target, targetTier);
+        if (!headers.isEmpty()) {
+            args.headers(headers);
+        }
+        target.client().copyObject(args.build());
+    }
+
+    private void copyBetweenShards(Location source, StorageShard target, StorageTier targetTier,
+                                   String sourceName, String targetName) throws Exception {
+        try (var inputStream = source.shard().client().getObject(GetObjectArgs.builder()
+                .bucket(source.bucket())
+                .object(sourceName)
+                .build())) {
+            var args = PutObjectArgs.builder()
+                    .bucket(target.bucket(targetTier))
+                    .object(targetName)
+                    .stream(inputStream, -1, STREAM_PART_SIZE);
+            var contentType = inputStream.headers().get("Content-Type");
+            if (contentType != null) {
+                args.contentType(contentType);
+            }
+            var headers = storageClassHeaders(target, targetTier);
+            if (!headers.isEmpty()) {
+                args.headers(headers);
+            }
+            target.client().putObject(args.build());
+        }
+    }
+
+    private Map<String, String> storageClassHeaders(StorageShard target, StorageTier targetTier) {
+        if (targetTier == StorageTier.COLD && !target.coldStorageClass().isBlank()) {
+            return Map.of(STORAGE_CLASS_HEADER, target.coldStorageClass());
+        }
+        return Map.of();
+    }
+}
@@ -0,0 +1,93 @@
+package by.cloud.file_service.service;
+
+import by.cloud.file_service.datasource.MetadataShards;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+
+/*
+    Изменения, накопленные в памяти по ключам и периодически записываемые одним запросом
+    (агрегаты каталогов, использование хранилища, время обращения к файлам).
+    Изменения одного ключа объединяются merger; результат null удаляет ключ (ConcurrentHashMap.merge).
+    ConcurrentHashMap.merge блокирует только корзину ключа, поэтому частые изменения разных ключей не конкурируют.
+    Изменения накапливаются отдельно для шарда метаданных, на котором выполнялась операция,
+    и записываются writer на этом шарде в порядке ключей: параллельные сбросы с разных экземпляров
+    блокируют строки в одном порядке. При ошибке записи изменения возвращаются в очередь
+ */
+@Slf4j
+final class PendingDeltas<K extends Comparable<? super K>, V> {
+    private final String name;
+    private final BinaryOperator<V> merger;
+    private final BiConsumer<List<K>, List<V>> writer;
+    private final Map<String, Map<K, V>> pending = new ConcurrentHashMap<>();
+
+    PendingDeltas(String name, BinaryOperator<V> merger, BiConsumer<List<K>, List<V>> writer) {
+        this.name = name;
+        this.merger = merger;
+        this.writer = writer;
+    }
+
+    /*
+        Внутри транзакции изменение учитывается только после ее фиксации
+     */
+    void record(String shard, K key, V delta) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    merge(shard, key, delta);
+                }
+            });
+        } else {
+            merge(shard, key, delta);
+        }
+    }
+
+    /*
+        Еще не записанное изменение ключа, null - изменений нет
+     */
+    V get(String shard, K key) {
+        return pending.getOrDefault(shard, Map.of()).get(key);
+    }
+
+    void flush(MetadataShards metadataShards) {
+        pending.forEach((shard, shardPending) -> metadataShards.runOn(shard, () -> flush(shard, shardPending)));
+    }
+
+    private void flush(String shard, Map<K, V> shardPending) {
+        List<K> keys = new ArrayList<>();
+        List<V> deltas = new ArrayList<>();
+        for (var key : shardPending.keySet().stream().sorted().toList()) {
+            var delta = shardPending.remove(key);
+            if (delta != null) {
+                keys.add(key);
+                deltas.add(delta);
+            }
+        }
+        if (keys.isEmpty()) {
+            return;
+        }
+
+        try {
+            writer.accept(keys, deltas);
+            log.debug("IN - flush: [{}] {} written on metadata shard [{}]", keys.size(), name, shard);
+        } catch (Exception e) {
+            // Изменения возвращаются в очередь и будут записаны при следующем сбросе
+            log.error("Failed to flush [{}] {}", keys.size(), name, e);
+            for (int i = 0; i < keys.size(); i++) {
+                merge(shard, keys.get(i), deltas.get(i));
+            }
+        }
+    }
+
+    private void merge(String shard, K key, V delta) {
+        pending.computeIfAbsent(shard, k -> new ConcurrentHashMap<>()).merge(key, delta, merger);
+    }
+}
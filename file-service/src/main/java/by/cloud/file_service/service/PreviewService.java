@@ -0,0 +1,237 @@
+package by.cloud.file_service.service;
+
+import by.cloud.file_service.config.PreviewProperties;
+import by.cloud.file_service.entity.File;
+import by.cloud.file_service.entity.StorageTier;
+import by.cloud.file_service.exception.FileException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.RandomAccessReadBufferedFile;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/*
+    Создание и выдача превью файлов.
+    Превью - JPEG, вписанный в квадрат size x size, хранится рядом с исходным объектом
+    под ключом <objectName>.preview-<size>. Превью всегда в основном бакете шарда файла, независимо от уровня хранения.
+    Для изображений масштабируется сам файл, для PDF - первая страница.
+    Файлы больше maxSourceBytes не обрабатываются. PDF читается с произвольным доступом, поэтому
+    объект записывается во временный файл, а не в память
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PreviewService {
+    private static final String PDF_MIME_TYPE = "application/pdf";
+    private static final String PREVIEW_MIME_TYPE = "image/jpeg";
+
+    private final ObjectStorageService objectStorageService;
+    private final PreviewProperties properties;
+
+    public static String previewObjectName(String objectName, int size) {
+        return ObjectStorageService.derivedObjectName(objectName, "preview-" + size);
+    }
+
+    public List<String> previewObjectNames(String objectName) {
+        return properties.sizes().stream()
+                .map(size -> previewObjectName(objectName, size))
+                .toList();
+    }
+
+    /*
+        Копирует готовые превью объекта для его копии, отсутствующие превью пропускаются.
+        Возвращает false, если скопированы не все размеры
+     */
+    public boolean copyPreviews(String sourceShard, String sourceObjectName,
+                                String targetShard, String targetObjectName) {
+        if (!properties.enabled()) {
+            return false;
+        }
+        var copied = true;
+        for (var size : properties.sizes()) {
+            copied &= objectStorageService.copyObject(
+                    sourceShard, StorageTier.HOT, previewObjectName(sourceObjectName, size),
+                    targetShard, StorageTier.HOT, previewObjectName(targetObjectName, size));
+        }
+        return copied;
+    }
+
+    public boolean isSupported(String mimeType) {
+        if (!properties.enabled() || mimeType == null) {
+            return false;
+        }
+        if (PDF_MIME_TYPE.equals(mimeType)) {
+            return true;
+        }
+        return ImageIO.getImageReadersByMIMEType(mimeType).hasNext();
+    }
+
+    public boolean isSupportedSize(Integer size) {
+        return properties.sizes().contains(size);
+    }
+
+    public void generate(File file) {
+        if (file.getFileSize() > properties.maxSourceBytes()) {
+            log.info("IN - generate: file [{}] of [{}] bytes exceeds preview source limit, preview skipped",
+                    file.getId(), file.getFileSize());
+            return;
+        }
+        var largest = properties.sizes().stream().max(Comparator.naturalOrder()).orElseThrow();
+        BufferedImage source;
+        try (InputStream inputStream = objectStorageService.getObject(file.getShard(), file.getTier(), file.getObjectName())) {
+            source = PDF_MIME_TYPE.equals(file.getMimeType())
+                    ? renderFirstPage(inputStream, largest)
+                    : readImage(inputStream);
+        } catch (IOException e) {
+            throw new FileException("Failed to read file [%s] for preview: %s", file.getId(), e.getMessage());
+        } catch (Exception e) {
+            throw new FileException("Failed to download file [%s] for preview: %s", file.getId(), e.getMessage());
+        }
+        if (source == null) {
+            log.info("IN - generate: file [{}] of type [{}] can not be decoded, preview skipped",
+                    file.getId(), file.getMimeType());
+            return;
+        }
+
+        // От большего размера к меньшему: каждый следующий масштабируется из предыдущего
+        var current = source;
+        for (var size : properties.sizes().stream().sorted(Comparator.reverseOrder()).toList()) {
+            current = scale(current, size);
+            upload(file.getShard(), previewObjectName(file.getObjectName(), size), encode(current));
+        }
+        log.info("IN - generate: previews {} created for file [{}]", properties.sizes(), file.getId());
+    }
+
+    /*
+        Пустой результат, если превью для файла не создано
+     */
+    public Optional<Resource> findPreview(File file, int size) {
+        return objectStorageService
+                .findObject(file.getShard(), StorageTier.HOT, previewObjectName(file.getObjectName(), size))
+                .map(InputStreamResource::new);
+    }
+
+    private BufferedImage readImage(InputStream inputStream) throws IOException {
+        try (var imageInputStream = ImageIO.createImageInputStream(inputStream)) {
+            var readers = ImageIO.getImageReaders(imageInputStream);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            var reader = readers.next();
+            try {
+                reader.setInput(imageInputStream, true, true);
+                // Размер проверяется по заголовку до распаковки
+                if ((long) reader.getWidth(0) * reader.getHeight(0) > properties.maxSourcePixels()) {
+                    return null;
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private BufferedImage renderFirstPage(InputStream inputStream, int size) throws IOException {
+        var source = Files.createTempFile("preview-", ".pdf");
+        try {
+            if (!spool(inputStream, source)) {
+                return null;
+            }
+            try (var document = Loader.loadPDF(new RandomAccessReadBufferedFile(source.toFile()))) {
+                if (document.getNumberOfPages() == 0) {
+                    return null;
+                }
+                var box = document.getPage(0).getCropBox();
+                var scale = size / Math.max(box.getWidth(), box.getHeight());
+                return new PDFRenderer(document).renderImage(0, scale, ImageType.RGB);
+            }
+        } finally {
+            Files.deleteIfExists(source);
+        }
+    }
+
+    /*
+        Размер файла проверен по строке, копирование все равно ограничено maxSourceBytes
+        на случай расхождения строки с объектом. false - объект больше ограничения
+     */
+    private boolean spool(InputStream inputStream, Path target) throws IOException {
+        var buffer = new byte[8192];
+        long total = 0;
+        try (var output = Files.newOutputStream(target)) {
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                total += read;
+                if (total > properties.maxSourceBytes()) {
+                    return false;
+                }
+                output.write(buffer, 0, read);
+            }
+        }
+        return true;
+    }
+
+    /*
+        Вписывает изображение в квадрат size x size на белом фоне (JPEG без прозрачности).
+        Изображения меньше size не увеличиваются
+     */
+    private BufferedImage scale(BufferedImage image, int size) {
+        var ratio = Math.min(1.0, (double) size / Math.max(image.getWidth(), image.getHeight()));
+        var width = Math.max(1, (int) Math.round(image.getWidth() * ratio));
+        var height = Math.max(1, (int) Math.round(image.getHeight() * ratio));
+
+        var result = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = result.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return result;
+    }
+
+    private byte[] encode(BufferedImage image) {
+        var writer = ImageIO.getImageWritersByFormatName("jpg").next();
+        var output = new ByteArrayOutputStream();
+        try (var imageOutputStream = ImageIO.createImageOutputStream(output)) {
+            var params = writer.getDefaultWriteParam();
+            params.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            params.setCompressionQuality(properties.quality());
+            writer.setOutput(imageOutputStream);
+            writer.write(null, new IIOImage(image, null, null), params);
+        } catch (IOException e) {
+            throw new FileException("Failed to encode preview: %s", e.getMessage());
+        } finally {
+            writer.dispose();
+        }
+        return output.toByteArray();
+    }
+
+    private void upload(String shard, String objectName, byte[] content) {
+        objectStorageService.putObject(shard, objectName, new ByteArrayInputStream(content), content.length, PREVIEW_MIME_TYPE);
+    }
+}
@@ -0,0 +1,248 @@
+package by.cloud.file_service.service;
+
+import by.cloud.file_service.config.ShardMigrationProperties;
+import by.cloud.file_service.datasource.MetadataShards;
+import by.cloud.file_service.metric.StorageShardMetric;
+import by.cloud.file_service.repository.FileRepository;
+import by.cloud.file_service.repository.FileVersionRepository;
+import by.cloud.file_service.repository.ShardMigrationStateRepository;
+import by.cloud.file_service.repository.projection.ObjectPlacementView;
+import by.cloud.file_service.repository.projection.ObjectShardView;
+import by.cloud.file_service.util.DateTimeUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/*
+    Перенос объектов на шарды, определенные текущим кольцом размещения.
+    После изменения состава или весов шардов по кольцу меняется владелец только части ключей,
+    поэтому переносятся только объекты, чей записанный шард не совпадает с шардом по кольцу.
+
+    Объекты файлов и версий просматриваются страницами в порядке имен, позиция хранится
+    в file.shard_migration_state. Строки перемещаемых объектов блокируются через SKIP LOCKED,
+    объекты (вместе с превью) копируются на новый шард, шард в строках меняется, и после фиксации
+    транзакции объекты удаляются с прежнего шарда. Чтение по устаревшему шарду находит объект
+    на новом (ObjectStorageService). Пропущенные из-за блокировки или ошибки объекты переносятся
+    следующим проходом; после прохода без пропусков перенос ждет следующего изменения кольца.
+
+    При поэтапном развертывании экземпляры со старым и новым кольцом сбрасывают позицию друг друга,
+    поэтому перенос включается после обновления всех экземпляров.
+
+    Позиция хранится на каждом шарде метаданных и проходится по строкам этого шарда.
+    Пока пользователь переносится между шардами метаданных (UserShardMoveService), его строки есть
+    на двух шардах, поэтому перенос объектов приостанавливается до завершения переноса пользователя
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ShardMigrationService {
+    private static final String STATE_NAME = "objects";
+    private static final String FILE_KIND = "FILE";
+
+    private final ShardMigrationStateRepository stateRepository;
+    private final FileRepository fileRepository;
+    private final FileVersionRepository fileVersionRepository;
+    private final StorageShardRegistry shardRegistry;
+    private final ObjectStorageService objectStorageService;
+    private final PreviewService previewService;
+    private final ShardMigrationProperties properties;
+    private final StorageShardMetric metric;
+    private final MetadataShards metadataShards;
+    private final UserShardMoveService userShardMoveService;
+    private final FileMetadataCache fileMetadataCache;
+    private final TransactionTemplate transactionTemplate;
+    private final DateTimeUtil dateTimeUtil;
+
+    private record MigratedBatch(int moved, long bytes, int failed, Map<String, List<String>> removals, boolean finished) { }
+
+    @Scheduled(fixedDelayString = "${application.shard-migration.interval}",
+            initialDelayString = "${application.shard-migration.interval}")
+    public void migrate() {
+        if (properties.enabled()) {
+            if (userShardMoveService.isMoveInProgress()) {
+                log.debug("IN - migrate: users are moving between metadata shards, migration postponed");
+            } else {
+                var ring = shardRegistry.getRingFingerprint();
+                metadataShards.forEach(() -> migrateShard(ring));
+            }
+        }
+        refreshDistribution();
+    }
+
+    private void migrateShard(String ring) {
+        long movedBytes = 0;
+        int movedObjects = 0;
+        for (int i = 0; i < properties.maxBatchesPerRun(); i++) {
+            var batch = transactionTemplate.execute(status -> migrateBatch(ring));
+            if (batch == null) {
+                break;
+            }
+            // Копия, которую не удалось удалить, удаляется сверкой прежнего шарда: строк на нем больше нет
+            var failedRemovals = objectStorageService.removeObjectsFromAllTiers(batch.removals());
+            if (!failedRemovals.isEmpty()) {
+                log.warn("IN - migrate: [{}] objects were not removed from previous shards", failedRemovals.size());
+            }
+            metric.recordMigrated(batch.moved(), batch.bytes(), batch.failed());
+            movedObjects += batch.moved();
+            movedBytes += batch.bytes();
+            if (batch.finished() || movedBytes >= properties.maxBytesPerRun()) {
+                break;
+            }
+        }
+        if (movedObjects > 0) {
+            log.info("IN - migrate: [{}] objects, [{}] bytes moved between shards on metadata shard [{}]",
+                    movedObjects, movedBytes, metadataShards.current());
+        }
+    }
+
+    /*
+        Переносит объекты одной страницы. null - перенос выполняет другой экземпляр или проход для кольца завершен
+     */
+    private MigratedBatch migrateBatch(String ring) {
+        var state = stateRepository.lockByName(STATE_NAME).orElse(null);
+        if (state == null) {
+            log.debug("IN - migrateBatch: migration is running on another instance");
+            return null;
+        }
+
+        var now = dateTimeUtil.now();
+        if (!ring.equals(state.getRing())) {
+            log.info("IN - migrateBatch: placement ring changed from [{}] to [{}], starting migration pass",
+                    state.getRing(), ring);
+            state.setRing(ring);
+            state.setCursor(null);
+            state.setCompleted(false);
+        }
+        if (state.getCompleted()) {
+            return null;
+        }
+        if (state.getCursor() == null) {
+            state.setPassStarted(now);
+            state.setSkipped(0L);
+            state.setMovedObjects(0L);
+            state.setMovedBytes(0L);
+        }
+
+        var page = stateRepository.findObjectShardsAfter(state.getCursor() == null ? "" : state.getCursor(),
+                properties.pageSize());
+        List<UUID> fileIds = new ArrayList<>();
+        Set<UUID> fileUserIds = new HashSet<>();
+        List<UUID> versionIds = new ArrayList<>();
+        for (ObjectShardView object : page) {
+            if (shardRegistry.locate(object.getObjectName()).equals(object.getShard())) {
+                continue;
+            }
+            if (FILE_KIND.equals(object.getKind())) {
+                fileIds.add(object.getId());
+                fileUserIds.add(object.getUserId());
+            } else {
+                versionIds.add(object.getId());
+            }
+        }
+
+        var misplaced = fileIds.size() + versionIds.size();
+        // Владельцы файлов страницы ограничивают запросы к file.files их секциями
+        var userIds = fileUserIds.toArray(UUID[]::new);
+        List<ObjectPlacementView> lockedFiles = fileIds.isEmpty()
+                ? List.of()
+                : fileRepository.lockPlacements(userIds, fileIds.toArray(UUID[]::new));
+        List<ObjectPlacementView> lockedVersions = versionIds.isEmpty()
+                ? List.of()
+                : fileVersionRepository.lockPlacements(versionIds.toArray(UUID[]::new));
+        Map<String, List<String>> removals = new HashMap<>();
+        var files = move(lockedFiles, removals);
+        var versions = move(lockedVersions, removals);
+        if (!files.ids().isEmpty()) {
+            fileRepository.updateShards(userIds, files.ids().toArray(UUID[]::new), files.shards().toArray(String[]::new));
+            fileMetadataCache.evictAll(files.ids());
+        }
+        if (!versions.ids().isEmpty()) {
+            fileVersionRepository.updateShards(versions.ids().toArray(UUID[]::new), versions.shards().toArray(String[]::new));
+        }
+
+        int moved = files.ids().size() + versions.ids().size();
+        int failed = files.failed() + versions.failed();
+        long bytes = files.bytes() + versions.bytes();
+        // Заблокированные другими операциями строки и объекты с ошибкой копирования переносит следующий проход
+        var skipped = misplaced - lockedFiles.size() - lockedVersions.size() + failed;
+        state.setSkipped(state.getSkipped() + skipped);
+        state.setMovedObjects(state.getMovedObjects() + moved);
+        state.setMovedBytes(state.getMovedBytes() + bytes);
+        state.setUpdated(now);
+
+        var finished = page.size() < properties.pageSize();
+        if (finished) {
+            metric.incrementPasses();
+            log.info("IN - migrateBatch: pass started at [{}] finished, moved [{}] objects, [{}] bytes, skipped [{}]",
+                    state.getPassStarted(), state.getMovedObjects(), state.getMovedBytes(), state.getSkipped());
+            state.setCursor(null);
+            state.setCompleted(state.getSkipped() == 0);
+        } else {
+            state.setCursor(page.getLast().getObjectName());
+        }
+        stateRepository.save(state);
+        return new MigratedBatch(moved, bytes, failed, removals, finished);
+    }
+
+    private record MovedObjects(List<UUID> ids, List<String> shards, long bytes, int failed) { }
+
+    /*
+        Копирует объекты и превью на шарды по кольцу. В removals добавляются объекты прежних шардов,
+        которые удаляются после фиксации транзакции
+     */
+    private MovedObjects move(List<ObjectPlacementView> placements, Map<String, List<String>> removals) {
+        List<UUID> ids = new ArrayList<>();
+        List<String> shards = new ArrayList<>();
+        long bytes = 0;
+        int failed = 0;
+        for (var placement : placements) {
+            var objectName = placement.getObjectName();
+            var target = shardRegistry.locate(objectName);
+            if (target.equals(placement.getShard())) {
+                continue;
+            }
+            try {
+                if (!objectStorageService.copyObject(placement.getShard(), placement.getTier(), objectName,
+                        target, placement.getTier(), objectName)) {
+                    // Висячую строку исправляет сверка с MinIO
+                    log.warn("IN - move: object [{}] not found on shard [{}], skipped", objectName, placement.getShard());
+                    continue;
+                }
+                previewService.copyPreviews(placement.getShard(), objectName, target, objectName);
+            } catch (Exception e) {
+                log.error("Failed to move object [{}] from shard [{}] to [{}]", objectName, placement.getShard(), target, e);
+                failed++;
+                continue;
+            }
+            ids.add(placement.getId());
+            shards.add(target);
+            bytes += placement.getFileSize();
+            var previous = removals.computeIfAbsent(placement.getShard(), key -> new ArrayList<>());
+            previous.add(objectName);
+            previous.addAll(previewService.previewObjectNames(objectName));
+        }
+        return new MovedObjects(ids, shards, bytes, failed);
+    }
+
+    private void refreshDistribution() {
+        metric.resetDistribution();
+        // Количество и размер файлов шарда хранилища по всем шардам метаданных
+        Map<String, long[]> totals = new HashMap<>();
+        for (var stat : metadataShards.collect(fileRepository::findShardStats)) {
+            var total = totals.computeIfAbsent(stat.getShard(), key -> new long[2]);
+            total[0] += stat.getFiles();
+            total[1] += stat.getBytes();
+        }
+        totals.forEach((shard, total) -> metric.setDistribution(shard, total[0], total[1]));
+    }
+}
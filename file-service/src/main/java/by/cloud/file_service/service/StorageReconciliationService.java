@@ -0,0 +1,273 @@
+package by.cloud.file_service.service;
+
+import by.cloud.file_service.config.ReconciliationProperties;
+import by.cloud.file_service.datasource.MetadataShards;
+import by.cloud.file_service.entity.ReconciliationState;
+import by.cloud.file_service.entity.StorageTier;
+import by.cloud.file_service.metric.ReconciliationMetric;
+import by.cloud.file_service.repository.FileRepository;
+import by.cloud.file_service.repository.ReconciliationStateRepository;
+import by.cloud.file_service.repository.projection.ObjectRefView;
+import by.cloud.file_service.service.ObjectStorageService.ObjectEntry;
+import by.cloud.file_service.util.DateTimeUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static by.cloud.file_service.service.ObjectStorageService.baseObjectName;
+
+/*
+    Сверка объектов MinIO со строками file.files и file.file_versions, отдельно для каждого шарда.
+    Ключи основного бакета шарда читаются страницами listObjects и сливаются с отсортированной по object_name
+    выборкой строк того же диапазона, поэтому память ограничена размером страницы независимо от размера бакета.
+    Позиция сохраняется в file.reconciliation_state, проход продолжается со следующего запуска.
+
+    Объект без строки - сирота (прерванная загрузка), строка без объекта - висячая ссылка.
+    В режиме repair сироты удаляются из MinIO, а висячие строки помечаются удаленными.
+
+    Позиции хранятся на шарде метаданных default, строки выбираются со всех шардов метаданных
+    и сливаются в один отсортированный список
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StorageReconciliationService {
+    private static final String STATE_NAME = "files";
+
+    private final FileRepository fileRepository;
+    private final ReconciliationStateRepository stateRepository;
+    private final ObjectStorageService objectStorageService;
+    private final StorageShardRegistry shardRegistry;
+    private final UsageService usageService;
+    private final DirectoryStatsService directoryStatsService;
+    private final FileMetadataCache fileMetadataCache;
+    private final ReconciliationProperties properties;
+    private final ReconciliationMetric metric;
+    private final MetadataShards metadataShards;
+    private final TransactionTemplate transactionTemplate;
+    private final DateTimeUtil dateTimeUtil;
+
+    @Scheduled(fixedDelayString = "${application.reconciliation.interval}",
+            initialDelayString = "${application.reconciliation.interval}")
+    public void reconcile() {
+        if (!properties.enabled()) {
+            return;
+        }
+        metadataShards.runOn(MetadataShards.DEFAULT_SHARD, () -> {
+            for (var shard : shardRegistry.getAll()) {
+                var stateName = stateName(shard.name());
+                transactionTemplate.executeWithoutResult(status -> stateRepository.createIfAbsent(stateName));
+                for (int i = 0; i < properties.maxPagesPerRun(); i++) {
+                    var hasMore = transactionTemplate.execute(status -> reconcilePage(shard.name(), stateName));
+                    if (!Boolean.TRUE.equals(hasMore)) {
+                        break;
+                    }
+                }
+            }
+        });
+    }
+
+    /*
+        Позиция сверки хранится отдельно для каждого шарда, имя позиции шарда default не изменилось
+     */
+    private static String stateName(String shard) {
+        return StorageShardRegistry.DEFAULT_SHARD.equals(shard) ? STATE_NAME : STATE_NAME + ":" + shard;
+    }
+
+    /*
+        Сверяет одну страницу ключей. Возвращает false, если проход завершен
+        или сверку выполняет другой экземпляр сервиса
+     */
+    private boolean reconcilePage(String shard, String stateName) {
+        var state = stateRepository.lockByName(stateName).orElse(null);
+        if (state == null) {
+            log.debug("IN - reconcilePage: reconciliation of shard [{}] is running on another instance", shard);
+            return false;
+        }
+
+        var now = dateTimeUtil.now();
+        if (state.getCursor() == null) {
+            state.setPassStarted(now);
+            state.setOrphanObjects(0L);
+            state.setDanglingRows(0L);
+        }
+        var after = state.getCursor() == null ? "" : state.getCursor();
+        var threshold = now.minus(properties.grace());
+        var rowLimit = properties.pageSize() * 2;
+
+        var objects = trimLastGroup(objectStorageService.listObjects(shard, after, properties.pageSize()));
+        Map<UUID, String> rowShards = new HashMap<>();
+        List<ObjectRefView> rows;
+        String upper;
+        boolean finished;
+        if (objects.isEmpty()) {
+            // Ключи закончились: все оставшиеся строки ссылаются на отсутствующие объекты
+            rows = findRows(() -> fileRepository.findObjectRefsAfter(shard, after, rowLimit), rowLimit, rowShards);
+            finished = rows.size() < rowLimit;
+            upper = finished ? null : rows.getLast().getObjectName();
+        } else {
+            finished = false;
+            upper = objects.getLast().name();
+            var rangeUpper = upper;
+            rows = findRows(() -> fileRepository.findObjectRefsInRange(shard, after, rangeUpper, rowLimit), rowLimit,
+                    rowShards);
+            if (rows.size() == rowLimit) {
+                // Строк в диапазоне больше лимита: сужаем диапазон, остальные ключи попадут в следующую страницу
+                var bound = rows.getLast().getObjectName();
+                objects = objects.stream()
+                        .filter(object -> baseObjectName(object.name()).compareTo(bound) <= 0)
+                        .toList();
+                upper = objects.isEmpty() || bound.compareTo(objects.getLast().name()) > 0
+                        ? bound
+                        : objects.getLast().name();
+            }
+        }
+
+        List<String> orphanObjects = new ArrayList<>();
+        List<ObjectRefView> danglingRefs = new ArrayList<>();
+        merge(objects, rows, threshold, orphanObjects, danglingRefs);
+        // Объект мог быть перенесен на другой уровень или шард между листингом и выборкой строк
+        List<ObjectRefView> danglingRows = danglingRefs.stream()
+                .filter(row -> !objectStorageService.exists(shard, StorageTier.HOT, row.getObjectName()))
+                .toList();
+
+        if (!orphanObjects.isEmpty() || !danglingRows.isEmpty()) {
+            log.warn("IN - reconcilePage: range ({}, {}] of shard [{}] has [{}] orphan objects and [{}] dangling rows",
+                    after, upper, shard, orphanObjects.size(), danglingRows.size());
+            log.debug("IN - reconcilePage: orphan objects {}, dangling rows {}", orphanObjects,
+                    danglingRows.stream().map(ObjectRefView::getId).toList());
+        }
+        if (properties.repair()) {
+            repair(shard, orphanObjects, danglingRows, rowShards, now);
+        }
+
+        metric.recordPage(objects.size(), orphanObjects.size(), danglingRows.size());
+        state.setOrphanObjects(state.getOrphanObjects() + orphanObjects.size());
+        state.setDanglingRows(state.getDanglingRows() + danglingRows.size());
+        state.setCursor(upper);
+        state.setUpdated(now);
+        stateRepository.save(state);
+
+        if (finished) {
+            finishPass(state);
+        }
+        return !finished;
+    }
+
+    /*
+        Строки всех шардов метаданных, отсортированные по имени объекта, первые limit.
+        Каждый шард возвращает первые limit своих строк, поэтому первые limit общего списка выбраны полностью.
+        В rowShards сохраняется шард метаданных каждой строки
+     */
+    private List<ObjectRefView> findRows(Supplier<List<ObjectRefView>> query, int limit, Map<UUID, String> rowShards) {
+        List<ObjectRefView> rows = new ArrayList<>();
+        for (var metadataShard : metadataShards.names()) {
+            var shardRows = metadataShards.callInNewTransactionOn(metadataShard, query);
+            shardRows.forEach(row -> rowShards.put(row.getId(), metadataShard));
+            rows.addAll(shardRows);
+        }
+        if (!metadataShards.isSharded()) {
+            return rows;
+        }
+        rows.sort(Comparator.comparing(ObjectRefView::getObjectName));
+        return rows.size() > limit ? rows.subList(0, limit) : rows;
+    }
+
+    /*
+        Производные объекты (превью) идут в листинге сразу за исходным объектом.
+        Группа исходного объекта не должна разрываться между страницами, иначе производные ключи
+        следующей страницы не найдут свою строку. Поэтому последняя группа страницы
+        откладывается на следующую страницу (кроме случая, когда вся страница - одна группа)
+     */
+    private List<ObjectEntry> trimLastGroup(List<ObjectEntry> objects) {
+        if (objects.size() < properties.pageSize()) {
+            return objects;
+        }
+        var lastBase = baseObjectName(objects.getLast().name());
+        var end = objects.size();
+        while (end > 0 && baseObjectName(objects.get(end - 1).name()).equals(lastBase)) {
+            end--;
+        }
+        return end == 0 ? objects : objects.subList(0, end);
+    }
+
+    /*
+        Слияние двух последовательностей, отсортированных по имени объекта.
+        Имена объектов - UUID, поэтому порядок String.compareTo совпадает с порядком MinIO и COLLATE "C".
+        Производный объект сопоставляется со строкой по имени исходного объекта
+     */
+    private void merge(List<ObjectEntry> objects, List<ObjectRefView> rows, Instant threshold,
+                       List<String> orphanObjects, List<ObjectRefView> danglingRows) {
+        int i = 0;
+        int j = 0;
+        while (i < objects.size() || j < rows.size()) {
+            int cmp;
+            if (i >= objects.size()) {
+                cmp = 1;
+            } else if (j >= rows.size()) {
+                cmp = -1;
+            } else {
+                cmp = baseObjectName(objects.get(i).name()).compareTo(rows.get(j).getObjectName());
+            }
+
+            if (cmp < 0) {
+                var object = objects.get(i++);
+                if (object.lastModified().isBefore(threshold)) {
+                    orphanObjects.add(object.name());
+                }
+            } else if (cmp > 0) {
+                var row = rows.get(j++);
+                if (row.getActive() && row.getCreated().isBefore(threshold)) {
+                    danglingRows.add(row);
+                }
+            } else {
+                var name = baseObjectName(objects.get(i++).name());
+                while (i < objects.size() && baseObjectName(objects.get(i).name()).equals(name)) {
+                    i++;
+                }
+                while (j < rows.size() && rows.get(j).getObjectName().equals(name)) {
+                    j++;
+                }
+            }
+        }
+    }
+
+    private void repair(String shard, List<String> orphanObjects, List<ObjectRefView> danglingRows,
+                        Map<UUID, String> rowShards, Instant now) {
+        var failed = objectStorageService.removeObjects(shard, StorageTier.HOT, orphanObjects);
+        // Строки помечаются удаленными на своем шарде метаданных и далее удаляются FileGcService
+        // по истечении срока хранения. Владельцы строк ограничивают запросы их секциями таблицы файлов
+        danglingRows.stream()
+                .collect(Collectors.groupingBy(row -> rowShards.get(row.getId())))
+                .forEach((metadataShard, refs) -> metadataShards.callInNewTransactionOn(metadataShard, () -> {
+                    var ids = refs.stream().map(ObjectRefView::getId).toList();
+                    var userIds = refs.stream().map(ObjectRefView::getUserId).distinct().toArray(UUID[]::new);
+                    var removed = fileRepository.lockActiveByIds(userIds, ids.toArray(UUID[]::new));
+                    fileRepository.deactivateByIds(userIds, ids.toArray(UUID[]::new), now);
+                    fileMetadataCache.evictAll(ids);
+                    usageService.recordRemoved(removed);
+                    directoryStatsService.recordRemoved(removed);
+                    return removed;
+                }));
+        log.info("IN - repair: removed [{}] orphan objects of shard [{}], deactivated [{}] dangling rows",
+                orphanObjects.size() - failed.size(), shard, danglingRows.size());
+    }
+
+    private void finishPass(ReconciliationState state) {
+        metric.incrementPasses();
+        log.info("IN - reconcile: pass started at [{}] finished, found [{}] orphan objects and [{}] dangling rows",
+                state.getPassStarted(), state.getOrphanObjects(), state.getDanglingRows());
+    }
+}
@@ -0,0 +1,20 @@
+package by.cloud.file_service.service;
+
+import by.cloud.file_service.entity.StorageTier;
+import io.minio.MinioClient;
+
+/*
+    Хранилище, на котором размещаются объекты: клиент MinIO и бакеты уровней хранения
+ */
+public record StorageShard(
+        String name,
+        MinioClient client,
+        String bucket,
+        String coldBucket,
+        String coldStorageClass,
+        int weight
+) {
+    public String bucket(StorageTier tier) {
+        return tier == StorageTier.COLD ? coldBucket : bucket;
+    }
+}
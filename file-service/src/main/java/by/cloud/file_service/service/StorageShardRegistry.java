@@ -0,0 +1,56 @@
+package by.cloud.file_service.service;
+
+import by.cloud.file_service.exception.FileException;
+import by.cloud.file_service.util.ConsistentHashRing;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/*
+    Подключенные шарды и кольцо размещения объектов.
+    Шард объекта записывается в его строку (storage_shard) при создании объекта, поэтому изменение кольца
+    не ломает чтение: объекты, размещенные не по кольцу, переносит ShardMigrationService.
+    Создается в MinioConfig
+ */
+public class StorageShardRegistry {
+    public static final String DEFAULT_SHARD = "default";
+
+    private final Map<String, StorageShard> shards = new LinkedHashMap<>();
+    private final ConsistentHashRing ring;
+
+    public StorageShardRegistry(List<StorageShard> shards, int virtualNodes) {
+        shards.forEach(shard -> {
+            if (this.shards.putIfAbsent(shard.name(), shard) != null) {
+                throw new IllegalStateException("Duplicate storage shard [%s]".formatted(shard.name()));
+            }
+        });
+        ring = new ConsistentHashRing(shards.stream()
+                .collect(Collectors.toMap(StorageShard::name, StorageShard::weight)), virtualNodes);
+    }
+
+    public StorageShard get(String name) {
+        var shard = shards.get(name);
+        if (shard == null) {
+            throw new FileException("Storage shard [%s] is not configured", name);
+        }
+        return shard;
+    }
+
+    public Collection<StorageShard> getAll() {
+        return shards.values();
+    }
+
+    /*
+        Шард, на котором должен находиться объект по текущему кольцу
+     */
+    public String locate(String objectName) {
+        return ring.locate(objectName);
+    }
+
+    public String getRingFingerprint() {
+        return ring.getFingerprint();
+    }
+}
@@ -0,0 +1,188 @@
+package by.cloud.file_service.service;
+
+import by.cloud.file_service.config.TieringProperties;
+import by.cloud.file_service.datasource.MetadataShards;
+import by.cloud.file_service.entity.StorageTier;
+import by.cloud.file_service.exception.FileException;
+import by.cloud.file_service.metric.StorageTierMetric;
+import by.cloud.file_service.repository.FileRepository;
+import by.cloud.file_service.repository.projection.ObjectPlacementView;
+import by.cloud.file_service.repository.projection.TierCandidateView;
+import by.cloud.file_service.util.DateTimeUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/*
+    Перенос объектов файлов между основным и холодным бакетами.
+
+    По расписанию объекты, к которым давно не обращались (last_accessed, см. AccessTrackingService),
+    копируются в холодный бакет пачками: строки блокируются через SKIP LOCKED, объекты копируются
+    внутри MinIO, уровень в строках меняется, после фиксации транзакции объекты удаляются из основного бакета.
+    Файл, объект которого не удалось скопировать, откладывается на retryDelay (FileRepository.postponeDemotion).
+    При скачивании объект холодного уровня копируется обратно в основной бакет (promote).
+
+    До удаления копии объект есть в обоих бакетах, поэтому чтение по устаревшему уровню
+    находит объект в другом бакете (ObjectStorageService.getObject)
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StorageTieringService {
+    private final FileRepository fileRepository;
+    private final ObjectStorageService objectStorageService;
+    private final TieringProperties properties;
+    private final StorageTierMetric metric;
+    private final FileMetadataCache fileMetadataCache;
+    private final MetadataShards metadataShards;
+    private final TransactionTemplate transactionTemplate;
+    private final DateTimeUtil dateTimeUtil;
+
+    private record DemotedBatch(int locked, Map<String, List<String>> objectNamesByShard, int moved, long bytes,
+                                int failed) { }
+
+    @Scheduled(fixedDelayString = "${application.tiering.interval}", initialDelayString = "${application.tiering.interval}")
+    public void demote() {
+        if (properties.enabled()) {
+            var threshold = dateTimeUtil.now().minus(properties.coldAfter());
+            metadataShards.forEach(() -> demoteShard(threshold));
+        }
+        refreshDistribution();
+    }
+
+    /*
+        Переносит объект холодного файла в основной бакет и возвращает уровень, из которого читать объект.
+        При ошибке переноса объект читается из холодного бакета. userId - владелец файла
+     */
+    public StorageTier promote(UUID fileId, UUID userId, StorageTier tier) {
+        if (tier != StorageTier.COLD) {
+            return tier;
+        }
+
+        long start = System.nanoTime();
+        try {
+            var promoted = transactionTemplate.execute(status -> promoteObject(fileId, userId));
+            if (promoted != null) {
+                // Копия в холодном бакете, которую не удалось удалить, удаляется вместе с файлом (FileGcService)
+                objectStorageService.removeObjects(promoted.getShard(), StorageTier.COLD, List.of(promoted.getObjectName()));
+                metric.recordPromotion(true, System.nanoTime() - start);
+                log.info("IN - promote: file [{}] moved to hot storage", fileId);
+            }
+            return StorageTier.HOT;
+        } catch (Exception e) {
+            metric.recordPromotion(false, System.nanoTime() - start);
+            log.error("Failed to move file [{}] to hot storage", fileId, e);
+            return StorageTier.COLD;
+        }
+    }
+
+    /*
+        Строка блокируется на время копирования, поэтому параллельные скачивания одного файла
+        копируют объект один раз. null - объект уже перенесен
+     */
+    private ObjectPlacementView promoteObject(UUID fileId, UUID userId) {
+        var placement = fileRepository.lockPlacement(fileId, userId).orElse(null);
+        if (placement == null || placement.getTier() != StorageTier.COLD) {
+            return null;
+        }
+        var objectName = placement.getObjectName();
+        if (!objectStorageService.copyObject(placement.getShard(), StorageTier.COLD, objectName,
+                placement.getShard(), StorageTier.HOT, objectName)) {
+            throw new FileException("Object of file [%s] not found in cold storage", fileId);
+        }
+        fileRepository.markHot(fileId, userId, dateTimeUtil.now());
+        fileMetadataCache.evict(fileId);
+        return placement;
+    }
+
+    private void demoteShard(Instant threshold) {
+        int total = 0;
+        for (int i = 0; i < properties.maxBatchesPerRun(); i++) {
+            var batch = transactionTemplate.execute(status -> demoteBatch(threshold));
+            if (batch == null || batch.locked() == 0) {
+                break;
+            }
+            // Строки уже ссылаются на холодный бакет: копия, которую не удалось удалить,
+            // остается в основном бакете до удаления файла (FileGcService)
+            int failedObjects = 0;
+            for (var entry : batch.objectNamesByShard().entrySet()) {
+                failedObjects += objectStorageService.removeObjects(entry.getKey(), StorageTier.HOT, entry.getValue())
+                        .size();
+            }
+            metric.recordDemoted(batch.moved(), batch.bytes(), batch.failed() + failedObjects);
+            total += batch.moved();
+            if (batch.locked() < properties.batchSize()) {
+                break;
+            }
+        }
+        if (total > 0) {
+            log.info("IN - demote: [{}] files moved to cold storage on metadata shard [{}]",
+                    total, metadataShards.current());
+        }
+    }
+
+    private DemotedBatch demoteBatch(Instant threshold) {
+        var batch = fileRepository.lockColdCandidates(threshold, properties.minSize(), properties.batchSize());
+        if (batch.isEmpty()) {
+            return new DemotedBatch(0, Map.of(), 0, 0, 0);
+        }
+
+        List<UUID> ids = new ArrayList<>(batch.size());
+        List<UUID> failedIds = new ArrayList<>();
+        Map<String, List<String>> objectNames = new HashMap<>();
+        long bytes = 0;
+        for (TierCandidateView candidate : batch) {
+            try {
+                if (!objectStorageService.copyObject(candidate.getShard(), StorageTier.HOT, candidate.getObjectName(),
+                        candidate.getShard(), StorageTier.COLD, candidate.getObjectName())) {
+                    // Висячую строку исправляет сверка с MinIO
+                    log.warn("IN - demoteBatch: object of file [{}] not found, file skipped", candidate.getId());
+                    failedIds.add(candidate.getId());
+                    continue;
+                }
+            } catch (FileException e) {
+                log.warn("IN - demoteBatch: failed to copy object of file [{}]: {}", candidate.getId(), e.getMessage());
+                failedIds.add(candidate.getId());
+                continue;
+            }
+            ids.add(candidate.getId());
+            objectNames.computeIfAbsent(candidate.getShard(), key -> new ArrayList<>()).add(candidate.getObjectName());
+            bytes += candidate.getFileSize();
+        }
+        if (!ids.isEmpty()) {
+            fileRepository.markCold(ids.toArray(UUID[]::new));
+            fileMetadataCache.evictAll(ids);
+        }
+        if (!failedIds.isEmpty()) {
+            // Строка снова станет кандидатом через retryDelay, после файлов, к которым не обращались раньше
+            fileRepository.postponeDemotion(failedIds.toArray(UUID[]::new), threshold.plus(properties.retryDelay()));
+        }
+        log.debug("IN - demoteBatch: moved [{}] files, [{}] bytes, [{}] objects failed", ids.size(), bytes,
+                failedIds.size());
+        return new DemotedBatch(batch.size(), objectNames, ids.size(), bytes, failedIds.size());
+    }
+
+    private void refreshDistribution() {
+        // Количество и размер файлов уровня по всем шардам метаданных
+        Map<StorageTier, long[]> totals = new EnumMap<>(StorageTier.class);
+        for (var tier : StorageTier.values()) {
+            totals.put(tier, new long[2]);
+        }
+        for (var stat : metadataShards.collect(fileRepository::findTierStats)) {
+            var total = totals.get(StorageTier.valueOf(stat.getTier()));
+            total[0] += stat.getFiles();
+            total[1] += stat.getBytes();
+        }
+        totals.forEach((tier, total) -> metric.setDistribution(tier, total[0], total[1]));
+    }
+}
@@ -0,0 +1,114 @@
+package by.cloud.file_service.service;
+
+import by.cloud.file.dto.UsageDto;
+import by.cloud.file_service.config.QuotaProperties;
+import by.cloud.file_service.datasource.MetadataShards;
+import by.cloud.file_service.exception.QuotaExceededException;
+import by.cloud.file_service.repository.UserUsageRepository;
+import by.cloud.file_service.repository.projection.RemovedFilesView;
+import by.cloud.file_service.util.DateTimeUtil;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/*
+    Использование хранилища пользователями.
+    Изменения (байты, количество файлов) накапливаются в памяти (PendingDeltas) и периодически записываются
+    в file.user_usage одним запросом, поэтому частые загрузки одного пользователя
+    не конкурируют за блокировку его строки
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UsageService {
+    private final UserUsageRepository userUsageRepository;
+    private final QuotaProperties properties;
+    private final MetadataShards metadataShards;
+    private final TransactionTemplate transactionTemplate;
+    private final DateTimeUtil dateTimeUtil;
+
+    private final PendingDeltas<UUID, Delta> pending = new PendingDeltas<>("user usage deltas", Delta::plus,
+            this::write);
+
+    /*
+        Сумма без изменений удаляется из очереди
+     */
+    private record Delta(long bytes, long files) {
+        private Delta plus(Delta other) {
+            var sum = new Delta(bytes + other.bytes, files + other.files);
+            return sum.bytes != 0 || sum.files != 0 ? sum : null;
+        }
+    }
+
+    /*
+        Внутри транзакции изменение учитывается только после ее фиксации
+     */
+    public void recordDelta(UUID userId, long bytes, long files) {
+        if (bytes != 0 || files != 0) {
+            pending.record(metadataShards.current(), userId, new Delta(bytes, files));
+        }
+    }
+
+    /*
+        Учитывает файлы, удаленные массовой операцией
+     */
+    public void recordRemoved(Collection<? extends RemovedFilesView> deltas) {
+        deltas.forEach(delta -> recordDelta(delta.getUserId(), -delta.getBytes(), -delta.getFiles()));
+    }
+
+    public UsageDto getUsage(UUID userId) {
+        var usage = userUsageRepository.findById(userId).orElse(null);
+        long usedBytes = usage != null ? usage.getUsedBytes() : 0;
+        long fileCount = usage != null ? usage.getFileCount() : 0;
+        var quotaBytes = usage != null && usage.getQuotaBytes() != null ? usage.getQuotaBytes() : properties.defaultBytes();
+
+        var delta = pending.get(metadataShards.current(), userId);
+        if (delta != null) {
+            usedBytes += delta.bytes();
+            fileCount += delta.files();
+        }
+        return new UsageDto(userId, usedBytes, fileCount, quotaBytes);
+    }
+
+    /*
+        Проверка выполняется до записи объектов в MinIO
+     */
+    public void checkQuota(UUID userId, long incomingBytes) {
+        var usage = getUsage(userId);
+        if (usage.getUsedBytes() + incomingBytes > usage.getQuotaBytes()) {
+            throw new QuotaExceededException("Quota exceeded for user [%s]: used [%s] of [%s] bytes, uploading [%s] bytes",
+                    userId, usage.getUsedBytes(), usage.getQuotaBytes(), incomingBytes);
+        }
+    }
+
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${application.quota.flush-interval}")
+    public void flush() {
+        pending.flush(metadataShards);
+    }
+
+    private void write(List<UUID> userIds, List<Delta> deltas) {
+        transactionTemplate.executeWithoutResult(status -> userUsageRepository.applyDeltas(
+                userIds.toArray(UUID[]::new),
+                deltas.stream().map(Delta::bytes).toArray(Long[]::new),
+                deltas.stream().map(Delta::files).toArray(Long[]::new),
+                dateTimeUtil.now()));
+    }
+
+    @Scheduled(cron = "${application.quota.recount-cron}")
+    public void recount() {
+        var now = dateTimeUtil.now();
+        metadataShards.forEach(() -> {
+            var updated = transactionTemplate.execute(status ->
+                    userUsageRepository.recount(now.minus(properties.quietPeriod()), now));
+            log.info("IN - recount: usage of [{}] users corrected on metadata shard [{}]", updated, metadataShards.current());
+        });
+    }
+}
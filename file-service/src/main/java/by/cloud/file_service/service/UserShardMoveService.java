@@ -0,0 +1,223 @@
+package by.cloud.file_service.service;
+
+import by.cloud.file.dto.UserShardMoveDto;
+import by.cloud.file.dto.UserShardMoveRequestDto;
+import by.cloud.file_service.config.MetadataShardProperties;
+import by.cloud.file_service.datasource.MetadataShards;
+import by.cloud.file_service.datasource.UserMetadataTransfer;
+import by.cloud.file_service.entity.UserShardMove;
+import by.cloud.file_service.entity.UserShardMoveStep;
+import by.cloud.file_service.exception.FileException;
+import by.cloud.file_service.mapper.FileMapper;
+import by.cloud.file_service.repository.UserShardMoveRepository;
+import by.cloud.file_service.repository.UserShardRepository;
+import by.cloud.file_service.util.DateTimeUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/*
+    Перенос метаданных пользователя на другой шард без остановки сервиса (назначение DIRECTORY).
+    Экземпляры узнают шард пользователя с задержкой до cacheTtl (UserShardService), поэтому между шагами
+    выдерживается пауза moveSettle:
+    1. REQUESTED -> FROZEN: пользователь отмечается moving, изменения его данных отклоняются (MetadataShardFilter).
+    2. FROZEN -> SWITCHED: после паузы все экземпляры видят заморозку, начатые изменения завершены, накопленные
+       изменения записаны. Когда задачи очереди пользователя выполнены, строки копируются на новый шард одной
+       транзакцией (UserMetadataTransfer) и пользователь переключается на него. Экземпляры со старым значением
+       читают неизменные строки прежнего шарда и отклоняют изменения.
+    3. SWITCHED -> COMPLETED: после паузы никто не обращается к прежнему шарду, строки пользователя на нем удаляются.
+
+    Пока перенос не завершен, объекты не переносятся между шардами хранилища (ShardMigrationService):
+    у строк на обоих шардах должно оставаться одно размещение объектов.
+    История изменений остается на прежнем шарде
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UserShardMoveService {
+    private static final Set<UserShardMoveStep> IN_PROGRESS =
+            Set.of(UserShardMoveStep.REQUESTED, UserShardMoveStep.FROZEN, UserShardMoveStep.SWITCHED);
+    private static final Set<UserShardMoveStep> CANCELLABLE =
+            Set.of(UserShardMoveStep.REQUESTED, UserShardMoveStep.FROZEN);
+
+    private final UserShardMoveRepository userShardMoveRepository;
+    private final UserShardRepository userShardRepository;
+    private final UserShardService userShardService;
+    private final UserMetadataTransfer transfer;
+    private final MetadataShards metadataShards;
+    private final MetadataShardProperties properties;
+    private final FileMapper fileMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final DateTimeUtil dateTimeUtil;
+
+    public UserShardMoveDto requestMove(UserShardMoveRequestDto requestDto) {
+        if (!metadataShards.isSharded() || properties.assignment() != MetadataShardProperties.Assignment.DIRECTORY) {
+            throw new FileException("Moving users requires metadata sharding with directory assignment");
+        }
+        var userId = requestDto.getUserId();
+        var target = requestDto.getTargetShard();
+        if (!metadataShards.names().contains(target)) {
+            throw new FileException("Metadata shard [%s] is not configured", target);
+        }
+        var source = userShardService.load(userId).shard();
+        if (source.equals(target)) {
+            throw new FileException("User [%s] is already on metadata shard [%s]", userId, target);
+        }
+
+        var move = metadataShards.callOn(MetadataShards.DEFAULT_SHARD, () -> transactionTemplate.execute(status -> {
+            var existing = userShardMoveRepository.findById(userId).orElse(null);
+            if (existing != null && IN_PROGRESS.contains(existing.getStep())) {
+                throw new FileException("Move of user [%s] is already in progress", userId);
+            }
+            var now = dateTimeUtil.now();
+            var created = existing != null ? existing : new UserShardMove();
+            created.setUserId(userId);
+            created.setSourceShard(source);
+            created.setTargetShard(target);
+            created.setStep(UserShardMoveStep.REQUESTED);
+            created.setError(null);
+            created.setCreated(now);
+            created.setUpdated(now);
+            return userShardMoveRepository.save(created);
+        }));
+        log.info("IN - requestMove: move of user [{}] from metadata shard [{}] to [{}] requested", userId, source, target);
+        return fileMapper.toMoveDto(move);
+    }
+
+    public UserShardMoveDto findMove(UUID userId) {
+        var move = metadataShards.callOn(MetadataShards.DEFAULT_SHARD, () -> userShardMoveRepository.findById(userId))
+                .orElseThrow(() -> new FileException("Move not found by userId=[%s]", userId));
+        return fileMapper.toMoveDto(move);
+    }
+
+    /*
+        Отмена до переключения: пользователь остается на прежнем шарде, скопированные строки удаляются с нового
+     */
+    public UserShardMoveDto cancelMove(UUID userId) {
+        var move = metadataShards.callOn(MetadataShards.DEFAULT_SHARD, () -> transactionTemplate.execute(status -> {
+            var locked = userShardMoveRepository.lockByUserId(userId).orElse(null);
+            if (locked == null) {
+                if (!userShardMoveRepository.existsById(userId)) {
+                    throw new FileException("Move not found by userId=[%s]", userId);
+                }
+                throw new FileException("Move of user [%s] is being processed, retry later", userId);
+            }
+            if (!CANCELLABLE.contains(locked.getStep())) {
+                throw new FileException("Move of user [%s] cannot be cancelled at step [%s]", userId, locked.getStep());
+            }
+            var now = dateTimeUtil.now();
+            if (locked.getStep() == UserShardMoveStep.FROZEN) {
+                deleteRows(userId, locked.getTargetShard());
+            }
+            userShardRepository.assign(userId, locked.getSourceShard(), false, now);
+            locked.setStep(UserShardMoveStep.CANCELLED);
+            locked.setUpdated(now);
+            return userShardMoveRepository.save(locked);
+        }));
+        userShardService.evict(userId);
+        log.info("IN - cancelMove: move of user [{}] cancelled", userId);
+        return fileMapper.toMoveDto(move);
+    }
+
+    public boolean isMoveInProgress() {
+        return metadataShards.isSharded() && metadataShards.callOn(MetadataShards.DEFAULT_SHARD,
+                userShardMoveRepository::existsInProgress);
+    }
+
+    @Scheduled(fixedDelayString = "${application.metadata-sharding.move-interval}")
+    public void advance() {
+        if (!metadataShards.isSharded()) {
+            return;
+        }
+        userShardService.evictExpired();
+        metadataShards.runOn(MetadataShards.DEFAULT_SHARD, () -> {
+            List<UUID> processed = new ArrayList<>();
+            for (int i = 0; i < properties.maxMovesPerRun(); i++) {
+                var userId = transactionTemplate.execute(status -> advanceNext(processed));
+                if (userId == null) {
+                    break;
+                }
+                processed.add(userId);
+            }
+        });
+    }
+
+    /*
+        Выполняет очередной шаг одного переноса. Возвращает пользователя или null, если готовых переносов нет
+     */
+    private UUID advanceNext(List<UUID> processed) {
+        var now = dateTimeUtil.now();
+        var move = userShardMoveRepository.lockNextReady(now.minus(properties.moveSettle()),
+                processed.toArray(UUID[]::new)).orElse(null);
+        if (move == null) {
+            return null;
+        }
+
+        try {
+            switch (move.getStep()) {
+                case REQUESTED -> freeze(move, now);
+                case FROZEN -> switchShard(move, now);
+                case SWITCHED -> cleanUp(move, now);
+                default -> log.warn("IN - advanceNext: move of user [{}] at step [{}] skipped", move.getUserId(), move.getStep());
+            }
+        } catch (SQLException e) {
+            // Шаг повторяется при следующем запуске, до успешного шага пользователь остается замороженным
+            log.error("Failed to advance move of user [{}] at step [{}]", move.getUserId(), move.getStep(), e);
+            move.setError(e.getMessage());
+        }
+        userShardMoveRepository.save(move);
+        userShardService.evict(move.getUserId());
+        return move.getUserId();
+    }
+
+    private void freeze(UserShardMove move, Instant now) {
+        userShardRepository.createIfAbsent(move.getUserId(), move.getSourceShard(), now);
+        userShardRepository.assign(move.getUserId(), move.getSourceShard(), true, now);
+        move.setStep(UserShardMoveStep.FROZEN);
+        move.setError(null);
+        move.setUpdated(now);
+        log.info("IN - freeze: changes of user [{}] frozen on metadata shard [{}]", move.getUserId(), move.getSourceShard());
+    }
+
+    private void switchShard(UserShardMove move, Instant now) throws SQLException {
+        var activeJobs = transfer.countActiveJobs(move.getUserId(), move.getSourceShard());
+        if (activeJobs > 0) {
+            log.info("IN - switchShard: move of user [{}] waits for [{}] jobs", move.getUserId(), activeJobs);
+            return;
+        }
+        var copied = transfer.copy(move.getUserId(), move.getSourceShard(), move.getTargetShard());
+        userShardRepository.assign(move.getUserId(), move.getTargetShard(), false, now);
+        move.setStep(UserShardMoveStep.SWITCHED);
+        move.setError(null);
+        move.setUpdated(now);
+        log.info("IN - switchShard: [{}] rows of user [{}] copied, user switched to metadata shard [{}]",
+                copied, move.getUserId(), move.getTargetShard());
+    }
+
+    private void cleanUp(UserShardMove move, Instant now) throws SQLException {
+        var deleted = transfer.delete(move.getUserId(), move.getSourceShard());
+        move.setStep(UserShardMoveStep.COMPLETED);
+        move.setError(null);
+        move.setUpdated(now);
+        log.info("IN - cleanUp: [{}] rows of user [{}] removed from metadata shard [{}], move completed",
+                deleted, move.getUserId(), move.getSourceShard());
+    }
+
+    private void deleteRows(UUID userId, String shard) {
+        try {
+            transfer.delete(userId, shard);
+        } catch (SQLException e) {
+            throw new FileException("Failed to remove rows of user [%s] from metadata shard [%s]: %s",
+                    userId, shard, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package by.cloud.file_service.service;
+
+import by.cloud.file_service.config.MetadataShardProperties;
+import by.cloud.file_service.datasource.MetadataShards;
+import by.cloud.file_service.repository.DirectoryRepository;
+import by.cloud.file_service.repository.UserShardRepository;
+import by.cloud.file_service.repository.UserUsageRepository;
+import by.cloud.file_service.util.DateTimeUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/*
+    Шард метаданных пользователя.
+    При назначении DIRECTORY шард читается из file.user_shards базы default и хранится в памяти cacheTtl,
+    поэтому изменение шарда (перенос) становится видно всем экземплярам не позже чем через cacheTtl.
+    Новый пользователь закрепляется за шардом при первом обращении: если данные пользователя уже есть
+    на одном из шардов (созданы до включения шардирования), то за этим шардом, иначе - за шардом по кольцу
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UserShardService {
+    private final UserShardRepository userShardRepository;
+    private final DirectoryRepository directoryRepository;
+    private final UserUsageRepository userUsageRepository;
+    private final MetadataShards metadataShards;
+    private final MetadataShardProperties properties;
+    private final TransactionTemplate transactionTemplate;
+    private final DateTimeUtil dateTimeUtil;
+
+    private final Map<UUID, CachedAssignment> cache = new ConcurrentHashMap<>();
+
+    /*
+        moving - пользователь переносится на другой шард, изменения его данных не принимаются
+     */
+    public record Assignment(String shard, boolean moving) { }
+
+    private record CachedAssignment(Assignment assignment, Instant expires) { }
+
+    /*
+        Вызывается вне транзакции
+     */
+    public Assignment find(UUID userId) {
+        if (properties.assignment() == MetadataShardProperties.Assignment.HASH) {
+            return new Assignment(metadataShards.locate(userId), false);
+        }
+        var now = dateTimeUtil.now();
+        var cached = cache.get(userId);
+        if (cached != null && cached.expires().isAfter(now)) {
+            return cached.assignment();
+        }
+        var assignment = load(userId);
+        cache.put(userId, new CachedAssignment(assignment, now.plus(properties.cacheTtl())));
+        return assignment;
+    }
+
+    /*
+        Шард по таблице без кеша
+     */
+    public Assignment load(UUID userId) {
+        return metadataShards.callOn(MetadataShards.DEFAULT_SHARD, () -> {
+            var userShard = userShardRepository.findById(userId).orElse(null);
+            if (userShard != null) {
+                return new Assignment(userShard.getShard(), userShard.getMoving());
+            }
+            var shard = locateExisting(userId);
+            transactionTemplate.executeWithoutResult(status ->
+                    userShardRepository.createIfAbsent(userId, shard, dateTimeUtil.now()));
+            var created = userShardRepository.findById(userId).orElseThrow();
+            log.info("IN - load: user [{}] assigned to metadata shard [{}]", userId, created.getShard());
+            return new Assignment(created.getShard(), created.getMoving());
+        });
+    }
+
+    /*
+        Выполняет запрос по id объектов разных пользователей (пакетное чтение) на каждом шарде,
+        в отдельной транзакции чтения. Вызывается вне транзакции.
+        Во время переноса строки пользователя есть на двух шардах, поэтому остаются только строки
+        с шарда, назначенного владельцу строки
+     */
+    public <T> List<T> findOwned(Supplier<List<T>> query, Function<T, UUID> owner) {
+        var readOnly = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        readOnly.setReadOnly(true);
+        if (!metadataShards.isSharded()) {
+            return readOnly.execute(status -> query.get());
+        }
+        List<T> result = new ArrayList<>();
+        for (var shard : metadataShards.names()) {
+            var rows = metadataShards.callOn(shard, () -> readOnly.execute(status -> query.get()));
+            rows.stream()
+                    .filter(row -> find(owner.apply(row)).shard().equals(shard))
+                    .forEach(result::add);
+        }
+        return result;
+    }
+
+    public void evict(UUID userId) {
+        cache.remove(userId);
+    }
+
+    public void evictExpired() {
+        var now = dateTimeUtil.now();
+        cache.values().removeIf(cached -> !cached.expires().isAfter(now));
+    }
+
+    private String locateExisting(UUID userId) {
+        return metadataShards.names().stream()
+                .filter(shard -> metadataShards.callOn(shard, () ->
+                        directoryRepository.existsByUserId(userId) || userUsageRepository.existsById(userId)))
+                .findFirst()
+                .orElseGet(() -> metadataShards.locate(userId));
+    }
+}
@@ -0,0 +1,66 @@
+package by.cloud.file_service.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/*
+    Кольцо согласованного хеширования с виртуальными узлами.
+    Каждый узел занимает virtualNodes * weight точек кольца, ключ принадлежит ближайшей точке по часовой стрелке.
+    При добавлении узла меняют владельца только ключи, попавшие на дуги перед его точками,
+    то есть примерно доля weight / totalWeight всех ключей
+ */
+public final class ConsistentHashRing {
+    private final NavigableMap<Long, String> ring = new TreeMap<>();
+    private final String fingerprint;
+
+    /*
+        Узлы добавляются в порядке имен, поэтому при совпадении хешей точек кольцо одинаково на всех экземплярах
+     */
+    public ConsistentHashRing(Map<String, Integer> weights, int virtualNodes) {
+        new TreeMap<>(weights).forEach((node, weight) -> {
+            for (int i = 0; i < virtualNodes * weight; i++) {
+                ring.putIfAbsent(hash(node + "#" + i), node);
+            }
+        });
+        if (ring.isEmpty()) {
+            throw new IllegalStateException("Consistent hash ring has no nodes with positive weight");
+        }
+
+        var digest = md5();
+        ring.forEach((point, node) -> {
+            digest.update(ByteBuffer.allocate(Long.BYTES).putLong(point).array());
+            digest.update(node.getBytes(StandardCharsets.UTF_8));
+        });
+        fingerprint = HexFormat.of().formatHex(digest.digest());
+    }
+
+    public String locate(String key) {
+        var entry = ring.ceilingEntry(hash(key));
+        return (entry != null ? entry : ring.firstEntry()).getValue();
+    }
+
+    /*
+        Отпечаток расположения точек: совпадает у колец с одинаковыми узлами, весами и числом виртуальных узлов
+     */
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    private static long hash(String value) {
+        return ByteBuffer.wrap(md5().digest(value.getBytes(StandardCharsets.UTF_8))).getLong();
+    }
+
+    private static MessageDigest md5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 is not available", e);
+        }
+    }
+}
@@ -16,5 +16,9 @@ public class DateTimeUtil {
     public Instant now() {
         return clock.instant();
     }
+
+    public OffsetDateTime toOffsetDateTime(Instant instant) {
+        return instant != null ? instant.atOffset(ZoneOffset.UTC) : null;
+    }
 }
 
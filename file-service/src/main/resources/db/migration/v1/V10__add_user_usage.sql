@@ -0,0 +1,18 @@
+-- Использование хранилища пользователями. Поддерживается инкрементально (UsageService),
+-- quota_bytes = NULL означает квоту по умолчанию из настроек
+CREATE TABLE IF NOT EXISTS file.user_usage
+(
+    user_id     UUID PRIMARY KEY,
+    used_bytes  BIGINT                      NOT NULL DEFAULT 0,
+    file_count  BIGINT                      NOT NULL DEFAULT 0,
+    quota_bytes BIGINT                      NULL,
+    updated     TIMESTAMP WITHOUT TIME ZONE NOT NULL DEFAULT (now() AT TIME ZONE 'utc')
+);
+
+INSERT INTO file.user_usage (user_id, used_bytes, file_count)
+SELECT f.user_id, sum(f.file_size), count(*)
+FROM file.files f
+WHERE f.active = TRUE
+GROUP BY f.user_id
+ON CONFLICT (user_id) DO UPDATE SET used_bytes = EXCLUDED.used_bytes,
+                                    file_count = EXCLUDED.file_count;
@@ -0,0 +1,39 @@
+-- Агрегаты каталога: непосредственно в каталоге и по всему поддереву.
+-- Поддерживаются инкрементально (DirectoryStatsService), здесь заполняются по текущим данным
+ALTER TABLE file.directories
+    ADD COLUMN IF NOT EXISTS file_count              BIGINT                      NOT NULL DEFAULT 0,
+    ADD COLUMN IF NOT EXISTS total_bytes             BIGINT                      NOT NULL DEFAULT 0,
+    ADD COLUMN IF NOT EXISTS last_modified           TIMESTAMP WITHOUT TIME ZONE NULL,
+    ADD COLUMN IF NOT EXISTS recursive_file_count    BIGINT                      NOT NULL DEFAULT 0,
+    ADD COLUMN IF NOT EXISTS recursive_total_bytes   BIGINT                      NOT NULL DEFAULT 0,
+    ADD COLUMN IF NOT EXISTS recursive_last_modified TIMESTAMP WITHOUT TIME ZONE NULL;
+
+UPDATE file.directories d
+SET file_count    = s.files,
+    total_bytes   = s.bytes,
+    last_modified = s.modified
+FROM (SELECT f.directory_id, count(*) AS files, sum(f.file_size) AS bytes, max(f.updated) AS modified
+      FROM file.files f
+      WHERE f.active = TRUE
+      GROUP BY f.directory_id) s
+WHERE d.id = s.directory_id;
+
+-- Каждый активный каталог вносит свои значения в себя и во всех активных предков
+WITH RECURSIVE chain AS (
+    SELECT d.id AS directory_id, d.id AS ancestor_id, d.parent_id
+    FROM file.directories d
+    WHERE d.active = TRUE
+    UNION ALL
+    SELECT c.directory_id, p.id, p.parent_id
+    FROM chain c
+    JOIN file.directories p ON p.id = c.parent_id AND p.active = TRUE
+)
+UPDATE file.directories d
+SET recursive_file_count    = s.files,
+    recursive_total_bytes   = s.bytes,
+    recursive_last_modified = s.modified
+FROM (SELECT c.ancestor_id, sum(x.file_count) AS files, sum(x.total_bytes) AS bytes, max(x.last_modified) AS modified
+      FROM chain c
+      JOIN file.directories x ON x.id = c.directory_id
+      GROUP BY c.ancestor_id) s
+WHERE d.id = s.ancestor_id;
@@ -0,0 +1,33 @@
+-- Номер текущей версии содержимого файла. Текущая версия хранится в самой строке file.files
+ALTER TABLE file.files ADD COLUMN IF NOT EXISTS current_version INTEGER NOT NULL DEFAULT 1;
+ALTER TABLE file_history.files_history ADD COLUMN IF NOT EXISTS current_version INTEGER NOT NULL DEFAULT 1;
+
+-- Предыдущие версии содержимого файла. Объект версии остается в MinIO под своим именем,
+-- строка удаляется вместе с файлом (FileGcService) или по истечении срока хранения (FileVersionRetentionService).
+-- expires = NULL - версия хранится бессрочно
+CREATE TABLE IF NOT EXISTS file.file_versions
+(
+    id          UUID PRIMARY KEY,
+    file_id     UUID                        NOT NULL,
+    version     INTEGER                     NOT NULL,
+    object_name VARCHAR(64)                 NOT NULL,
+    file_size   INTEGER                     NOT NULL,
+    mime_type   VARCHAR(128)                NOT NULL,
+    created     TIMESTAMP WITHOUT TIME ZONE NOT NULL DEFAULT (now() AT TIME ZONE 'utc'),
+    expires     TIMESTAMP WITHOUT TIME ZONE NULL,
+
+    CONSTRAINT fk_file_versions_file FOREIGN KEY (file_id) REFERENCES file.files (id) ON DELETE CASCADE
+);
+
+-- Список версий файла и скачивание версии по номеру
+CREATE UNIQUE INDEX IF NOT EXISTS ux_file_versions_file_id_version
+    ON file.file_versions (file_id, version);
+
+-- Очередь версий с истекшим сроком хранения
+CREATE INDEX IF NOT EXISTS idx_file_versions_expires
+    ON file.file_versions (expires)
+    WHERE expires IS NOT NULL;
+
+-- Объекты версий участвуют в сверке с MinIO наравне с объектами файлов
+CREATE INDEX IF NOT EXISTS idx_file_versions_object_name
+    ON file.file_versions (object_name COLLATE "C");
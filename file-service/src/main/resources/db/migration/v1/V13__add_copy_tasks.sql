@@ -0,0 +1,30 @@
+-- Фоновое копирование каталогов. Строка задачи хранит прогресс:
+-- файлы копируются пачками в порядке id, cursor - id последнего скопированного исходного файла
+CREATE TABLE IF NOT EXISTS file.copy_tasks
+(
+    id                  UUID PRIMARY KEY,
+    user_id             UUID                        NOT NULL,
+    source_directory_id UUID                        NOT NULL,
+    target_directory_id UUID                        NOT NULL,
+    status              VARCHAR(16)                 NOT NULL,
+    total_files         BIGINT                      NOT NULL DEFAULT 0,
+    total_bytes         BIGINT                      NOT NULL DEFAULT 0,
+    copied_files        BIGINT                      NOT NULL DEFAULT 0,
+    copied_bytes        BIGINT                      NOT NULL DEFAULT 0,
+    cursor              UUID                        NOT NULL DEFAULT '00000000-0000-0000-0000-000000000000',
+    error               TEXT                        NULL,
+    created             TIMESTAMP WITHOUT TIME ZONE NOT NULL DEFAULT (now() AT TIME ZONE 'utc'),
+    updated             TIMESTAMP WITHOUT TIME ZONE NOT NULL DEFAULT (now() AT TIME ZONE 'utc')
+);
+
+-- Соответствие исходных каталогов их копиям. Заполняется при создании задачи,
+-- удаляется после копирования последнего файла
+CREATE TABLE IF NOT EXISTS file.copy_task_directories
+(
+    task_id   UUID NOT NULL,
+    source_id UUID NOT NULL,
+    target_id UUID NOT NULL,
+
+    CONSTRAINT pk_copy_task_directories PRIMARY KEY (task_id, source_id),
+    CONSTRAINT fk_copy_task_directories_task FOREIGN KEY (task_id) REFERENCES file.copy_tasks (id) ON DELETE CASCADE
+);
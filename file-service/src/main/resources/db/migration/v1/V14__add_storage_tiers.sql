@@ -0,0 +1,18 @@
+-- Уровень хранения объекта файла и время последнего обращения к нему.
+-- Объект хранится под одним и тем же именем в бакете своего уровня.
+-- last_accessed обновляется по выборке скачиваний (AccessTrackingService) и не попадает в историю изменений
+ALTER TABLE file.files
+    ADD COLUMN IF NOT EXISTS storage_tier  VARCHAR(16)                 NOT NULL DEFAULT 'HOT',
+    ADD COLUMN IF NOT EXISTS last_accessed TIMESTAMP WITHOUT TIME ZONE NOT NULL DEFAULT (now() AT TIME ZONE 'utc');
+
+UPDATE file.files
+SET last_accessed = updated;
+
+-- Предыдущая версия остается на уровне, на котором был объект файла в момент замены содержимого
+ALTER TABLE file.file_versions
+    ADD COLUMN IF NOT EXISTS storage_tier VARCHAR(16) NOT NULL DEFAULT 'HOT';
+
+-- Кандидаты на перенос в холодный бакет, от давно не читаемых к недавним
+CREATE INDEX IF NOT EXISTS idx_files_hot_last_accessed
+    ON file.files (last_accessed)
+    WHERE active = TRUE AND storage_tier = 'HOT';
@@ -0,0 +1,27 @@
+-- Шард хранилища, на котором находится объект файла или версии (StorageShardRegistry).
+-- Существующие объекты находятся в хранилище minio.*, которое подключено как шард default
+ALTER TABLE file.files
+    ADD COLUMN IF NOT EXISTS storage_shard VARCHAR(64) NOT NULL DEFAULT 'default';
+
+ALTER TABLE file.file_versions
+    ADD COLUMN IF NOT EXISTS storage_shard VARCHAR(64) NOT NULL DEFAULT 'default';
+
+-- Позиция переноса объектов между шардами (ShardMigrationService).
+-- ring - отпечаток кольца, для которого выполняется проход; при изменении кольца проход начинается заново.
+-- Объекты просматриваются в порядке object_name по индексам сверки с MinIO
+CREATE TABLE IF NOT EXISTS file.shard_migration_state
+(
+    name          VARCHAR(64) PRIMARY KEY,
+    ring          VARCHAR(64)                 NULL,
+    cursor        VARCHAR(64)                 NULL,
+    skipped       BIGINT                      NOT NULL DEFAULT 0,
+    moved_objects BIGINT                      NOT NULL DEFAULT 0,
+    moved_bytes   BIGINT                      NOT NULL DEFAULT 0,
+    pass_started  TIMESTAMP WITHOUT TIME ZONE NULL,
+    completed     BOOLEAN                     NOT NULL DEFAULT FALSE,
+    updated       TIMESTAMP WITHOUT TIME ZONE NOT NULL DEFAULT (now() AT TIME ZONE 'utc')
+);
+
+INSERT INTO file.shard_migration_state (name)
+VALUES ('objects')
+ON CONFLICT DO NOTHING;
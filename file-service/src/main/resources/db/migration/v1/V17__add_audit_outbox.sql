@@ -0,0 +1,11 @@
+-- Очередь изменений для асинхронной записи истории (application.audit.mode = ASYNC).
+-- Одна строка - одна зафиксированная транзакция, в changes массив строк *_history без номера ревизии:
+-- [{"table": "file_history.files_history", "row": {"id": ..., "revision_type": 0, ...}}, ...].
+-- audit.AuditOutboxWriter создает ревизию для каждой строки и переносит changes в таблицы истории
+CREATE TABLE IF NOT EXISTS file_history.audit_outbox
+(
+    id        BIGSERIAL PRIMARY KEY,
+    revtmstmp BIGINT                      NOT NULL,
+    changes   JSONB                       NOT NULL,
+    created   TIMESTAMP WITHOUT TIME ZONE NOT NULL DEFAULT (now() AT TIME ZONE 'utc')
+);
@@ -0,0 +1,70 @@
+-- Секционирование истории по месяцам (HistoryPartitionService).
+-- Номер ревизии привязан ко времени: ревизии месяца YYYYMM выдаются из диапазона
+-- [YYYYMM * 10^10, следующий YYYYMM * 10^10), последовательность revinfo_seq переводится
+-- в диапазон месяца в его начале. Поэтому revinfo и *_history секционируются по номеру ревизии:
+-- секция соответствует месяцу, запросы Envers по номеру ревизии отсекают лишние секции,
+-- а устаревшая история удаляется целыми секциями.
+--
+-- Существующие таблицы подключаются как секции *_legacy для диапазона до текущего месяца.
+-- Внешние ключи на revinfo удаляются: строки истории и их ревизии лежат в секциях
+-- с одинаковыми границами и удаляются вместе
+
+ALTER TABLE file_history.files_history DROP CONSTRAINT IF EXISTS fk_files_history_rev;
+ALTER TABLE file_history.directories_history DROP CONSTRAINT IF EXISTS fk_directories_history_rev;
+
+ALTER TABLE file_history.revinfo RENAME TO revinfo_legacy;
+ALTER TABLE file_history.revinfo_legacy RENAME CONSTRAINT revinfo_pkey TO revinfo_legacy_pkey;
+
+ALTER TABLE file_history.files_history RENAME TO files_history_legacy;
+ALTER TABLE file_history.files_history_legacy RENAME CONSTRAINT pk_files_history TO pk_files_history_legacy;
+ALTER INDEX file_history.idx_files_history_revision RENAME TO idx_files_history_legacy_revision;
+
+ALTER TABLE file_history.directories_history RENAME TO directories_history_legacy;
+ALTER TABLE file_history.directories_history_legacy RENAME CONSTRAINT pk_directories_history TO pk_directories_history_legacy;
+ALTER INDEX file_history.idx_directories_history_revision RENAME TO idx_directories_history_legacy_revision;
+
+CREATE TABLE file_history.revinfo
+(
+    rev       BIGINT NOT NULL,
+    revtmstmp BIGINT,
+
+    CONSTRAINT pk_revinfo PRIMARY KEY (rev)
+) PARTITION BY RANGE (rev);
+
+CREATE TABLE file_history.files_history
+(
+    LIKE file_history.files_history_legacy INCLUDING DEFAULTS,
+
+    CONSTRAINT pk_files_history PRIMARY KEY (id, revision)
+) PARTITION BY RANGE (revision);
+
+CREATE INDEX IF NOT EXISTS idx_files_history_revision ON file_history.files_history (revision);
+
+CREATE TABLE file_history.directories_history
+(
+    LIKE file_history.directories_history_legacy INCLUDING DEFAULTS,
+
+    CONSTRAINT pk_directories_history PRIMARY KEY (id, revision)
+) PARTITION BY RANGE (revision);
+
+CREATE INDEX IF NOT EXISTS idx_directories_history_revision ON file_history.directories_history (revision);
+
+DO
+$$
+    DECLARE
+        month_start TIMESTAMP := date_trunc('month', now() AT TIME ZONE 'utc');
+        base        BIGINT    := to_char(month_start, 'YYYYMM')::BIGINT * 10000000000;
+        next_base   BIGINT    := to_char(month_start + INTERVAL '1 month', 'YYYYMM')::BIGINT * 10000000000;
+        t           TEXT;
+    BEGIN
+        FOREACH t IN ARRAY ARRAY ['revinfo', 'files_history', 'directories_history']
+            LOOP
+                EXECUTE format('ALTER TABLE file_history.%I ATTACH PARTITION file_history.%I FOR VALUES FROM (MINVALUE) TO (%s)',
+                               t, t || '_legacy', base);
+                EXECUTE format('CREATE TABLE file_history.%I PARTITION OF file_history.%I FOR VALUES FROM (%s) TO (%s)',
+                               t || '_p' || to_char(month_start, 'YYYYMM'), t, base, next_base);
+            END LOOP;
+
+        PERFORM setval('file_history.revinfo_seq', base);
+    END
+$$;
@@ -0,0 +1,215 @@
+-- Хеш-секционирование file.directories и file.files по user_id (16 секций).
+-- Все пользовательские запросы содержат user_id и читают одну секцию; индексы и очистка
+-- каждой секции растут с ее долей пользователей, а не со всей базой.
+--
+-- Перенос выполняется без остановки сервиса (MetadataPartitioningService):
+-- 1. Миграция создает секционированные копии *_partitioned и триггеры, которые повторяют в них
+--    каждое изменение исходных таблиц.
+-- 2. Сервис копирует существующие строки пачками в порядке id (сначала каталоги, затем файлы).
+-- 3. После копирования процедура file.swap_partitioned_metadata() за одну короткую транзакцию удаляет триггеры
+--    и меняет таблицы местами по именам; исходные таблицы остаются как *_legacy и удаляются вручную.
+-- 4. Внешние ключи между секциями (файл -> каталог, каталог -> родитель) добавляются NOT VALID
+--    и проверяются процедурой file.validate_partitioned_metadata() без блокировки записи.
+--
+-- До завершения переноса структуру file.files и file.directories менять нельзя:
+-- триггеры копируют строки целиком и требуют одинакового набора столбцов
+
+-- Уникальные ограничения секционированной таблицы включают ключ секционирования,
+-- поэтому первичный ключ - (id, user_id), а уникальность имени в каталоге - в пределах пользователя
+CREATE TABLE IF NOT EXISTS file.directories_partitioned
+(
+    LIKE file.directories INCLUDING DEFAULTS,
+
+    CONSTRAINT pk_directories_partitioned PRIMARY KEY (id, user_id)
+) PARTITION BY HASH (user_id);
+
+CREATE TABLE IF NOT EXISTS file.files_partitioned
+(
+    LIKE file.files INCLUDING DEFAULTS,
+
+    CONSTRAINT pk_files_partitioned PRIMARY KEY (id, user_id)
+) PARTITION BY HASH (user_id);
+
+DO
+$$
+    BEGIN
+        FOR remainder IN 0..15
+            LOOP
+                EXECUTE format('CREATE TABLE IF NOT EXISTS file.%I PARTITION OF file.directories_partitioned '
+                                   || 'FOR VALUES WITH (MODULUS 16, REMAINDER %s)',
+                               'directories_p' || lpad(remainder::TEXT, 2, '0'), remainder);
+                EXECUTE format('CREATE TABLE IF NOT EXISTS file.%I PARTITION OF file.files_partitioned '
+                                   || 'FOR VALUES WITH (MODULUS 16, REMAINDER %s)',
+                               'files_p' || lpad(remainder::TEXT, 2, '0'), remainder);
+            END LOOP;
+    END
+$$;
+
+-- Индексы повторяют индексы исходных таблиц; суффикс _partitioned снимается при замене таблиц
+CREATE UNIQUE INDEX IF NOT EXISTS ux_directories_parent_id_name_partitioned
+    ON file.directories_partitioned (user_id, parent_id, name)
+    WHERE active = TRUE;
+
+CREATE INDEX IF NOT EXISTS idx_directories_parent_id_partitioned
+    ON file.directories_partitioned (parent_id);
+
+CREATE INDEX IF NOT EXISTS idx_directories_user_id_active_partitioned
+    ON file.directories_partitioned (user_id, parent_id)
+    WHERE active = TRUE;
+
+CREATE INDEX IF NOT EXISTS idx_directories_base_partitioned
+    ON file.directories_partitioned (user_id, created)
+    WHERE parent_id IS NULL AND active = TRUE;
+
+CREATE INDEX IF NOT EXISTS idx_files_directory_id_partitioned
+    ON file.files_partitioned (directory_id);
+
+CREATE INDEX IF NOT EXISTS idx_files_file_name_trgm_partitioned
+    ON file.files_partitioned USING gin (lower(file_name) gin_trgm_ops)
+    WHERE active = TRUE;
+
+CREATE INDEX IF NOT EXISTS idx_files_user_id_file_name_id_partitioned
+    ON file.files_partitioned (user_id, file_name, id)
+    WHERE active = TRUE;
+
+CREATE INDEX IF NOT EXISTS idx_files_directory_listing_partitioned
+    ON file.files_partitioned (directory_id, file_name, id) INCLUDE (user_id, file_size, mime_type, updated)
+    WHERE active = TRUE;
+
+CREATE INDEX IF NOT EXISTS idx_files_user_id_active_partitioned
+    ON file.files_partitioned (user_id, directory_id)
+    WHERE active = TRUE;
+
+CREATE INDEX IF NOT EXISTS idx_files_deleted_updated_partitioned
+    ON file.files_partitioned (updated)
+    WHERE active = FALSE;
+
+CREATE INDEX IF NOT EXISTS idx_files_object_name_partitioned
+    ON file.files_partitioned (object_name COLLATE "C");
+
+CREATE INDEX IF NOT EXISTS idx_files_hot_last_accessed_partitioned
+    ON file.files_partitioned (last_accessed)
+    WHERE active = TRUE AND storage_tier = 'HOT';
+
+-- Изменение строки повторяется удалением и вставкой всей строки: так триггер не зависит от состава столбцов.
+-- Строки, которые копирует сервис, заблокированы FOR SHARE, поэтому изменение дожидается их копии
+CREATE OR REPLACE FUNCTION file.mirror_to_partitioned() RETURNS TRIGGER
+    LANGUAGE plpgsql AS
+$$
+BEGIN
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        EXECUTE format('DELETE FROM file.%I WHERE id = $1 AND user_id = $2', TG_TABLE_NAME || '_partitioned')
+            USING OLD.id, OLD.user_id;
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        EXECUTE format('INSERT INTO file.%I SELECT ($1).*', TG_TABLE_NAME || '_partitioned') USING NEW;
+    END IF;
+    RETURN NULL;
+END
+$$;
+
+DROP TRIGGER IF EXISTS trg_directories_mirror ON file.directories;
+CREATE TRIGGER trg_directories_mirror
+    AFTER INSERT OR UPDATE OR DELETE
+    ON file.directories
+    FOR EACH ROW
+EXECUTE FUNCTION file.mirror_to_partitioned();
+
+DROP TRIGGER IF EXISTS trg_files_mirror ON file.files;
+CREATE TRIGGER trg_files_mirror
+    AFTER INSERT OR UPDATE OR DELETE
+    ON file.files
+    FOR EACH ROW
+EXECUTE FUNCTION file.mirror_to_partitioned();
+
+-- Замена таблиц. Выполняется после копирования всех строк, блокирует таблицы только на время
+-- переименований. Внешний ключ file_versions -> files удаляется: ключ секционированной таблицы
+-- включает user_id, строки версий удаляет FileGcService вместе с файлами
+CREATE OR REPLACE PROCEDURE file.swap_partitioned_metadata()
+    LANGUAGE plpgsql AS
+$$
+DECLARE
+    t   TEXT;
+    idx TEXT;
+    p   TEXT;
+BEGIN
+    -- Ожидание блокировки ограничено: за ожидающей заменой встали бы все запросы к таблицам
+    PERFORM set_config('lock_timeout', '5s', TRUE);
+    LOCK TABLE file.directories, file.files, file.directories_partitioned, file.files_partitioned
+        IN ACCESS EXCLUSIVE MODE;
+
+    DROP TRIGGER IF EXISTS trg_directories_mirror ON file.directories;
+    DROP TRIGGER IF EXISTS trg_files_mirror ON file.files;
+    ALTER TABLE file.file_versions DROP CONSTRAINT IF EXISTS fk_file_versions_file;
+
+    FOREACH t IN ARRAY ARRAY ['directories', 'files']
+        LOOP
+            FOR idx IN SELECT c.relname
+                       FROM pg_index i
+                                JOIN pg_class c ON c.oid = i.indexrelid
+                       WHERE i.indrelid = format('file.%I', t)::REGCLASS
+                LOOP
+                    EXECUTE format('ALTER INDEX file.%I RENAME TO %I', idx, idx || '_legacy');
+                END LOOP;
+            EXECUTE format('ALTER TABLE file.%I RENAME TO %I', t, t || '_legacy');
+
+            EXECUTE format('ALTER TABLE file.%I RENAME TO %I', t || '_partitioned', t);
+            FOR idx IN SELECT c.relname
+                       FROM pg_index i
+                                JOIN pg_class c ON c.oid = i.indexrelid
+                       WHERE i.indrelid = format('file.%I', t)::REGCLASS
+                LOOP
+                    EXECUTE format('ALTER INDEX file.%I RENAME TO %I', idx, replace(idx, '_partitioned', ''));
+                END LOOP;
+        END LOOP;
+
+    -- Файлы и каталоги одного пользователя находятся в секциях с одинаковым номером
+    FOR remainder IN 0..15
+        LOOP
+            p := lpad(remainder::TEXT, 2, '0');
+            EXECUTE format('ALTER TABLE file.%I ADD CONSTRAINT %I FOREIGN KEY (directory_id, user_id) '
+                               || 'REFERENCES file.%I (id, user_id) NOT VALID',
+                           'files_p' || p, 'fk_files_p' || p || '_directory', 'directories_p' || p);
+            EXECUTE format('ALTER TABLE file.%I ADD CONSTRAINT %I FOREIGN KEY (parent_id, user_id) '
+                               || 'REFERENCES file.%I (id, user_id) NOT VALID',
+                           'directories_p' || p, 'fk_directories_p' || p || '_parent', 'directories_p' || p);
+        END LOOP;
+END
+$$;
+
+-- Проверка внешних ключей, добавленных NOT VALID. VALIDATE CONSTRAINT не блокирует чтение и запись
+CREATE OR REPLACE PROCEDURE file.validate_partitioned_metadata()
+    LANGUAGE plpgsql AS
+$$
+DECLARE
+    c RECORD;
+BEGIN
+    FOR c IN SELECT r.relname AS table_name, k.conname AS constraint_name
+             FROM pg_constraint k
+                      JOIN pg_class r ON r.oid = k.conrelid
+                      JOIN pg_namespace n ON n.oid = r.relnamespace
+             WHERE n.nspname = 'file'
+               AND k.contype = 'f'
+               AND NOT k.convalidated
+               AND (r.relname LIKE 'files\_p%' OR r.relname LIKE 'directories\_p%')
+        LOOP
+            EXECUTE format('ALTER TABLE file.%I VALIDATE CONSTRAINT %I', c.table_name, c.constraint_name);
+        END LOOP;
+END
+$$;
+
+-- Позиция копирования строк в секционированные таблицы; строка swap - замена таблиц и проверка ключей
+CREATE TABLE IF NOT EXISTS file.partitioning_state
+(
+    name      VARCHAR(64) PRIMARY KEY,
+    cursor    UUID                        NULL,
+    copied    BIGINT                      NOT NULL DEFAULT 0,
+    completed BOOLEAN                     NOT NULL DEFAULT FALSE,
+    updated   TIMESTAMP WITHOUT TIME ZONE NOT NULL DEFAULT (now() AT TIME ZONE 'utc')
+);
+
+INSERT INTO file.partitioning_state (name)
+VALUES ('directories'),
+       ('files'),
+       ('swap')
+ON CONFLICT DO NOTHING;
@@ -0,0 +1,30 @@
+-- Шардирование метаданных по пользователям (MetadataShards). Миграции выполняются на каждом шарде,
+-- но таблицы ниже используются только в базе шарда default.
+
+-- Шард пользователя при назначении DIRECTORY. moving = TRUE - пользователь переносится
+-- на другой шард, изменения его данных отклоняются до переключения
+CREATE TABLE IF NOT EXISTS file.user_shards
+(
+    user_id UUID PRIMARY KEY,
+    shard   VARCHAR(64)                 NOT NULL,
+    moving  BOOLEAN                     NOT NULL DEFAULT FALSE,
+    created TIMESTAMP WITHOUT TIME ZONE NOT NULL DEFAULT (now() AT TIME ZONE 'utc'),
+    updated TIMESTAMP WITHOUT TIME ZONE NOT NULL DEFAULT (now() AT TIME ZONE 'utc')
+);
+
+-- Перенос пользователя между шардами (UserShardMoveService): последний перенос каждого пользователя
+CREATE TABLE IF NOT EXISTS file.user_shard_moves
+(
+    user_id      UUID PRIMARY KEY,
+    source_shard VARCHAR(64)                 NOT NULL,
+    target_shard VARCHAR(64)                 NOT NULL,
+    step         VARCHAR(16)                 NOT NULL,
+    error        TEXT                        NULL,
+    created      TIMESTAMP WITHOUT TIME ZONE NOT NULL DEFAULT (now() AT TIME ZONE 'utc'),
+    updated      TIMESTAMP WITHOUT TIME ZONE NOT NULL DEFAULT (now() AT TIME ZONE 'utc')
+);
+
+-- Выборка незавершенных переносов
+CREATE INDEX IF NOT EXISTS idx_user_shard_moves_updated
+    ON file.user_shard_moves (updated)
+    WHERE step IN ('REQUESTED', 'FROZEN', 'SWITCHED');
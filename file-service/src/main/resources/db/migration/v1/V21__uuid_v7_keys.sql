@@ -0,0 +1,48 @@
+-- UUID версии 7 (RFC 9562) для первичных ключей, см. UuidV7: первые 48 бит - время создания в миллисекундах,
+-- поэтому новые строки вставляются в правую страницу индекса первичного ключа. Существующие ключи версии 4 остаются.
+-- В Postgres 17 нет uuidv7(): первые 6 байт случайного UUID заменяются временем, версия меняется на 7,
+-- вариант остается от gen_random_uuid()
+CREATE OR REPLACE FUNCTION file.uuid_generate_v7() RETURNS UUID
+    LANGUAGE plpgsql
+    VOLATILE AS
+$$
+DECLARE
+    value BYTEA := uuid_send(gen_random_uuid());
+BEGIN
+    value := overlay(value PLACING substring(int8send(floor(extract(EPOCH FROM clock_timestamp()) * 1000)::BIGINT) FROM 3)
+                     FROM 1 FOR 6);
+    value := set_byte(value, 6, (get_byte(value, 6) & 15) | 112);
+    RETURN encode(value, 'hex')::UUID;
+END
+$$;
+
+-- Секционированные копии (V19__partition_metadata_by_user.sql) существуют до замены таблиц
+DO
+$$
+    DECLARE
+        t TEXT;
+    BEGIN
+        FOREACH t IN ARRAY ARRAY ['directories', 'files', 'jobs', 'directories_partitioned', 'files_partitioned']
+            LOOP
+                IF to_regclass(format('file.%I', t)) IS NOT NULL THEN
+                    EXECUTE format('ALTER TABLE file.%I ALTER COLUMN id SET DEFAULT file.uuid_generate_v7()', t);
+                END IF;
+            END LOOP;
+    END
+$$;
+
+-- Листинг каталога с курсором по id: для ключей версии 7 - в порядке создания
+CREATE INDEX IF NOT EXISTS idx_files_directory_id_id
+    ON file.files (directory_id, id)
+    WHERE active = TRUE;
+
+DO
+$$
+    BEGIN
+        IF to_regclass('file.files_partitioned') IS NOT NULL THEN
+            CREATE INDEX IF NOT EXISTS idx_files_directory_id_id_partitioned
+                ON file.files_partitioned (directory_id, id)
+                WHERE active = TRUE;
+        END IF;
+    END
+$$;
@@ -0,0 +1,25 @@
+-- Переименовываем дублирующиеся активные каталоги внутри одного родителя,
+-- иначе уникальный индекс ниже не будет создан
+WITH duplicates AS (
+    SELECT id,
+           row_number() OVER (PARTITION BY parent_id, name ORDER BY created, id) AS rn
+    FROM file.directories
+    WHERE active = TRUE
+      AND parent_id IS NOT NULL
+)
+UPDATE file.directories d
+SET name = left(d.name, 200) || ' (' || d.id || ')'
+FROM duplicates dup
+WHERE d.id = dup.id
+  AND dup.rn > 1;
+
+-- Имя каталога уникально среди активных потомков одного родителя.
+-- Индекс используется для пошагового разрешения пути в одном рекурсивном запросе
+CREATE UNIQUE INDEX IF NOT EXISTS ux_directories_parent_id_name
+    ON file.directories (parent_id, name)
+    WHERE active = TRUE;
+
+-- Поиск файла по имени в каталоге (последний сегмент пути)
+CREATE INDEX IF NOT EXISTS idx_files_directory_id_file_name
+    ON file.files (directory_id, file_name)
+    WHERE active = TRUE;
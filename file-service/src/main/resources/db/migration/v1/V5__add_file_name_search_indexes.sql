@@ -0,0 +1,11 @@
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- Поиск по подстроке и префиксу имени без учета регистра: lower(file_name) LIKE '%...%'
+CREATE INDEX IF NOT EXISTS idx_files_file_name_trgm
+    ON file.files USING gin (lower(file_name) gin_trgm_ops)
+    WHERE active = TRUE;
+
+-- Keyset-пагинация результатов поиска пользователя: ORDER BY file_name, id
+CREATE INDEX IF NOT EXISTS idx_files_user_id_file_name_id
+    ON file.files (user_id, file_name, id)
+    WHERE active = TRUE;
@@ -0,0 +1,30 @@
+-- Индексы строятся только по активным записям: удаленные (active = false) строки
+-- больше не раздувают их и не попадают в выборку
+
+-- Листинг каталога: (directory_id, file_name, id) задает порядок страницы,
+-- остальные колонки включены в индекс, чтобы запрос выполнялся index-only сканированием.
+-- Заменяет idx_files_directory_id_file_name из V4
+CREATE INDEX IF NOT EXISTS idx_files_directory_listing
+    ON file.files (directory_id, file_name, id) INCLUDE (user_id, file_size, mime_type, updated)
+    WHERE active = TRUE;
+
+DROP INDEX IF EXISTS file.idx_files_directory_id_file_name;
+
+-- Файлы и каталоги пользователя
+CREATE INDEX IF NOT EXISTS idx_files_user_id_active
+    ON file.files (user_id, directory_id)
+    WHERE active = TRUE;
+
+CREATE INDEX IF NOT EXISTS idx_directories_user_id_active
+    ON file.directories (user_id, parent_id)
+    WHERE active = TRUE;
+
+-- Базовый каталог пользователя (parent_id IS NULL)
+CREATE INDEX IF NOT EXISTS idx_directories_base
+    ON file.directories (user_id, created)
+    WHERE parent_id IS NULL AND active = TRUE;
+
+-- Полные индексы по user_id больше не используются.
+-- idx_files_directory_id и idx_directories_parent_id остаются для внешних ключей
+DROP INDEX IF EXISTS file.idx_files_user_id;
+DROP INDEX IF EXISTS file.idx_directories_user_id;
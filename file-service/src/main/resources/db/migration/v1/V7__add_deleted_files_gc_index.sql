@@ -0,0 +1,4 @@
+-- Очередь физического удаления: удаленные файлы в порядке времени удаления
+CREATE INDEX IF NOT EXISTS idx_files_deleted_updated
+    ON file.files (updated)
+    WHERE active = FALSE;
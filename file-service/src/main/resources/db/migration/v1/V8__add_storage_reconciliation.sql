@@ -0,0 +1,20 @@
+-- Сверка MinIO и file.files идет сортированным слиянием по имени объекта.
+-- Порядок COLLATE "C" совпадает с порядком ключей в listObjects
+CREATE INDEX IF NOT EXISTS idx_files_object_name
+    ON file.files (object_name COLLATE "C");
+
+-- Состояние сверки: позиция (последний обработанный ключ) и счетчики текущего прохода.
+-- Строка блокируется на время обработки страницы, поэтому сверку выполняет один экземпляр сервиса
+CREATE TABLE IF NOT EXISTS file.reconciliation_state
+(
+    name           VARCHAR(64) PRIMARY KEY,
+    cursor         VARCHAR(1024)               NULL,
+    pass_started   TIMESTAMP WITHOUT TIME ZONE NULL,
+    orphan_objects BIGINT                      NOT NULL DEFAULT 0,
+    dangling_rows  BIGINT                      NOT NULL DEFAULT 0,
+    updated        TIMESTAMP WITHOUT TIME ZONE NOT NULL DEFAULT (now() AT TIME ZONE 'utc')
+);
+
+INSERT INTO file.reconciliation_state (name)
+VALUES ('files')
+ON CONFLICT DO NOTHING;
@@ -0,0 +1,21 @@
+-- Очередь фоновых задач. Задача ставится в той же транзакции, что и изменение,
+-- которое ее порождает. Выполненные задачи удаляются, исчерпавшие попытки остаются со статусом DEAD
+CREATE TABLE IF NOT EXISTS file.jobs
+(
+    id           UUID PRIMARY KEY                     DEFAULT uuid_generate_v4(),
+    type         VARCHAR(64)                 NOT NULL,
+    payload      JSONB                       NOT NULL,
+    status       VARCHAR(16)                 NOT NULL DEFAULT 'PENDING',
+    attempts     INTEGER                     NOT NULL DEFAULT 0,
+    max_attempts INTEGER                     NOT NULL,
+    run_at       TIMESTAMP WITHOUT TIME ZONE NOT NULL DEFAULT (now() AT TIME ZONE 'utc'),
+    locked_until TIMESTAMP WITHOUT TIME ZONE NULL,
+    last_error   TEXT                        NULL,
+    created      TIMESTAMP WITHOUT TIME ZONE NOT NULL DEFAULT (now() AT TIME ZONE 'utc'),
+    updated      TIMESTAMP WITHOUT TIME ZONE NOT NULL DEFAULT (now() AT TIME ZONE 'utc')
+);
+
+-- Выборка готовых задач воркерами (FOR UPDATE SKIP LOCKED)
+CREATE INDEX IF NOT EXISTS idx_jobs_type_run_at
+    ON file.jobs (type, run_at)
+    WHERE status IN ('PENDING', 'RUNNING');
@@ -0,0 +1,143 @@
+package by.cloud.file_service.datasource;
+
+import by.cloud.directory.dto.DirectoryDto;
+import by.cloud.directory.dto.DirectoryWriteResponseDto;
+import by.cloud.file.dto.FileBatchDto;
+import by.cloud.file.dto.FileDeleteResponseDto;
+import by.cloud.file.dto.FileDto;
+import by.cloud.file.dto.FileUploadResponseDto;
+import by.cloud.file.dto.FolderViewDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.util.LinkedMultiValueMap;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.containers.wait.strategy.Wait;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+    Запросы по id объекта без userId и токена (так их отправляет шлюз) выполняются на шарде владельца.
+    Пользователь закреплен за шардом metadata-2, поэтому без определения владельца по id
+    запросы попали бы на шард default и не нашли бы объект
+ */
+@Testcontainers
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class MetadataShardRoutingTest {
+    private static final String SECOND_SHARD = "metadata-2";
+    private static final UUID USER_ID = UUID.randomUUID();
+
+    @Container
+    static final PostgreSQLContainer<?> DEFAULT_SHARD_DB = new PostgreSQLContainer<>("postgres:17").withDatabaseName("file");
+
+    @Container
+    static final PostgreSQLContainer<?> SECOND_SHARD_DB = new PostgreSQLContainer<>("postgres:17").withDatabaseName("file");
+
+    @Container
+    static final GenericContainer<?> MINIO = new GenericContainer<>("minio/minio:latest")
+            .withCommand("server", "/data")
+            .withExposedPorts(9000)
+            .waitingFor(Wait.forHttp("/minio/health/live").forPort(9000));
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", DEFAULT_SHARD_DB::getJdbcUrl);
+        registry.add("spring.datasource.username", DEFAULT_SHARD_DB::getUsername);
+        registry.add("spring.datasource.password", DEFAULT_SHARD_DB::getPassword);
+        registry.add("application.metadata-sharding.enabled", () -> "true");
+        registry.add("application.metadata-sharding.assignment", () -> "DIRECTORY");
+        registry.add("application.metadata-sharding.shards[0].name", () -> SECOND_SHARD);
+        registry.add("application.metadata-sharding.shards[0].url", SECOND_SHARD_DB::getJdbcUrl);
+        registry.add("application.metadata-sharding.shards[0].username", SECOND_SHARD_DB::getUsername);
+        registry.add("application.metadata-sharding.shards[0].password", SECOND_SHARD_DB::getPassword);
+        registry.add("application.metadata-sharding.shards[0].weight", () -> "1");
+        registry.add("minio.endpoint", () -> "http://%s:%d".formatted(MINIO.getHost(), MINIO.getMappedPort(9000)));
+    }
+
+    @Test
+    void idKeyedRequestsRunOnOwnerShard() {
+        // Миграции уже выполнены при старте контекста, к пользователю сервис еще не обращался
+        jdbc(DEFAULT_SHARD_DB).update("INSERT INTO file.user_shards (user_id, shard) VALUES (?, ?)", USER_ID, SECOND_SHARD);
+
+        var directoryId = restTemplate.postForEntity("/v1/directories/initialize/{userId}", null,
+                DirectoryWriteResponseDto.class, USER_ID).getBody().getId();
+        var file = upload(directoryId);
+
+        // Строки созданы только на шарде пользователя
+        assertEquals(1, countFiles(SECOND_SHARD_DB, file.getId()));
+        assertEquals(0, countFiles(DEFAULT_SHARD_DB, file.getId()));
+
+        var found = restTemplate.getForEntity("/v1/files/{id}", FileDto.class, file.getId());
+        assertTrue(found.getStatusCode().is2xxSuccessful());
+        assertEquals(USER_ID, found.getBody().getUserId());
+
+        var directory = restTemplate.getForEntity("/v1/directories/{id}", DirectoryDto.class, directoryId);
+        assertTrue(directory.getStatusCode().is2xxSuccessful());
+
+        var view = restTemplate.getForEntity("/v1/folders/{id}/view", FolderViewDto.class, directoryId);
+        assertTrue(view.getStatusCode().is2xxSuccessful());
+        assertEquals(1, view.getBody().getFiles().size());
+
+        var download = restTemplate.getForEntity("/v1/files/download/{id}", byte[].class, file.getId());
+        assertTrue(download.getStatusCode().is2xxSuccessful());
+        assertEquals("content", new String(download.getBody(), StandardCharsets.UTF_8));
+
+        // Пакетное чтение собирает объекты со всех шардов
+        var batch = restTemplate.postForEntity("/v1/files/batch", Map.of("ids", new UUID[]{file.getId()}),
+                FileBatchDto.class);
+        assertTrue(batch.getStatusCode().is2xxSuccessful());
+        assertEquals(1, batch.getBody().getItems().size());
+
+        var deleted = restTemplate.exchange("/v1/files/{id}", HttpMethod.DELETE, null,
+                FileDeleteResponseDto.class, file.getId());
+        assertTrue(deleted.getStatusCode().is2xxSuccessful());
+        assertEquals(Boolean.FALSE, jdbc(SECOND_SHARD_DB).queryForObject(
+                "SELECT active FROM file.files WHERE id = ?", Boolean.class, file.getId()));
+    }
+
+    private FileDto upload(UUID directoryId) {
+        var body = new LinkedMultiValueMap<String, Object>();
+        body.add("files", new ByteArrayResource("content".getBytes(StandardCharsets.UTF_8)) {
+            @Override
+            public String getFilename() {
+                return "note.txt";
+            }
+        });
+        var headers = new HttpHeaders();
+        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+        var response = restTemplate.postForEntity("/v1/files?userId={userId}&directoryId={directoryId}",
+                new HttpEntity<>(body, headers), FileUploadResponseDto.class, USER_ID, directoryId);
+        assertTrue(response.getStatusCode().is2xxSuccessful());
+        return response.getBody().getFiles().getFirst();
+    }
+
+    private static int countFiles(PostgreSQLContainer<?> database, UUID id) {
+        return jdbc(database).queryForObject("SELECT count(*) FROM file.files WHERE id = ?", Integer.class, id);
+    }
+
+    private static JdbcTemplate jdbc(PostgreSQLContainer<?> database) {
+        return new JdbcTemplate(new DriverManagerDataSource(database.getJdbcUrl(), database.getUsername(),
+                database.getPassword()));
+    }
+}
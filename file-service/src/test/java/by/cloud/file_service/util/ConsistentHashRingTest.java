@@ -0,0 +1,120 @@
+package by.cloud.file_service.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+    Размещение объектов по кольцу: одинаковое на всех экземплярах при одинаковых узлах,
+    при изменении узлов меняют владельца только ключи, которые переходят на добавленный узел или уходят с удаленного
+ */
+class ConsistentHashRingTest {
+    private static final int VIRTUAL_NODES = 128;
+    private static final double TOLERANCE = 0.05;
+    private static final List<String> KEYS = IntStream.range(0, 100_000)
+            .mapToObj(i -> UUID.nameUUIDFromBytes(("object-" + i).getBytes(StandardCharsets.UTF_8)).toString())
+            .toList();
+
+    @Test
+    void placementDoesNotDependOnNodeOrder() {
+        Map<String, Integer> forward = new LinkedHashMap<>();
+        forward.put("storage-1", 1);
+        forward.put("storage-2", 2);
+        forward.put("storage-3", 1);
+        Map<String, Integer> reverse = new LinkedHashMap<>();
+        reverse.put("storage-3", 1);
+        reverse.put("storage-2", 2);
+        reverse.put("storage-1", 1);
+
+        var first = new ConsistentHashRing(forward, VIRTUAL_NODES);
+        var second = new ConsistentHashRing(reverse, VIRTUAL_NODES);
+
+        KEYS.forEach(key -> assertEquals(first.locate(key), second.locate(key), key));
+        assertEquals(first.getFingerprint(), second.getFingerprint());
+    }
+
+    @Test
+    void fingerprintChangesWithLayout() {
+        var ring = new ConsistentHashRing(Map.of("storage-1", 1, "storage-2", 1), VIRTUAL_NODES);
+
+        assertNotEquals(ring.getFingerprint(),
+                new ConsistentHashRing(Map.of("storage-1", 1, "storage-2", 2), VIRTUAL_NODES).getFingerprint());
+        assertNotEquals(ring.getFingerprint(),
+                new ConsistentHashRing(Map.of("storage-1", 1, "storage-2", 1), VIRTUAL_NODES * 2).getFingerprint());
+        assertNotEquals(ring.getFingerprint(),
+                new ConsistentHashRing(Map.of("storage-1", 1, "storage-3", 1), VIRTUAL_NODES).getFingerprint());
+    }
+
+    @Test
+    void addedNodeTakesItsShareOnly() {
+        var before = new ConsistentHashRing(Map.of("storage-1", 1, "storage-2", 1, "storage-3", 1), VIRTUAL_NODES);
+        var after = new ConsistentHashRing(Map.of("storage-1", 1, "storage-2", 1, "storage-3", 1, "storage-4", 1),
+                VIRTUAL_NODES);
+
+        assertMovedTo(before, after, "storage-4", 1.0 / 4);
+    }
+
+    @Test
+    void heavierNodeTakesProportionalShare() {
+        var before = new ConsistentHashRing(Map.of("storage-1", 1, "storage-2", 1, "storage-3", 1), VIRTUAL_NODES);
+        var after = new ConsistentHashRing(Map.of("storage-1", 1, "storage-2", 1, "storage-3", 1, "storage-4", 3),
+                VIRTUAL_NODES);
+
+        assertMovedTo(before, after, "storage-4", 3.0 / 6);
+    }
+
+    @Test
+    void zeroWeightDrainsNode() {
+        var before = new ConsistentHashRing(Map.of("storage-1", 1, "storage-2", 1, "storage-3", 1), VIRTUAL_NODES);
+        var after = new ConsistentHashRing(Map.of("storage-1", 1, "storage-2", 1, "storage-3", 0), VIRTUAL_NODES);
+
+        long moved = 0;
+        for (var key : KEYS) {
+            var owner = after.locate(key);
+            assertNotEquals("storage-3", owner, key);
+            if (!before.locate(key).equals(owner)) {
+                // С узла нулевого веса уходят только его ключи, остальные остаются на месте
+                assertEquals("storage-3", before.locate(key), key);
+                moved++;
+            }
+        }
+        assertShare(1.0 / 3, moved);
+    }
+
+    @Test
+    void ringWithoutWeightIsRejected() {
+        assertThrows(IllegalStateException.class,
+                () -> new ConsistentHashRing(Map.of("storage-1", 0, "storage-2", 0), VIRTUAL_NODES));
+    }
+
+    /*
+        Каждый ключ, сменивший владельца, перешел на узел node, и таких ключей примерно share
+     */
+    private static void assertMovedTo(ConsistentHashRing before, ConsistentHashRing after, String node, double share) {
+        long moved = 0;
+        for (var key : KEYS) {
+            var owner = after.locate(key);
+            if (!before.locate(key).equals(owner)) {
+                assertEquals(node, owner, key);
+                moved++;
+            }
+        }
+        assertShare(share, moved);
+    }
+
+    private static void assertShare(double expected, long moved) {
+        var actual = (double) moved / KEYS.size();
+        assertTrue(Math.abs(actual - expected) < TOLERANCE,
+                "Expected share of moved keys [%s], actual [%s]".formatted(expected, actual));
+    }
+}
@@ -0,0 +1,111 @@
+-- Сравнение планов запросов до и после V6__add_active_partial_covering_indexes.sql
+--
+-- Запуск на пустой базе после применения миграций:
+--   psql -h localhost -U postgres -d file -f active_indexes_explain.sql
+--
+-- Скрипт заполняет схему file синтетическими данными (1000 пользователей,
+-- 20 каталогов у каждого, ~1 000 000 файлов, из них ~30% удалены),
+-- затем выполняет EXPLAIN (ANALYZE, BUFFERS) горячих запросов дважды:
+-- со старыми индексами и с индексами из V6. Данные удаляются в конце
+
+\timing on
+
+BEGIN;
+
+INSERT INTO file.directories (id, user_id, parent_id, name, path)
+SELECT u.base_id, u.user_id, NULL, 'root', '/'
+FROM (SELECT uuid_generate_v4() AS base_id, uuid_generate_v4() AS user_id
+      FROM generate_series(1, 1000)) u;
+
+INSERT INTO file.directories (user_id, parent_id, name, path, active)
+SELECT d.user_id, d.id, 'dir-' || g, '/dir-' || g, random() > 0.3
+FROM file.directories d
+         CROSS JOIN generate_series(1, 20) g
+WHERE d.parent_id IS NULL;
+
+INSERT INTO file.files (user_id, directory_id, file_name, object_name, file_size, mime_type, active)
+SELECT d.user_id,
+       d.id,
+       'file-' || g || '.bin',
+       md5(random()::text),
+       (random() * 10000000)::int,
+       (ARRAY ['image/png', 'application/pdf', 'text/plain'])[1 + (g % 3)],
+       random() > 0.3
+FROM file.directories d
+         CROSS JOIN generate_series(1, 50) g
+WHERE d.parent_id IS NOT NULL;
+
+ANALYZE file.files;
+ANALYZE file.directories;
+
+COMMIT;
+
+-- Каталог и пользователь для запросов
+SELECT d.id AS folder_id, d.user_id AS user_id
+FROM file.directories d
+WHERE d.parent_id IS NOT NULL AND d.active = TRUE
+LIMIT 1
+\gset
+
+-- До: индексы из V1/V4
+BEGIN;
+DROP INDEX file.idx_files_directory_listing;
+DROP INDEX file.idx_files_user_id_active;
+DROP INDEX file.idx_directories_user_id_active;
+DROP INDEX file.idx_directories_base;
+CREATE INDEX idx_files_user_id ON file.files (user_id);
+CREATE INDEX idx_directories_user_id ON file.directories (user_id);
+CREATE INDEX idx_files_directory_id_file_name ON file.files (directory_id, file_name) WHERE active = TRUE;
+ANALYZE file.files;
+ANALYZE file.directories;
+
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT f.id, f.user_id, f.directory_id, f.file_name, f.file_size, f.mime_type
+FROM file.files f
+WHERE f.directory_id = :'folder_id' AND f.active = TRUE
+ORDER BY f.file_name, f.id
+LIMIT 100;
+
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT f.*
+FROM file.files f
+WHERE f.user_id = :'user_id' AND f.directory_id = :'folder_id' AND f.active = TRUE;
+
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT d.*
+FROM file.directories d
+WHERE d.parent_id IS NULL AND d.user_id = :'user_id' AND d.active = TRUE
+ORDER BY d.created;
+
+ROLLBACK;
+
+-- После: индексы из V6
+VACUUM ANALYZE file.files;
+VACUUM ANALYZE file.directories;
+
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT f.id, f.user_id, f.directory_id, f.file_name, f.file_size, f.mime_type
+FROM file.files f
+WHERE f.directory_id = :'folder_id' AND f.active = TRUE
+ORDER BY f.file_name, f.id
+LIMIT 100;
+
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT f.*
+FROM file.files f
+WHERE f.user_id = :'user_id' AND f.directory_id = :'folder_id' AND f.active = TRUE;
+
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT d.*
+FROM file.directories d
+WHERE d.parent_id IS NULL AND d.user_id = :'user_id' AND d.active = TRUE
+ORDER BY d.created;
+
+-- Размеры индексов
+SELECT indexrelname, pg_size_pretty(pg_relation_size(indexrelid)) AS size
+FROM pg_stat_user_indexes
+WHERE schemaname = 'file'
+ORDER BY indexrelname;
+
+-- Очистка синтетических данных
+TRUNCATE file.files, file.directories;
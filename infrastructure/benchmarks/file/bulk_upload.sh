@@ -0,0 +1,79 @@
+#!/usr/bin/env bash
+# Количество SQL-запросов и время фиксации транзакций при массовой загрузке файлов
+#
+# Запуск при поднятых file-postgres, minio и files-api:
+#   ./bulk_upload.sh [files] [runs]
+#
+# Скрипт RUNS раз загружает FILES файлов по 1 KB одним запросом POST /v1/files
+# и выводит время запросов, количество выполненных запросов к БД по видам
+# (pg_stat_statements) и время COMMIT. Для сравнения "до" и "после" скрипт
+# запускается на сборке без пакетной вставки (предыдущая версия files-api
+# или JDBC_BATCH_SIZE=1) и на текущей. Загруженные файлы остаются у тестового
+# пользователя BENCH_USER_ID и удаляются вместе с ним.
+#
+# Для pg_stat_statements file-postgres запускается с
+# shared_preload_libraries=pg_stat_statements (docker-compose.yml)
+
+set -euo pipefail
+
+FILES=${1:-200}
+RUNS=${2:-5}
+FILE_SERVICE_URL=${FILE_SERVICE_URL:-http://localhost:8093}
+BENCH_USER_ID=${BENCH_USER_ID:-00000000-0000-0000-0000-00000000b001}
+PSQL=${PSQL:-"docker exec -i file-postgres psql -U postgres -d file -qAtX"}
+
+workdir=$(mktemp -d)
+trap 'rm -rf "$workdir"' EXIT
+
+form=()
+for i in $(seq 1 "$FILES"); do
+  head -c 1024 /dev/urandom > "$workdir/bench-$i.bin"
+  form+=(-F "files=@$workdir/bench-$i.bin;type=application/octet-stream")
+done
+
+$PSQL <<'SQL'
+CREATE EXTENSION IF NOT EXISTS pg_stat_statements;
+SELECT pg_stat_statements_reset();
+SQL
+
+echo "Uploading $FILES files x $RUNS runs to $FILE_SERVICE_URL"
+total=0
+for run in $(seq 1 "$RUNS"); do
+  elapsed=$(curl -sf -o /dev/null -w '%{time_total}' "${form[@]}" \
+    "$FILE_SERVICE_URL/v1/files?userId=$BENCH_USER_ID")
+  echo "  run $run: ${elapsed}s"
+  total=$(echo "$total + $elapsed" | bc -l)
+done
+printf 'Mean request time: %.3fs\n\n' "$(echo "$total / $RUNS" | bc -l)"
+
+$PSQL -F $'\t' <<'SQL'
+\echo 'Statements per kind (calls, rows, total ms)'
+SELECT upper(split_part(ltrim(s.query), ' ', 1)) AS kind,
+       sum(s.calls)                              AS calls,
+       sum(s.rows)                               AS rows,
+       round(sum(s.total_exec_time)::numeric, 1) AS total_ms
+FROM pg_stat_statements s
+WHERE s.dbid = (SELECT oid FROM pg_database WHERE datname = current_database())
+GROUP BY 1
+ORDER BY 2 DESC;
+
+\echo
+\echo 'INSERT statements per table (calls, rows)'
+SELECT substring(s.query FROM '(?i)insert\s+into\s+([a-z_.]+)') AS target,
+       sum(s.calls)                                              AS calls,
+       sum(s.rows)                                               AS rows
+FROM pg_stat_statements s
+WHERE s.dbid = (SELECT oid FROM pg_database WHERE datname = current_database())
+  AND s.query ILIKE 'insert%'
+GROUP BY 1
+ORDER BY 2 DESC;
+
+\echo
+\echo 'COMMIT (calls, mean ms, max ms)'
+SELECT sum(s.calls),
+       round((sum(s.total_exec_time) / nullif(sum(s.calls), 0))::numeric, 3),
+       round(max(s.max_exec_time)::numeric, 3)
+FROM pg_stat_statements s
+WHERE s.dbid = (SELECT oid FROM pg_database WHERE datname = current_database())
+  AND upper(s.query) = 'COMMIT';
+SQL
@@ -0,0 +1,168 @@
+-- Отсечение секций в горячих запросах по id (чтение файла, блокировка размещения, пакетные операции,
+-- подъем агрегатов каталогов) с условием на user_id и без него (V19__partition_metadata_by_user.sql)
+--
+-- Запуск (по умолчанию 10 000 000 файлов):
+--   psql -h localhost -U postgres -d file -v rows=10000000 -f partition_pruning_hot_paths.sql
+--
+-- Скрипт создает схему bench с таблицами каталогов и файлов, секционированными HASH (user_id) на 16 секций,
+-- с первичными ключами (id, user_id) как в file.directories и file.files. Данные: 100 000 пользователей,
+-- 10 каталогов у каждого (цепочка глубины 10), rows файлов.
+-- Для каждого запроса выполняются EXPLAIN (ANALYZE, BUFFERS) без условия на user_id (в плане 16 секций)
+-- и с условием (одна секция или Subplans Removed в общем плане), затем среднее время чтения строки по id
+-- для 10 000 случайных файлов в обоих вариантах. Схема удаляется в конце
+
+\if :{?rows}
+\else
+\set rows 10000000
+\endif
+
+\timing on
+
+DROP SCHEMA IF EXISTS bench CASCADE;
+CREATE SCHEMA bench;
+
+CREATE TABLE bench.directories
+(
+    id        UUID    NOT NULL,
+    user_id   UUID    NOT NULL,
+    parent_id UUID,
+    n         BIGINT  NOT NULL,
+    active    BOOLEAN NOT NULL DEFAULT TRUE,
+
+    CONSTRAINT pk_bench_directories PRIMARY KEY (id, user_id)
+) PARTITION BY HASH (user_id);
+
+CREATE TABLE bench.files
+(
+    id            UUID         NOT NULL DEFAULT uuid_generate_v4(),
+    user_id       UUID         NOT NULL,
+    directory_id  UUID         NOT NULL,
+    object_name   VARCHAR(255) NOT NULL,
+    storage_shard VARCHAR(64)  NOT NULL DEFAULT 'default',
+    storage_tier  VARCHAR(16)  NOT NULL DEFAULT 'HOT',
+    file_size     BIGINT       NOT NULL,
+    active        BOOLEAN      NOT NULL DEFAULT TRUE,
+
+    CONSTRAINT pk_bench_files PRIMARY KEY (id, user_id)
+) PARTITION BY HASH (user_id);
+
+DO
+$$
+    BEGIN
+        FOR remainder IN 0..15
+            LOOP
+                EXECUTE format('CREATE TABLE bench.%I PARTITION OF bench.directories '
+                                   || 'FOR VALUES WITH (MODULUS 16, REMAINDER %s)',
+                               'directories_p' || lpad(remainder::TEXT, 2, '0'), remainder);
+                EXECUTE format('CREATE TABLE bench.%I PARTITION OF bench.files '
+                                   || 'FOR VALUES WITH (MODULUS 16, REMAINDER %s)',
+                               'files_p' || lpad(remainder::TEXT, 2, '0'), remainder);
+            END LOOP;
+    END
+$$;
+
+-- Каталог n-го уровня - потомок каталога (n-1)-го уровня того же пользователя
+INSERT INTO bench.directories (id, user_id, parent_id, n)
+SELECT c.ids[g], u.user_id, CASE WHEN g > 1 THEN c.ids[g - 1] END, (u.n - 1) * 10 + g
+FROM (SELECT row_number() OVER () AS n, uuid_generate_v4() AS user_id FROM generate_series(1, 100000)) u
+         CROSS JOIN LATERAL (SELECT array_agg(uuid_generate_v4()) AS ids FROM generate_series(1, 10) WHERE u.n > 0) c
+         CROSS JOIN generate_series(1, 10) g;
+
+INSERT INTO bench.files (user_id, directory_id, object_name, file_size)
+SELECT d.user_id, d.id, md5(g::TEXT), (random() * 10000000)::BIGINT
+FROM generate_series(1, :rows) g
+         JOIN bench.directories d ON d.n = 1 + g % 1000000;
+
+VACUUM ANALYZE bench.directories;
+VACUUM ANALYZE bench.files;
+
+-- Файл и его владелец, пакет из 100 файлов одного пользователя
+SELECT f.id AS file_id, f.user_id AS user_id, f.directory_id AS directory_id
+FROM bench.files f
+ORDER BY random()
+LIMIT 1
+\gset
+
+SELECT array_agg(f.id) AS file_ids
+FROM (SELECT f.id FROM bench.files f WHERE f.user_id = :'user_id' LIMIT 100) f
+\gset
+
+-- FileRepository.findByIdAndUserId / FileMetadataCache: без user_id проверяется индекс каждой из 16 секций
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT f.* FROM bench.files f WHERE f.id = :'file_id';
+
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT f.* FROM bench.files f WHERE f.id = :'file_id' AND f.user_id = :'user_id';
+
+-- FileRepository.lockPlacement (StorageTieringService.promote)
+BEGIN;
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT f.id, f.object_name, f.storage_shard, f.storage_tier, f.file_size
+FROM bench.files f
+WHERE f.user_id = :'user_id' AND f.id = :'file_id' AND f.active = TRUE
+FOR UPDATE;
+ROLLBACK;
+
+-- FileRepository.findAllActiveByUserIdAndIds (FileBulkService), lockActiveByIds, lockPlacements
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT f.* FROM bench.files f WHERE f.id = ANY(:'file_ids'::UUID[]) AND f.active = TRUE;
+
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT f.* FROM bench.files f WHERE f.user_id = ANY(ARRAY[:'user_id']::UUID[]) AND f.id = ANY(:'file_ids'::UUID[]) AND f.active = TRUE;
+
+-- Запросы Spring Data выполняются подготовленными: в общем плане секции отсекаются при выполнении
+SET plan_cache_mode = force_generic_plan;
+PREPARE by_owner(UUID, UUID) AS
+    SELECT f.* FROM bench.files f WHERE f.id = $1 AND f.user_id = $2;
+EXPLAIN (ANALYZE, BUFFERS) EXECUTE by_owner(:'file_id', :'user_id');
+DEALLOCATE by_owner;
+RESET plan_cache_mode;
+
+-- DirectoryRepository.applyStatsDeltas: подъем по предкам. С user_id в соединении секция каталогов
+-- выбирается при каждом шаге рекурсии (Subplans Removed во внутренней стороне Nested Loop)
+EXPLAIN (ANALYZE, BUFFERS)
+WITH RECURSIVE chain AS (
+    SELECT CAST(:'directory_id' AS UUID) AS id, CAST(:'user_id' AS UUID) AS user_id, 0 AS depth
+    UNION ALL
+    SELECT x.parent_id, c.user_id, c.depth + 1
+    FROM chain c
+    JOIN bench.directories x ON x.id = c.id AND x.active = TRUE AND x.parent_id IS NOT NULL
+)
+SELECT count(*) FROM chain;
+
+EXPLAIN (ANALYZE, BUFFERS)
+WITH RECURSIVE chain AS (
+    SELECT CAST(:'directory_id' AS UUID) AS id, CAST(:'user_id' AS UUID) AS user_id, 0 AS depth
+    UNION ALL
+    SELECT x.parent_id, c.user_id, c.depth + 1
+    FROM chain c
+    JOIN bench.directories x ON x.user_id = c.user_id AND x.id = c.id AND x.active = TRUE AND x.parent_id IS NOT NULL
+)
+SELECT count(*) FROM chain;
+
+-- Среднее время чтения строки файла по id без владельца и с владельцем по 10 000 случайным файлам
+DO
+$$
+    DECLARE
+        predicate TEXT;
+        file      RECORD;
+        started   TIMESTAMPTZ;
+        total     INTERVAL;
+    BEGIN
+        FOREACH predicate IN ARRAY ARRAY ['f.id = $1', 'f.id = $1 AND f.user_id = $2']
+            LOOP
+                total := INTERVAL '0';
+                FOR file IN SELECT f.id, f.user_id FROM bench.files f ORDER BY random() LIMIT 10000
+                    LOOP
+                        started := clock_timestamp();
+                        EXECUTE 'SELECT f.object_name FROM bench.files f WHERE ' || predicate
+                            USING file.id, file.user_id;
+                        total := total + (clock_timestamp() - started);
+                    END LOOP;
+                RAISE NOTICE '%: average lookup time % ms', predicate, round(extract(EPOCH FROM total) * 1000 / 10000, 4);
+            END LOOP;
+    END
+$$;
+
+-- Очистка
+DROP SCHEMA bench CASCADE;
@@ -0,0 +1,158 @@
+-- Листинг каталога в обычной таблице и в таблице, секционированной по user_id (V19__partition_metadata_by_user.sql)
+--
+-- Запуск (по умолчанию 100 000 000 файлов; заполнение занимает десятки минут и ~30 ГБ на каждую таблицу):
+--   psql -h localhost -U postgres -d file -v rows=100000000 -f partitioned_listing.sql
+--
+-- Скрипт создает схему bench с двумя одинаковыми таблицами файлов - обычной и секционированной
+-- HASH (user_id) на 16 секций, с индексами листинга как в file.files. Данные: 100 000 пользователей,
+-- 10 каталогов у каждого, rows файлов. Затем выполняются EXPLAIN (ANALYZE, BUFFERS) листинга
+-- (в плане секционированной таблицы должна остаться одна секция) и среднее время листинга
+-- по 1000 случайным каталогам для каждой таблицы. Схема удаляется в конце
+
+\if :{?rows}
+\else
+\set rows 100000000
+\endif
+
+\timing on
+
+DROP SCHEMA IF EXISTS bench CASCADE;
+CREATE SCHEMA bench;
+
+-- n - номер каталога для равномерного распределения файлов
+CREATE TABLE bench.directories AS
+SELECT row_number() OVER () AS n, uuid_generate_v4() AS id, u.user_id
+FROM (SELECT uuid_generate_v4() AS user_id FROM generate_series(1, 100000)) u
+         CROSS JOIN generate_series(1, 10);
+
+CREATE TABLE bench.files_heap
+(
+    id           UUID                        NOT NULL DEFAULT uuid_generate_v4(),
+    user_id      UUID                        NOT NULL,
+    directory_id UUID                        NOT NULL,
+    file_name    VARCHAR(255)                NOT NULL,
+    file_size    BIGINT                      NOT NULL,
+    mime_type    VARCHAR(100)                NOT NULL,
+    active       BOOLEAN                     NOT NULL DEFAULT TRUE,
+    updated      TIMESTAMP WITHOUT TIME ZONE NOT NULL DEFAULT (now() AT TIME ZONE 'utc'),
+
+    CONSTRAINT pk_files_heap PRIMARY KEY (id)
+);
+
+CREATE TABLE bench.files_partitioned
+(
+    LIKE bench.files_heap INCLUDING DEFAULTS,
+
+    CONSTRAINT pk_files_partitioned PRIMARY KEY (id, user_id)
+) PARTITION BY HASH (user_id);
+
+DO
+$$
+    BEGIN
+        FOR remainder IN 0..15
+            LOOP
+                EXECUTE format('CREATE TABLE bench.%I PARTITION OF bench.files_partitioned '
+                                   || 'FOR VALUES WITH (MODULUS 16, REMAINDER %s)',
+                               'files_p' || lpad(remainder::TEXT, 2, '0'), remainder);
+            END LOOP;
+    END
+$$;
+
+-- Индексы создаются после заполнения: так загрузка быстрее, а индексы плотнее
+INSERT INTO bench.files_heap (user_id, directory_id, file_name, file_size, mime_type, active)
+SELECT d.user_id,
+       d.id,
+       'file-' || g || '.bin',
+       (random() * 10000000)::BIGINT,
+       (ARRAY ['image/png', 'application/pdf', 'text/plain'])[1 + (g % 3)],
+       random() > 0.1
+FROM generate_series(1, :rows) g
+         JOIN bench.directories d ON d.n = 1 + g % 1000000;
+
+INSERT INTO bench.files_partitioned
+SELECT *
+FROM bench.files_heap;
+
+CREATE INDEX idx_files_heap_listing
+    ON bench.files_heap (directory_id, file_name, id) INCLUDE (user_id, file_size, mime_type, updated)
+    WHERE active = TRUE;
+
+CREATE INDEX idx_files_partitioned_listing
+    ON bench.files_partitioned (directory_id, file_name, id) INCLUDE (user_id, file_size, mime_type, updated)
+    WHERE active = TRUE;
+
+VACUUM ANALYZE bench.directories;
+VACUUM ANALYZE bench.files_heap;
+VACUUM ANALYZE bench.files_partitioned;
+
+-- Каталог для запросов
+SELECT d.id AS folder_id, d.user_id AS user_id
+FROM bench.directories d
+ORDER BY random()
+LIMIT 1
+\gset
+
+-- Обычная таблица: один индекс на все строки
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT f.id, f.user_id, f.directory_id, f.file_name, f.file_size, f.mime_type
+FROM bench.files_heap f
+WHERE f.user_id = :'user_id' AND f.directory_id = :'folder_id' AND f.active = TRUE
+ORDER BY f.file_name, f.id
+LIMIT 100;
+
+-- Секционированная таблица: в плане одна секция files_pNN
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT f.id, f.user_id, f.directory_id, f.file_name, f.file_size, f.mime_type
+FROM bench.files_partitioned f
+WHERE f.user_id = :'user_id' AND f.directory_id = :'folder_id' AND f.active = TRUE
+ORDER BY f.file_name, f.id
+LIMIT 100;
+
+-- Подготовленный запрос с общим планом: секция отсекается при выполнении (Subplans Removed)
+SET plan_cache_mode = force_generic_plan;
+PREPARE listing(UUID, UUID) AS
+    SELECT f.id, f.user_id, f.directory_id, f.file_name, f.file_size, f.mime_type
+    FROM bench.files_partitioned f
+    WHERE f.user_id = $1 AND f.directory_id = $2 AND f.active = TRUE
+    ORDER BY f.file_name, f.id
+    LIMIT 100;
+EXPLAIN (ANALYZE, BUFFERS) EXECUTE listing(:'user_id', :'folder_id');
+DEALLOCATE listing;
+RESET plan_cache_mode;
+
+-- Среднее время листинга первой страницы по 1000 случайным каталогам
+DO
+$$
+    DECLARE
+        t       TEXT;
+        folder  RECORD;
+        started TIMESTAMPTZ;
+        total   INTERVAL;
+    BEGIN
+        FOREACH t IN ARRAY ARRAY ['files_heap', 'files_partitioned']
+            LOOP
+                total := INTERVAL '0';
+                FOR folder IN SELECT d.id, d.user_id FROM bench.directories d ORDER BY random() LIMIT 1000
+                    LOOP
+                        started := clock_timestamp();
+                        EXECUTE format('SELECT count(*) FROM (SELECT f.id FROM bench.%I f '
+                                           || 'WHERE f.user_id = $1 AND f.directory_id = $2 AND f.active = TRUE '
+                                           || 'ORDER BY f.file_name, f.id LIMIT 100) page', t)
+                            USING folder.user_id, folder.id;
+                        total := total + (clock_timestamp() - started);
+                    END LOOP;
+                RAISE NOTICE '%: average listing time % ms', t, round(extract(EPOCH FROM total) * 1000 / 1000, 3);
+            END LOOP;
+    END
+$$;
+
+-- Размеры индексов листинга: у секционированной таблицы - сумма по секциям
+SELECT 'files_heap' AS table_name, pg_size_pretty(pg_relation_size('bench.idx_files_heap_listing')) AS size
+UNION ALL
+SELECT 'files_partitioned', pg_size_pretty(sum(pg_relation_size(i.indexrelid)))
+FROM pg_inherits p
+         JOIN pg_index i ON i.indexrelid = p.inhrelid
+WHERE p.inhparent = 'bench.idx_files_partitioned_listing'::REGCLASS;
+
+-- Очистка
+DROP SCHEMA bench CASCADE;
@@ -0,0 +1,82 @@
+-- Вставка строк с первичными ключами UUID версии 4 и версии 7 (V21__uuid_v7_keys.sql)
+--
+-- Запуск после применения миграций (по умолчанию 5 000 000 строк в каждую таблицу):
+--   psql -h localhost -U postgres -d file -v rows=5000000 -f uuid_v7_inserts.sql
+--
+-- Скрипт создает схему bench с двумя таблицами по образцу file.files, которые отличаются
+-- только значением id по умолчанию: uuid_generate_v4() и file.uuid_generate_v7().
+-- Строки вставляются пачками по 1000 строк, каждая пачка - отдельная транзакция, как при загрузке файлов.
+-- Для каждой таблицы выводятся время вставки, объем WAL (после CHECKPOINT, с полными образами страниц),
+-- размер и плотность листьев индекса первичного ключа. Разница заметна, когда индекс не помещается
+-- в shared_buffers. Схема удаляется в конце
+
+\if :{?rows}
+\else
+\set rows 5000000
+\endif
+
+\timing on
+
+CREATE EXTENSION IF NOT EXISTS pgstattuple;
+
+DROP SCHEMA IF EXISTS bench CASCADE;
+CREATE SCHEMA bench;
+
+CREATE TABLE bench.files_v4
+(
+    id           UUID PRIMARY KEY DEFAULT uuid_generate_v4(),
+    user_id      UUID         NOT NULL,
+    directory_id UUID         NOT NULL,
+    file_name    VARCHAR(255) NOT NULL,
+    file_size    BIGINT       NOT NULL,
+    created      TIMESTAMP    NOT NULL DEFAULT now()
+);
+
+CREATE TABLE bench.files_v7 (LIKE bench.files_v4 INCLUDING ALL);
+ALTER TABLE bench.files_v7 ALTER COLUMN id SET DEFAULT file.uuid_generate_v7();
+
+CREATE PROCEDURE bench.fill(target TEXT, total BIGINT)
+    LANGUAGE plpgsql AS
+$$
+DECLARE
+    done BIGINT := 0;
+BEGIN
+    WHILE done < total LOOP
+        EXECUTE format('INSERT INTO bench.%I (user_id, directory_id, file_name, file_size) '
+                           || 'SELECT uuid_generate_v4(), uuid_generate_v4(), ''file-'' || g || ''.bin'', g '
+                           || 'FROM generate_series(1, $1) g', target)
+            USING least(1000, total - done);
+        COMMIT;
+        done := done + 1000;
+    END LOOP;
+END
+$$;
+
+-- UUID версии 4
+CHECKPOINT;
+SELECT pg_current_wal_lsn() AS wal_start, clock_timestamp() AS started \gset
+CALL bench.fill('files_v4', :rows);
+SELECT 'v4'                                                                               AS keys,
+       round(:rows / extract(EPOCH FROM clock_timestamp() - :'started'::timestamptz))     AS rows_per_second,
+       pg_size_pretty(pg_wal_lsn_diff(pg_current_wal_lsn(), :'wal_start'))                AS wal;
+
+-- UUID версии 7
+CHECKPOINT;
+SELECT pg_current_wal_lsn() AS wal_start, clock_timestamp() AS started \gset
+CALL bench.fill('files_v7', :rows);
+SELECT 'v7'                                                                               AS keys,
+       round(:rows / extract(EPOCH FROM clock_timestamp() - :'started'::timestamptz))     AS rows_per_second,
+       pg_size_pretty(pg_wal_lsn_diff(pg_current_wal_lsn(), :'wal_start'))                AS wal;
+
+-- Случайные ключи делят страницы индекса по всей его ширине (плотность листьев около 70%),
+-- упорядоченные по времени ключи заполняют только правую страницу (около 90%)
+SELECT i.indexrelid::regclass                     AS index,
+       pg_size_pretty(pg_relation_size(i.indexrelid)) AS size,
+       s.avg_leaf_density,
+       s.leaf_fragmentation
+FROM pg_index i
+         CROSS JOIN LATERAL pgstatindex(i.indexrelid::regclass) s
+WHERE i.indrelid IN ('bench.files_v4'::regclass, 'bench.files_v7'::regclass)
+ORDER BY 1;
+
+DROP SCHEMA bench CASCADE;
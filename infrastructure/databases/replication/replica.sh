@@ -0,0 +1,17 @@
+#!/bin/bash
+# Потоковая реплика основной базы PRIMARY_HOST для чтения (application.replica).
+# При первом запуске копирует данные основной базы через pg_basebackup, затем запускает
+# postgres в режиме standby (standby.signal и primary_conninfo создает ключ -R)
+set -e
+
+if [ ! -s "$PGDATA/PG_VERSION" ]; then
+  until pg_isready -h "$PRIMARY_HOST" -p 5432 -U postgres; do
+    echo "Waiting for primary $PRIMARY_HOST..."
+    sleep 2
+  done
+  PGPASSWORD="$POSTGRES_PASSWORD" pg_basebackup -h "$PRIMARY_HOST" -p 5432 -U postgres \
+    -D "$PGDATA" -R -X stream -P
+  chmod 700 "$PGDATA"
+fi
+
+exec postgres -c hot_standby=on -c hot_standby_feedback=on
@@ -76,6 +76,7 @@ dependencies {
 
 	// PERSISTENCE
 	implementation("org.hibernate.orm:hibernate-envers:${versions["hibernateEnversVersion"]}")
+	implementation("org.hibernate.orm:hibernate-micrometer")
 	implementation("org.postgresql:postgresql")
 	implementation("org.flywaydb:flyway-database-postgresql")
 
@@ -0,0 +1,219 @@
+package by.cloud.person_service.audit;
+
+import by.cloud.person_service.config.AuditProperties;
+import by.cloud.person_service.exception.PersonException;
+import by.cloud.person_service.util.DateTimeUtil;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Transaction;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.envers.RevisionType;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.type.EntityType;
+import org.hibernate.type.Type;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+    Сбор изменений аудируемых сущностей в режиме аудита ASYNC (вместо слушателей Envers).
+    Изменения транзакции накапливаются в памяти и перед фиксацией, после flush, записываются
+    одной строкой person_history.audit_outbox в той же транзакции - история не теряется при сбое,
+    а вместо ревизии и строк каждой таблицы истории выполняется одна вставка.
+
+    Несколько изменений одной сущности в транзакции сводятся к одному, как в Envers
+    (ADD + MOD = ADD, ADD + DEL - изменения нет, DEL + ADD = MOD).
+    Обновление, не изменившее ни одного аудируемого свойства, в историю не попадает
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AuditEventListener implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+    private static final String OUTBOX_INSERT = """
+            INSERT INTO person_history.audit_outbox (revtmstmp, changes, created)
+            VALUES (:revtmstmp, CAST(:changes AS jsonb), :created)
+            """;
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final AuditedEntities auditedEntities;
+    private final AuditProperties properties;
+    private final ObjectMapper objectMapper;
+    private final DateTimeUtil dateTimeUtil;
+
+    private final Map<Transaction, AuditTransaction> transactions = new ConcurrentHashMap<>();
+
+    private record Change(String table, RevisionType type, Map<String, Object> row) { }
+
+    @PostConstruct
+    public void register() {
+        if (properties.mode() != AuditProperties.Mode.ASYNC) {
+            return;
+        }
+        var registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+        log.info("IN - register: asynchronous audit enabled");
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        record(event.getSession(), event.getPersister(), event.getId(), RevisionType.ADD, event.getState());
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        var entity = auditedEntities.find(event.getPersister());
+        if (entity.isEmpty() || !isAuditedChange(entity.get(), event)) {
+            return;
+        }
+        record(event.getSession(), event.getPersister(), event.getId(), RevisionType.MOD, event.getState());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        // В историю удаления записывается последнее состояние (store_data_at_delete)
+        record(event.getSession(), event.getPersister(), event.getId(), RevisionType.DEL, event.getDeletedState());
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    private boolean isAuditedChange(AuditedEntities.AuditedEntity entity, PostUpdateEvent event) {
+        var oldState = event.getOldState();
+        if (oldState == null) {
+            // Прежнее состояние неизвестно (обновление отсоединенной сущности) - изменение записывается
+            return true;
+        }
+        var state = event.getState();
+        return Arrays.stream(entity.properties())
+                .anyMatch(property -> !Objects.equals(oldState[property], state[property]));
+    }
+
+    private void record(EventSource session, EntityPersister persister, Object id, RevisionType type, Object[] state) {
+        auditedEntities.find(persister).ifPresent(entity -> {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put(entity.idColumn(), columnValue(id, persister.getIdentifierType(), session));
+            row.put("revision_type", type.getRepresentation());
+            for (int i = 0; i < entity.properties().length; i++) {
+                row.put(entity.columns()[i], columnValue(state[entity.properties()[i]], entity.types()[i], session));
+            }
+            transactions.computeIfAbsent(session.accessTransaction(), transaction -> {
+                        var auditTransaction = new AuditTransaction(transaction);
+                        session.getActionQueue().registerProcess((BeforeTransactionCompletionProcess) auditTransaction);
+                        session.getActionQueue().registerProcess((AfterTransactionCompletionProcess) auditTransaction);
+                        return auditTransaction;
+                    })
+                    .add(entity.table(), id, new Change(entity.table(), type, row));
+        });
+    }
+
+    /*
+        Значения приводятся к виду, который jsonb_populate_record разберет в тип столбца истории:
+        ссылки - идентификатор, Instant - время UTC без зоны (как в столбцах TIMESTAMP WITHOUT TIME ZONE),
+        перечисления - имя (аудируемые перечисления хранятся как EnumType.STRING)
+     */
+    private Object columnValue(Object value, Type type, SharedSessionContractImplementor session) {
+        if (value == null) {
+            return null;
+        }
+        if (type instanceof EntityType entityType) {
+            value = entityType.getAssociatedEntityPersister(session.getFactory()).getIdentifier(value, session);
+        }
+        if (value instanceof Instant instant) {
+            return LocalDateTime.ofInstant(instant, ZoneOffset.UTC).toString();
+        }
+        if (value instanceof Enum<?> enumValue) {
+            return enumValue.name();
+        }
+        if (value instanceof Number || value instanceof Boolean || value instanceof String) {
+            return value;
+        }
+        return value.toString();
+    }
+
+    private static RevisionType merge(RevisionType previous, RevisionType next) {
+        if (previous == RevisionType.ADD) {
+            return next == RevisionType.DEL ? null : RevisionType.ADD;
+        }
+        if (previous == RevisionType.DEL && next == RevisionType.ADD) {
+            return RevisionType.MOD;
+        }
+        return next;
+    }
+
+    private final class AuditTransaction implements BeforeTransactionCompletionProcess, AfterTransactionCompletionProcess {
+        private final Transaction transaction;
+        private final Map<List<Object>, Change> changes = new LinkedHashMap<>();
+
+        private AuditTransaction(Transaction transaction) {
+            this.transaction = transaction;
+        }
+
+        private void add(String table, Object id, Change change) {
+            var key = List.of(table, id);
+            var previous = changes.remove(key);
+            var type = previous != null ? merge(previous.type(), change.type()) : change.type();
+            if (type == null) {
+                return;
+            }
+            change.row().put("revision_type", type.getRepresentation());
+            changes.put(key, new Change(change.table(), type, change.row()));
+        }
+
+        @Override
+        public void doBeforeTransactionCompletion(SessionImplementor session) {
+            transactions.remove(transaction);
+            if (changes.isEmpty()) {
+                return;
+            }
+            var payload = changes.values().stream()
+                    .map(change -> Map.of("table", change.table(), "row", change.row()))
+                    .toList();
+            var now = dateTimeUtil.now();
+            try {
+                session.createNativeMutationQuery(OUTBOX_INSERT)
+                        .setParameter("revtmstmp", now.toEpochMilli())
+                        .setParameter("changes", objectMapper.writeValueAsString(payload))
+                        .setParameter("created", now)
+                        .executeUpdate();
+            } catch (JsonProcessingException e) {
+                throw new PersonException("Failed to serialize audit changes: %s", e.getMessage());
+            }
+        }
+
+        @Override
+        public void doAfterTransactionCompletion(boolean success, SharedSessionContractImplementor session) {
+            // При откате doBeforeTransactionCompletion не вызывается
+            transactions.remove(transaction);
+        }
+    }
+}
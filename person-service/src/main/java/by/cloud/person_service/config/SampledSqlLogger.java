@@ -0,0 +1,30 @@
+package by.cloud.person_service.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/*
+    Выборочный лог SQL вместо hibernate.show_sql: пишется доля logSampleRate запросов и только при уровне DEBUG
+    этого логгера, который включается на время разбора переменной LOGGING_LEVEL_... (изменяемая точка
+    /actuator/loggers не открыта). При уровне INFO стоимость - одна проверка уровня на запрос.
+    Время выполнения не пишется: медленные запросы отдельно логирует Hibernate (hibernate.log_slow_query),
+    а время запросов видно в метриках
+ */
+@Slf4j
+public class SampledSqlLogger implements StatementInspector {
+    private final double sampleRate;
+
+    public SampledSqlLogger(SqlProperties properties) {
+        this.sampleRate = properties.logSampleRate();
+    }
+
+    @Override
+    public String inspect(String sql) {
+        if (log.isDebugEnabled() && ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            log.debug("IN - inspect: {}", sql);
+        }
+        return sql;
+    }
+}
@@ -0,0 +1,19 @@
+package by.cloud.person_service.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class SqlConfig {
+
+    /*
+        Каждый запрос сессии проходит через SampledSqlLogger до подготовки JDBC-запроса
+     */
+    @Bean
+    public HibernatePropertiesCustomizer sqlPropertiesCustomizer(SqlProperties properties) {
+        return hibernateProperties -> hibernateProperties.put(AvailableSettings.STATEMENT_INSPECTOR,
+                new SampledSqlLogger(properties));
+    }
+}
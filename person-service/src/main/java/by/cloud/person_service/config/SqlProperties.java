@@ -0,0 +1,18 @@
+package by.cloud.person_service.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/*
+    Наблюдение за запросами к базе.
+    queryMetrics - метрики каждого запроса по статистике Hibernate (HibernateQueryMetric),
+    queryMetricsInterval - как часто регистрируются метрики новых запросов,
+    logSampleRate - доля запросов, текст которых пишется в лог при уровне DEBUG логгера SampledSqlLogger
+ */
+@ConfigurationProperties("application.sql")
+public record SqlProperties(
+        boolean queryMetrics,
+        Duration queryMetricsInterval,
+        double logSampleRate
+) { }
@@ -0,0 +1,65 @@
+package by.cloud.person_service.datasource;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Base64;
+import java.util.Set;
+
+/*
+    Определяет пользователя запроса для ReadYourWritesTracker и отмечает изменение после
+    любого запроса, кроме GET/HEAD/OPTIONS. Пользователь - sub токена из Authorization
+    (токен здесь не проверяется: он нужен только для выбора базы при чтении).
+    Регистрация выполняется без токена, поэтому после нее окно действует для всех чтений
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "application.replica", name = "enabled", havingValue = "true")
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+    private static final Set<String> SAFE_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final ReadYourWritesTracker tracker;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        var user = resolveUser(request);
+        tracker.bind(user);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            tracker.unbind();
+            if (!SAFE_METHODS.contains(request.getMethod())) {
+                tracker.recordWrite(user);
+            }
+        }
+    }
+
+    private String resolveUser(HttpServletRequest request) {
+        var authorization = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (authorization == null || !authorization.startsWith(BEARER_PREFIX)) {
+            return null;
+        }
+        var parts = authorization.substring(BEARER_PREFIX.length()).split("\\.");
+        if (parts.length < 2) {
+            return null;
+        }
+        try {
+            var subject = objectMapper.readTree(Base64.getUrlDecoder().decode(parts[1])).path("sub");
+            return subject.isTextual() ? subject.asText() : null;
+        } catch (IllegalArgumentException | IOException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package by.cloud.person_service.datasource;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/*
+    Проверка отставания реплик. Сначала читается текущая позиция WAL основной базы:
+    реплика, которая воспроизвела WAL до этой позиции, не отстает. Иначе отставание - время
+    с момента последней воспроизведенной транзакции. База, которая не находится в режиме
+    восстановления, репликой не считается и не используется
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "application.replica", name = "enabled", havingValue = "true")
+public class ReplicaLagMonitor {
+    private static final int QUERY_TIMEOUT_SECONDS = 2;
+    private static final String PRIMARY_LSN = "SELECT CAST(pg_current_wal_lsn() AS text)";
+    private static final String REPLICA_LAG = """
+            SELECT pg_is_in_recovery() AS recovery,
+                   pg_last_wal_replay_lsn() >= CAST(? AS pg_lsn) AS caught_up,
+                   CAST(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000 AS bigint) AS lag_millis
+            """;
+
+    private final ReplicaRoutingDataSource routingDataSource;
+    private final ReadYourWritesTracker tracker;
+
+    @Scheduled(fixedDelayString = "${application.replica.lag-check-interval}")
+    public void check() {
+        tracker.evictExpired();
+
+        String primaryLsn;
+        try {
+            primaryLsn = jdbcTemplate(routingDataSource.getPrimary()).queryForObject(PRIMARY_LSN, String.class);
+        } catch (Exception e) {
+            log.error("Failed to read primary WAL position", e);
+            return;
+        }
+
+        for (var replica : routingDataSource.getReplicas()) {
+            var lag = measure(replica, primaryLsn);
+            if (lag == null && replica.getLag() != null) {
+                log.warn("IN - check: replica [{}] excluded from reads", replica.getName());
+            } else if (lag != null && replica.getLag() == null) {
+                log.info("IN - check: replica [{}] available for reads, lag [{}]", replica.getName(), lag);
+            }
+            replica.setLag(lag);
+        }
+    }
+
+    private Duration measure(ReplicaRoutingDataSource.Replica replica, String primaryLsn) {
+        try {
+            return jdbcTemplate(replica.getDataSource()).queryForObject(REPLICA_LAG, (rs, rowNum) -> {
+                if (!rs.getBoolean("recovery")) {
+                    log.warn("IN - measure: database [{}] is not in recovery, it is not used as a replica", replica.getName());
+                    return null;
+                }
+                if (rs.getBoolean("caught_up")) {
+                    return Duration.ZERO;
+                }
+                var lagMillis = rs.getLong("lag_millis");
+                // Реплика еще не воспроизвела ни одной транзакции
+                return rs.wasNull() ? null : Duration.ofMillis(Math.max(lagMillis, 0));
+            }, primaryLsn);
+        } catch (Exception e) {
+            log.warn("IN - measure: failed to check replica [{}]: {}", replica.getName(), e.getMessage());
+            return null;
+        }
+    }
+
+    private static JdbcTemplate jdbcTemplate(DataSource dataSource) {
+        var jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.setQueryTimeout(QUERY_TIMEOUT_SECONDS);
+        return jdbcTemplate;
+    }
+}
@@ -0,0 +1,44 @@
+package by.cloud.person_service.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.Instant;
+
+/*
+    Изменения одной транзакции, ожидающие записи в таблицы истории (режим аудита ASYNC).
+    Строки создает AuditEventListener запросом при фиксации, через JPA не сохраняются
+ */
+@Setter
+@Getter
+@Entity
+@Table(name = "audit_outbox", schema = "person_history")
+public class AuditOutbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false)
+    private Long id;
+
+    @NotNull
+    @Column(name = "revtmstmp", nullable = false)
+    private Long revtmstmp;
+
+    @NotNull
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "changes", nullable = false)
+    private String changes;
+
+    @NotNull
+    @Column(name = "created", nullable = false)
+    private Instant created;
+}
@@ -1,16 +1,26 @@
 package by.cloud.person_service.entity;
 
 import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
 import org.hibernate.envers.RevisionEntity;
 import org.hibernate.envers.RevisionNumber;
 import org.hibernate.envers.RevisionTimestamp;
 
+/*
+    Ревизия Envers.
+    Номер выдается последовательностью person_history.revinfo_seq блоками по allocationSize (pooled-оптимизатор),
+    поэтому вставки ревизии и аудируемых сущностей объединяются в JDBC-пакеты (hibernate.jdbc.batch_size)
+ */
+@Setter
+@Getter
 @Entity
 @RevisionEntity
 @Table(name = "revinfo", schema = "person_history")
 public class BaseEnversUtilEntity {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "revinfo_seq")
+    @SequenceGenerator(name = "revinfo_seq", schema = "person_history", sequenceName = "revinfo_seq", allocationSize = 50)
     @RevisionNumber
     @Column(name = "rev")
     private long rev;
@@ -0,0 +1,32 @@
+package by.cloud.person_service.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+/*
+    Строка истории собирается из JSON через jsonb_populate_record по типу строки самой таблицы,
+    поэтому порядок и типы столбцов совпадают с тем, что пишет Envers.
+    Имя таблицы подставляется в запрос: вызывающий код проверяет его по AuditedEntities
+ */
+public class AuditHistoryRepositoryImpl implements AuditHistoryRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public int insertHistory(String table, Long[] outboxIds, Long[] revisions) {
+        return entityManager.createNativeQuery("""
+                        INSERT INTO %1$s
+                        SELECT (jsonb_populate_record(NULL::%1$s,
+                                (c.value -> 'row') || jsonb_build_object('revision', b.revision))).*
+                        FROM unnest(CAST(:ids AS bigint[]), CAST(:revisions AS bigint[])) AS b (id, revision)
+                                 JOIN person_history.audit_outbox o ON o.id = b.id
+                                 CROSS JOIN jsonb_array_elements(o.changes) c
+                        WHERE c.value ->> 'table' = :table
+                        """.formatted(table))
+                .setParameter("ids", outboxIds)
+                .setParameter("revisions", revisions)
+                .setParameter("table", table)
+                .executeUpdate();
+    }
+}
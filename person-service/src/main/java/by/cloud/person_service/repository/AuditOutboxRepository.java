@@ -0,0 +1,36 @@
+package by.cloud.person_service.repository;
+
+import by.cloud.person_service.entity.AuditOutbox;
+import by.cloud.person_service.repository.projection.AuditOutboxView;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface AuditOutboxRepository extends JpaRepository<AuditOutbox, Long>, AuditHistoryRepository {
+    /*
+        Пачка в порядке фиксации транзакций; строки, которые переносит другой экземпляр, пропускаются
+     */
+    @Query(nativeQuery = true, value = """
+            SELECT o.id AS "id", o.revtmstmp AS "timestamp"
+            FROM person_history.audit_outbox o
+            ORDER BY o.id
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """)
+    List<AuditOutboxView> lockBatch(@Param("limit") int limit);
+
+    @Query(nativeQuery = true, value = """
+            SELECT DISTINCT c.value ->> 'table'
+            FROM person_history.audit_outbox o
+                     CROSS JOIN jsonb_array_elements(o.changes) c
+            WHERE o.id = ANY(:ids)
+            """)
+    List<String> findTables(@Param("ids") Long[] ids);
+
+    @Modifying
+    @Query(nativeQuery = true, value = "DELETE FROM person_history.audit_outbox o WHERE o.id = ANY(:ids)")
+    int deleteByIds(@Param("ids") Long[] ids);
+}
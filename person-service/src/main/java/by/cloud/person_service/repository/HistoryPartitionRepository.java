@@ -0,0 +1,15 @@
+package by.cloud.person_service.repository;
+
+public interface HistoryPartitionRepository {
+    /*
+        Секция [from, to) таблицы table, имена - с указанием схемы
+     */
+    void createPartition(String table, String partition, long from, long to);
+
+    void dropPartition(String partition);
+
+    /*
+        Ограничивает ожидание блокировки секционируемой таблицы в текущей транзакции
+     */
+    void setLockTimeout(long millis);
+}
@@ -0,0 +1,31 @@
+package by.cloud.person_service.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+/*
+    DDL секций истории. Имена таблиц подставляются в запрос: их формирует HistoryPartitionService
+    по AuditedEntities, значения от пользователя сюда не попадают
+ */
+public class HistoryPartitionRepositoryImpl implements HistoryPartitionRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public void createPartition(String table, String partition, long from, long to) {
+        entityManager.createNativeQuery("CREATE TABLE IF NOT EXISTS %s PARTITION OF %s FOR VALUES FROM (%d) TO (%d)"
+                        .formatted(partition, table, from, to))
+                .executeUpdate();
+    }
+
+    @Override
+    public void dropPartition(String partition) {
+        entityManager.createNativeQuery("DROP TABLE IF EXISTS %s".formatted(partition)).executeUpdate();
+    }
+
+    @Override
+    public void setLockTimeout(long millis) {
+        entityManager.createNativeQuery("SET LOCAL lock_timeout = %d".formatted(millis)).executeUpdate();
+    }
+}
@@ -0,0 +1,42 @@
+package by.cloud.person_service.repository;
+
+import by.cloud.person_service.entity.BaseEnversUtilEntity;
+import by.cloud.person_service.repository.projection.HistoryPartitionView;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface RevisionRepository extends JpaRepository<BaseEnversUtilEntity, Long>, HistoryPartitionRepository {
+    /*
+        Обслуживание секций выполняет один экземпляр сервиса, остальные пропускают запуск
+     */
+    @Query(nativeQuery = true, value = "SELECT pg_try_advisory_xact_lock(hashtext('person_history.partitions'))")
+    boolean tryLockPartitions();
+
+    /*
+        Секции таблицы и верхняя граница диапазона ревизий каждой из них
+     */
+    @Query(nativeQuery = true, value = """
+            SELECT n.nspname || '.' || c.relname AS "name",
+                   CAST((regexp_match(pg_get_expr(c.relpartbound, c.oid), 'TO \\(''{0,1}(-{0,1}[0-9]+)'))[1] AS bigint)
+                                                AS "upperBound"
+            FROM pg_inherits i
+                     JOIN pg_class c ON c.oid = i.inhrelid
+                     JOIN pg_namespace n ON n.oid = c.relnamespace
+            WHERE i.inhparent = CAST(:table AS regclass)
+            """)
+    List<HistoryPartitionView> findPartitions(@Param("table") String table);
+
+    /*
+        Переводит последовательность ревизий в диапазон нового месяца. Значение только увеличивается:
+        если последовательность уже в диапазоне, запрос ничего не меняет
+     */
+    @Query(nativeQuery = true, value = """
+            SELECT setval('person_history.revinfo_seq', :base)
+            FROM person_history.revinfo_seq s
+            WHERE s.last_value < :base
+            """)
+    List<Long> advanceRevisions(@Param("base") long base);
+}
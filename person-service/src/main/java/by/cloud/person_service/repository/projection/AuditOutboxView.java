@@ -0,0 +1,7 @@
+package by.cloud.person_service.repository.projection;
+
+public interface AuditOutboxView {
+    Long getId();
+
+    Long getTimestamp();
+}
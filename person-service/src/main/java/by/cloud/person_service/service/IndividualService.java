@@ -8,11 +8,11 @@ import by.cloud.person_service.entity.Individual;
 import by.cloud.person_service.exception.PersonException;
 import by.cloud.person_service.mapper.IndividualMapper;
 import by.cloud.person_service.repository.IndividualRepository;
-import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.UUID;
@@ -33,6 +33,7 @@ public class IndividualService {
         return new IndividualWriteResponseDto(individual.getId().toString());
     }
 
+    @Transactional(readOnly = true)
     public IndividualPageDto findByEmails(List<String> emails) {
         var individuals = individualRepository.findAllByEmails(emails);
         var from = individualMapper.from(individuals);
@@ -41,6 +42,7 @@ public class IndividualService {
         return individualPageDto;
     }
 
+    @Transactional(readOnly = true)
     public IndividualDto findById(UUID id) {
         var individual = individualRepository.findById(id)
                         .orElseThrow(() -> new PersonException("Individual not found by id=[%s]", id));
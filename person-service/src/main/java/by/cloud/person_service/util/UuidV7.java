@@ -0,0 +1,43 @@
+package by.cloud.person_service.util;
+
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.UUID;
+
+/*
+    UUID версии 7 (RFC 9562): первые 48 бит - время создания в миллисекундах, остальные - случайные.
+    Postgres сравнивает uuid побайтно, поэтому новые ключи идут по возрастанию и вставляются в правую
+    страницу индекса, а не в случайную, как UUID версии 4. Ключи версий 4 и 7 хранятся в одном столбце
+    и сравниваются по тем же правилам
+ */
+public final class UuidV7 {
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private UuidV7() {
+    }
+
+    public static UUID generate() {
+        return of(System.currentTimeMillis());
+    }
+
+    /*
+        Время создания ключа версии 7, для ключей других версий - null
+     */
+    public static Instant timestamp(UUID id) {
+        return id.version() == 7 ? Instant.ofEpochMilli(id.getMostSignificantBits() >>> 16) : null;
+    }
+
+    private static UUID of(long millis) {
+        var random = new byte[10];
+        RANDOM.nextBytes(random);
+        // 48 бит времени, версия 7, 12 случайных бит
+        long msb = (millis << 16) | 0x7000L | ((random[0] & 0x0FL) << 8) | (random[1] & 0xFFL);
+        // вариант RFC 9562 (10), 62 случайных бита
+        long lsb = 0;
+        for (int i = 2; i < random.length; i++) {
+            lsb = (lsb << 8) | (random[i] & 0xFFL);
+        }
+        lsb = (lsb & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(msb, lsb);
+    }
+}
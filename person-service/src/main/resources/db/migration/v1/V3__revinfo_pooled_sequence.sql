@@ -0,0 +1,14 @@
+-- Номер ревизии Envers выдается последовательностью с шагом 50 (pooled-оптимизатор Hibernate),
+-- а не столбцом BIGSERIAL: для IDENTITY Hibernate выполняет INSERT сразу и не может объединять
+-- вставки в пакеты. Шаг должен совпадать с allocationSize в BaseEnversUtilEntity
+CREATE SEQUENCE IF NOT EXISTS person_history.revinfo_seq INCREMENT BY 50;
+
+-- Pooled-оптимизатор использует значения (n - 50, n], поэтому последовательность начинается
+-- не ниже уже выданных номеров плюс шаг
+SELECT setval('person_history.revinfo_seq', COALESCE(MAX(rev), 0) + 50)
+FROM person_history.revinfo;
+
+ALTER TABLE person_history.revinfo
+    ALTER COLUMN rev DROP DEFAULT;
+
+DROP SEQUENCE IF EXISTS person_history.revinfo_rev_seq;
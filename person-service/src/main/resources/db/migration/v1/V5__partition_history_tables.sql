@@ -0,0 +1,70 @@
+-- Секционирование истории по месяцам (HistoryPartitionService).
+-- Номер ревизии привязан ко времени: ревизии месяца YYYYMM выдаются из диапазона
+-- [YYYYMM * 10^10, следующий YYYYMM * 10^10), последовательность revinfo_seq переводится
+-- в диапазон месяца в его начале. Поэтому revinfo и *_history секционируются по номеру ревизии:
+-- секция соответствует месяцу, запросы Envers по номеру ревизии отсекают лишние секции,
+-- а устаревшая история удаляется целыми секциями.
+--
+-- Существующие таблицы подключаются как секции *_legacy для диапазона до текущего месяца.
+-- Внешние ключи на revinfo удаляются: строки истории и их ревизии лежат в секциях
+-- с одинаковыми границами и удаляются вместе
+
+ALTER TABLE person_history.users_history DROP CONSTRAINT IF EXISTS fk_users_history_rev;
+ALTER TABLE person_history.individuals_history DROP CONSTRAINT IF EXISTS fk_individuals_history_rev;
+
+ALTER TABLE person_history.revinfo RENAME TO revinfo_legacy;
+ALTER TABLE person_history.revinfo_legacy RENAME CONSTRAINT revinfo_pkey TO revinfo_legacy_pkey;
+
+ALTER TABLE person_history.users_history RENAME TO users_history_legacy;
+ALTER TABLE person_history.users_history_legacy RENAME CONSTRAINT pk_users_history TO pk_users_history_legacy;
+ALTER INDEX person_history.idx_users_history_revision RENAME TO idx_users_history_legacy_revision;
+
+ALTER TABLE person_history.individuals_history RENAME TO individuals_history_legacy;
+ALTER TABLE person_history.individuals_history_legacy RENAME CONSTRAINT pk_individuals_history TO pk_individuals_history_legacy;
+ALTER INDEX person_history.idx_individuals_history_revision RENAME TO idx_individuals_history_legacy_revision;
+
+CREATE TABLE person_history.revinfo
+(
+    rev       BIGINT NOT NULL,
+    revtmstmp BIGINT,
+
+    CONSTRAINT pk_revinfo PRIMARY KEY (rev)
+) PARTITION BY RANGE (rev);
+
+CREATE TABLE person_history.users_history
+(
+    LIKE person_history.users_history_legacy INCLUDING DEFAULTS,
+
+    CONSTRAINT pk_users_history PRIMARY KEY (id, revision)
+) PARTITION BY RANGE (revision);
+
+CREATE INDEX IF NOT EXISTS idx_users_history_revision ON person_history.users_history (revision);
+
+CREATE TABLE person_history.individuals_history
+(
+    LIKE person_history.individuals_history_legacy INCLUDING DEFAULTS,
+
+    CONSTRAINT pk_individuals_history PRIMARY KEY (id, revision)
+) PARTITION BY RANGE (revision);
+
+CREATE INDEX IF NOT EXISTS idx_individuals_history_revision ON person_history.individuals_history (revision);
+
+DO
+$$
+    DECLARE
+        month_start TIMESTAMP := date_trunc('month', now() AT TIME ZONE 'utc');
+        base        BIGINT    := to_char(month_start, 'YYYYMM')::BIGINT * 10000000000;
+        next_base   BIGINT    := to_char(month_start + INTERVAL '1 month', 'YYYYMM')::BIGINT * 10000000000;
+        t           TEXT;
+    BEGIN
+        FOREACH t IN ARRAY ARRAY ['revinfo', 'users_history', 'individuals_history']
+            LOOP
+                EXECUTE format('ALTER TABLE person_history.%I ATTACH PARTITION person_history.%I FOR VALUES FROM (MINVALUE) TO (%s)',
+                               t, t || '_legacy', base);
+                EXECUTE format('CREATE TABLE person_history.%I PARTITION OF person_history.%I FOR VALUES FROM (%s) TO (%s)',
+                               t || '_p' || to_char(month_start, 'YYYYMM'), t, base, next_base);
+            END LOOP;
+
+        PERFORM setval('person_history.revinfo_seq', base);
+    END
+$$;
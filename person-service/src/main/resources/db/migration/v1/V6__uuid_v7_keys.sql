@@ -0,0 +1,23 @@
+-- UUID версии 7 (RFC 9562) для первичных ключей, см. UuidV7: первые 48 бит - время создания в миллисекундах,
+-- поэтому новые строки вставляются в правую страницу индекса первичного ключа. Существующие ключи версии 4 остаются.
+-- В Postgres 17 нет uuidv7(): первые 6 байт случайного UUID заменяются временем, версия меняется на 7,
+-- вариант остается от gen_random_uuid()
+CREATE OR REPLACE FUNCTION person.uuid_generate_v7() RETURNS UUID
+    LANGUAGE plpgsql
+    VOLATILE AS
+$$
+DECLARE
+    value BYTEA := uuid_send(gen_random_uuid());
+BEGIN
+    value := overlay(value PLACING substring(int8send(floor(extract(EPOCH FROM clock_timestamp()) * 1000)::BIGINT) FROM 3)
+                     FROM 1 FOR 6);
+    value := set_byte(value, 6, (get_byte(value, 6) & 15) | 112);
+    RETURN encode(value, 'hex')::UUID;
+END
+$$;
+
+ALTER TABLE person.users
+    ALTER COLUMN id SET DEFAULT person.uuid_generate_v7();
+
+ALTER TABLE person.individuals
+    ALTER COLUMN id SET DEFAULT person.uuid_generate_v7();